@@ -0,0 +1,56 @@
+package com.wharvex.hespr.benchmarks;
+
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Interpreter.startProgram on small programs that each stress one thing: integer arithmetic in a
+ * loop, recursion (gcdRec), string concatenation and filling an array. The programs are prepared
+ * the way Hespr.main prepares them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterpreterBenchmark {
+
+  @Param({"intLoop", "gcdRec", "concat", "arrayFill"})
+  public String program;
+
+  private ProgramNode programNode;
+  private PrintStream out;
+
+  @Setup
+  public void setUp() throws Exception {
+    // The parser and Write print
+    this.out = System.out;
+    System.setOut(Programs.nullOutput());
+    this.programNode = Programs.prepare(Programs.get(this.program));
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.setOut(this.out);
+  }
+
+  @Benchmark
+  public void startProgram() throws Exception {
+    new Interpreter(this.programNode).startProgram();
+  }
+}
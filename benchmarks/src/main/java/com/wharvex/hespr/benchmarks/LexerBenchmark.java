@@ -0,0 +1,65 @@
+package com.wharvex.hespr.benchmarks;
+
+import com.wharvex.hespr.lexer.Lexer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lexer.lex over a generated file. The chars counter gives the throughput in characters per
+ * second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+
+  @Param({"10", "200"})
+  public int functions;
+
+  private List<String> lines;
+  private int length;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Chars {
+
+    public long chars;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.chars = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    this.lines = Programs.generated(this.functions);
+    this.length = Programs.length(this.lines);
+  }
+
+  @Benchmark
+  public Lexer lex(Chars counter) throws Exception {
+    Lexer lexer = new Lexer(this.lines.size());
+    for (String line : this.lines) {
+      lexer.lex(line);
+    }
+    counter.chars += this.length;
+    return lexer;
+  }
+}
@@ -0,0 +1,73 @@
+package com.wharvex.hespr.benchmarks;
+
+import com.wharvex.hespr.lexer.Token;
+import com.wharvex.hespr.parser.Parser;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parser.parse over the tokens of a generated file. The tokens counter gives the throughput in
+ * tokens per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+  @Param({"10", "200"})
+  public int functions;
+
+  private List<Token> tokens;
+  private PrintStream out;
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Tokens {
+
+    public long tokens;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.tokens = 0;
+    }
+  }
+
+  @Setup
+  public void setUp() throws Exception {
+    this.tokens = Programs.lex(Programs.generated(this.functions));
+    // parse() prints the program
+    this.out = System.out;
+    System.setOut(Programs.nullOutput());
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.setOut(this.out);
+  }
+
+  @Benchmark
+  public ProgramNode parse(Tokens counter) throws Exception {
+    ProgramNode ret = new Parser(this.tokens).parse();
+    counter.tokens += this.tokens.size();
+    return ret;
+  }
+}
@@ -0,0 +1,147 @@
+package com.wharvex.hespr.benchmarks;
+
+import com.wharvex.hespr.lexer.Lexer;
+import com.wharvex.hespr.lexer.Token;
+import com.wharvex.hespr.parser.Parser;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.semantic.CallLinking;
+import com.wharvex.hespr.semantic.ConstantFolding;
+import com.wharvex.hespr.semantic.SemanticAnalysis;
+import com.wharvex.hespr.semantic.SlotResolution;
+import com.wharvex.hespr.semantic.TailCallMarking;
+import com.wharvex.hespr.semantic.TypeAnnotation;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The hespr programs the benchmarks run, and the steps Hespr.main takes to get them ready.
+ */
+public final class Programs {
+
+  public static final List<String> INT_LOOP = List.of(
+      "blok load||",
+      "flux i sum, int",
+      "     with i: 1 -> 100000",
+      "          sum =_ sum + (i mod 7)",
+      "     Write! sum");
+
+  public static final List<String> GCD_REC = List.of(
+      "blok gcdRec|a b $divisor, int|",
+      "     when b = 0",
+      "          divisor =_ a",
+      "     else",
+      "          gcdRec! b (a mod b) $divisor",
+      "blok load||",
+      "flux d i, int",
+      "     with i: 1 -> 2000",
+      "          gcdRec! (i * 7919) 1000 $d",
+      "     Write! d");
+
+  public static final List<String> CONCAT = List.of(
+      "blok load||",
+      "flux i, int",
+      "flux s, str",
+      "     s =_ \"\"",
+      "     with i: 1 -> 2000",
+      "          s =_ s + i",
+      "     Write! s");
+
+  public static final List<String> ARRAY_FILL = List.of(
+      "blok load||",
+      "flux i, int",
+      "flux a, int arr 1 -> 5000",
+      "     with i: 1 -> 5000",
+      "          a[i] =_ i * 2",
+      "     Write! a[2500]");
+
+  private Programs() {
+  }
+
+  public static List<String> get(String name) {
+    return switch (name) {
+      case "intLoop" -> INT_LOOP;
+      case "gcdRec" -> GCD_REC;
+      case "concat" -> CONCAT;
+      case "arrayFill" -> ARRAY_FILL;
+      default -> throw new IllegalArgumentException("No benchmark program named " + name);
+    };
+  }
+
+  /**
+   * A file with the given number of functions (an iterative and a recursive gcd each, under
+   * different names), commented, plus a load that calls them all.
+   */
+  public static List<String> generated(int functions) {
+    var ret = new ArrayList<String>();
+    var load = new ArrayList<String>();
+    for (int n = 0; n < functions; n++) {
+      ret.add("{{ gcd number " + n + ", found the slow way }}");
+      ret.add("blok gcdIter" + n + "|a b $divisor, int|");
+      ret.add("flux newA newB remainder, int");
+      ret.add("     newA =_ a");
+      ret.add("     newB =_ b");
+      ret.add("     whil newA mod newB > 0");
+      ret.add("          remainder =_ newA mod newB");
+      ret.add("          newA =_ newB");
+      ret.add("          newB =_ remainder");
+      ret.add("     divisor =_ newB");
+      ret.add("");
+      ret.add("blok gcdRec" + n + "|a b $divisor, int|");
+      ret.add("     when b = 0");
+      ret.add("          divisor =_ a");
+      ret.add("     else");
+      ret.add("          gcdRec" + n + "! b (a mod b) $divisor");
+      ret.add("");
+      load.add("     gcdIter" + n + "! " + (1035 + n) + " 747 $d");
+      load.add("     gcdRec" + n + "! " + (460 + n) + " 64 $d");
+      load.add("     Write! (\"gcd " + n + ": \" + d)");
+    }
+    ret.add("blok load||");
+    ret.add("flux d, int");
+    ret.addAll(load);
+    return ret;
+  }
+
+  public static int length(List<String> lines) {
+    int ret = 0;
+    for (String line : lines) {
+      ret += line.length() + 1;
+    }
+    return ret;
+  }
+
+  public static List<Token> lex(List<String> lines) throws Exception {
+    Lexer lexer = new Lexer(lines.size());
+    for (String line : lines) {
+      lexer.lex(line);
+    }
+    return lexer.stateMachine.tokens;
+  }
+
+  public static ProgramNode parse(List<Token> tokens) throws Exception {
+    return new Parser(tokens).parse();
+  }
+
+  /**
+   * Lexes, parses and runs the passes Hespr.main runs before the Interpreter.
+   */
+  public static ProgramNode prepare(List<String> lines) throws Exception {
+    ProgramNode program = parse(lex(lines));
+    new SemanticAnalysis(program).checkAssignments();
+    new SlotResolution(program).resolveSlots();
+    program = new ConstantFolding(program).foldConstants();
+    new TypeAnnotation(program).annotateTypes();
+    new CallLinking(program).linkCalls();
+    new TailCallMarking(program).markTailCalls();
+    return program;
+  }
+
+  /**
+   * The parser and Write print to System.out; the benchmarks point it here.
+   */
+  public static PrintStream nullOutput() {
+    return new PrintStream(OutputStream.nullOutputStream());
+  }
+}
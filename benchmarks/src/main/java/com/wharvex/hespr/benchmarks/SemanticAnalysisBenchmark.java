@@ -0,0 +1,50 @@
+package com.wharvex.hespr.benchmarks;
+
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.semantic.SemanticAnalysis;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SemanticAnalysis.checkAssignments over a generated file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SemanticAnalysisBenchmark {
+
+  @Param({"10", "200"})
+  public int functions;
+
+  private ProgramNode program;
+
+  @Setup
+  public void setUp() throws Exception {
+    PrintStream out = System.out;
+    System.setOut(Programs.nullOutput());
+    try {
+      this.program = Programs.parse(Programs.lex(Programs.generated(this.functions)));
+    } finally {
+      System.setOut(out);
+    }
+  }
+
+  @Benchmark
+  public void checkAssignments() throws Exception {
+    new SemanticAnalysis(this.program).checkAssignments();
+  }
+}
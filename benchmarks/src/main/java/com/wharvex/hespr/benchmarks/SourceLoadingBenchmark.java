@@ -0,0 +1,88 @@
+package com.wharvex.hespr.benchmarks;
+
+import com.wharvex.hespr.lexer.Lexer;
+import com.wharvex.hespr.lexer.MappedSource;
+import java.io.BufferedWriter;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading and lexing a large generated file: Files.readAllLines (the old Hespr.main path), a
+ * streaming Reader, and a MappedSource.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SourceLoadingBenchmark {
+
+  @Param({"100"})
+  public int megabytes;
+
+  private Path file;
+
+  @Setup
+  public void setUp() throws Exception {
+    this.file = Files.createTempFile("hespr", ".hespr");
+    List<String> lines = Programs.generated(1000);
+    long size = 0;
+    try (BufferedWriter writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8)) {
+      while (size < this.megabytes * 1024L * 1024L) {
+        for (String line : lines) {
+          writer.write(line);
+          writer.newLine();
+        }
+        size += Programs.length(lines);
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    Files.delete(this.file);
+  }
+
+  @Benchmark
+  public Lexer readAllLines() throws Exception {
+    List<String> lines = Files.readAllLines(this.file, StandardCharsets.UTF_8);
+    Lexer lexer = new Lexer(lines.size());
+    for (String line : lines) {
+      lexer.lex(line);
+    }
+    return lexer;
+  }
+
+  @Benchmark
+  public Lexer reader() throws Exception {
+    Lexer lexer = new Lexer();
+    try (Reader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+      lexer.lex(reader);
+    }
+    return lexer;
+  }
+
+  @Benchmark
+  public Lexer mapped() throws Exception {
+    Lexer lexer = new Lexer();
+    lexer.lexAll(MappedSource.load(this.file));
+    return lexer;
+  }
+}
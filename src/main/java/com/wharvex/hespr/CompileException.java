@@ -0,0 +1,18 @@
+package com.wharvex.hespr;
+
+import com.wharvex.hespr.parser.nodes.Node;
+
+/**
+ * Thrown by the compiling backends when a program uses something they cannot translate. The tree
+ * Interpreter can still run such programs.
+ */
+public class CompileException extends Exception {
+
+  public CompileException(String problem) {
+    super("\nCOMPILE ERROR: " + problem);
+  }
+
+  public CompileException(String problem, Node node) {
+    super("\nCOMPILE ERROR: " + problem + "\non line " + node.getLineNum());
+  }
+}
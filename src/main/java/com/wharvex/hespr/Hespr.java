@@ -1,43 +1,201 @@
 package com.wharvex.hespr;
 
+import com.wharvex.hespr.cache.AstCache;
+import com.wharvex.hespr.exec.ExecInterpreter;
+import com.wharvex.hespr.interpreter.HesprRuntimeException;
 import com.wharvex.hespr.interpreter.Interpreter;
-import com.wharvex.hespr.lexer.Lexer;
-import com.wharvex.hespr.parser.Parser;
+import com.wharvex.hespr.interpreter.StackInterpreter;
+import com.wharvex.hespr.jvm.JvmCompiler;
+import com.wharvex.hespr.jvm.JvmProgram;
+import com.wharvex.hespr.lexer.MappedSource;
+import com.wharvex.hespr.lexer.PackedTokens;
+import com.wharvex.hespr.lexer.ParallelLexer;
+import com.wharvex.hespr.lexer.Token;
+import com.wharvex.hespr.parser.ParallelParser;
 import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.semantic.CallLinking;
+import com.wharvex.hespr.semantic.ConstantFolding;
 import com.wharvex.hespr.semantic.SemanticAnalysis;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import com.wharvex.hespr.semantic.SlotResolution;
+import com.wharvex.hespr.semantic.TailCallMarking;
+import com.wharvex.hespr.semantic.TypeAnnotation;
+import com.wharvex.hespr.vm.BytecodeCompiler;
+import com.wharvex.hespr.vm.CompiledProgram;
+import com.wharvex.hespr.vm.VirtualMachine;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Optional;
 
 public class Hespr {
 
+  private static final String USAGE = "Usage: Hespr [--vm | --jvm | --specialize | "
+      + "--stack[=<max depth>]] [--no-fold] [--cache[=<dir>]] <input filename>";
+
   public static void main(String[] args) throws Exception {
-    if (args.length != 1) {
-      throw new Exception(
-          "Please call the program with exactly one argument (the input filename).");
+    boolean useVm = false;
+    boolean useJvm = false;
+    boolean useExec = false;
+    boolean fold = true;
+    AstCache cache = null;
+    int maxDepth = 0;
+    int argIdx = 0;
+    while (argIdx < args.length && args[argIdx].startsWith("--")) {
+      String arg = args[argIdx++];
+      if (arg.startsWith("--cache=")) {
+        String dir = arg.substring("--cache=".length());
+        if (dir.isEmpty()) {
+          usageError("--cache=<dir> needs a directory");
+        }
+        cache = new AstCache(Path.of(dir));
+        continue;
+      }
+      if (arg.startsWith("--stack=")) {
+        String depth = arg.substring("--stack=".length());
+        maxDepth = parsePositive(depth);
+        if (maxDepth == 0) {
+          usageError("--stack=<max depth> needs a positive number of calls, not " + depth);
+        }
+        continue;
+      }
+      switch (arg) {
+        case "--vm" -> useVm = true;
+        case "--jvm" -> useJvm = true;
+        case "--specialize" -> useExec = true;
+        case "--stack" -> maxDepth = StackInterpreter.DEFAULT_MAX_DEPTH;
+        case "--no-fold" -> fold = false;
+        case "--cache" -> cache = new AstCache(AstCache.DEFAULT_DIR);
+        default -> usageError("Unknown option " + arg);
+      }
+    }
+    if (args.length - argIdx != 1) {
+      usageError("Please call the program with exactly one argument (the input filename).");
     }
-    Path myPath = Paths.get(args[0]);
-    List<String> lines = Files.readAllLines(myPath, StandardCharsets.UTF_8);
-    Lexer lexer = new Lexer(lines.size());
+    Path myPath = Paths.get(args[argIdx]);
     try {
-      for (String line : lines) {
-        lexer.lex(line);
+      ProgramNode program;
+      if (cache != null) {
+        String cacheKey = cache.getKey(myPath);
+        Optional<ProgramNode> cached = cache.load(cacheKey);
+        if (cached.isPresent()) {
+          program = cached.get();
+          System.out.println("\nAST CACHE: loaded " + cache.getPath(cacheKey));
+        } else {
+          program = lexAndParse(myPath);
+          // A program that cannot be cached still runs
+          try {
+            System.out.println("\nAST CACHE: stored " + cache.store(cacheKey, program));
+          } catch (IOException e) {
+            System.out.println("\nAST CACHE: could not store the program: " + e.getMessage());
+          }
+        }
+      } else {
+        program = lexAndParse(myPath);
+      }
+      program = analyze(program, fold);
+      if (useJvm) {
+        try {
+          JvmProgram compiled = new JvmCompiler(program, myPath.getFileName().toString()).compile();
+          System.out.println("\nJVM CLASSES:\n");
+          System.out.println(compiled);
+          System.out.println("\nINTERPRETER OUTPUT\n");
+          compiled.startProgram();
+          return;
+        } catch (CompileException e) {
+          System.out.println(e.getMessage());
+          System.out.println("Falling back to the interpreter.");
+        }
+      } else if (useVm) {
+        try {
+          CompiledProgram compiled = new BytecodeCompiler(program).compile();
+          System.out.println("\nVM BYTECODE:\n");
+          System.out.println(compiled);
+          VirtualMachine vm = new VirtualMachine(compiled);
+          System.out.println("\nINTERPRETER OUTPUT\n");
+          vm.startProgram();
+          return;
+        } catch (CompileException e) {
+          // Run the program in the Interpreter instead, which reports any real error itself
+          System.out.println(e.getMessage());
+          System.out.println("Falling back to the interpreter.");
+        }
       }
-      System.out.println("\nLEXER OUTPUT:\n");
-      lexer.printTokens();
-      Parser parser = new Parser(lexer.stateMachine.tokens);
-      System.out.println("\nPARSER OUTPUT:\n");
-      ProgramNode program = parser.parse();
-      SemanticAnalysis sa = new SemanticAnalysis(program);
-      sa.checkAssignments();
-      Interpreter interpreter = new Interpreter(program);
+      if (useExec) {
+        System.out.println("\nINTERPRETER OUTPUT\n");
+        new ExecInterpreter(program).startProgram();
+        return;
+      }
+      Interpreter interpreter =
+          maxDepth > 0 ? new StackInterpreter(program, maxDepth) : new Interpreter(program);
       System.out.println("\nINTERPRETER OUTPUT\n");
       interpreter.startProgram();
+    } catch (HesprRuntimeException e) {
+      // The message has the hespr stack trace
+      System.out.println(e.getMessage());
     } catch (Exception e) {
       System.out.println(e.getMessage());
       e.printStackTrace();
     }
   }
+
+  /**
+   * The number, or 0 if it is not a positive int.
+   */
+  static int parsePositive(String number) {
+    try {
+      return Math.max(Integer.parseInt(number), 0);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Prints the problem with the command line and how to call the program, and exits.
+   */
+  private static void usageError(String problem) {
+    usageError(problem, USAGE);
+  }
+
+  static void usageError(String problem, String usage) {
+    System.err.println(problem);
+    System.err.println(usage);
+    System.exit(2);
+  }
+
+  static ProgramNode lexAndParse(Path myPath) throws Exception {
+    List<Token> tokens = new PackedTokens();
+    new ParallelLexer().lex(MappedSource.load(myPath), tokens);
+    System.out.println("\nLEXER OUTPUT:\n");
+    tokens.forEach(System.out::println);
+    System.out.println("\nPARSER OUTPUT:\n");
+    return new ParallelParser().parse(tokens);
+  }
+
+  /**
+   * Runs the passes every backend expects, returning the program to run.
+   */
+  static ProgramNode analyze(ProgramNode program, boolean fold) throws Exception {
+    return analyze(program, fold, false);
+  }
+
+  /**
+   * Like analyze(program, fold), but when quiet, does not print what it folded.
+   */
+  static ProgramNode analyze(ProgramNode program, boolean fold, boolean quiet) throws Exception {
+    SemanticAnalysis sa = new SemanticAnalysis(program);
+    sa.checkAssignments();
+    new SlotResolution(program).resolveSlots();
+    if (fold) {
+      ConstantFolding folding = new ConstantFolding(program);
+      program = folding.foldConstants();
+      if (!quiet) {
+        System.out.println("\nCONSTANT FOLDING: folded " + folding.getFoldedCount() + " nodes");
+      }
+    }
+    new TypeAnnotation(program).annotateTypes();
+    new CallLinking(program).linkCalls();
+    new TailCallMarking(program).markTailCalls();
+    return program;
+  }
 }
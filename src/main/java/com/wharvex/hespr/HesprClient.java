@@ -0,0 +1,83 @@
+package com.wharvex.hespr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs a program on a HesprServer: sends it the source path and everything on stdin, prints what
+ * the program writes and exits with the status the server sends back (0 if the program ran, 1 if
+ * it had an error, 2 if the server could not run it). Errors go to stderr.
+ */
+public class HesprClient {
+
+  public static void main(String[] args) throws Exception {
+    Path socket = ServerProtocol.DEFAULT_SOCKET;
+    int argIdx = 0;
+    while (argIdx < args.length && args[argIdx].startsWith("--")) {
+      if (!args[argIdx].startsWith("--socket=")) {
+        throw new Exception("Unknown option " + args[argIdx]);
+      }
+      socket = Path.of(args[argIdx++].substring("--socket=".length()));
+    }
+    if (args.length - argIdx != 1) {
+      throw new Exception("Please call the client with exactly one argument (the input filename), "
+          + "optionally preceded by --socket=<path>.");
+    }
+    // Only read stdin when it is piped or redirected, so a program run from a terminal does not
+    // wait for it to be closed
+    byte[] input = System.console() == null ? System.in.readAllBytes() : new byte[0];
+    int status;
+    try {
+      status = run(socket, Paths.get(args[argIdx]), input, System.out, System.err);
+    } catch (IOException e) {
+      System.err.println("Could not run the program on the server at " + socket + ": "
+          + e.getMessage());
+      status = ServerProtocol.EXIT_SERVER_ERROR;
+    }
+    System.exit(status);
+  }
+
+  /**
+   * Runs the source on the server listening on the socket, with the input as its stdin, and
+   * returns the exit status.
+   */
+  static int run(Path socket, Path source, byte[] input, OutputStream out, PrintStream err)
+      throws IOException {
+    try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+      var request = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel)));
+      request.writeInt(ServerProtocol.MAGIC);
+      request.writeInt(ServerProtocol.VERSION);
+      // The server does not run in our working directory
+      ServerProtocol.writeString(request, source.toAbsolutePath().toString());
+      ServerProtocol.writeBytes(request, input);
+      request.flush();
+      var response = new DataInputStream(
+          new BufferedInputStream(Channels.newInputStream(channel)));
+      while (true) {
+        byte tag = response.readByte();
+        switch (tag) {
+          case ServerProtocol.OUTPUT -> {
+            out.write(ServerProtocol.readBytes(response));
+            out.flush();
+          }
+          case ServerProtocol.ERROR -> err.println(ServerProtocol.readString(response));
+          case ServerProtocol.EXIT -> {
+            return response.readInt();
+          }
+          default -> throw new IOException("Unknown response frame " + tag);
+        }
+      }
+    }
+  }
+}
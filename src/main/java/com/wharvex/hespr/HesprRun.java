@@ -0,0 +1,37 @@
+package com.wharvex.hespr;
+
+import com.wharvex.hespr.image.HesprImage;
+import com.wharvex.hespr.interpreter.HesprRuntimeException;
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.vm.VirtualMachine;
+import java.nio.file.Paths;
+
+/**
+ * Runs an image compiled by Hesprc: on the VM if the image has bytecode, otherwise on the
+ * interpreter. Only the program's own output is printed. Nothing here loads the Lexer, the Parser
+ * or the passes, which keeps startup short.
+ */
+public class HesprRun {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 1) {
+      throw new Exception("Please call the program with exactly one argument (the image filename).");
+    }
+    try {
+      HesprImage image = HesprImage.read(Paths.get(args[0]));
+      if (image.getCompiled() != null) {
+        new VirtualMachine(image.getCompiled()).startProgram();
+      } else {
+        new Interpreter(image.getProgram()).startProgram();
+      }
+    } catch (HesprRuntimeException e) {
+      // The message has the hespr stack trace
+      System.out.println(e.getMessage());
+      System.exit(1);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,217 @@
+package com.wharvex.hespr;
+
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.builtins.ProgramIO;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs programs for HesprClient, which sends the source path and the program's input over a Unix
+ * domain socket. The JVM stays up between requests, so the JIT keeps what it compiled, and each
+ * program is only parsed and analysed again when its source changes (see ProgramCache).
+ *
+ * <p>Requests run side by side on a pool of threads, each on its own Interpreter with Read and
+ * Write going to the request (see ProgramIO). Only the program's own output is sent back, as with
+ * HesprRun.
+ */
+public class HesprServer implements Closeable {
+
+  private static final String USAGE =
+      "Usage: HesprServer [--socket=<path>] [--threads=<n>] [--no-fold]";
+
+  private final Path socket;
+  private final ProgramCache programs;
+  private final ExecutorService workers;
+  private ServerSocketChannel channel;
+
+  public HesprServer(Path socket, int threads, boolean fold) {
+    this.socket = socket;
+    this.programs = new ProgramCache(fold);
+    this.workers = Executors.newFixedThreadPool(threads);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Path socket = ServerProtocol.DEFAULT_SOCKET;
+    int threads = Runtime.getRuntime().availableProcessors();
+    boolean fold = true;
+    for (String arg : args) {
+      if (arg.startsWith("--socket=")) {
+        socket = Path.of(arg.substring("--socket=".length()));
+      } else if (arg.startsWith("--threads=")) {
+        String n = arg.substring("--threads=".length());
+        threads = Hespr.parsePositive(n);
+        if (threads == 0) {
+          Hespr.usageError("--threads=<n> needs a positive number of threads, not " + n, USAGE);
+        }
+      } else if (arg.equals("--no-fold")) {
+        fold = false;
+      } else {
+        Hespr.usageError("Unknown option " + arg, USAGE);
+      }
+    }
+    HesprServer server = new HesprServer(socket, threads, fold);
+    server.bind();
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    System.out.println("SERVER: listening on " + socket);
+    server.serve();
+  }
+
+  /**
+   * Starts listening on the socket. A socket file left by a server that is no longer running is
+   * replaced.
+   */
+  public void bind() throws IOException {
+    var address = UnixDomainSocketAddress.of(this.socket);
+    if (Files.exists(this.socket)) {
+      if (isListening(address)) {
+        throw new IOException("A server is already listening on " + this.socket);
+      }
+      Files.delete(this.socket);
+    }
+    this.channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    this.channel.bind(address);
+  }
+
+  /**
+   * Accepts requests until the server is closed.
+   */
+  public void serve() throws IOException {
+    while (true) {
+      SocketChannel client;
+      try {
+        client = this.channel.accept();
+      } catch (ClosedChannelException e) {
+        return;
+      }
+      try {
+        this.workers.execute(() -> this.handle(client));
+      } catch (RejectedExecutionException e) {
+        // Accepted just as the server closed
+        client.close();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Stops accepting requests and removes the socket file. Requests already accepted still run.
+   */
+  @Override
+  public void close() {
+    // The channel first, so serve() stops accepting before the workers stop taking requests
+    if (this.channel != null) {
+      try {
+        this.channel.close();
+        Files.deleteIfExists(this.socket);
+      } catch (IOException e) {
+        System.out.println("SERVER: could not close " + this.socket + ": " + e.getMessage());
+      }
+    }
+    this.workers.shutdown();
+  }
+
+  private void handle(SocketChannel client) {
+    try (client) {
+      var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+      var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+      // A connection closed without sending anything, like the one isListening makes, is not a
+      // request
+      in.mark(1);
+      if (in.read() < 0) {
+        return;
+      }
+      in.reset();
+      int status = this.run(in, out);
+      out.writeByte(ServerProtocol.EXIT);
+      out.writeInt(status);
+      out.flush();
+    } catch (IOException e) {
+      // The client went away or sent something else
+      System.out.println("SERVER: dropped a request: " + getMessage(e));
+    }
+  }
+
+  private int run(DataInputStream in, DataOutputStream out) throws IOException {
+    if (in.readInt() != ServerProtocol.MAGIC) {
+      throw new IOException("Not a hespr client");
+    }
+    int version = in.readInt();
+    if (version != ServerProtocol.VERSION) {
+      sendError(out, "The client speaks protocol version " + version + ", not "
+          + ServerProtocol.VERSION + "; use the client of the same hespr as the server");
+      return ServerProtocol.EXIT_SERVER_ERROR;
+    }
+    Path source = Path.of(ServerProtocol.readString(in));
+    byte[] input = ServerProtocol.readBytes(in);
+    ProgramNode program;
+    try {
+      program = this.programs.get(source);
+    } catch (NoSuchFileException e) {
+      sendError(out, "No such file " + source);
+      return ServerProtocol.EXIT_SERVER_ERROR;
+    } catch (IOException e) {
+      sendError(out, "Could not read " + source + ": " + e.getMessage());
+      return ServerProtocol.EXIT_SERVER_ERROR;
+    } catch (Exception e) {
+      sendError(out, getMessage(e));
+      return ServerProtocol.EXIT_PROGRAM_ERROR;
+    }
+    var programOut = new PrintStream(
+        new BufferedOutputStream(new ServerProtocol.FrameOutputStream(out)), false,
+        StandardCharsets.UTF_8);
+    ProgramIO.set(new ProgramIO(new ByteArrayInputStream(input), programOut));
+    try {
+      new Interpreter(program).startProgram();
+      return ServerProtocol.EXIT_OK;
+    } catch (Exception | StackOverflowError e) {
+      // The output so far goes before the error
+      programOut.flush();
+      sendError(out, getMessage(e));
+      return ServerProtocol.EXIT_PROGRAM_ERROR;
+    } finally {
+      ProgramIO.clear();
+      programOut.flush();
+    }
+  }
+
+  private static boolean isListening(UnixDomainSocketAddress address) {
+    try {
+      SocketChannel.open(address).close();
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void sendError(DataOutputStream out, String message) throws IOException {
+    out.writeByte(ServerProtocol.ERROR);
+    ServerProtocol.writeString(out, message);
+  }
+
+  private static String getMessage(Throwable e) {
+    if (e instanceof StackOverflowError) {
+      return "Stack overflow";
+    }
+    return e.getMessage() != null ? e.getMessage() : e.toString();
+  }
+}
@@ -0,0 +1,55 @@
+package com.wharvex.hespr;
+
+import com.wharvex.hespr.image.HesprImage;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.vm.BytecodeCompiler;
+import com.wharvex.hespr.vm.CompiledProgram;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compiles a source file ahead of time into a HesprImage for HesprRun, doing the lexing, parsing
+ * and passes Hespr does on every run once.
+ */
+public class Hesprc {
+
+  public static void main(String[] args) throws Exception {
+    boolean fold = true;
+    boolean useVm = false;
+    int argIdx = 0;
+    while (argIdx < args.length && args[argIdx].startsWith("--")) {
+      switch (args[argIdx++]) {
+        case "--vm" -> useVm = true;
+        case "--no-fold" -> fold = false;
+        default -> throw new Exception("Unknown option " + args[argIdx - 1]);
+      }
+    }
+    if (args.length - argIdx < 1 || args.length - argIdx > 2) {
+      throw new Exception(
+          "Please call hesprc with the input filename and optionally the image filename, "
+              + "optionally preceded by --vm or --no-fold.");
+    }
+    Path myPath = Paths.get(args[argIdx]);
+    Path imagePath = args.length - argIdx == 2 ? Paths.get(args[argIdx + 1])
+        : myPath.resolveSibling(myPath.getFileName().toString().replaceFirst("\\.hespr$", "")
+            + ".hspi");
+    try {
+      ProgramNode program = Hespr.analyze(Hespr.lexAndParse(myPath), fold);
+      CompiledProgram compiled = null;
+      if (useVm) {
+        try {
+          compiled = new BytecodeCompiler(program).compile();
+        } catch (CompileException e) {
+          System.out.println(e.getMessage());
+          System.out.println("The image will run on the interpreter.");
+        }
+      }
+      new HesprImage(program, compiled).write(imagePath);
+      System.out.println("\nIMAGE: wrote " + imagePath);
+    } catch (Exception e) {
+      System.out.println(e.getMessage());
+      e.printStackTrace();
+      System.exit(1);
+    }
+  }
+}
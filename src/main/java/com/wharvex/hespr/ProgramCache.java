@@ -0,0 +1,76 @@
+package com.wharvex.hespr;
+
+import com.wharvex.hespr.lexer.MappedSource;
+import com.wharvex.hespr.lexer.PackedTokens;
+import com.wharvex.hespr.lexer.ParallelLexer;
+import com.wharvex.hespr.lexer.Token;
+import com.wharvex.hespr.parser.ParallelParser;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The programs HesprServer has parsed and analysed, by source path. An entry is used as long as
+ * the source has the modification time and size it had when it was parsed, and parsed again
+ * otherwise. Requests for a source that is being parsed wait for that parse instead of starting
+ * their own.
+ *
+ * <p>Nothing is printed while parsing and analysing, since the server's output is not the
+ * program's.
+ *
+ * <p>The Interpreter only reads the tree, so one program can run in any number of Interpreters at
+ * once.
+ */
+class ProgramCache {
+
+  private record Entry(FileTime lastModified, long size, FutureTask<ProgramNode> program) {
+
+    boolean isFor(BasicFileAttributes attrs) {
+      return this.lastModified.equals(attrs.lastModifiedTime()) && this.size == attrs.size();
+    }
+  }
+
+  private final ConcurrentHashMap<Path, Entry> entries = new ConcurrentHashMap<>();
+  private final boolean fold;
+
+  ProgramCache(boolean fold) {
+    this.fold = fold;
+  }
+
+  /**
+   * Returns the analysed program in the source, parsing it if it changed since it was last parsed.
+   * A source that fails to parse is not cached, so the error is reported again on the next request.
+   */
+  ProgramNode get(Path source) throws Exception {
+    BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+    Entry entry = this.entries.compute(source, (k, old) -> old != null && old.isFor(attrs) ? old
+        : new Entry(attrs.lastModifiedTime(), attrs.size(), new FutureTask<>(() -> this.load(k))));
+    // Does nothing if another request has already run it
+    entry.program.run();
+    try {
+      return entry.program.get();
+    } catch (ExecutionException e) {
+      this.entries.remove(source, entry);
+      if (e.getCause() instanceof Exception cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  int size() {
+    return this.entries.size();
+  }
+
+  private ProgramNode load(Path source) throws Exception {
+    List<Token> tokens = new PackedTokens();
+    new ParallelLexer().lex(MappedSource.load(source), tokens);
+    return Hespr.analyze(new ParallelParser().parseQuietly(tokens), this.fold, true);
+  }
+}
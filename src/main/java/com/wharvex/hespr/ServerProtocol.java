@@ -0,0 +1,94 @@
+package com.wharvex.hespr;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * What HesprClient and HesprServer send each other over the socket. A request is the magic
+ * number, the protocol version, the absolute path of the source and the bytes of the program's
+ * input. The response is a series of frames, each a tag byte and its data: OUTPUT frames with what
+ * the program writes, at most one ERROR frame with the message of a syntax, semantic or runtime
+ * error, and an EXIT frame with the status last.
+ */
+final class ServerProtocol {
+
+  static final int MAGIC = 0x48535052; // "HSPR"
+  // Bump this when the request or the frames change
+  static final int VERSION = 1;
+
+  static final Path DEFAULT_SOCKET = Path.of(System.getProperty("java.io.tmpdir"), "hespr.sock");
+
+  static final byte OUTPUT = 1;
+  static final byte ERROR = 2;
+  static final byte EXIT = 3;
+
+  static final int EXIT_OK = 0;
+  // The program did not parse, did not pass the checks or failed while running
+  static final int EXIT_PROGRAM_ERROR = 1;
+  // The request could not be served, e.g. the source does not exist
+  static final int EXIT_SERVER_ERROR = 2;
+
+  private ServerProtocol() {
+  }
+
+  /**
+   * Sends the bytes written to it as OUTPUT frames. Wrap it in a buffer, or every print is a
+   * frame.
+   */
+  static class FrameOutputStream extends OutputStream {
+
+    private final DataOutputStream out;
+
+    FrameOutputStream(DataOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return;
+      }
+      this.out.writeByte(OUTPUT);
+      this.out.writeInt(len);
+      this.out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      this.out.flush();
+    }
+  }
+
+  static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static byte[] readBytes(DataInputStream in) throws IOException {
+    int len = in.readInt();
+    if (len < 0) {
+      throw new IOException("Negative length " + len);
+    }
+    byte[] ret = new byte[len];
+    in.readFully(ret);
+    return ret;
+  }
+
+  // Not writeUTF, which is limited to 64KB
+  static void writeString(DataOutputStream out, String s) throws IOException {
+    writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    return new String(readBytes(in), StandardCharsets.UTF_8);
+  }
+}
@@ -3,8 +3,10 @@ package com.wharvex.hespr;
 import com.wharvex.hespr.lexer.StateType;
 import com.wharvex.hespr.lexer.Token;
 import com.wharvex.hespr.lexer.TokenType;
+import java.util.Collection;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.stream.Collectors;
 
 public class SyntaxErrorException extends Exception {
 
@@ -40,7 +42,7 @@ public class SyntaxErrorException extends Exception {
     super("\nERROR: Expected " + expected + "; found " + found);
   }
 
-  public SyntaxErrorException(List<TokenType> expected, Token found) {
+  public SyntaxErrorException(Collection<TokenType> expected, Token found) {
     super("\nERROR: Expected " + joinExpectedTokenTypes(expected) + "; found " + found);
   }
 
@@ -52,7 +54,15 @@ public class SyntaxErrorException extends Exception {
     super("\nERROR: " + excType.baseMessage + problem);
   }
 
-  private static String joinExpectedTokenTypes(List<TokenType> tts) {
+  /**
+   * Use this constructor to report the errors of several functions at once
+   */
+  public SyntaxErrorException(List<SyntaxErrorException> errors) {
+    super(errors.stream().map(Throwable::getMessage).collect(Collectors.joining()));
+    errors.forEach(this::addSuppressed);
+  }
+
+  private static String joinExpectedTokenTypes(Collection<TokenType> tts) {
     StringJoiner ret = new StringJoiner(", ");
     tts.forEach(tt -> ret.add(tt.toString()));
     return ret.toString();
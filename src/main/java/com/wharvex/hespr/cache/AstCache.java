@@ -0,0 +1,94 @@
+package com.wharvex.hespr.cache;
+
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+/**
+ * A directory of parsed programs, so running the same source again skips lexing and parsing. Each
+ * program is stored in a file named after the SHA-256 of the cache format version and the source
+ * bytes, so an edited source or a hespr with another format never finds an old entry.
+ *
+ * <p>The programs are stored as the Parser builds them, before SemanticAnalysis and the other
+ * passes, which are cheap next to parsing and fill in links between nodes.
+ */
+public class AstCache {
+
+  public static final Path DEFAULT_DIR =
+      Path.of(System.getProperty("user.home"), ".cache", "hespr");
+
+  private static final String SUFFIX = ".hast";
+
+  private final Path dir;
+
+  public AstCache(Path dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * Hashes the source file into the key its program is cached under.
+   */
+  public String getKey(Path source) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Every JVM has SHA-256", e);
+    }
+    digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, AstFormat.VERSION));
+    try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+      digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    StringBuilder ret = new StringBuilder();
+    for (byte b : digest.digest()) {
+      ret.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return ret.toString();
+  }
+
+  public Path getPath(String key) {
+    return this.dir.resolve(key + SUFFIX);
+  }
+
+  /**
+   * Returns the program cached under the key, with the builtins added, or empty if there is none.
+   * An entry that cannot be read (left by an older hespr, or damaged) counts as none.
+   */
+  public Optional<ProgramNode> load(String key) {
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(this.getPath(key)))) {
+      return Optional.of(new AstReader(in).read());
+    } catch (IOException | RuntimeException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Caches the program under the key. The entry is written to a temporary file and moved into
+   * place, so a run loading it at the same time never sees half of it.
+   */
+  public Path store(String key, ProgramNode program) throws IOException {
+    Files.createDirectories(this.dir);
+    Path tmp = Files.createTempFile(this.dir, key, ".tmp");
+    try {
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+        new AstWriter(out).write(program);
+      }
+      return Files.move(tmp, this.getPath(key), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.wharvex.hespr.cache;
+
+/**
+ * The constants of the AST cache format. A file starts with MAGIC and VERSION, then the number of
+ * functions and the functions themselves. Each node is a tag byte, its fields (child nodes first),
+ * its line number and its static type.
+ *
+ * <p>Bump VERSION whenever the nodes or how the Parser builds them change, so caches written by an
+ * older hespr are ignored instead of read wrong.
+ */
+final class AstFormat {
+
+  static final int MAGIC = 0x48415354; // "HAST"
+  static final int VERSION = 2;
+
+  static final byte NULL = 0;
+  static final byte INTEGER = 1;
+  static final byte REAL = 2;
+  static final byte STRING = 3;
+  static final byte CHARACTER = 4;
+  static final byte BOOLEAN = 5;
+  static final byte MATH_OP = 6;
+  static final byte COMPARE = 7;
+  static final byte VARIABLE_REF = 8;
+  static final byte ASSIGNMENT = 9;
+  static final byte FUNCTION_CALL = 10;
+  static final byte FOR = 11;
+  static final byte REPEAT = 12;
+  static final byte WHEN = 13;
+  static final byte WHILE = 14;
+
+  private AstFormat() {
+  }
+}
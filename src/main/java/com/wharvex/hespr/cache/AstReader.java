@@ -0,0 +1,290 @@
+package com.wharvex.hespr.cache;
+
+import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.CompareType;
+import com.wharvex.hespr.parser.VariableRange;
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.BooleanNode;
+import com.wharvex.hespr.parser.nodes.CharacterNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode.MathOpType;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RealNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the functions AstWriter wrote into a new ProgramNode and adds the builtins. Calls that
+ * were linked are linked again, to the functions of the new program. Anything that is not in the
+ * current format is an IOException.
+ *
+ * <p>The counts in the file are not trusted to size anything up front, so a damaged count runs
+ * out of bytes instead of memory.
+ */
+public class AstReader {
+
+  private static final VariableType[] VARIABLE_TYPES = VariableType.values();
+  private static final MathOpType[] MATH_OP_TYPES = MathOpType.values();
+  private static final CompareType[] COMPARE_TYPES = CompareType.values();
+  private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+  private final DataInputStream in;
+  // The linked calls and their typeCheckedArgs, to link once every function is read
+  private final List<FunctionCallNode> linkedCalls = new ArrayList<>();
+  private final List<boolean[]> linkedCallsTypeChecked = new ArrayList<>();
+
+  public AstReader(InputStream in) {
+    this.in = new DataInputStream(in);
+  }
+
+  public ProgramNode read() throws IOException {
+    if (this.in.readInt() != AstFormat.MAGIC) {
+      throw new IOException("Not an AST cache file");
+    }
+    int version = this.in.readInt();
+    if (version != AstFormat.VERSION) {
+      throw new IOException(
+          "AST cache format version " + version + " is not " + AstFormat.VERSION);
+    }
+    ProgramNode ret = new ProgramNode();
+    int numFunctions = this.in.readInt();
+    for (int i = 0; i < numFunctions; i++) {
+      ret.addFunction(this.readFunction());
+    }
+    BuiltinBase.addAll(ret);
+    for (int i = 0; i < this.linkedCalls.size(); i++) {
+      FunctionCallNode call = this.linkedCalls.get(i);
+      FunctionNode target = ret.getFunctions().get(call.getFuncName());
+      if (target == null) {
+        throw new IOException("No function " + call.getFuncName() + " to link a call to");
+      }
+      call.link(target, this.linkedCallsTypeChecked.get(i));
+    }
+    return ret;
+  }
+
+  private FunctionNode readFunction() throws IOException {
+    String name = this.readString();
+    int lineNum = this.in.readInt();
+    int frameSize = this.in.readInt();
+    List<VariableNode> params = this.readVariables();
+    List<VariableNode> variables = this.readVariables();
+    List<VariableNode> constants = this.readVariables();
+    List<StatementNode> statements = this.readStatements();
+    FunctionNode ret = new FunctionNode(name, params, variables, constants, statements, lineNum);
+    ret.setLineNum(lineNum);
+    ret.setFrameSize(frameSize);
+    return ret;
+  }
+
+  private List<VariableNode> readVariables() throws IOException {
+    int size = this.in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    List<VariableNode> ret = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      String name = this.readString();
+      VariableType type = this.readEnum(VARIABLE_TYPES);
+      boolean isChangeable = this.in.readBoolean();
+      boolean isArray = this.in.readBoolean();
+      int lineNum = this.in.readInt();
+      int slot = this.in.readInt();
+      VariableRange range =
+          this.in.readBoolean() ? new VariableRange(this.readNode(), this.readNode()) : null;
+      VariableNode v = new VariableNode(name, type, isChangeable, isArray, lineNum, range);
+      v.setSlot(slot);
+      v.setVal(this.readNode());
+      ret.add(v);
+    }
+    return ret;
+  }
+
+  private List<StatementNode> readStatements() throws IOException {
+    int size = this.in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    List<StatementNode> ret = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      ret.add(this.readNode(StatementNode.class));
+    }
+    return ret;
+  }
+
+  private Node readNode() throws IOException {
+    return this.readNode(this.in.readByte());
+  }
+
+  private Node readNode(byte tag) throws IOException {
+    if (tag == AstFormat.NULL) {
+      return null;
+    }
+    Node ret = switch (tag) {
+      case AstFormat.INTEGER -> {
+        int val = this.in.readInt();
+        yield new IntegerNode(val, this.in.readInt());
+      }
+      case AstFormat.REAL -> {
+        float val = this.in.readFloat();
+        yield new RealNode(val, this.in.readInt());
+      }
+      case AstFormat.STRING -> {
+        // StringNode takes the literal with its quotes
+        String val = this.readString();
+        yield new StringNode("\"" + val + "\"", this.in.readInt());
+      }
+      case AstFormat.CHARACTER -> {
+        char val = this.in.readChar();
+        yield new CharacterNode(val, this.in.readInt());
+      }
+      case AstFormat.BOOLEAN -> {
+        boolean val = this.in.readBoolean();
+        yield new BooleanNode(val, this.in.readInt());
+      }
+      case AstFormat.MATH_OP -> {
+        List<MathOpType> mathOpTypes = new ArrayList<>();
+        mathOpTypes.add(this.readEnum(MATH_OP_TYPES));
+        byte leftTag = this.in.readByte();
+        while (leftTag == AstFormat.MATH_OP) {
+          mathOpTypes.add(this.readEnum(MATH_OP_TYPES));
+          leftTag = this.in.readByte();
+        }
+        Node left = this.readNode(leftTag);
+        for (int i = mathOpTypes.size() - 1; i > 0; i--) {
+          Node right = this.readNode();
+          left = new MathOpNode(mathOpTypes.get(i), left, right, this.in.readInt());
+          left.setStaticType(this.readEnum(VARIABLE_TYPES));
+        }
+        Node right = this.readNode();
+        yield new MathOpNode(mathOpTypes.get(0), left, right, this.in.readInt());
+      }
+      case AstFormat.COMPARE -> {
+        CompareType compareType = this.readEnum(COMPARE_TYPES);
+        Node left = this.readNode();
+        Node right = this.readNode();
+        yield new BooleanCompareNode(compareType, left, right, this.in.readInt());
+      }
+      case AstFormat.VARIABLE_REF -> {
+        String name = this.readString();
+        Node arrIdxExp = this.readNode();
+        int slot = this.in.readInt();
+        var ref = new VariableReferenceNode(name, arrIdxExp, this.in.readInt());
+        ref.setSlot(slot);
+        yield ref;
+      }
+      case AstFormat.ASSIGNMENT -> {
+        VariableReferenceNode left = this.readNode(VariableReferenceNode.class);
+        Node right = this.readNode();
+        yield new AssignmentNode(left, right, this.in.readInt());
+      }
+      case AstFormat.FUNCTION_CALL -> {
+        String funcName = this.readString();
+        int numArgs = this.in.readInt();
+        List<ArgumentNode> args = new ArrayList<>();
+        for (int i = 0; i < numArgs; i++) {
+          boolean isVar = this.in.readBoolean();
+          int argLineNum = this.in.readInt();
+          args.add(new ArgumentNode(this.readNode(), isVar, argLineNum));
+        }
+        boolean selfTailCall = this.in.readBoolean();
+        boolean[] typeChecked = null;
+        if (this.in.readBoolean()) {
+          // Every argument was read, so numArgs is no bigger than the file
+          typeChecked = new boolean[args.size()];
+          for (int i = 0; i < typeChecked.length; i++) {
+            typeChecked[i] = this.in.readBoolean();
+          }
+        }
+        var call = new FunctionCallNode(funcName, args, this.in.readInt());
+        call.setSelfTailCall(selfTailCall);
+        if (typeChecked != null) {
+          this.linkedCalls.add(call);
+          this.linkedCallsTypeChecked.add(typeChecked);
+        }
+        yield call;
+      }
+      case AstFormat.FOR -> {
+        VariableReferenceNode varRef = this.readNode(VariableReferenceNode.class);
+        Node from = this.readNode();
+        Node to = this.readNode();
+        List<StatementNode> statements = this.readStatements();
+        yield new ForNode(varRef, from, to, statements, this.in.readInt());
+      }
+      case AstFormat.REPEAT -> {
+        Node condition = this.readNode();
+        List<StatementNode> statements = this.readStatements();
+        yield new RepeatNode(condition, statements, this.in.readInt());
+      }
+      case AstFormat.WHEN -> {
+        TokenType whenOrElifOrElse = this.readEnum(TOKEN_TYPES);
+        Node condition = this.readNode();
+        List<StatementNode> statements = this.readStatements();
+        WhenNode nextWhen = this.readNode(WhenNode.class);
+        yield new WhenNode(condition, statements, nextWhen, whenOrElifOrElse, this.in.readInt());
+      }
+      case AstFormat.WHILE -> {
+        Node condition = this.readNode();
+        List<StatementNode> statements = this.readStatements();
+        yield new WhileNode(condition, statements, this.in.readInt());
+      }
+      default -> throw new IOException("Unknown AST cache node tag " + tag);
+    };
+    ret.setStaticType(this.readEnum(VARIABLE_TYPES));
+    return ret;
+  }
+
+  private <T extends Node> T readNode(Class<T> nodeClass) throws IOException {
+    Node ret = this.readNode();
+    if (ret != null && !nodeClass.isInstance(ret)) {
+      throw new IOException("Expected a " + nodeClass.getSimpleName() + " in the AST cache but "
+          + "found a " + ret.getClass().getSimpleName());
+    }
+    return nodeClass.cast(ret);
+  }
+
+  private <E extends Enum<E>> E readEnum(E[] values) throws IOException {
+    byte ordinal = this.in.readByte();
+    if (ordinal < 0) {
+      return null;
+    }
+    if (ordinal >= values.length) {
+      throw new IOException("Unknown AST cache enum constant " + ordinal);
+    }
+    return values[ordinal];
+  }
+
+  private String readString() throws IOException {
+    int size = this.in.readInt();
+    if (size < 0) {
+      throw new IOException("Negative AST cache string length " + size);
+    }
+    // Unlike new byte[size], only grows as far as the bytes that are there
+    byte[] bytes = this.in.readNBytes(size);
+    if (bytes.length < size) {
+      throw new EOFException();
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
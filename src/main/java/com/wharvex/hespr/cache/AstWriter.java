@@ -0,0 +1,206 @@
+package com.wharvex.hespr.cache;
+
+import com.wharvex.hespr.parser.VariableRange;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.BooleanNode;
+import com.wharvex.hespr.parser.nodes.CharacterNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RealNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the functions of a program (not the builtins) in the format AstReader reads. Along with
+ * what the Parser builds, the results of SlotResolution, TypeAnnotation, CallLinking and
+ * TailCallMarking are written, so a program written after the passes does not need them again.
+ */
+public class AstWriter {
+
+  private final DataOutputStream out;
+
+  public AstWriter(OutputStream out) {
+    this.out = new DataOutputStream(out);
+  }
+
+  public void write(ProgramNode program) throws IOException {
+    this.out.writeInt(AstFormat.MAGIC);
+    this.out.writeInt(AstFormat.VERSION);
+    List<FunctionNode> functions = new ArrayList<>();
+    for (FunctionNode fn : program.getFunctions().values()) {
+      if (!(fn instanceof BuiltinBase)) {
+        functions.add(fn);
+      }
+    }
+    this.out.writeInt(functions.size());
+    for (FunctionNode fn : functions) {
+      this.writeFunction(fn);
+    }
+    this.out.flush();
+  }
+
+  private void writeFunction(FunctionNode fn) throws IOException {
+    this.writeString(fn.getName());
+    this.out.writeInt(fn.getLineNum());
+    this.out.writeInt(fn.getFrameSize());
+    this.writeVariables(fn.getParams());
+    this.writeVariables(fn.getVariables());
+    this.writeVariables(fn.getConstants());
+    this.writeNodes(fn.getStatements());
+  }
+
+  private void writeVariables(List<VariableNode> vars) throws IOException {
+    if (vars == null) {
+      this.out.writeInt(-1);
+      return;
+    }
+    this.out.writeInt(vars.size());
+    for (VariableNode v : vars) {
+      this.writeString(v.getName());
+      this.writeEnum(v.getType());
+      this.out.writeBoolean(v.getIsChangeable());
+      this.out.writeBoolean(v.getIsArray());
+      this.out.writeInt(v.getLineNum());
+      this.out.writeInt(v.getSlot());
+      VariableRange range = v.getRange();
+      this.out.writeBoolean(range != null);
+      if (range != null) {
+        this.writeNode(range.getFrom());
+        this.writeNode(range.getTo());
+      }
+      this.writeNode(v.getVal());
+    }
+  }
+
+  private void writeNodes(List<? extends Node> nodes) throws IOException {
+    if (nodes == null) {
+      this.out.writeInt(-1);
+      return;
+    }
+    this.out.writeInt(nodes.size());
+    for (Node node : nodes) {
+      this.writeNode(node);
+    }
+  }
+
+  private void writeNode(Node node) throws IOException {
+    if (node == null) {
+      this.out.writeByte(AstFormat.NULL);
+      return;
+    }
+    if (node instanceof IntegerNode n) {
+      this.out.writeByte(AstFormat.INTEGER);
+      this.out.writeInt(n.getVal());
+    } else if (node instanceof RealNode n) {
+      this.out.writeByte(AstFormat.REAL);
+      this.out.writeFloat(n.getVal());
+    } else if (node instanceof StringNode n) {
+      this.out.writeByte(AstFormat.STRING);
+      this.writeString(n.getVal());
+    } else if (node instanceof CharacterNode n) {
+      this.out.writeByte(AstFormat.CHARACTER);
+      this.out.writeChar(n.getVal());
+    } else if (node instanceof BooleanNode n) {
+      this.out.writeByte(AstFormat.BOOLEAN);
+      this.out.writeBoolean(n.getVal());
+    } else if (node instanceof MathOpNode n) {
+      // The same bytes as writing each side in turn
+      MathOpNode[] spine = n.getLeftSpine();
+      for (MathOpNode mon : spine) {
+        this.out.writeByte(AstFormat.MATH_OP);
+        this.writeEnum(mon.getMathOpType());
+      }
+      this.writeNode(spine[spine.length - 1].getLeftSide());
+      for (int i = spine.length - 1; i > 0; i--) {
+        this.writeNode(spine[i].getRightSide());
+        this.out.writeInt(spine[i].getLineNum());
+        this.writeEnum(spine[i].getStaticType());
+      }
+      this.writeNode(n.getRightSide());
+    } else if (node instanceof BooleanCompareNode n) {
+      this.out.writeByte(AstFormat.COMPARE);
+      this.writeEnum(n.getCompareType());
+      this.writeNode(n.getLeftSide());
+      this.writeNode(n.getRightSide());
+    } else if (node instanceof VariableReferenceNode n) {
+      this.out.writeByte(AstFormat.VARIABLE_REF);
+      this.writeString(n.getName());
+      this.writeNode(n.getArrIdxExp());
+      this.out.writeInt(n.getSlot());
+    } else if (node instanceof AssignmentNode n) {
+      this.out.writeByte(AstFormat.ASSIGNMENT);
+      this.writeNode(n.getLeftSide());
+      this.writeNode(n.getRightSide());
+    } else if (node instanceof FunctionCallNode n) {
+      this.out.writeByte(AstFormat.FUNCTION_CALL);
+      this.writeString(n.getFuncName());
+      this.out.writeInt(n.getArgs().size());
+      for (ArgumentNode arg : n.getArgs()) {
+        this.out.writeBoolean(arg.isVar());
+        this.out.writeInt(arg.getLineNum());
+        this.writeNode(arg.getArg());
+      }
+      this.out.writeBoolean(n.isSelfTailCall());
+      // CallLinking only ever links a call to the function of the same name
+      this.out.writeBoolean(n.getTarget() != null);
+      if (n.getTarget() != null) {
+        for (boolean typeChecked : n.getTypeCheckedArgs()) {
+          this.out.writeBoolean(typeChecked);
+        }
+      }
+    } else if (node instanceof ForNode n) {
+      this.out.writeByte(AstFormat.FOR);
+      this.writeNode(n.getVarRef());
+      this.writeNode(n.getFrom());
+      this.writeNode(n.getTo());
+      this.writeNodes(n.getStatements());
+    } else if (node instanceof RepeatNode n) {
+      this.out.writeByte(AstFormat.REPEAT);
+      this.writeNode(n.getCondition());
+      this.writeNodes(n.getStatements());
+    } else if (node instanceof WhenNode n) {
+      this.out.writeByte(AstFormat.WHEN);
+      this.writeEnum(n.getWhenOrElifOrElse());
+      this.writeNode(n.getCondition());
+      this.writeNodes(n.getStatements());
+      this.writeNode(n.getNextWhen().orElse(null));
+    } else if (node instanceof WhileNode n) {
+      this.out.writeByte(AstFormat.WHILE);
+      this.writeNode(n.getCondition());
+      this.writeNodes(n.getStatements());
+    } else {
+      throw new IOException("Cannot cache a " + node.getClass().getSimpleName());
+    }
+    this.out.writeInt(node.getLineNum());
+    this.writeEnum(node.getStaticType());
+  }
+
+  private void writeEnum(Enum<?> e) throws IOException {
+    this.out.writeByte(e == null ? -1 : e.ordinal());
+  }
+
+  // Not writeUTF, which is limited to 64KB
+  private void writeString(String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    this.out.writeInt(bytes.length);
+    this.out.write(bytes);
+  }
+}
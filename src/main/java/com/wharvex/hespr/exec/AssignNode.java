@@ -0,0 +1,31 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+
+/**
+ * An assignment that has not run yet. Its first execution picks IntAssignNode, RealAssignNode or
+ * GenericAssignNode by the types of the variable and the value.
+ */
+public class AssignNode extends GenericAssignNode {
+
+  public AssignNode(String name, int slot, ExprNode value) {
+    super(name, slot, value);
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType target = ReadSlotNode.lookUpSlot(this.name, this.slot, frame);
+    InterpreterDataType src = this.value.execute(frame);
+    target.setInitialized(true);
+    transferStoredVal(src, target);
+    if (target instanceof IntegerDataType && src instanceof IntegerDataType) {
+      this.replace(new IntAssignNode(this.name, this.slot, this.value));
+    } else if (target instanceof RealDataType && src instanceof RealDataType) {
+      this.replace(new RealAssignNode(this.name, this.slot, this.value));
+    } else {
+      this.replace(new GenericAssignNode(this.name, this.slot, this.value));
+    }
+  }
+}
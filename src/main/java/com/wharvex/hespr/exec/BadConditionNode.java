@@ -0,0 +1,20 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * Stands in for a condition that is not a comparison, which is an error once it runs.
+ */
+public class BadConditionNode extends ConditionNode {
+
+  private final String expecter;
+
+  public BadConditionNode(String expecter) {
+    this.expecter = expecter;
+  }
+
+  @Override
+  public boolean executeBoolean(InterpreterDataType[] frame) throws Exception {
+    throw new Exception(this.expecter + " needs Boolean condition.");
+  }
+}
@@ -0,0 +1,32 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+public class BlockNode extends StmtNode {
+
+  private final StmtNode[] statements;
+
+  public BlockNode(StmtNode[] statements) {
+    this.statements = statements;
+    for (StmtNode statement : statements) {
+      this.adopt(statement);
+    }
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    for (StmtNode statement : this.statements) {
+      statement.execute(frame);
+    }
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    for (int i = 0; i < this.statements.length; i++) {
+      if (this.statements[i] == oldChild) {
+        this.statements[i] = (StmtNode) newChild;
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.CharacterDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A function call. The callee is looked up on the first execution and kept.
+ */
+public class CallNode extends StmtNode {
+
+  private final ExecInterpreter interpreter;
+  private final String funcName;
+  private final ExprNode[] args;
+  private final boolean[] isVar;
+  // The slot of each var argument, which gets the (possibly replaced) IDT back after the call
+  private final int[] argSlots;
+  private FunctionNode target;
+  private ExecFunction targetExec;
+
+  public CallNode(ExecInterpreter interpreter, String funcName, ExprNode[] args, boolean[] isVar,
+      int[] argSlots) {
+    this.interpreter = interpreter;
+    this.funcName = funcName;
+    this.args = args;
+    this.isVar = isVar;
+    this.argSlots = argSlots;
+    for (ExprNode arg : args) {
+      this.adopt(arg);
+    }
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    if (this.target == null) {
+      this.target = this.interpreter.getFunctionNode(this.funcName);
+    }
+    var newVars = new ArrayList<InterpreterDataType>(this.args.length);
+    InterpreterDataType newVar;
+    // Only Builtins can be variadic
+    if (this.target.isVariadic()) {
+      for (int j = 0; j < this.args.length; j++) {
+        if (((BuiltinBase) this.target).variadicNeedsVar() && !this.isVar[j]) {
+          throw new Exception(this.target.getName() + " must be called with var arguments");
+        }
+        newVar = this.args[j].execute(frame);
+        newVar.setIsVar(this.isVar[j]);
+        newVars.add(newVar);
+      }
+    } else {
+      List<VariableNode> funcParams = this.target.getParams();
+      if (funcParams.size() != this.args.length) {
+        throw new Exception(
+            this.target.getName() + " needs " + funcParams.size() + " arguments");
+      }
+      for (int j = 0; j < this.args.length; j++) {
+        if (funcParams.get(j).getIsChangeable() && !this.isVar[j]) {
+          throw new Exception(
+              "Argument " + j + " to function " + this.target.getName() + " must be var");
+        }
+        newVar = this.args[j].execute(frame);
+        typeCheckArg(funcParams.get(j), newVar, this.target.getName(), j);
+        newVar.setIsVar(this.isVar[j]);
+        newVars.add(newVar);
+      }
+    }
+    if (this.target instanceof BuiltinBase) {
+      ((BuiltinBase) this.target).execute(newVars);
+    } else {
+      if (this.targetExec == null) {
+        this.targetExec = this.interpreter.getFunction(this.target);
+      }
+      this.targetExec.call(newVars);
+    }
+    for (int j = 0; j < newVars.size(); j++) {
+      if (newVars.get(j).getIsVar() && this.isVar[j]) {
+        frame[this.argSlots[j]] = newVars.get(j);
+      }
+    }
+  }
+
+  private static void typeCheckArg(VariableNode theParam, InterpreterDataType theArg,
+      String funcName, int argPos) throws Exception {
+    boolean ok = switch (theParam.getType()) {
+      case STRING -> theArg instanceof StringDataType;
+      case CHARACTER -> theArg instanceof CharacterDataType;
+      case INTEGER -> theArg instanceof IntegerDataType;
+      case REAL -> theArg instanceof RealDataType;
+      case BOOLEAN -> theArg instanceof BooleanDataType;
+      case ANY -> true;
+    };
+    if (!ok) {
+      throw new Exception("Argument " + argPos + " of function " + funcName + " must be of type "
+          + theParam.getType());
+    }
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    for (int i = 0; i < this.args.length; i++) {
+      if (this.args[i] == oldChild) {
+        this.args[i] = (ExprNode) newChild;
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.parser.CompareType;
+
+/**
+ * A comparison that has not run yet. Its first execution picks IntCompareNode, RealCompareNode or
+ * GenericCompareNode by the types of the operands.
+ */
+public class CompareNode extends GenericCompareNode {
+
+  public CompareNode(CompareType compareType, ExprNode left, ExprNode right) {
+    super(compareType, left, right);
+  }
+
+  @Override
+  public boolean executeBoolean(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType leftSide = this.left.execute(frame);
+    InterpreterDataType rightSide = this.right.execute(frame);
+    boolean ret = compare(this.compareType, leftSide, rightSide);
+    if (leftSide instanceof IntegerDataType) {
+      this.replace(new IntCompareNode(this.compareType, this.left, this.right));
+    } else if (leftSide instanceof RealDataType) {
+      this.replace(new RealCompareNode(this.compareType, this.left, this.right));
+    } else {
+      this.replace(new GenericCompareNode(this.compareType, this.left, this.right));
+    }
+    return ret;
+  }
+}
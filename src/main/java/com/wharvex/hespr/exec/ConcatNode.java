@@ -0,0 +1,27 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.nodes.MathOpNode.MathOpType;
+
+/**
+ * An add with a string on at least one side.
+ */
+public class ConcatNode extends GenericMathNode {
+
+  public ConcatNode(ExprNode left, ExprNode right) {
+    super(MathOpType.ADD, left, right);
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType leftSide = this.left.execute(frame);
+    InterpreterDataType rightSide = this.right.execute(frame);
+    if (!(leftSide instanceof StringDataType) && !(rightSide instanceof StringDataType)
+        || leftSide instanceof BooleanDataType || rightSide instanceof BooleanDataType) {
+      return this.generalize(leftSide, rightSide);
+    }
+    return new StringDataType(leftSide.toString() + rightSide.toString());
+  }
+}
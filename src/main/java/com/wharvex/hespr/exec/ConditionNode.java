@@ -0,0 +1,11 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * The condition of a loop or when statement.
+ */
+public abstract class ConditionNode extends ExecNode {
+
+  public abstract boolean executeBoolean(InterpreterDataType[] frame) throws Exception;
+}
@@ -0,0 +1,39 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.ArrayDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * Assigns to an array element, e.g. myArr[4] =_ "hi".
+ */
+public class ElementAssignNode extends StmtNode {
+
+  private final String name;
+  private final int slot;
+  private ExprNode index;
+  private ExprNode value;
+
+  public ElementAssignNode(String name, int slot, ExprNode index, ExprNode value) {
+    this.name = name;
+    this.slot = slot;
+    this.index = this.adopt(index);
+    this.value = this.adopt(value);
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType arr = ReadSlotNode.lookUpSlot(this.name, this.slot, frame);
+    InterpreterDataType src = this.value.execute(frame);
+    int idx = ReadElementNode.index(this.name, arr, this.index, frame);
+    ((ArrayDataType) arr).setArrElm(idx, src);
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    if (oldChild == this.index) {
+      this.index = (ExprNode) newChild;
+    } else {
+      this.value = (ExprNode) newChild;
+    }
+  }
+}
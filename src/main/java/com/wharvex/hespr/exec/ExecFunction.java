@@ -0,0 +1,112 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.ArrayDataType;
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.CharacterDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import java.util.List;
+
+/**
+ * The root of a function's executable tree: its declarations and its body.
+ */
+public class ExecFunction extends ExecNode {
+
+  private final FunctionNode functionNode;
+  // Per variable, then per constant; null where the declaration has no range or value
+  private final ExprNode[] rangeFroms;
+  private final ExprNode[] rangeTos;
+  private final ExprNode[] values;
+  private final BlockNode body;
+
+  public ExecFunction(FunctionNode functionNode, ExprNode[] rangeFroms, ExprNode[] rangeTos,
+      ExprNode[] values, BlockNode body) {
+    this.functionNode = functionNode;
+    this.rangeFroms = rangeFroms;
+    this.rangeTos = rangeTos;
+    this.values = values;
+    for (int i = 0; i < values.length; i++) {
+      this.adopt(rangeFroms[i]);
+      this.adopt(rangeTos[i]);
+      this.adopt(values[i]);
+    }
+    this.body = this.adopt(body);
+  }
+
+  public FunctionNode getFunctionNode() {
+    return this.functionNode;
+  }
+
+  public void call(List<InterpreterDataType> args) throws Exception {
+    var frame = new InterpreterDataType[this.functionNode.getFrameSize()];
+    List<VariableNode> theParams = this.functionNode.getParams();
+    for (int i = 0; i < theParams.size(); i++) {
+      InterpreterDataType theArg = args.get(i);
+      VariableNode theParam = theParams.get(i);
+      theArg.setIsChangeable(theParam.getIsChangeable());
+      theArg.setInitialized(true);
+      frame[theParam.getSlot()] = theArg;
+    }
+    List<VariableNode> variables = this.functionNode.getVariables();
+    for (int i = 0; i < variables.size(); i++) {
+      InterpreterDataType idt = this.declare(variables.get(i), i, frame);
+      idt.setIsChangeable(true);
+      idt.setIsVar(false);
+      frame[variables.get(i).getSlot()] = idt;
+    }
+    List<VariableNode> constants = this.functionNode.getConstants();
+    for (int i = 0; i < constants.size(); i++) {
+      InterpreterDataType idt = this.declare(constants.get(i), variables.size() + i, frame);
+      idt.setIsChangeable(false);
+      idt.setIsVar(false);
+      idt.setInitialized(true);
+      frame[constants.get(i).getSlot()] = idt;
+    }
+    this.body.execute(frame);
+  }
+
+  private InterpreterDataType declare(VariableNode v, int i, InterpreterDataType[] frame)
+      throws Exception {
+    InterpreterDataType ret;
+    if (v.getIsArray()) {
+      ret = new ArrayDataType(v.getType(),
+          ((IntegerDataType) this.rangeFroms[i].execute(frame)).getStoredVal(),
+          ((IntegerDataType) this.rangeTos[i].execute(frame)).getStoredVal());
+      ret.setInitialized(true);
+      return ret;
+    } else if (this.values[i] != null) {
+      return this.values[i].execute(frame);
+    }
+    switch (v.getType()) {
+      case STRING -> ret = new StringDataType("",
+          ((IntegerDataType) this.rangeFroms[i].execute(frame)).getStoredVal(),
+          ((IntegerDataType) this.rangeTos[i].execute(frame)).getStoredVal());
+      case CHARACTER -> ret = new CharacterDataType('0');
+      case INTEGER -> ret = new IntegerDataType(0);
+      case REAL -> ret = new RealDataType(0);
+      case BOOLEAN -> ret = new BooleanDataType(false);
+      default -> {
+        return null;
+      }
+    }
+    ret.setInitialized(false);
+    return ret;
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    for (ExprNode[] declarationNodes : new ExprNode[][]{this.rangeFroms, this.rangeTos,
+        this.values}) {
+      for (int i = 0; i < declarationNodes.length; i++) {
+        if (declarationNodes[i] == oldChild) {
+          declarationNodes[i] = (ExprNode) newChild;
+          return;
+        }
+      }
+    }
+  }
+}
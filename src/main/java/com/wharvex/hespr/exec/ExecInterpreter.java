@@ -0,0 +1,41 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Runs a program (after SlotResolution) on self-specializing executable trees instead of the
+ * Interpreter's central instanceof dispatch. It follows the Interpreter's semantics, down to
+ * passing every argument by alias. A function's tree is built the first time it is called.
+ */
+public class ExecInterpreter {
+
+  private final ProgramNode program;
+  private final ExecTreeBuilder builder = new ExecTreeBuilder(this);
+  private final HashMap<FunctionNode, ExecFunction> functions = new HashMap<>();
+
+  public ExecInterpreter(ProgramNode program) {
+    this.program = program;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  public void startProgram() throws Exception {
+    this.getFunction(this.getFunctionNode("load")).call(new ArrayList<>());
+  }
+
+  FunctionNode getFunctionNode(String funcName) throws Exception {
+    if (!this.getProgram().getFunctions().containsKey(funcName)) {
+      throw new Exception("Unknown function name " + (funcName));
+    }
+    return this.getProgram().getFunctions().get(funcName);
+  }
+
+  ExecFunction getFunction(FunctionNode functionNode) {
+    return this.functions.computeIfAbsent(functionNode, this.builder::buildFunction);
+  }
+}
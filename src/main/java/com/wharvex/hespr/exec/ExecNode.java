@@ -0,0 +1,35 @@
+package com.wharvex.hespr.exec;
+
+/**
+ * A node of the executable tree ExecTreeBuilder builds from the parser's nodes. Nodes specialize
+ * themselves: an uninitialized node looks at the values it sees on its first execution and
+ * replaces itself in its parent with a variant for those types, and a specialized node that sees
+ * a value it was not built for replaces itself with a generic variant.
+ */
+public abstract class ExecNode {
+
+  private ExecNode parent;
+
+  protected <T extends ExecNode> T adopt(T child) {
+    if (child != null) {
+      ((ExecNode) child).parent = this;
+    }
+    return child;
+  }
+
+  /**
+   * Puts the new node where this node is in the parent's children and returns it.
+   */
+  protected <T extends ExecNode> T replace(T newNode) {
+    this.parent.replaceChild(this, this.parent.adopt(newNode));
+    return newNode;
+  }
+
+  /**
+   * Nodes with children that can specialize must swap the old child for the new one here.
+   */
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    throw new IllegalStateException(this.getClass().getSimpleName() + " has no child "
+        + oldChild.getClass().getSimpleName());
+  }
+}
@@ -0,0 +1,159 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.BooleanNode;
+import com.wharvex.hespr.parser.nodes.CharacterNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.RealNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds the executable tree of a function (after SlotResolution). Every node starts out
+ * uninitialized and specializes itself when it runs.
+ */
+public class ExecTreeBuilder {
+
+  private final ExecInterpreter interpreter;
+
+  public ExecTreeBuilder(ExecInterpreter interpreter) {
+    this.interpreter = interpreter;
+  }
+
+  public ExecFunction buildFunction(FunctionNode functionNode) {
+    var declarations = new ArrayList<VariableNode>(functionNode.getVariables());
+    declarations.addAll(functionNode.getConstants());
+    var rangeFroms = new ExprNode[declarations.size()];
+    var rangeTos = new ExprNode[declarations.size()];
+    var values = new ExprNode[declarations.size()];
+    for (int i = 0; i < declarations.size(); i++) {
+      VariableNode v = declarations.get(i);
+      if (v.getRange() != null) {
+        rangeFroms[i] = this.buildExpression(v.getRange().getFrom());
+        rangeTos[i] = this.buildExpression(v.getRange().getTo());
+      }
+      if (v.getVal() != null) {
+        values[i] = this.buildExpression(v.getVal());
+      }
+    }
+    return new ExecFunction(functionNode, rangeFroms, rangeTos, values,
+        this.buildBlock(functionNode.getStatements()));
+  }
+
+  private BlockNode buildBlock(List<StatementNode> statements) {
+    var ret = new ArrayList<StmtNode>();
+    for (StatementNode statement : statements) {
+      if (statement instanceof AssignmentNode) {
+        VariableReferenceNode left = ((AssignmentNode) statement).getLeftSide();
+        ExprNode value = this.buildExpression(((AssignmentNode) statement).getRightSide());
+        if (left.getArrIdxExp() != null) {
+          ret.add(new ElementAssignNode(left.getName(), left.getSlot(),
+              this.buildExpression(left.getArrIdxExp()), value));
+        } else {
+          ret.add(new AssignNode(left.getName(), left.getSlot(), value));
+        }
+      } else if (statement instanceof ForNode) {
+        ForNode forNode = (ForNode) statement;
+        ret.add(new ForLoopNode(forNode.getVarRef().getName(), forNode.getVarRef().getSlot(),
+            this.buildExpression(forNode.getFrom()), this.buildExpression(forNode.getTo()),
+            this.buildBlock(forNode.getStatements())));
+      } else if (statement instanceof WhileNode) {
+        ret.add(new WhileLoopNode(
+            this.buildCondition(((WhileNode) statement).getCondition(), "While"), false,
+            this.buildBlock(((WhileNode) statement).getStatements())));
+      } else if (statement instanceof RepeatNode) {
+        ret.add(new WhileLoopNode(
+            this.buildCondition(((RepeatNode) statement).getCondition(), "RepeatUntil"), true,
+            this.buildBlock(((RepeatNode) statement).getStatements())));
+      } else if (statement instanceof WhenNode) {
+        ret.add(this.buildWhen((WhenNode) statement));
+      } else if (statement instanceof FunctionCallNode) {
+        ret.add(this.buildCall((FunctionCallNode) statement));
+      }
+    }
+    return new BlockNode(ret.toArray(new StmtNode[0]));
+  }
+
+  private WhenChainNode buildWhen(WhenNode whenNode) {
+    var conditions = new ArrayList<ConditionNode>();
+    var branches = new ArrayList<BlockNode>();
+    Optional<WhenNode> possibleNextWhen = Optional.of(whenNode);
+    while (possibleNextWhen.isPresent()) {
+      WhenNode branch = possibleNextWhen.get();
+      boolean isElse = branch.getWhenOrElifOrElse() == TokenType.ELSE;
+      conditions.add(isElse ? null : this.buildCondition(branch.getCondition(), "If"));
+      branches.add(this.buildBlock(branch.getStatements()));
+      if (isElse) {
+        break;
+      }
+      possibleNextWhen = branch.getNextWhen();
+    }
+    return new WhenChainNode(conditions.toArray(new ConditionNode[0]),
+        branches.toArray(new BlockNode[0]));
+  }
+
+  private CallNode buildCall(FunctionCallNode call) {
+    List<ArgumentNode> args = call.getArgs();
+    var argNodes = new ExprNode[args.size()];
+    var isVar = new boolean[args.size()];
+    var argSlots = new int[args.size()];
+    for (int j = 0; j < args.size(); j++) {
+      argNodes[j] = this.buildExpression(args.get(j).getArg());
+      isVar[j] = args.get(j).isVar();
+      argSlots[j] = isVar[j] ? ((VariableReferenceNode) args.get(j).getArg()).getSlot() : -1;
+    }
+    return new CallNode(this.interpreter, call.getFuncName(), argNodes, isVar, argSlots);
+  }
+
+  private ConditionNode buildCondition(Node condition, String expecter) {
+    if (!(condition instanceof BooleanCompareNode)) {
+      return new BadConditionNode(expecter);
+    }
+    BooleanCompareNode bcn = (BooleanCompareNode) condition;
+    return new CompareNode(bcn.getCompareType(), this.buildExpression(bcn.getLeftSide()),
+        this.buildExpression(bcn.getRightSide()));
+  }
+
+  private ExprNode buildExpression(Node node) {
+    if (node instanceof MathOpNode) {
+      MathOpNode mon = (MathOpNode) node;
+      return new MathNode(mon.getMathOpType(), this.buildExpression(mon.getLeftSide()),
+          this.buildExpression(mon.getRightSide()));
+    } else if (node instanceof VariableReferenceNode) {
+      VariableReferenceNode vrn = (VariableReferenceNode) node;
+      if (vrn.getArrIdxExp() != null) {
+        return new ReadElementNode(vrn.getName(), vrn.getSlot(),
+            this.buildExpression(vrn.getArrIdxExp()));
+      }
+      return new ReadSlotNode(vrn.getName(), vrn.getSlot());
+    } else if (node instanceof IntegerNode) {
+      return new IntLiteralNode(((IntegerNode) node).getVal());
+    } else if (node instanceof RealNode) {
+      return new RealLiteralNode(((RealNode) node).getVal());
+    } else if (node instanceof StringNode) {
+      return new LiteralNode(((StringNode) node).getVal());
+    } else if (node instanceof BooleanNode) {
+      return new LiteralNode(((BooleanNode) node).getVal());
+    } else if (node instanceof CharacterNode) {
+      return new LiteralNode(((CharacterNode) node).getVal());
+    }
+    // What the Interpreter's expression() gives anything else
+    return new IntLiteralNode(0);
+  }
+}
@@ -0,0 +1,37 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+
+/**
+ * An expression. execute() returns the value the Interpreter's expression() would: variable
+ * reads return the variable's own IDT, so arguments alias their variables. Specialized nodes
+ * override executeInt() and executeReal() to compute without allocating.
+ */
+public abstract class ExprNode extends ExecNode {
+
+  public abstract InterpreterDataType execute(InterpreterDataType[] frame) throws Exception;
+
+  public int executeInt(InterpreterDataType[] frame) throws Exception {
+    return expectInt(this.execute(frame));
+  }
+
+  public float executeReal(InterpreterDataType[] frame) throws Exception {
+    return expectReal(this.execute(frame));
+  }
+
+  static int expectInt(InterpreterDataType value) throws UnexpectedResultException {
+    if (value instanceof IntegerDataType) {
+      return ((IntegerDataType) value).getStoredVal();
+    }
+    throw new UnexpectedResultException(value);
+  }
+
+  static float expectReal(InterpreterDataType value) throws UnexpectedResultException {
+    if (value instanceof RealDataType) {
+      return ((RealDataType) value).getStoredVal();
+    }
+    throw new UnexpectedResultException(value);
+  }
+}
@@ -0,0 +1,52 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * A with loop. Like in the Interpreter, the upper bound is re-read on every iteration when it is
+ * a variable, because the loop holds on to the variable's IDT.
+ */
+public class ForLoopNode extends StmtNode {
+
+  private final String name;
+  private final int slot;
+  private ExprNode from;
+  private ExprNode to;
+  private final BlockNode body;
+
+  public ForLoopNode(String name, int slot, ExprNode from, ExprNode to, BlockNode body) {
+    this.name = name;
+    this.slot = slot;
+    this.from = this.adopt(from);
+    this.to = this.adopt(to);
+    this.body = this.adopt(body);
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType fromIDT = this.from.execute(frame);
+    InterpreterDataType toIDT = this.to.execute(frame);
+    if (!(fromIDT instanceof IntegerDataType) || !(toIDT instanceof IntegerDataType)) {
+      throw new Exception("From and To in a For Loop must evaluate to integers");
+    }
+    InterpreterDataType varRefIDT = ReadSlotNode.lookUpSlot(this.name, this.slot, frame);
+    varRefIDT.setInitialized(true);
+    for (int j = ((IntegerDataType) fromIDT).getStoredVal();
+        j <= ((IntegerDataType) toIDT).getStoredVal();
+        j++) {
+      ((IntegerDataType) varRefIDT).setStoredVal(j);
+      frame[this.slot] = varRefIDT;
+      this.body.execute(frame);
+    }
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    if (oldChild == this.from) {
+      this.from = (ExprNode) newChild;
+    } else {
+      this.to = (ExprNode) newChild;
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.CharacterDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+
+/**
+ * Assigns to a variable (not an array element) by copying the value into the variable's IDT.
+ */
+public class GenericAssignNode extends StmtNode {
+
+  protected final String name;
+  protected final int slot;
+  protected ExprNode value;
+
+  public GenericAssignNode(String name, int slot, ExprNode value) {
+    this.name = name;
+    this.slot = slot;
+    this.value = this.adopt(value);
+  }
+
+  static void transferStoredVal(InterpreterDataType src, InterpreterDataType dest) {
+    if (src instanceof CharacterDataType) {
+      ((CharacterDataType) dest).setStoredVal(((CharacterDataType) src).getStoredVal());
+    } else if (src instanceof IntegerDataType) {
+      ((IntegerDataType) dest).setStoredVal(((IntegerDataType) src).getStoredVal());
+    } else if (src instanceof BooleanDataType) {
+      ((BooleanDataType) dest).setStoredVal(((BooleanDataType) src).getStoredVal());
+    } else if (src instanceof StringDataType) {
+      ((StringDataType) dest).setStoredVal(((StringDataType) src).getStoredVal());
+    } else if (src instanceof RealDataType) {
+      ((RealDataType) dest).setStoredVal(((RealDataType) src).getStoredVal());
+    }
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType target = ReadSlotNode.lookUpSlot(this.name, this.slot, frame);
+    InterpreterDataType src = this.value.execute(frame);
+    target.setInitialized(true);
+    transferStoredVal(src, target);
+  }
+
+  /**
+   * Replaces a specialized node that saw a target or value it was not built for, and finishes the
+   * assignment generically.
+   */
+  protected void generalize(InterpreterDataType target, InterpreterDataType src) {
+    this.replace(new GenericAssignNode(this.name, this.slot, this.value));
+    target.setInitialized(true);
+    transferStoredVal(src, target);
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    this.value = (ExprNode) newChild;
+  }
+}
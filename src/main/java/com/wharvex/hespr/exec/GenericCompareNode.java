@@ -0,0 +1,83 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.CompareType;
+
+/**
+ * A comparison whose operands have been seen with more than one type.
+ */
+public class GenericCompareNode extends ConditionNode {
+
+  protected final CompareType compareType;
+  protected ExprNode left;
+  protected ExprNode right;
+
+  public GenericCompareNode(CompareType compareType, ExprNode left, ExprNode right) {
+    this.compareType = compareType;
+    this.left = this.adopt(left);
+    this.right = this.adopt(right);
+  }
+
+  static boolean compare(CompareType compareType, InterpreterDataType leftSide,
+      InterpreterDataType rightSide) throws Exception {
+    if (!leftSide.getClass().equals(rightSide.getClass())) {
+      throw new Exception("Boolean operations not allowed on different data types");
+    }
+    if (leftSide instanceof BooleanDataType || leftSide instanceof StringDataType) {
+      throw new Exception("Boolean operations not allowed on booleans or strings");
+    }
+    if (leftSide instanceof IntegerDataType) {
+      return compareInts(compareType, ((IntegerDataType) leftSide).getStoredVal(),
+          ((IntegerDataType) rightSide).getStoredVal());
+    }
+    return compareReals(compareType, ((RealDataType) leftSide).getStoredVal(),
+        ((RealDataType) rightSide).getStoredVal());
+  }
+
+  static boolean compareInts(CompareType compareType, int leftInt, int rightInt) {
+    return switch (compareType) {
+      case LESSTHAN -> leftInt < rightInt;
+      case GREATERTHAN -> leftInt > rightInt;
+      case GREATEREQUAL -> leftInt >= rightInt;
+      case LESSEQUAL -> leftInt <= rightInt;
+      case EQUALS -> leftInt == rightInt;
+      default -> false;
+    };
+  }
+
+  static boolean compareReals(CompareType compareType, float leftReal, float rightReal) {
+    return switch (compareType) {
+      case LESSTHAN -> leftReal < rightReal;
+      case GREATERTHAN -> leftReal > rightReal;
+      case GREATEREQUAL -> leftReal >= rightReal;
+      case LESSEQUAL -> leftReal <= rightReal;
+      case EQUALS -> leftReal == rightReal;
+      default -> false;
+    };
+  }
+
+  @Override
+  public boolean executeBoolean(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType leftSide = this.left.execute(frame);
+    return compare(this.compareType, leftSide, this.right.execute(frame));
+  }
+
+  protected boolean generalize(InterpreterDataType leftSide, InterpreterDataType rightSide)
+      throws Exception {
+    this.replace(new GenericCompareNode(this.compareType, this.left, this.right));
+    return compare(this.compareType, leftSide, rightSide);
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    if (oldChild == this.left) {
+      this.left = (ExprNode) newChild;
+    } else {
+      this.right = (ExprNode) newChild;
+    }
+  }
+}
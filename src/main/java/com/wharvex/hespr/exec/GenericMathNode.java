@@ -0,0 +1,94 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.nodes.MathOpNode.MathOpType;
+
+/**
+ * A math operation whose operands have been seen with more than one combination of types. It
+ * checks them on every execution, like the Interpreter does.
+ */
+public class GenericMathNode extends ExprNode {
+
+  protected final MathOpType op;
+  protected ExprNode left;
+  protected ExprNode right;
+
+  public GenericMathNode(MathOpType op, ExprNode left, ExprNode right) {
+    this.op = op;
+    this.left = this.adopt(left);
+    this.right = this.adopt(right);
+  }
+
+  static InterpreterDataType compute(MathOpType op, InterpreterDataType leftSide,
+      InterpreterDataType rightSide) throws Exception {
+    if (leftSide instanceof BooleanDataType || rightSide instanceof BooleanDataType) {
+      throw new Exception("Math operations not allowed on booleans");
+    }
+    if (!leftSide.getClass().equals(rightSide.getClass()) && !(leftSide instanceof StringDataType)
+        && !(rightSide instanceof StringDataType)) {
+      throw new Exception(
+          "Math operations not allowed on different data types (except strings for conversion)");
+    }
+    if (leftSide instanceof StringDataType || rightSide instanceof StringDataType) {
+      if (op != MathOpType.ADD) {
+        throw new Exception("Math operations other than ADD not allowed on string data types");
+      }
+      return new StringDataType(leftSide.toString() + rightSide.toString());
+    }
+    if (leftSide instanceof IntegerDataType) {
+      return new IntegerDataType(computeInt(op, ((IntegerDataType) leftSide).getStoredVal(),
+          ((IntegerDataType) rightSide).getStoredVal()));
+    }
+    return new RealDataType(computeReal(op, ((RealDataType) leftSide).getStoredVal(),
+        ((RealDataType) rightSide).getStoredVal()));
+  }
+
+  static int computeInt(MathOpType op, int leftInt, int rightInt) {
+    return switch (op) {
+      case ADD -> leftInt + rightInt;
+      case SUBTRACT -> leftInt - rightInt;
+      case MULTIPLY -> leftInt * rightInt;
+      case DIVIDE -> leftInt / rightInt;
+      case MOD -> leftInt % rightInt;
+    };
+  }
+
+  static float computeReal(MathOpType op, float leftReal, float rightReal) {
+    return switch (op) {
+      case ADD -> leftReal + rightReal;
+      case SUBTRACT -> leftReal - rightReal;
+      case MULTIPLY -> leftReal * rightReal;
+      case DIVIDE -> leftReal / rightReal;
+      case MOD -> leftReal % rightReal;
+    };
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType leftSide = this.left.execute(frame);
+    return compute(this.op, leftSide, this.right.execute(frame));
+  }
+
+  /**
+   * Replaces a specialized node that saw operands it was not built for, and finishes the
+   * operation generically.
+   */
+  protected InterpreterDataType generalize(InterpreterDataType leftSide,
+      InterpreterDataType rightSide) throws Exception {
+    this.replace(new GenericMathNode(this.op, this.left, this.right));
+    return compute(this.op, leftSide, rightSide);
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    if (oldChild == this.left) {
+      this.left = (ExprNode) newChild;
+    } else {
+      this.right = (ExprNode) newChild;
+    }
+  }
+}
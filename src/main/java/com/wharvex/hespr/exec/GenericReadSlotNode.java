@@ -0,0 +1,15 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+public class GenericReadSlotNode extends ReadSlotNode {
+
+  public GenericReadSlotNode(String name, int slot) {
+    super(name, slot);
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    return lookUpSlot(this.name, this.slot, frame);
+  }
+}
@@ -0,0 +1,29 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+public class IntAssignNode extends GenericAssignNode {
+
+  public IntAssignNode(String name, int slot, ExprNode value) {
+    super(name, slot, value);
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType target = ReadSlotNode.lookUpSlot(this.name, this.slot, frame);
+    if (!(target instanceof IntegerDataType)) {
+      this.generalize(target, this.value.execute(frame));
+      return;
+    }
+    int src;
+    try {
+      src = this.value.executeInt(frame);
+    } catch (UnexpectedResultException e) {
+      this.generalize(target, e.getResult());
+      return;
+    }
+    target.setInitialized(true);
+    ((IntegerDataType) target).setStoredVal(src);
+  }
+}
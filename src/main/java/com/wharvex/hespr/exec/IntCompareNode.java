@@ -0,0 +1,29 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.parser.CompareType;
+
+public class IntCompareNode extends GenericCompareNode {
+
+  public IntCompareNode(CompareType compareType, ExprNode left, ExprNode right) {
+    super(compareType, left, right);
+  }
+
+  @Override
+  public boolean executeBoolean(InterpreterDataType[] frame) throws Exception {
+    int leftInt;
+    try {
+      leftInt = this.left.executeInt(frame);
+    } catch (UnexpectedResultException e) {
+      return this.generalize(e.getResult(), this.right.execute(frame));
+    }
+    int rightInt;
+    try {
+      rightInt = this.right.executeInt(frame);
+    } catch (UnexpectedResultException e) {
+      return this.generalize(new IntegerDataType(leftInt), e.getResult());
+    }
+    return compareInts(this.compareType, leftInt, rightInt);
+  }
+}
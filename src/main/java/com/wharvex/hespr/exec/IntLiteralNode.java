@@ -0,0 +1,23 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+public class IntLiteralNode extends ExprNode {
+
+  private final int value;
+
+  public IntLiteralNode(int value) {
+    this.value = value;
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) {
+    return new IntegerDataType(this.value);
+  }
+
+  @Override
+  public int executeInt(InterpreterDataType[] frame) {
+    return this.value;
+  }
+}
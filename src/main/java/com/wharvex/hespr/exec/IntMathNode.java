@@ -0,0 +1,41 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.parser.nodes.MathOpNode.MathOpType;
+
+/**
+ * A math operation on two integers, e.g. an add whose operands were both IntegerDataType.
+ */
+public class IntMathNode extends GenericMathNode {
+
+  public IntMathNode(MathOpType op, ExprNode left, ExprNode right) {
+    super(op, left, right);
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    try {
+      return new IntegerDataType(this.executeInt(frame));
+    } catch (UnexpectedResultException e) {
+      return e.getResult();
+    }
+  }
+
+  @Override
+  public int executeInt(InterpreterDataType[] frame) throws Exception {
+    int leftInt;
+    try {
+      leftInt = this.left.executeInt(frame);
+    } catch (UnexpectedResultException e) {
+      return expectInt(this.generalize(e.getResult(), this.right.execute(frame)));
+    }
+    int rightInt;
+    try {
+      rightInt = this.right.executeInt(frame);
+    } catch (UnexpectedResultException e) {
+      return expectInt(this.generalize(new IntegerDataType(leftInt), e.getResult()));
+    }
+    return computeInt(this.op, leftInt, rightInt);
+  }
+}
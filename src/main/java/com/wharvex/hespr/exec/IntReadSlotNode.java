@@ -0,0 +1,21 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+public class IntReadSlotNode extends GenericReadSlotNode {
+
+  public IntReadSlotNode(String name, int slot) {
+    super(name, slot);
+  }
+
+  @Override
+  public int executeInt(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType value = frame[this.slot];
+    if (value instanceof IntegerDataType) {
+      return ((IntegerDataType) value).getStoredVal();
+    }
+    this.replace(new GenericReadSlotNode(this.name, this.slot));
+    throw new UnexpectedResultException(lookUpSlot(this.name, this.slot, frame));
+  }
+}
@@ -0,0 +1,29 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.CharacterDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+
+/**
+ * A string, character or boolean literal. Every execution returns a new IDT, since the callee may
+ * change an argument it was passed.
+ */
+public class LiteralNode extends ExprNode {
+
+  private final Object value;
+
+  public LiteralNode(Object value) {
+    this.value = value;
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) {
+    if (this.value instanceof String) {
+      return new StringDataType((String) this.value);
+    } else if (this.value instanceof Character) {
+      return new CharacterDataType((Character) this.value);
+    }
+    return new BooleanDataType((Boolean) this.value);
+  }
+}
@@ -0,0 +1,35 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.nodes.MathOpNode.MathOpType;
+
+/**
+ * A math operation that has not run yet. Its first execution picks IntMathNode, RealMathNode,
+ * ConcatNode or GenericMathNode by the types of the operands.
+ */
+public class MathNode extends GenericMathNode {
+
+  public MathNode(MathOpType op, ExprNode left, ExprNode right) {
+    super(op, left, right);
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType leftSide = this.left.execute(frame);
+    InterpreterDataType rightSide = this.right.execute(frame);
+    InterpreterDataType ret = compute(this.op, leftSide, rightSide);
+    if (leftSide instanceof IntegerDataType && rightSide instanceof IntegerDataType) {
+      this.replace(new IntMathNode(this.op, this.left, this.right));
+    } else if (leftSide instanceof RealDataType && rightSide instanceof RealDataType) {
+      this.replace(new RealMathNode(this.op, this.left, this.right));
+    } else if (leftSide instanceof StringDataType || rightSide instanceof StringDataType) {
+      this.replace(new ConcatNode(this.left, this.right));
+    } else {
+      this.replace(new GenericMathNode(this.op, this.left, this.right));
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,47 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.ArrayDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * Reads an array element, e.g. myArr[4].
+ */
+public class ReadElementNode extends ExprNode {
+
+  private final String name;
+  private final int slot;
+  private ExprNode index;
+
+  public ReadElementNode(String name, int slot, ExprNode index) {
+    this.name = name;
+    this.slot = slot;
+    this.index = this.adopt(index);
+  }
+
+  /**
+   * Evaluates the index of an element of the named array.
+   */
+  static int index(String name, InterpreterDataType arr, ExprNode index,
+      InterpreterDataType[] frame) throws Exception {
+    if (!(arr instanceof ArrayDataType)) {
+      throw new Exception("Cannot index variable " + name + " -- it is " + arr.getClass());
+    }
+    try {
+      return index.executeInt(frame);
+    } catch (UnexpectedResultException e) {
+      throw new Exception("Array " + name + " needs integer index expression");
+    }
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType arr = ReadSlotNode.lookUpSlot(this.name, this.slot, frame);
+    int idx = index(this.name, arr, this.index, frame);
+    return ((ArrayDataType) arr).getArrElm(idx);
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    this.index = (ExprNode) newChild;
+  }
+}
@@ -0,0 +1,45 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+
+/**
+ * Reads a variable that has not been read yet, then specializes on the type of its IDT.
+ */
+public class ReadSlotNode extends ExprNode {
+
+  protected final String name;
+  protected final int slot;
+
+  public ReadSlotNode(String name, int slot) {
+    this.name = name;
+    this.slot = slot;
+  }
+
+  /**
+   * A slot is empty (null) while the declarations before it are still being evaluated, so treat
+   * that the same as an undeclared name.
+   */
+  static InterpreterDataType lookUpSlot(String name, int slot, InterpreterDataType[] frame)
+      throws Exception {
+    InterpreterDataType ret = slot < 0 ? null : frame[slot];
+    if (ret == null) {
+      throw new Exception("Variable referenced before declaration: " + name);
+    }
+    return ret;
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType ret = lookUpSlot(this.name, this.slot, frame);
+    if (ret instanceof IntegerDataType) {
+      this.replace(new IntReadSlotNode(this.name, this.slot));
+    } else if (ret instanceof RealDataType) {
+      this.replace(new RealReadSlotNode(this.name, this.slot));
+    } else {
+      this.replace(new GenericReadSlotNode(this.name, this.slot));
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,29 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+
+public class RealAssignNode extends GenericAssignNode {
+
+  public RealAssignNode(String name, int slot, ExprNode value) {
+    super(name, slot, value);
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType target = ReadSlotNode.lookUpSlot(this.name, this.slot, frame);
+    if (!(target instanceof RealDataType)) {
+      this.generalize(target, this.value.execute(frame));
+      return;
+    }
+    float src;
+    try {
+      src = this.value.executeReal(frame);
+    } catch (UnexpectedResultException e) {
+      this.generalize(target, e.getResult());
+      return;
+    }
+    target.setInitialized(true);
+    ((RealDataType) target).setStoredVal(src);
+  }
+}
@@ -0,0 +1,29 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.parser.CompareType;
+
+public class RealCompareNode extends GenericCompareNode {
+
+  public RealCompareNode(CompareType compareType, ExprNode left, ExprNode right) {
+    super(compareType, left, right);
+  }
+
+  @Override
+  public boolean executeBoolean(InterpreterDataType[] frame) throws Exception {
+    float leftReal;
+    try {
+      leftReal = this.left.executeReal(frame);
+    } catch (UnexpectedResultException e) {
+      return this.generalize(e.getResult(), this.right.execute(frame));
+    }
+    float rightReal;
+    try {
+      rightReal = this.right.executeReal(frame);
+    } catch (UnexpectedResultException e) {
+      return this.generalize(new RealDataType(leftReal), e.getResult());
+    }
+    return compareReals(this.compareType, leftReal, rightReal);
+  }
+}
@@ -0,0 +1,23 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+
+public class RealLiteralNode extends ExprNode {
+
+  private final float value;
+
+  public RealLiteralNode(float value) {
+    this.value = value;
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) {
+    return new RealDataType(this.value);
+  }
+
+  @Override
+  public float executeReal(InterpreterDataType[] frame) {
+    return this.value;
+  }
+}
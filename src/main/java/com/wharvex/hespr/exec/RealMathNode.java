@@ -0,0 +1,41 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.parser.nodes.MathOpNode.MathOpType;
+
+/**
+ * A math operation on two reals.
+ */
+public class RealMathNode extends GenericMathNode {
+
+  public RealMathNode(MathOpType op, ExprNode left, ExprNode right) {
+    super(op, left, right);
+  }
+
+  @Override
+  public InterpreterDataType execute(InterpreterDataType[] frame) throws Exception {
+    try {
+      return new RealDataType(this.executeReal(frame));
+    } catch (UnexpectedResultException e) {
+      return e.getResult();
+    }
+  }
+
+  @Override
+  public float executeReal(InterpreterDataType[] frame) throws Exception {
+    float leftReal;
+    try {
+      leftReal = this.left.executeReal(frame);
+    } catch (UnexpectedResultException e) {
+      return expectReal(this.generalize(e.getResult(), this.right.execute(frame)));
+    }
+    float rightReal;
+    try {
+      rightReal = this.right.executeReal(frame);
+    } catch (UnexpectedResultException e) {
+      return expectReal(this.generalize(new RealDataType(leftReal), e.getResult()));
+    }
+    return computeReal(this.op, leftReal, rightReal);
+  }
+}
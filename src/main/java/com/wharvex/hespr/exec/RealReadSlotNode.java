@@ -0,0 +1,21 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+
+public class RealReadSlotNode extends GenericReadSlotNode {
+
+  public RealReadSlotNode(String name, int slot) {
+    super(name, slot);
+  }
+
+  @Override
+  public float executeReal(InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType value = frame[this.slot];
+    if (value instanceof RealDataType) {
+      return ((RealDataType) value).getStoredVal();
+    }
+    this.replace(new GenericReadSlotNode(this.name, this.slot));
+    throw new UnexpectedResultException(lookUpSlot(this.name, this.slot, frame));
+  }
+}
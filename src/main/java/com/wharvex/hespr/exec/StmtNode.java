@@ -0,0 +1,8 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+public abstract class StmtNode extends ExecNode {
+
+  public abstract void execute(InterpreterDataType[] frame) throws Exception;
+}
@@ -0,0 +1,21 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * Thrown by executeInt(), executeReal() or executeBoolean() when the value is not of the
+ * requested type. It carries the value so the caller can carry on generically.
+ */
+public class UnexpectedResultException extends Exception {
+
+  private final InterpreterDataType result;
+
+  public UnexpectedResultException(InterpreterDataType result) {
+    super(null, null, false, false);
+    this.result = result;
+  }
+
+  public InterpreterDataType getResult() {
+    return this.result;
+  }
+}
@@ -0,0 +1,42 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * A when statement with its elif and else branches. The else branch, if any, has a null
+ * condition.
+ */
+public class WhenChainNode extends StmtNode {
+
+  private final ConditionNode[] conditions;
+  private final BlockNode[] branches;
+
+  public WhenChainNode(ConditionNode[] conditions, BlockNode[] branches) {
+    this.conditions = conditions;
+    this.branches = branches;
+    for (int i = 0; i < conditions.length; i++) {
+      this.adopt(conditions[i]);
+      this.adopt(branches[i]);
+    }
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    for (int i = 0; i < this.conditions.length; i++) {
+      if (this.conditions[i] == null || this.conditions[i].executeBoolean(frame)) {
+        this.branches[i].execute(frame);
+        return;
+      }
+    }
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    for (int i = 0; i < this.conditions.length; i++) {
+      if (this.conditions[i] == oldChild) {
+        this.conditions[i] = (ConditionNode) newChild;
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.wharvex.hespr.exec;
+
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+
+/**
+ * A whil loop, or (with until set) a till loop.
+ */
+public class WhileLoopNode extends StmtNode {
+
+  private ConditionNode condition;
+  private final boolean until;
+  private final BlockNode body;
+
+  public WhileLoopNode(ConditionNode condition, boolean until, BlockNode body) {
+    this.condition = this.adopt(condition);
+    this.until = until;
+    this.body = this.adopt(body);
+  }
+
+  @Override
+  public void execute(InterpreterDataType[] frame) throws Exception {
+    while (this.condition.executeBoolean(frame) != this.until) {
+      this.body.execute(frame);
+    }
+  }
+
+  @Override
+  protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+    this.condition = (ConditionNode) newChild;
+  }
+}
@@ -0,0 +1,174 @@
+package com.wharvex.hespr.image;
+
+import com.wharvex.hespr.cache.AstReader;
+import com.wharvex.hespr.cache.AstWriter;
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.vm.CompiledFunction;
+import com.wharvex.hespr.vm.CompiledProgram;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A program compiled ahead of time by Hesprc: the syntax tree after every pass (slots resolved,
+ * calls linked, constants folded), in the AST cache format, and the VM bytecode if the program
+ * could be compiled to it. HesprRun runs an image without loading the Lexer, the Parser or the
+ * passes.
+ */
+public class HesprImage {
+
+  private static final int MAGIC = 0x48535049; // "HSPI"
+  // Bump this when the bytecode section changes. The syntax tree has its own version
+  private static final int VERSION = 2;
+
+  private static final VariableType[] VARIABLE_TYPES = VariableType.values();
+
+  private final ProgramNode program;
+  private final CompiledProgram compiled;
+
+  /**
+   * compiled is null if the program has no bytecode.
+   */
+  public HesprImage(ProgramNode program, CompiledProgram compiled) {
+    this.program = program;
+    this.compiled = compiled;
+  }
+
+  public ProgramNode getProgram() {
+    return this.program;
+  }
+
+  /**
+   * The bytecode, or null if the VM cannot run the program.
+   */
+  public CompiledProgram getCompiled() {
+    return this.compiled;
+  }
+
+  public void write(Path path) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      new AstWriter(out).write(this.program);
+      out.writeBoolean(this.compiled != null);
+      if (this.compiled != null) {
+        writeCompiled(out, this.compiled);
+      }
+    }
+  }
+
+  public static HesprImage read(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException(path + " is not a hespr image");
+      }
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException(
+            path + " has image version " + version + ", not " + VERSION + "; compile it again");
+      }
+      ProgramNode program = new AstReader(in).read();
+      return new HesprImage(program, in.readBoolean() ? readCompiled(in, program) : null);
+    }
+  }
+
+  private static void writeCompiled(DataOutputStream out, CompiledProgram compiled)
+      throws IOException {
+    out.writeInt(compiled.getFunctions().length);
+    for (CompiledFunction fn : compiled.getFunctions()) {
+      writeString(out, fn.getName());
+      writeInts(out, fn.getCode());
+      out.writeInt(fn.getRegisterCount());
+      writeInts(out, fn.getParamSlots());
+      for (int i = 0; i < fn.getParamCount(); i++) {
+        VariableType paramType = fn.getParamTypes()[i];
+        out.writeByte(paramType == null ? -1 : paramType.ordinal());
+        out.writeBoolean(fn.getParamByRef()[i]);
+        out.writeBoolean(fn.getParamBoxed()[i]);
+      }
+    }
+    // The builtins are the program's own, so only their names are needed
+    out.writeInt(compiled.getBuiltins().length);
+    for (BuiltinBase builtin : compiled.getBuiltins()) {
+      writeString(out, builtin.getName());
+    }
+    out.writeInt(compiled.getStrings().length);
+    for (String s : compiled.getStrings()) {
+      writeString(out, s);
+    }
+    out.writeInt(compiled.getEntry());
+  }
+
+  private static CompiledProgram readCompiled(DataInputStream in, ProgramNode program)
+      throws IOException {
+    var functions = new CompiledFunction[in.readInt()];
+    for (int i = 0; i < functions.length; i++) {
+      String name = readString(in);
+      int[] code = readInts(in);
+      int registerCount = in.readInt();
+      int[] paramSlots = readInts(in);
+      var paramTypes = new VariableType[paramSlots.length];
+      var paramByRef = new boolean[paramSlots.length];
+      var paramBoxed = new boolean[paramSlots.length];
+      for (int j = 0; j < paramSlots.length; j++) {
+        byte paramType = in.readByte();
+        paramTypes[j] = paramType < 0 ? null : VARIABLE_TYPES[paramType];
+        paramByRef[j] = in.readBoolean();
+        paramBoxed[j] = in.readBoolean();
+      }
+      functions[i] = new CompiledFunction(name, code, registerCount, paramSlots, paramTypes,
+          paramByRef, paramBoxed);
+    }
+    var builtins = new BuiltinBase[in.readInt()];
+    for (int i = 0; i < builtins.length; i++) {
+      String name = readString(in);
+      FunctionNode builtin = program.getFunctions().get(name);
+      if (!(builtin instanceof BuiltinBase)) {
+        throw new IOException("No builtin " + name);
+      }
+      builtins[i] = (BuiltinBase) builtin;
+    }
+    var strings = new String[in.readInt()];
+    for (int i = 0; i < strings.length; i++) {
+      strings[i] = readString(in);
+    }
+    return new CompiledProgram(functions, builtins, strings, in.readInt());
+  }
+
+  private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+    out.writeInt(ints.length);
+    for (int i : ints) {
+      out.writeInt(i);
+    }
+  }
+
+  private static int[] readInts(DataInputStream in) throws IOException {
+    var ret = new int[in.readInt()];
+    for (int i = 0; i < ret.length; i++) {
+      ret[i] = in.readInt();
+    }
+    return ret;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
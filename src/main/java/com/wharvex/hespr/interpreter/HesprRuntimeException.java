@@ -0,0 +1,24 @@
+package com.wharvex.hespr.interpreter;
+
+import java.util.List;
+
+/**
+ * An error raised while running a hespr program, together with the hespr functions that were
+ * running at the time (innermost first), which the message lists.
+ */
+public class HesprRuntimeException extends Exception {
+
+  private final List<String> hesprStackTrace;
+
+  public HesprRuntimeException(Exception cause, List<String> hesprStackTrace) {
+    super(cause.getMessage() + "\n" + String.join("\n", hesprStackTrace), cause);
+    this.hesprStackTrace = hesprStackTrace;
+  }
+
+  /**
+   * One line per hespr function, innermost first, e.g. "    at gcdRec (line 5)".
+   */
+  public List<String> getHesprStackTrace() {
+    return this.hesprStackTrace;
+  }
+}
@@ -1,6 +1,8 @@
 package com.wharvex.hespr.interpreter;
 
 import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.CompareType;
+import com.wharvex.hespr.parser.VariableType;
 import com.wharvex.hespr.parser.nodes.AssignmentNode;
 import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
 import com.wharvex.hespr.parser.nodes.BooleanNode;
@@ -23,13 +25,15 @@ import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
 import com.wharvex.hespr.parser.nodes.WhileNode;
 import com.wharvex.hespr.parser.builtins.BuiltinBase;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 public class Interpreter {
 
   private ProgramNode program;
+  // Set by a self tail call for interpretFunction to pick up
+  private List<InterpreterDataType> tailCallArgs;
 
   public Interpreter(ProgramNode program) {
     this.program = program;
@@ -52,19 +56,19 @@ public class Interpreter {
   }
 
   private InterpreterDataType makeDataTypeFromVarNode(VariableNode v,
-      HashMap<String, InterpreterDataType> vars) throws Exception {
+      InterpreterDataType[] frame) throws Exception {
     Node val = v.getVal();
     InterpreterDataType ret;
     if (v.getIsArray()) {
-      ret = new ArrayDataType(v.getType(), ((IntegerDataType) this.expression(v.getRange().getFrom(), vars)).getStoredVal(), ((IntegerDataType) this.expression(v.getRange().getTo(), vars)).getStoredVal());
+      ret = new ArrayDataType(v.getType(), ((IntegerDataType) this.expression(v.getRange().getFrom(), frame)).getStoredVal(), ((IntegerDataType) this.expression(v.getRange().getTo(), frame)).getStoredVal());
       ret.setInitialized(true);
     } else if (val == null) {
 
       switch (v.getType()) {
         case STRING -> {
           ret = new StringDataType("",
-              ((IntegerDataType) this.expression(v.getRange().getFrom(), vars)).getStoredVal(),
-              ((IntegerDataType) this.expression(v.getRange().getTo(), vars)).getStoredVal());
+              ((IntegerDataType) this.expression(v.getRange().getFrom(), frame)).getStoredVal(),
+              ((IntegerDataType) this.expression(v.getRange().getTo(), frame)).getStoredVal());
           ret.setInitialized(false);
         }
         case CHARACTER -> {
@@ -86,13 +90,33 @@ public class Interpreter {
         default -> ret = null;
       }
     } else {
-      ret = this.expression(val, vars);
+      ret = this.expression(val, frame);
     }
     return ret;
   }
 
   public void interpretFunction(FunctionNode f, List<InterpreterDataType> args) throws Exception {
-    var vars = new HashMap<String, InterpreterDataType>();
+    var frame = new InterpreterDataType[f.getFrameSize()];
+    while (true) {
+      this.enterFunction(f, args, frame);
+//      System.out.println("\n[[Begin " + f.getName() + "]]");
+      this.interpretBlock(f.getStatements(), frame);
+//      System.out.println("\n\n[[End " + f.getName() + "]]");
+      if (this.tailCallArgs == null) {
+        return;
+      }
+      // A self tail call: run the function again in the same frame instead of recursing
+      args = this.tailCallArgs;
+      this.tailCallArgs = null;
+      Arrays.fill(frame, null);
+    }
+  }
+
+  /**
+   * Binds the args to f's params and declares f's variables and constants in an empty frame.
+   */
+  void enterFunction(FunctionNode f, List<InterpreterDataType> args,
+      InterpreterDataType[] frame) throws Exception {
     if (f.getParams() != null) {
       List<VariableNode> theParams = f.getParams();
       for (int i = 0; i < theParams.size(); i++) {
@@ -100,35 +124,27 @@ public class Interpreter {
         VariableNode theParam = theParams.get(i);
         theArg.setIsChangeable(theParam.getIsChangeable());
         theArg.setInitialized(true);
-        vars.put(theParam.getName(), theArg);
+        frame[theParam.getSlot()] = theArg;
       }
     }
+    // Redeclarations were already rejected by SlotResolution
     if (f.getVariables() != null) {
       for (VariableNode v : f.getVariables()) {
-        if (vars.containsKey(v.getName())) {
-          throw new Exception("Cannot redeclare parameter " + v.getName());
-        }
-        InterpreterDataType idt = this.makeDataTypeFromVarNode(v, vars);
+        InterpreterDataType idt = this.makeDataTypeFromVarNode(v, frame);
         idt.setIsChangeable(true);
         idt.setIsVar(false);
-        vars.put(v.getName(), idt);
+        frame[v.getSlot()] = idt;
       }
     }
     if (f.getConstants() != null) {
       for (VariableNode v : f.getConstants()) {
-        if (vars.containsKey(v.getName())) {
-          throw new Exception("Cannot redeclare parameter/variable " + v.getName());
-        }
-        InterpreterDataType idt = this.makeDataTypeFromVarNode(v, vars);
+        InterpreterDataType idt = this.makeDataTypeFromVarNode(v, frame);
         idt.setIsChangeable(false);
         idt.setIsVar(false);
         idt.setInitialized(true);
-        vars.put(v.getName(), idt);
+        frame[v.getSlot()] = idt;
       }
     }
-//    System.out.println("\n[[Begin " + f.getName() + "]]");
-    this.interpretBlock(f.getStatements(), vars);
-//    System.out.println("\n\n[[End " + f.getName() + "]]");
   }
 
   private void expectsInitialized(InterpreterDataType idt, String varName) throws Exception {
@@ -137,41 +153,51 @@ public class Interpreter {
     }
   }
 
-  private IntegerDataType interpretArrIdxExp(VariableReferenceNode vrn,
-      HashMap<String, InterpreterDataType> vars) throws Exception {
-    InterpreterDataType arrIdt = vars.get(vrn.getName());
+  private int interpretArrIdxExp(VariableReferenceNode vrn,
+      InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType arrIdt = frame[vrn.getSlot()];
     if (!(arrIdt instanceof ArrayDataType)) {
       throw new Exception(
           "Cannot index variable " + vrn.getName() + " -- it is " + arrIdt.getClass());
     }
-    InterpreterDataType arrIdxIdt = this.expression(vrn.getArrIdxExp(), vars);
+    if (vrn.getArrIdxExp().getStaticType() == VariableType.INTEGER) {
+      return this.evalInt(vrn.getArrIdxExp(), frame);
+    }
+    InterpreterDataType arrIdxIdt = this.expression(vrn.getArrIdxExp(), frame);
     if (!(arrIdxIdt instanceof IntegerDataType)) {
       throw new Exception("Array " + vrn.getName() + " needs integer index expression");
     }
-    return (IntegerDataType) arrIdxIdt;
+    return ((IntegerDataType) arrIdxIdt).getStoredVal();
   }
 
-  private InterpreterDataType interpretVarRef(
-      VariableReferenceNode vrn, HashMap<String, InterpreterDataType> vars) throws Exception {
-    if (vars.containsKey(vrn.getName())) {
-      return vars.get(vrn.getName());
+  /**
+   * A slot is empty (null) while the declarations before it are still being evaluated, so treat
+   * that the same as an undeclared name.
+   */
+  private InterpreterDataType lookUpSlot(VariableReferenceNode vrn, InterpreterDataType[] frame)
+      throws Exception {
+    InterpreterDataType ret = vrn.getSlot() < 0 ? null : frame[vrn.getSlot()];
+    if (ret == null) {
+      throw new Exception("Variable referenced before declaration: " + vrn.getName());
     }
-    throw new Exception("Variable referenced before declaration: " + vrn.getName());
+    return ret;
+  }
+
+  private InterpreterDataType interpretVarRef(
+      VariableReferenceNode vrn, InterpreterDataType[] frame) throws Exception {
+    return this.lookUpSlot(vrn, frame);
   }
 
   private InterpreterDataType interpretVarRefExpectsInit(
-      VariableReferenceNode vrn, HashMap<String, InterpreterDataType> vars) throws Exception {
-    if (vars.containsKey(vrn.getName())) {
-      InterpreterDataType ret = vars.get(vrn.getName());
-//      this.expectsInitialized(ret, vrn.getName());
-      if (vrn.getArrIdxExp() != null) {
-        IntegerDataType arrIdxIdt = this.interpretArrIdxExp(vrn, vars);
-        ArrayDataType arrIdt = (ArrayDataType) vars.get(vrn.getName());
-        return arrIdt.getArrElm(arrIdxIdt.getStoredVal());
-      }
-      return ret;
+      VariableReferenceNode vrn, InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType ret = this.lookUpSlot(vrn, frame);
+//    this.expectsInitialized(ret, vrn.getName());
+    if (vrn.getArrIdxExp() != null) {
+      // Before the cast, since interpretArrIdxExp reports a variable that is not an array
+      int idx = this.interpretArrIdxExp(vrn, frame);
+      return ((ArrayDataType) ret).getArrElm(idx);
     }
-    throw new Exception("Variable referenced before declaration: " + vrn.getName());
+    return ret;
   }
 
   private void expectsBool(Node condition, String expecter) throws Exception {
@@ -181,133 +207,210 @@ public class Interpreter {
   }
 
   private void interpretBlock(
-      List<StatementNode> statements, HashMap<String, InterpreterDataType> vars) throws Exception {
-    int i = 1;
+      List<StatementNode> statements, InterpreterDataType[] frame) throws Exception {
     for (StatementNode statementNode : statements) {
       if (statementNode instanceof AssignmentNode) {
-        VariableReferenceNode vrnLeft = ((AssignmentNode) statementNode).getLeftSide();
-        InterpreterDataType idtLeft = this.interpretVarRef(vrnLeft, vars);
-        String assigneeName = vrnLeft.getName();
-//        System.out.print("\n[[Assignment " + (i++) + ": " + vrnLeft + " starts as " + idtLeft);
-        InterpreterDataType idtRight = this.expression(
-            ((AssignmentNode) statementNode).getRightSide(), vars);
-        if (vrnLeft.getArrIdxExp() != null) {
-          ((ArrayDataType) idtLeft).setArrElm(interpretArrIdxExp(vrnLeft, vars).getStoredVal(),
-              idtRight);
-        } else {
-          idtLeft.setInitialized(true);
-          this.transferStoredVal(idtRight, idtLeft);
-        }
-//        System.out.print(", ends as " + vars.get(assigneeName) + "]]");
+        this.assign((AssignmentNode) statementNode, frame);
       } else if (statementNode instanceof ForNode) {
-        InterpreterDataType fromIDT = this.expression(((ForNode) statementNode).getFrom(), vars);
-        InterpreterDataType toIDT = this.expression(((ForNode) statementNode).getTo(), vars);
-        if (!(fromIDT instanceof IntegerDataType) || !(toIDT instanceof IntegerDataType)) {
-          throw new Exception("From and To in a For Loop must evaluate to integers");
-        }
-        VariableReferenceNode varRef = ((ForNode) statementNode).getVarRef();
-        InterpreterDataType varRefIDT = this.interpretVarRef(varRef, vars);
-        varRefIDT.setInitialized(true);
+        ForNode forNode = (ForNode) statementNode;
+        IntegerDataType[] bounds = this.forBounds(forNode, frame);
+        InterpreterDataType varRefIDT = this.forVar(forNode, frame);
 //        System.out.println("\n\n[[Begin For Loop]]");
-        for (int j = ((IntegerDataType) fromIDT).getStoredVal();
-            j <= ((IntegerDataType) toIDT).getStoredVal();
-            j++) {
+        for (int j = bounds[0].getStoredVal(); j <= bounds[1].getStoredVal(); j++) {
           ((IntegerDataType) varRefIDT).setStoredVal(j);
-          vars.put(varRef.getName(), varRefIDT);
-          this.interpretBlock(((ForNode) statementNode).getStatements(), vars);
+          frame[forNode.getVarRef().getSlot()] = varRefIDT;
+          this.interpretBlock(forNode.getStatements(), frame);
         }
 //        System.out.println("\n\n[[End For Loop]]");
       } else if (statementNode instanceof WhileNode) {
         Node condition = ((WhileNode) statementNode).getCondition();
-        this.expectsBool(condition, "While");
 //        System.out.println("\n\n[[Begin While Loop " + condition + "]]");
-        while (this.booleanCompare((BooleanCompareNode) condition, vars)) {
-          this.interpretBlock(((WhileNode) statementNode).getStatements(), vars);
+        while (this.condition(condition, "While", frame)) {
+          this.interpretBlock(((WhileNode) statementNode).getStatements(), frame);
         }
 //        System.out.println("\n\n[[End While Loop " + condition + "]]");
       } else if (statementNode instanceof RepeatNode) {
         Node condition = ((RepeatNode) statementNode).getCondition();
-        this.expectsBool(condition, "RepeatUntil");
 //        System.out.println("\n\n[[Begin RepeatUntil Loop " + condition + "]]");
-        while (!this.booleanCompare((BooleanCompareNode) condition, vars)) {
-          this.interpretBlock(((RepeatNode) statementNode).getStatements(), vars);
+        while (!this.condition(condition, "RepeatUntil", frame)) {
+          this.interpretBlock(((RepeatNode) statementNode).getStatements(), frame);
         }
 //        System.out.println("\n\n[[End RepeatUntil Loop " + condition + "]]");
       } else if (statementNode instanceof WhenNode) {
-        Node condition = ((WhenNode) statementNode).getCondition();
-        this.expectsBool(condition, "If");
-//        System.out.println("\n\n[[Begin If Statement " + condition + "]]");
-        if (this.booleanCompare((BooleanCompareNode) condition, vars)) {
-          this.interpretBlock(((WhenNode) statementNode).getStatements(), vars);
-        } else {
-          Optional<WhenNode> possibleNextWhen = ((WhenNode) statementNode).getNextWhen();
-          while (possibleNextWhen.isPresent()) {
-            if (possibleNextWhen.get().getWhenOrElifOrElse() == TokenType.ELSE) {
-              this.interpretBlock(possibleNextWhen.get().getStatements(), vars);
-              break;
-            } else {
-              condition = possibleNextWhen.get().getCondition();
-              this.expectsBool(condition, "If");
-              if (this.booleanCompare((BooleanCompareNode) condition, vars)) {
-                this.interpretBlock(possibleNextWhen.get().getStatements(), vars);
-                break;
-              } else {
-                possibleNextWhen = possibleNextWhen.get().getNextWhen();
-              }
-            }
-          }
+        List<StatementNode> branch = this.whenBranch((WhenNode) statementNode, frame);
+        if (branch != null) {
+          this.interpretBlock(branch, frame);
         }
       } else if (statementNode instanceof FunctionCallNode) {
-        FunctionNode functionNode = this.getFunction(
-            ((FunctionCallNode) statementNode).getFuncName());
-        var newVars = new ArrayList<InterpreterDataType>();
-        List<ArgumentNode> args = ((FunctionCallNode) statementNode).getArgs();
-        // If the below condition passes, then fn is a variadic Builtin (e.g. Write)
-        // because only Builtins can be variadic
-        if (functionNode.isVariadic()) {
-          InterpreterDataType newVar;
-          this.builtinExpectsArgs(args);
-          for (ArgumentNode parameterNode : args) {
-            if (((BuiltinBase) functionNode).variadicNeedsVar() && !parameterNode.isVar()) {
-              throw new Exception(functionNode.getName() + " must be called with var arguments");
-            }
-            newVar = this.expression(parameterNode.getArg(), vars);
-            newVar.setIsVar(parameterNode.isVar());
-            newVars.add(newVar);
-          }
-        } else {
-          InterpreterDataType newVar;
-          if (functionNode instanceof BuiltinBase) {
-            this.builtinExpectsArgs(args);
-          }
-          List<VariableNode> funcParams = functionNode.getParams();
-          if (funcParams.size() != args.size()) {
-            throw new Exception(
-                functionNode.getName() + " needs " + funcParams.size() + " arguments");
-          }
-          for (int j = 0; j < args.size(); j++) {
-            if (funcParams.get(j).getIsChangeable() && !args.get(j).isVar()) {
-              throw new Exception(
-                  "Argument " + j + " to function " + functionNode.getName() + " must be var");
-            }
-            newVar = this.expression(args.get(j).getArg(), vars);
-            typeCheckArg(funcParams.get(j), newVar, functionNode.getName(), j);
-            newVar.setIsVar(args.get(j).isVar());
-            newVars.add(newVar);
-          }
+        FunctionCallNode call = (FunctionCallNode) statementNode;
+        FunctionNode functionNode = this.callTarget(call);
+        List<InterpreterDataType> newVars = this.callArgs(call, functionNode, frame);
+        if (call.isSelfTailCall()) {
+          // interpretFunction makes the call once this frame is done; no copy back is needed
+          // since the frame is discarded
+          this.tailCallArgs = newVars;
+          return;
         }
         if (functionNode instanceof BuiltinBase) {
           ((BuiltinBase) functionNode).execute(newVars);
         } else {
           this.interpretFunction(functionNode, newVars);
         }
-        for (int j = 0; j < newVars.size(); j++) {
-          if (newVars.get(j).getIsVar() && args.get(j).isVar()) {
-            vars.put(((VariableReferenceNode) args.get(j).getArg()).getName(), newVars.get(j));
-          }
+        this.copyBack(call, newVars, frame);
+      }
+    }
+  }
+
+  // STATEMENTS
+  // The parts of interpretBlock() that do not run other statements, shared with StackInterpreter
+
+  void assign(AssignmentNode assignment, InterpreterDataType[] frame) throws Exception {
+    VariableReferenceNode vrnLeft = assignment.getLeftSide();
+    InterpreterDataType idtLeft = this.interpretVarRef(vrnLeft, frame);
+    Node rightSide = assignment.getRightSide();
+    if (vrnLeft.getArrIdxExp() == null && rightSide.getStaticType() != null
+        && rightSide.getStaticType() == vrnLeft.getStaticType()
+        && this.assignUnboxed(idtLeft, rightSide, frame)) {
+      return;
+    }
+    InterpreterDataType idtRight = this.expression(rightSide, frame);
+    if (vrnLeft.getArrIdxExp() != null) {
+      int idx = this.interpretArrIdxExp(vrnLeft, frame);
+      ((ArrayDataType) idtLeft).setArrElm(idx, idtRight);
+    } else {
+      idtLeft.setInitialized(true);
+      this.transferStoredVal(idtRight, idtLeft);
+    }
+  }
+
+  /**
+   * From and To of the loop. Since a variable evaluates to its own IDT, a To that is a variable
+   * is reread on every iteration.
+   */
+  IntegerDataType[] forBounds(ForNode forNode, InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType fromIDT = this.expression(forNode.getFrom(), frame);
+    InterpreterDataType toIDT = this.expression(forNode.getTo(), frame);
+    if (!(fromIDT instanceof IntegerDataType) || !(toIDT instanceof IntegerDataType)) {
+      throw new Exception("From and To in a For Loop must evaluate to integers");
+    }
+    return new IntegerDataType[]{(IntegerDataType) fromIDT, (IntegerDataType) toIDT};
+  }
+
+  InterpreterDataType forVar(ForNode forNode, InterpreterDataType[] frame) throws Exception {
+    InterpreterDataType varRefIDT = this.interpretVarRef(forNode.getVarRef(), frame);
+    varRefIDT.setInitialized(true);
+    return varRefIDT;
+  }
+
+  boolean condition(Node condition, String expecter, InterpreterDataType[] frame)
+      throws Exception {
+    this.expectsBool(condition, expecter);
+    return this.booleanCompare((BooleanCompareNode) condition, frame);
+  }
+
+  /**
+   * The statements of the first branch of the chain whose condition is met, or null if none is.
+   */
+  List<StatementNode> whenBranch(WhenNode whenNode, InterpreterDataType[] frame)
+      throws Exception {
+    if (this.condition(whenNode.getCondition(), "If", frame)) {
+      return whenNode.getStatements();
+    }
+    Optional<WhenNode> possibleNextWhen = whenNode.getNextWhen();
+    while (possibleNextWhen.isPresent()) {
+      if (possibleNextWhen.get().getWhenOrElifOrElse() == TokenType.ELSE
+          || this.condition(possibleNextWhen.get().getCondition(), "If", frame)) {
+        return possibleNextWhen.get().getStatements();
+      }
+      possibleNextWhen = possibleNextWhen.get().getNextWhen();
+    }
+    return null;
+  }
+
+  FunctionNode callTarget(FunctionCallNode call) throws Exception {
+    return call.getTarget() != null ? call.getTarget() : this.getFunction(call.getFuncName());
+  }
+
+  /**
+   * Evaluates the arguments of the call, checking them against the function's params.
+   */
+  List<InterpreterDataType> callArgs(FunctionCallNode call, FunctionNode functionNode,
+      InterpreterDataType[] frame) throws Exception {
+    List<ArgumentNode> args = call.getArgs();
+    var newVars = new ArrayList<InterpreterDataType>();
+    if (call.getTarget() != null) {
+      // CallLinking already checked everything but the types it could not prove
+      boolean[] typeChecked = call.getTypeCheckedArgs();
+      for (int j = 0; j < args.size(); j++) {
+        InterpreterDataType newVar = this.expression(args.get(j).getArg(), frame);
+        if (!typeChecked[j]) {
+          typeCheckArg(functionNode.getParams().get(j), newVar, functionNode.getName(), j);
+        }
+        newVar.setIsVar(args.get(j).isVar());
+        newVars.add(newVar);
+      }
+    } else if (functionNode.isVariadic()) {
+      // fn is a variadic Builtin (e.g. Write) because only Builtins can be variadic
+      InterpreterDataType newVar;
+      this.builtinExpectsArgs(args);
+      for (ArgumentNode parameterNode : args) {
+        if (((BuiltinBase) functionNode).variadicNeedsVar() && !parameterNode.isVar()) {
+          throw new Exception(functionNode.getName() + " must be called with var arguments");
+        }
+        newVar = this.expression(parameterNode.getArg(), frame);
+        newVar.setIsVar(parameterNode.isVar());
+        newVars.add(newVar);
+      }
+    } else {
+      InterpreterDataType newVar;
+      if (functionNode instanceof BuiltinBase) {
+        this.builtinExpectsArgs(args);
+      }
+      List<VariableNode> funcParams = functionNode.getParams();
+      if (funcParams.size() != args.size()) {
+        throw new Exception(
+            functionNode.getName() + " needs " + funcParams.size() + " arguments");
+      }
+      for (int j = 0; j < args.size(); j++) {
+        if (funcParams.get(j).getIsChangeable() && !args.get(j).isVar()) {
+          throw new Exception(
+              "Argument " + j + " to function " + functionNode.getName() + " must be var");
         }
+        newVar = this.expression(args.get(j).getArg(), frame);
+        typeCheckArg(funcParams.get(j), newVar, functionNode.getName(), j);
+        newVar.setIsVar(args.get(j).isVar());
+        newVars.add(newVar);
+      }
+    }
+    return newVars;
+  }
+
+  void copyBack(FunctionCallNode call, List<InterpreterDataType> newVars,
+      InterpreterDataType[] frame) {
+    List<ArgumentNode> args = call.getArgs();
+    for (int j = 0; j < newVars.size(); j++) {
+      if (newVars.get(j).getIsVar() && args.get(j).isVar()) {
+        frame[((VariableReferenceNode) args.get(j).getArg()).getSlot()] = newVars.get(j);
+      }
+    }
+  }
+
+  /**
+   * Stores the value of a statically typed integer, real or string expression straight into the
+   * variable's IDT. Returns false for other types, which expression() handles.
+   */
+  private boolean assignUnboxed(InterpreterDataType idtLeft, Node rightSide,
+      InterpreterDataType[] frame) throws Exception {
+    switch (rightSide.getStaticType()) {
+      case INTEGER -> ((IntegerDataType) idtLeft).setStoredVal(this.evalInt(rightSide, frame));
+      case REAL -> ((RealDataType) idtLeft).setStoredVal(this.evalReal(rightSide, frame));
+      case STRING -> ((StringDataType) idtLeft).setStoredVal(this.evalString(rightSide, frame));
+      default -> {
+        return false;
       }
     }
+    idtLeft.setInitialized(true);
+    return true;
   }
 
   private void transferStoredVal(InterpreterDataType src, InterpreterDataType dest) {
@@ -368,7 +471,7 @@ public class Interpreter {
     }
   }
 
-  private FunctionNode getFunction(String funcName) throws Exception {
+  FunctionNode getFunction(String funcName) throws Exception {
     if (!this.getProgram().getFunctions().containsKey(funcName)) {
       throw new Exception("Unknown function name " + (funcName));
     }
@@ -383,11 +486,26 @@ public class Interpreter {
    * possibilities. Both sides have to be the same type. If they are, add, subtract, multiply,
    * divide, modulo the values and return a new IDT with the result.
    */
-  private InterpreterDataType expression(Node n, HashMap<String, InterpreterDataType> vars)
+  private InterpreterDataType expression(Node n, InterpreterDataType[] frame)
       throws Exception {
+    if (n instanceof MathOpNode && n.getStaticType() != null) {
+      switch (n.getStaticType()) {
+        case INTEGER -> {
+          return new IntegerDataType(this.evalInt(n, frame));
+        }
+        case REAL -> {
+          return new RealDataType(this.evalReal(n, frame));
+        }
+        case STRING -> {
+          return new StringDataType(this.evalString(n, frame));
+        }
+        default -> {
+        }
+      }
+    }
     if (!(n instanceof MathOpNode)) {
       if (n instanceof VariableReferenceNode) {
-        return this.interpretVarRefExpectsInit((VariableReferenceNode) n, vars);
+        return this.interpretVarRefExpectsInit((VariableReferenceNode) n, frame);
       } else if (n instanceof IntegerNode) {
         return new IntegerDataType(((IntegerNode) n).getVal());
       } else if (n instanceof RealNode) {
@@ -400,66 +518,81 @@ public class Interpreter {
         return new CharacterDataType(((CharacterNode) n).getVal());
       }
     } else {
-      InterpreterDataType leftSide = this.expression(((MathOpNode) n).getLeftSide(), vars);
-      InterpreterDataType rightSide = this.expression(((MathOpNode) n).getRightSide(), vars);
-      if (leftSide instanceof BooleanDataType || rightSide instanceof BooleanDataType) {
-        throw new Exception("Math operations not allowed on booleans");
-      }
-      if (!leftSide.getClass().equals(rightSide.getClass()) && !(leftSide instanceof StringDataType)
-          && !(rightSide instanceof StringDataType)) {
-        throw new Exception(
-            "Math operations not allowed on different data types (except strings for conversion)");
+      // Nodes with a static type take the unboxed path above, so the loop stops at the first one
+      MathOpNode[] spine = ((MathOpNode) n).getLeftSpine();
+      int bottom = 0;
+      while (bottom + 1 < spine.length && !isUnboxed(spine[bottom + 1])) {
+        bottom++;
       }
-      if ((leftSide instanceof StringDataType || rightSide instanceof StringDataType)
-          && ((MathOpNode) n).getMathOpType() != MathOpNode.MathOpType.ADD) {
-        throw new Exception("Math operations other than ADD not allowed on string data types");
+      InterpreterDataType leftSide = this.expression(spine[bottom].getLeftSide(), frame);
+      for (int i = bottom; i >= 0; i--) {
+        InterpreterDataType rightSide = this.expression(spine[i].getRightSide(), frame);
+        leftSide = this.mathOp(spine[i].getMathOpType(), leftSide, rightSide);
       }
-      if (leftSide instanceof StringDataType || rightSide instanceof StringDataType) {
-        return new StringDataType(leftSide.toString() + rightSide.toString());
+      return leftSide;
+    }
+    return new IntegerDataType(0);
+  }
+
+  private InterpreterDataType mathOp(MathOpNode.MathOpType op, InterpreterDataType leftSide,
+      InterpreterDataType rightSide) throws Exception {
+    if (leftSide instanceof BooleanDataType || rightSide instanceof BooleanDataType) {
+      throw new Exception("Math operations not allowed on booleans");
+    }
+    if (!leftSide.getClass().equals(rightSide.getClass()) && !(leftSide instanceof StringDataType)
+        && !(rightSide instanceof StringDataType)) {
+      throw new Exception(
+          "Math operations not allowed on different data types (except strings for conversion)");
+    }
+    if ((leftSide instanceof StringDataType || rightSide instanceof StringDataType)
+        && op != MathOpNode.MathOpType.ADD) {
+      throw new Exception("Math operations other than ADD not allowed on string data types");
+    }
+    if (leftSide instanceof StringDataType || rightSide instanceof StringDataType) {
+      return new StringDataType(leftSide.toString() + rightSide.toString());
+    } else {
+      if (leftSide instanceof IntegerDataType) {
+        int leftInt = ((IntegerDataType) leftSide).getStoredVal();
+        int rightInt = ((IntegerDataType) rightSide).getStoredVal();
+        switch (op) {
+          case ADD -> {
+            return new IntegerDataType(leftInt + rightInt);
+          }
+          case SUBTRACT -> {
+            return new IntegerDataType(leftInt - rightInt);
+          }
+          case MULTIPLY -> {
+            return new IntegerDataType(leftInt * rightInt);
+          }
+          case DIVIDE -> {
+            return new IntegerDataType(leftInt / rightInt);
+          }
+          case MOD -> {
+            return new IntegerDataType(leftInt % rightInt);
+          }
+          default -> {
+          }
+        }
       } else {
-        if (leftSide instanceof IntegerDataType) {
-          int leftInt = ((IntegerDataType) leftSide).getStoredVal();
-          int rightInt = ((IntegerDataType) rightSide).getStoredVal();
-          switch (((MathOpNode) n).getMathOpType()) {
-            case ADD -> {
-              return new IntegerDataType(leftInt + rightInt);
-            }
-            case SUBTRACT -> {
-              return new IntegerDataType(leftInt - rightInt);
-            }
-            case MULTIPLY -> {
-              return new IntegerDataType(leftInt * rightInt);
-            }
-            case DIVIDE -> {
-              return new IntegerDataType(leftInt / rightInt);
-            }
-            case MOD -> {
-              return new IntegerDataType(leftInt % rightInt);
-            }
-            default -> {
-            }
+        float leftReal = ((RealDataType) leftSide).getStoredVal();
+        float rightReal = ((RealDataType) rightSide).getStoredVal();
+        switch (op) {
+          case ADD -> {
+            return new RealDataType(leftReal + rightReal);
           }
-        } else {
-          float leftReal = ((RealDataType) leftSide).getStoredVal();
-          float rightReal = ((RealDataType) rightSide).getStoredVal();
-          switch (((MathOpNode) n).getMathOpType()) {
-            case ADD -> {
-              return new RealDataType(leftReal + rightReal);
-            }
-            case SUBTRACT -> {
-              return new RealDataType(leftReal - rightReal);
-            }
-            case MULTIPLY -> {
-              return new RealDataType(leftReal * rightReal);
-            }
-            case DIVIDE -> {
-              return new RealDataType(leftReal / rightReal);
-            }
-            case MOD -> {
-              return new RealDataType(leftReal % rightReal);
-            }
-            default -> {
-            }
+          case SUBTRACT -> {
+            return new RealDataType(leftReal - rightReal);
+          }
+          case MULTIPLY -> {
+            return new RealDataType(leftReal * rightReal);
+          }
+          case DIVIDE -> {
+            return new RealDataType(leftReal / rightReal);
+          }
+          case MOD -> {
+            return new RealDataType(leftReal % rightReal);
+          }
+          default -> {
           }
         }
       }
@@ -467,16 +600,31 @@ public class Interpreter {
     return new IntegerDataType(0);
   }
 
+  /**
+   * Whether expression() evaluates the node without boxing its operands.
+   */
+  private static boolean isUnboxed(Node n) {
+    return n.getStaticType() == VariableType.INTEGER || n.getStaticType() == VariableType.REAL
+        || n.getStaticType() == VariableType.STRING;
+  }
+
   /**
    * @param bcn
-   * @param vars
+   * @param frame
    * @return
    * @throws Exception
    */
-  private boolean booleanCompare(BooleanCompareNode bcn, HashMap<String, InterpreterDataType> vars)
+  private boolean booleanCompare(BooleanCompareNode bcn, InterpreterDataType[] frame)
       throws Exception {
-    InterpreterDataType leftSide = this.expression(bcn.getLeftSide(), vars);
-    InterpreterDataType rightSide = this.expression(bcn.getRightSide(), vars);
+    if (bcn.getStaticType() == VariableType.INTEGER) {
+      return this.compareInts(bcn.getCompareType(), this.evalInt(bcn.getLeftSide(), frame),
+          this.evalInt(bcn.getRightSide(), frame));
+    } else if (bcn.getStaticType() == VariableType.REAL) {
+      return this.compareReals(bcn.getCompareType(), this.evalReal(bcn.getLeftSide(), frame),
+          this.evalReal(bcn.getRightSide(), frame));
+    }
+    InterpreterDataType leftSide = this.expression(bcn.getLeftSide(), frame);
+    InterpreterDataType rightSide = this.expression(bcn.getRightSide(), frame);
     if (!leftSide.getClass().equals(rightSide.getClass())) {
       throw new Exception("Boolean operations not allowed on different data types");
     }
@@ -485,50 +633,161 @@ public class Interpreter {
     }
 
     if (leftSide instanceof IntegerDataType) {
-      int leftInt = ((IntegerDataType) leftSide).getStoredVal();
-      int rightInt = ((IntegerDataType) rightSide).getStoredVal();
-      switch (bcn.getCompareType()) {
-        case LESSTHAN -> {
-          return leftInt < rightInt;
-        }
-        case GREATERTHAN -> {
-          return leftInt > rightInt;
-        }
-        case GREATEREQUAL -> {
-          return leftInt >= rightInt;
-        }
-        case LESSEQUAL -> {
-          return leftInt <= rightInt;
-        }
-        case EQUALS -> {
-          return leftInt == rightInt;
-        }
-        default -> {
-        }
-      }
+      return this.compareInts(bcn.getCompareType(), ((IntegerDataType) leftSide).getStoredVal(),
+          ((IntegerDataType) rightSide).getStoredVal());
     } else {
-      float leftReal = ((RealDataType) leftSide).getStoredVal();
-      float rightReal = ((RealDataType) rightSide).getStoredVal();
-      switch (bcn.getCompareType()) {
-        case LESSTHAN -> {
-          return leftReal < rightReal;
-        }
-        case GREATERTHAN -> {
-          return leftReal > rightReal;
-        }
-        case GREATEREQUAL -> {
-          return leftReal >= rightReal;
-        }
-        case LESSEQUAL -> {
-          return leftReal <= rightReal;
-        }
-        case EQUALS -> {
-          return leftReal == rightReal;
-        }
-        default -> {
-        }
+      return this.compareReals(bcn.getCompareType(), ((RealDataType) leftSide).getStoredVal(),
+          ((RealDataType) rightSide).getStoredVal());
+    }
+  }
+
+  private boolean compareInts(CompareType compareType, int leftInt, int rightInt) {
+    switch (compareType) {
+      case LESSTHAN -> {
+        return leftInt < rightInt;
+      }
+      case GREATERTHAN -> {
+        return leftInt > rightInt;
+      }
+      case GREATEREQUAL -> {
+        return leftInt >= rightInt;
+      }
+      case LESSEQUAL -> {
+        return leftInt <= rightInt;
+      }
+      case EQUALS -> {
+        return leftInt == rightInt;
+      }
+      default -> {
+        return false;
+      }
+    }
+  }
+
+  private boolean compareReals(CompareType compareType, float leftReal, float rightReal) {
+    switch (compareType) {
+      case LESSTHAN -> {
+        return leftReal < rightReal;
+      }
+      case GREATERTHAN -> {
+        return leftReal > rightReal;
+      }
+      case GREATEREQUAL -> {
+        return leftReal >= rightReal;
+      }
+      case LESSEQUAL -> {
+        return leftReal <= rightReal;
+      }
+      case EQUALS -> {
+        return leftReal == rightReal;
+      }
+      default -> {
+        return false;
+      }
+    }
+  }
+
+  // UNBOXED EVALUATION
+  // These only take expressions whose static type (see TypeAnnotation) matches, so every operand
+  // has that type too and no IDTs are allocated along the way.
+
+  private int evalInt(Node n, InterpreterDataType[] frame) throws Exception {
+    if (n instanceof IntegerNode) {
+      return ((IntegerNode) n).getVal();
+    } else if (n instanceof VariableReferenceNode) {
+      return ((IntegerDataType) this.interpretVarRefExpectsInit((VariableReferenceNode) n, frame))
+          .getStoredVal();
+    }
+    MathOpNode mon = (MathOpNode) n;
+    if (!(mon.getLeftSide() instanceof MathOpNode)) {
+      return this.intMathOp(mon.getMathOpType(), this.evalInt(mon.getLeftSide(), frame),
+          this.evalInt(mon.getRightSide(), frame));
+    }
+    MathOpNode[] spine = mon.getLeftSpine();
+    int leftInt = this.evalInt(spine[spine.length - 1].getLeftSide(), frame);
+    for (int i = spine.length - 1; i >= 0; i--) {
+      leftInt = this.intMathOp(spine[i].getMathOpType(), leftInt,
+          this.evalInt(spine[i].getRightSide(), frame));
+    }
+    return leftInt;
+  }
+
+  private int intMathOp(MathOpNode.MathOpType op, int leftInt, int rightInt) {
+    return switch (op) {
+      case ADD -> leftInt + rightInt;
+      case SUBTRACT -> leftInt - rightInt;
+      case MULTIPLY -> leftInt * rightInt;
+      case DIVIDE -> leftInt / rightInt;
+      case MOD -> leftInt % rightInt;
+    };
+  }
+
+  private float evalReal(Node n, InterpreterDataType[] frame) throws Exception {
+    if (n instanceof RealNode) {
+      return ((RealNode) n).getVal();
+    } else if (n instanceof VariableReferenceNode) {
+      return ((RealDataType) this.interpretVarRefExpectsInit((VariableReferenceNode) n, frame))
+          .getStoredVal();
+    }
+    MathOpNode mon = (MathOpNode) n;
+    if (!(mon.getLeftSide() instanceof MathOpNode)) {
+      return this.floatMathOp(mon.getMathOpType(), this.evalReal(mon.getLeftSide(), frame),
+          this.evalReal(mon.getRightSide(), frame));
+    }
+    MathOpNode[] spine = mon.getLeftSpine();
+    float leftReal = this.evalReal(spine[spine.length - 1].getLeftSide(), frame);
+    for (int i = spine.length - 1; i >= 0; i--) {
+      leftReal = this.floatMathOp(spine[i].getMathOpType(), leftReal,
+          this.evalReal(spine[i].getRightSide(), frame));
+    }
+    return leftReal;
+  }
+
+  private float floatMathOp(MathOpNode.MathOpType op, float leftReal, float rightReal) {
+    return switch (op) {
+      case ADD -> leftReal + rightReal;
+      case SUBTRACT -> leftReal - rightReal;
+      case MULTIPLY -> leftReal * rightReal;
+      case DIVIDE -> leftReal / rightReal;
+      case MOD -> leftReal % rightReal;
+    };
+  }
+
+  private String evalString(Node n, InterpreterDataType[] frame) throws Exception {
+    if (n instanceof StringNode) {
+      return ((StringNode) n).getVal();
+    } else if (n instanceof VariableReferenceNode) {
+      return ((StringDataType) this.interpretVarRefExpectsInit((VariableReferenceNode) n, frame))
+          .getStoredVal();
+    }
+    var sb = new StringBuilder();
+    this.appendString(sb, n, frame);
+    return sb.toString();
+  }
+
+  /**
+   * Appends the text of a string concatenation operand, the same text its IDT's toString() gives.
+   */
+  private void appendString(StringBuilder sb, Node n, InterpreterDataType[] frame)
+      throws Exception {
+    if (n instanceof MathOpNode && n.getStaticType() == VariableType.STRING) {
+      MathOpNode[] spine = ((MathOpNode) n).getLeftSpine();
+      int bottom = 0;
+      while (bottom + 1 < spine.length
+          && spine[bottom + 1].getStaticType() == VariableType.STRING) {
+        bottom++;
       }
+      this.appendString(sb, spine[bottom].getLeftSide(), frame);
+      for (int i = bottom; i >= 0; i--) {
+        this.appendString(sb, spine[i].getRightSide(), frame);
+      }
+      return;
+    }
+    switch (n.getStaticType()) {
+      case STRING -> sb.append(this.evalString(n, frame));
+      case INTEGER -> sb.append(this.evalInt(n, frame));
+      case REAL -> sb.append(this.evalReal(n, frame));
+      default -> sb.append(this.expression(n, frame));
     }
-    return false;
   }
 }
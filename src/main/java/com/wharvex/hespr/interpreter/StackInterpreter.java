@@ -0,0 +1,249 @@
+package com.wharvex.hespr.interpreter;
+
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs a program with the same semantics as Interpreter, but without recursing on the Java stack:
+ * hespr calls and the blocks being run in each of them are kept on an explicit stack in the heap.
+ * How deep hespr calls can nest is capped by maxDepth instead of the JVM thread stack, and errors
+ * are reported as a HesprRuntimeException listing the hespr calls that were running.
+ */
+public class StackInterpreter extends Interpreter {
+
+  public static final int DEFAULT_MAX_DEPTH = 1000000;
+  // Only the innermost and outermost calls of a deep stack are listed
+  private static final int TRACE_ENDS = 10;
+
+  private final int maxDepth;
+
+  /**
+   * A block of statements being run, and the index of the next one.
+   */
+  private static class Block {
+
+    final List<StatementNode> statements;
+    // The loop that runs the statements again, or null
+    final StatementNode loop;
+    int next;
+
+    Block(List<StatementNode> statements, StatementNode loop) {
+      this.statements = statements;
+      this.loop = loop;
+    }
+
+    /**
+     * Called when the statements have run out. Returns whether to run them again.
+     */
+    boolean repeat(StackInterpreter interpreter, InterpreterDataType[] frame) throws Exception {
+      return false;
+    }
+  }
+
+  private static final class ForBlock extends Block {
+
+    final ForNode forNode;
+    final IntegerDataType to;
+    final InterpreterDataType var;
+    int j;
+
+    ForBlock(ForNode forNode, IntegerDataType to, InterpreterDataType var, int from) {
+      super(forNode.getStatements(), forNode);
+      this.forNode = forNode;
+      this.to = to;
+      this.var = var;
+      this.j = from;
+    }
+
+    @Override
+    boolean repeat(StackInterpreter interpreter, InterpreterDataType[] frame) {
+      if (++this.j > this.to.getStoredVal()) {
+        return false;
+      }
+      ((IntegerDataType) this.var).setStoredVal(this.j);
+      frame[this.forNode.getVarRef().getSlot()] = this.var;
+      return true;
+    }
+  }
+
+  private static final class LoopBlock extends Block {
+
+    final Node condition;
+    // RepeatUntil runs while its condition is not met
+    final boolean until;
+
+    LoopBlock(StatementNode loop, Node condition, List<StatementNode> statements, boolean until) {
+      super(statements, loop);
+      this.condition = condition;
+      this.until = until;
+    }
+
+    @Override
+    boolean repeat(StackInterpreter interpreter, InterpreterDataType[] frame) throws Exception {
+      return interpreter.condition(this.condition, this.until ? "RepeatUntil" : "While", frame)
+          != this.until;
+    }
+  }
+
+  private static final class Frame {
+
+    final FunctionNode function;
+    final InterpreterDataType[] slots;
+    // The call that made this frame and its arguments, to copy back into the caller's frame
+    final FunctionCallNode call;
+    final List<InterpreterDataType> args;
+    final Frame caller;
+    final int depth;
+    // The statement being run, for stack traces
+    StatementNode current;
+    final ArrayList<Block> blocks = new ArrayList<>();
+
+    Frame(FunctionNode function, FunctionCallNode call, List<InterpreterDataType> args,
+        Frame caller) {
+      this.function = function;
+      this.slots = new InterpreterDataType[function.getFrameSize()];
+      this.call = call;
+      this.args = args;
+      this.caller = caller;
+      this.depth = caller == null ? 1 : caller.depth + 1;
+    }
+  }
+
+  public StackInterpreter(ProgramNode program) {
+    this(program, DEFAULT_MAX_DEPTH);
+  }
+
+  public StackInterpreter(ProgramNode program, int maxDepth) {
+    super(program);
+    this.maxDepth = maxDepth;
+  }
+
+  public int getMaxDepth() {
+    return this.maxDepth;
+  }
+
+  @Override
+  public void startProgram() throws Exception {
+    Frame frame = null;
+    try {
+      frame = new Frame(this.getFunction("load"), null, new ArrayList<>(), null);
+      this.enter(frame);
+      while (frame != null) {
+        if (frame.blocks.isEmpty()) {
+          // Return
+          if (frame.caller != null) {
+            this.copyBack(frame.call, frame.args, frame.caller.slots);
+          }
+          frame = frame.caller;
+          continue;
+        }
+        Block block = frame.blocks.get(frame.blocks.size() - 1);
+        if (block.next == block.statements.size()) {
+          frame.current = block.loop;
+          if (block.repeat(this, frame.slots)) {
+            block.next = 0;
+          } else {
+            frame.blocks.remove(frame.blocks.size() - 1);
+          }
+          continue;
+        }
+        frame.current = block.statements.get(block.next++);
+        frame = this.execute(frame.current, frame);
+      }
+    } catch (Exception e) {
+      throw new HesprRuntimeException(e, this.trace(frame));
+    }
+  }
+
+  /**
+   * Runs one statement, pushing a block if it has one to run. Returns the frame to carry on in,
+   * which is a new one for a call.
+   */
+  private Frame execute(StatementNode statementNode, Frame frame) throws Exception {
+    InterpreterDataType[] slots = frame.slots;
+    if (statementNode instanceof AssignmentNode) {
+      this.assign((AssignmentNode) statementNode, slots);
+    } else if (statementNode instanceof ForNode) {
+      ForNode forNode = (ForNode) statementNode;
+      IntegerDataType[] bounds = this.forBounds(forNode, slots);
+      InterpreterDataType varRefIDT = this.forVar(forNode, slots);
+      int from = bounds[0].getStoredVal();
+      if (from <= bounds[1].getStoredVal()) {
+        ((IntegerDataType) varRefIDT).setStoredVal(from);
+        slots[forNode.getVarRef().getSlot()] = varRefIDT;
+        frame.blocks.add(new ForBlock(forNode, bounds[1], varRefIDT, from));
+      }
+    } else if (statementNode instanceof WhileNode) {
+      WhileNode whileNode = (WhileNode) statementNode;
+      if (this.condition(whileNode.getCondition(), "While", slots)) {
+        frame.blocks.add(new LoopBlock(whileNode, whileNode.getCondition(),
+            whileNode.getStatements(), false));
+      }
+    } else if (statementNode instanceof RepeatNode) {
+      RepeatNode repeatNode = (RepeatNode) statementNode;
+      if (!this.condition(repeatNode.getCondition(), "RepeatUntil", slots)) {
+        frame.blocks.add(new LoopBlock(repeatNode, repeatNode.getCondition(),
+            repeatNode.getStatements(), true));
+      }
+    } else if (statementNode instanceof WhenNode) {
+      List<StatementNode> branch = this.whenBranch((WhenNode) statementNode, slots);
+      if (branch != null) {
+        frame.blocks.add(new Block(branch, null));
+      }
+    } else if (statementNode instanceof FunctionCallNode) {
+      FunctionCallNode call = (FunctionCallNode) statementNode;
+      FunctionNode functionNode = this.callTarget(call);
+      List<InterpreterDataType> newVars = this.callArgs(call, functionNode, slots);
+      if (functionNode instanceof BuiltinBase) {
+        ((BuiltinBase) functionNode).execute(newVars);
+        this.copyBack(call, newVars, slots);
+      } else if (call.isSelfTailCall()) {
+        // Nothing is left to run in this frame, so run the function again in it
+        frame.blocks.clear();
+        Arrays.fill(slots, null);
+        this.enterFunction(functionNode, newVars, slots);
+        frame.blocks.add(new Block(functionNode.getStatements(), null));
+      } else {
+        if (frame.depth == this.maxDepth) {
+          throw new Exception("Call depth limit of " + this.maxDepth + " exceeded");
+        }
+        frame = new Frame(functionNode, call, newVars, frame);
+        this.enter(frame);
+      }
+    }
+    return frame;
+  }
+
+  private void enter(Frame frame) throws Exception {
+    this.enterFunction(frame.function, frame.args, frame.slots);
+    frame.blocks.add(new Block(frame.function.getStatements(), null));
+  }
+
+  private List<String> trace(Frame frame) {
+    var ret = new ArrayList<String>();
+    int skipFrom = frame == null ? 0 : frame.depth - TRACE_ENDS;
+    for (; frame != null; frame = frame.caller) {
+      if (frame.depth > TRACE_ENDS && frame.depth <= skipFrom) {
+        if (frame.depth == skipFrom) {
+          ret.add("    ... " + (skipFrom - TRACE_ENDS) + " more");
+        }
+        continue;
+      }
+      ret.add("    at " + frame.function.getName()
+          + (frame.current == null ? "" : " (line " + frame.current.getLineNum() + ")"));
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,231 @@
+package com.wharvex.hespr.jvm;
+
+import com.wharvex.hespr.CompileException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Writes a class file. Only the parts of the format JvmCompiler needs are supported: constant
+ * pool entries for classes, strings, ints, floats and members, static fields, and methods with a
+ * Code attribute.
+ *
+ * <p>The class file version is 49 (Java 5), the last version whose verifier infers types itself,
+ * so methods do not need a StackMapTable.
+ */
+class ClassWriter {
+
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final int VERSION = 49;
+
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_STATIC = 0x0008;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SUPER = 0x0020;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+  private static final int MAX_UTF8_LENGTH = 0xFFFF;
+
+  private final String name;
+  private final String sourceFile;
+  private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+  private final DataOutputStream pool = new DataOutputStream(this.poolBytes);
+  private final HashMap<String, Integer> poolIndices = new HashMap<>();
+  private int poolCount = 1;
+  private final List<byte[]> fields = new ArrayList<>();
+  private final List<byte[]> methods = new ArrayList<>();
+
+  /**
+   * @param name The internal (slash-separated) name of the class.
+   */
+  ClassWriter(String name, String sourceFile) {
+    this.name = name;
+    this.sourceFile = sourceFile;
+  }
+
+  String getName() {
+    return this.name;
+  }
+
+  // CONSTANT POOL
+
+  int utf8(String value) {
+    return this.constant("U" + value, () -> {
+      this.pool.writeByte(CONSTANT_UTF8);
+      this.pool.writeUTF(value);
+    });
+  }
+
+  int classRef(String internalName) {
+    int nameIdx = this.utf8(internalName);
+    return this.constant("C" + internalName, () -> {
+      this.pool.writeByte(CONSTANT_CLASS);
+      this.pool.writeShort(nameIdx);
+    });
+  }
+
+  /**
+   * Throws if the string is too long for a constant, which holds at most 65535 bytes of modified
+   * UTF-8.
+   */
+  int string(String value) throws CompileException {
+    int length = utf8Length(value);
+    if (length > MAX_UTF8_LENGTH) {
+      throw new CompileException(
+          "A string constant of " + length + " bytes is too long for a class file");
+    }
+    int valueIdx = this.utf8(value);
+    return this.constant("S" + value, () -> {
+      this.pool.writeByte(CONSTANT_STRING);
+      this.pool.writeShort(valueIdx);
+    });
+  }
+
+  int integer(int value) {
+    return this.constant("I" + value, () -> {
+      this.pool.writeByte(CONSTANT_INTEGER);
+      this.pool.writeInt(value);
+    });
+  }
+
+  int floatConst(float value) {
+    int bits = Float.floatToRawIntBits(value);
+    return this.constant("F" + bits, () -> {
+      this.pool.writeByte(CONSTANT_FLOAT);
+      this.pool.writeInt(bits);
+    });
+  }
+
+  int fieldRef(String owner, String name, String descriptor) {
+    return this.memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+  }
+
+  int methodRef(String owner, String name, String descriptor) {
+    return this.memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+  }
+
+  private int memberRef(int tag, String owner, String name, String descriptor) {
+    int ownerIdx = this.classRef(owner);
+    int nameIdx = this.utf8(name);
+    int descriptorIdx = this.utf8(descriptor);
+    int nameAndTypeIdx = this.constant("N" + name + " " + descriptor, () -> {
+      this.pool.writeByte(CONSTANT_NAME_AND_TYPE);
+      this.pool.writeShort(nameIdx);
+      this.pool.writeShort(descriptorIdx);
+    });
+    return this.constant(tag + owner + "." + name + " " + descriptor, () -> {
+      this.pool.writeByte(tag);
+      this.pool.writeShort(ownerIdx);
+      this.pool.writeShort(nameAndTypeIdx);
+    });
+  }
+
+  /**
+   * The length of the string in the modified UTF-8 that writeUTF writes.
+   */
+  private static int utf8Length(String value) {
+    int ret = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      ret += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+    }
+    return ret;
+  }
+
+  private interface PoolEntry {
+
+    void write() throws IOException;
+  }
+
+  private int constant(String key, PoolEntry entry) {
+    Integer ret = this.poolIndices.get(key);
+    if (ret == null) {
+      try {
+        entry.write();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      ret = this.poolCount++;
+      this.poolIndices.put(key, ret);
+    }
+    return ret;
+  }
+
+  // MEMBERS
+
+  void addField(int access, String name, String descriptor) {
+    var bytes = new ByteArrayOutputStream();
+    var out = new DataOutputStream(bytes);
+    try {
+      out.writeShort(access);
+      out.writeShort(this.utf8(name));
+      out.writeShort(this.utf8(descriptor));
+      out.writeShort(0);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    this.fields.add(bytes.toByteArray());
+  }
+
+  void addMethod(int access, String name, String descriptor, MethodWriter code) {
+    var bytes = new ByteArrayOutputStream();
+    var out = new DataOutputStream(bytes);
+    try {
+      out.writeShort(access);
+      out.writeShort(this.utf8(name));
+      out.writeShort(this.utf8(descriptor));
+      out.writeShort(1);
+      code.writeCodeAttribute(out);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    this.methods.add(bytes.toByteArray());
+  }
+
+  byte[] toByteArray() {
+    // The pool must be complete before it is written, so resolve these indices first
+    int thisIdx = this.classRef(this.name);
+    int superIdx = this.classRef("java/lang/Object");
+    int sourceFileAttrIdx = this.utf8("SourceFile");
+    int sourceFileIdx = this.utf8(this.sourceFile);
+    var bytes = new ByteArrayOutputStream();
+    var out = new DataOutputStream(bytes);
+    try {
+      out.writeInt(MAGIC);
+      out.writeShort(0);
+      out.writeShort(VERSION);
+      out.writeShort(this.poolCount);
+      this.poolBytes.writeTo(out);
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisIdx);
+      out.writeShort(superIdx);
+      out.writeShort(0);
+      out.writeShort(this.fields.size());
+      for (byte[] field : this.fields) {
+        out.write(field);
+      }
+      out.writeShort(this.methods.size());
+      for (byte[] method : this.methods) {
+        out.write(method);
+      }
+      out.writeShort(1);
+      out.writeShort(sourceFileAttrIdx);
+      out.writeInt(2);
+      out.writeShort(sourceFileIdx);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+}
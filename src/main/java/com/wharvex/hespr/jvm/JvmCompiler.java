@@ -0,0 +1,620 @@
+package com.wharvex.hespr.jvm;
+
+import static com.wharvex.hespr.jvm.MethodWriter.*;
+
+import com.wharvex.hespr.CompileException;
+import com.wharvex.hespr.jvm.MethodWriter.Label;
+import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.CompareType;
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.BooleanNode;
+import com.wharvex.hespr.parser.nodes.CharacterNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RealNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import com.wharvex.hespr.semantic.FunctionTypes;
+import com.wharvex.hespr.semantic.WrittenParams;
+import com.wharvex.hespr.vm.BytecodeCompiler;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compiles each user function of a ProgramNode (after SemanticAnalysis and SlotResolution) into
+ * its own JVM class with one static method, run(), so HotSpot can JIT hespr code like Java code.
+ *
+ * <p>The rules are the VM's (see BytecodeCompiler): every expression needs a static type or it is
+ * a CompileException, and non-var arguments are passed by value (so passing a bare variable to a
+ * param the callee writes is a CompileException too). Slot n is JVM local n. Integers,
+ * characters and booleans are JVM ints, reals are floats, and strings are Strings; var params,
+ * arrays and slots passed as $ arguments hold InterpreterDataType cells.
+ */
+public class JvmCompiler {
+
+  static final String PACKAGE = "hespr/fn/";
+
+  private static final String SUPPORT = "com/wharvex/hespr/jvm/JvmSupport";
+  private static final String IDT = "com/wharvex/hespr/interpreter/InterpreterDataType";
+  private static final String ARRAY = "com/wharvex/hespr/interpreter/ArrayDataType";
+  private static final String BUILTIN = "com/wharvex/hespr/parser/builtins/BuiltinBase";
+  private static final String STRING = "java/lang/String";
+  static final String BUILTINS_FIELD = "builtins";
+  static final String BUILTINS_DESCRIPTOR = "[L" + BUILTIN + ";";
+  private static final int AALOAD = 50;
+
+  private final ProgramNode program;
+  private final String sourceFile;
+  private final List<BuiltinBase> builtins = new ArrayList<>();
+  private final HashMap<String, Integer> builtinIndices = new HashMap<>();
+  private WrittenParams writtenParams;
+
+  // State for the function being compiled
+  private String className;
+  private FunctionTypes types;
+  private boolean[] cellSlots;
+  private MethodWriter mw;
+  private int nextLocal;
+
+  public JvmCompiler(ProgramNode program, String sourceFile) {
+    this.program = program;
+    this.sourceFile = sourceFile;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  public JvmProgram compile() throws CompileException {
+    this.writtenParams = new WrittenParams(this.getProgram());
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (functionNode instanceof BuiltinBase) {
+        this.builtinIndices.put(functionNode.getName(), this.builtins.size());
+        this.builtins.add((BuiltinBase) functionNode);
+      }
+    }
+    FunctionNode load = this.getProgram().getFunctions().get("load");
+    if (load == null || load instanceof BuiltinBase) {
+      throw new CompileException("Unknown function name load");
+    }
+    if (!load.getParams().isEmpty()) {
+      throw new CompileException("load cannot have parameters");
+    }
+    var classes = new LinkedHashMap<String, byte[]>();
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (!(functionNode instanceof BuiltinBase)) {
+        classes.put((PACKAGE + functionNode.getName()).replace('/', '.'),
+            this.compileFunction(functionNode));
+      }
+    }
+    return new JvmProgram(classes, this.builtins.toArray(new BuiltinBase[0]),
+        (PACKAGE + "load").replace('/', '.'));
+  }
+
+  // TYPES
+
+  private static String valueDescriptor(VariableType type) {
+    return switch (type) {
+      case REAL -> "F";
+      case STRING -> "L" + STRING + ";";
+      default -> "I";
+    };
+  }
+
+  private static String cellClass(VariableType type) {
+    return "com/wharvex/hespr/interpreter/" + switch (type) {
+      case INTEGER -> "IntegerDataType";
+      case REAL -> "RealDataType";
+      case CHARACTER -> "CharacterDataType";
+      case BOOLEAN -> "BooleanDataType";
+      default -> "StringDataType";
+    };
+  }
+
+  /**
+   * The descriptor of the Java type JvmSupport.box() and set() take for a value of this type.
+   */
+  private static String javaDescriptor(VariableType type) {
+    return switch (type) {
+      case CHARACTER -> "C";
+      case BOOLEAN -> "Z";
+      default -> valueDescriptor(type);
+    };
+  }
+
+  private static int loadOpcode(VariableType type) {
+    return switch (type) {
+      case REAL -> FLOAD;
+      case STRING -> ALOAD;
+      default -> ILOAD;
+    };
+  }
+
+  private static int storeOpcode(VariableType type) {
+    return switch (type) {
+      case REAL -> FSTORE;
+      case STRING -> ASTORE;
+      default -> ISTORE;
+    };
+  }
+
+  private static String methodDescriptor(FunctionNode functionNode) throws CompileException {
+    StringBuilder ret = new StringBuilder("(");
+    for (VariableNode param : functionNode.getParams()) {
+      if (param.getType() == null || param.getType() == VariableType.ANY) {
+        throw new CompileException("Cannot determine type of parameter " + param.getName(),
+            param);
+      }
+      if (param.getIsArray()) {
+        ret.append("L" + ARRAY + ";");
+      } else if (BytecodeCompiler.isVarParam(param)) {
+        ret.append("L").append(cellClass(param.getType())).append(";");
+      } else {
+        ret.append(valueDescriptor(param.getType()));
+      }
+    }
+    return ret.append(")V").toString();
+  }
+
+  // FUNCTIONS
+
+  private byte[] compileFunction(FunctionNode functionNode) throws CompileException {
+    this.className = PACKAGE + functionNode.getName();
+    this.types = new FunctionTypes(functionNode);
+    this.cellSlots = BytecodeCompiler.findCellSlots(functionNode);
+    var cw = new ClassWriter(this.className, this.sourceFile);
+    this.mw = new MethodWriter(cw, functionNode.getParams().size());
+    this.nextLocal = functionNode.getFrameSize();
+    this.mw.line(functionNode.getLineNum());
+
+    // A by-value param that is passed on as $ gets boxed into a cell in its own local
+    for (VariableNode param : functionNode.getParams()) {
+      if (!BytecodeCompiler.isVarParam(param) && this.cellSlots[param.getSlot()]) {
+        this.mw.load(loadOpcode(param.getType()), param.getSlot());
+        this.box(param.getType());
+        this.mw.store(ASTORE, param.getSlot());
+      }
+    }
+    for (VariableNode v : functionNode.getVariables()) {
+      VariableType type = this.types.getSlotType(v.getSlot());
+      if (v.getIsArray()) {
+        this.mw.field(GETSTATIC, "com/wharvex/hespr/parser/VariableType", type.name(),
+            "Lcom/wharvex/hespr/parser/VariableType;");
+        this.compileExpectedType(v.getRange().getFrom(), VariableType.INTEGER);
+        this.compileExpectedType(v.getRange().getTo(), VariableType.INTEGER);
+        this.mw.invoke(INVOKESTATIC, SUPPORT, "newArray",
+            "(Lcom/wharvex/hespr/parser/VariableType;II)L" + ARRAY + ";");
+        this.mw.store(ASTORE, v.getSlot());
+        continue;
+      }
+      switch (type) {
+        case STRING -> this.mw.sconst("");
+        case CHARACTER -> this.mw.iconst('0');
+        case REAL -> this.mw.fconst(0);
+        default -> this.mw.iconst(0);
+      }
+      this.initSlot(v.getSlot(), type);
+    }
+    for (VariableNode v : functionNode.getConstants()) {
+      VariableType type = this.types.getSlotType(v.getSlot());
+      if (type == null) {
+        throw new CompileException("Cannot determine type of constant " + v.getName(), v);
+      }
+      this.compileExpression(v.getVal());
+      this.initSlot(v.getSlot(), type);
+    }
+    this.compileBlock(functionNode.getStatements());
+    this.mw.insn(RETURN, 0);
+    this.mw.resolveLabels();
+    if (this.nextLocal > 0xFF) {
+      throw new CompileException("Function " + functionNode.getName() + " has too many variables",
+          functionNode);
+    }
+    cw.addField(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, BUILTINS_FIELD,
+        BUILTINS_DESCRIPTOR);
+    cw.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "run",
+        methodDescriptor(functionNode), this.mw);
+    return cw.toByteArray();
+  }
+
+  private void box(VariableType type) {
+    this.mw.invoke(INVOKESTATIC, SUPPORT, "box",
+        "(" + javaDescriptor(type) + ")L" + cellClass(type) + ";");
+  }
+
+  private void initSlot(int slot, VariableType type) {
+    if (this.cellSlots[slot]) {
+      this.box(type);
+      this.mw.store(ASTORE, slot);
+    } else {
+      this.mw.store(storeOpcode(type), slot);
+    }
+  }
+
+  private void storeSlot(int slot, VariableType type) {
+    if (this.cellSlots[slot]) {
+      this.mw.load(ALOAD, slot);
+      this.mw.invoke(INVOKESTATIC, SUPPORT, "set",
+          "(" + javaDescriptor(type) + "L" + cellClass(type) + ";)V");
+    } else {
+      this.mw.store(storeOpcode(type), slot);
+    }
+  }
+
+  private void loadSlot(int slot, VariableType type) {
+    if (this.cellSlots[slot]) {
+      this.mw.load(ALOAD, slot);
+      this.unbox(type);
+    } else {
+      this.mw.load(loadOpcode(type), slot);
+    }
+  }
+
+  private void unbox(VariableType type) {
+    this.mw.invoke(INVOKEVIRTUAL, cellClass(type), "getStoredVal",
+        "()" + javaDescriptor(type));
+  }
+
+  // STATEMENTS
+
+  private void compileBlock(List<StatementNode> statements) throws CompileException {
+    for (StatementNode statement : statements) {
+      this.mw.line(statement.getLineNum());
+      if (statement instanceof AssignmentNode) {
+        this.compileAssignment((AssignmentNode) statement);
+      } else if (statement instanceof ForNode) {
+        this.compileFor((ForNode) statement);
+      } else if (statement instanceof WhileNode) {
+        var top = new Label();
+        var exit = new Label();
+        this.mw.mark(top);
+        this.compileConditionJump(((WhileNode) statement).getCondition(), false, exit);
+        this.compileBlock(((WhileNode) statement).getStatements());
+        this.mw.jump(GOTO, top);
+        this.mw.mark(exit);
+      } else if (statement instanceof RepeatNode) {
+        var top = new Label();
+        var exit = new Label();
+        this.mw.mark(top);
+        this.compileConditionJump(((RepeatNode) statement).getCondition(), true, exit);
+        this.compileBlock(((RepeatNode) statement).getStatements());
+        this.mw.jump(GOTO, top);
+        this.mw.mark(exit);
+      } else if (statement instanceof WhenNode) {
+        this.compileWhen((WhenNode) statement);
+      } else if (statement instanceof FunctionCallNode) {
+        this.compileCall((FunctionCallNode) statement);
+      } else {
+        throw new CompileException("Unknown statement " + statement, statement);
+      }
+    }
+  }
+
+  private void compileAssignment(AssignmentNode assignment) throws CompileException {
+    VariableReferenceNode left = assignment.getLeftSide();
+    VariableType leftType = this.types.getSlotType(left.getSlot());
+    if (leftType == null) {
+      throw new CompileException("Cannot assign to " + left, assignment);
+    }
+    if (left.getArrIdxExp() != null) {
+      if (!this.types.isArraySlot(left.getSlot())) {
+        throw new CompileException("Cannot index variable " + left.getName(), assignment);
+      }
+      this.mw.load(ALOAD, left.getSlot());
+      this.compileExpectedType(left.getArrIdxExp(), VariableType.INTEGER);
+      this.compileExpectedType(assignment.getRightSide(), leftType);
+      this.box(leftType);
+      this.mw.invoke(INVOKEVIRTUAL, ARRAY, "setArrElm", "(IL" + IDT + ";)V");
+      return;
+    }
+    if (this.types.isArraySlot(left.getSlot())) {
+      throw new CompileException("Cannot assign to whole array " + left.getName(), assignment);
+    }
+    this.compileExpectedType(assignment.getRightSide(), leftType);
+    this.storeSlot(left.getSlot(), leftType);
+  }
+
+  private void compileFor(ForNode forNode) throws CompileException {
+    VariableReferenceNode varRef = forNode.getVarRef();
+    if (varRef.getArrIdxExp() != null || this.types.isArraySlot(varRef.getSlot())
+        || this.types.getSlotType(varRef.getSlot()) != VariableType.INTEGER) {
+      throw new CompileException("For loop variable must be an integer", forNode);
+    }
+    // The Interpreter reads a variable upper bound on every iteration, so it can move
+    int counter = this.nextLocal++;
+    int bound = -1;
+    this.compileExpectedType(forNode.getFrom(), VariableType.INTEGER);
+    this.mw.store(ISTORE, counter);
+    boolean boundIsVariable = forNode.getTo() instanceof VariableReferenceNode
+        && ((VariableReferenceNode) forNode.getTo()).getArrIdxExp() == null;
+    if (!boundIsVariable) {
+      bound = this.nextLocal++;
+      this.compileExpectedType(forNode.getTo(), VariableType.INTEGER);
+      this.mw.store(ISTORE, bound);
+    }
+    var top = new Label();
+    var exit = new Label();
+    this.mw.mark(top);
+    this.mw.load(ILOAD, counter);
+    if (boundIsVariable) {
+      this.compileExpectedType(forNode.getTo(), VariableType.INTEGER);
+    } else {
+      this.mw.load(ILOAD, bound);
+    }
+    this.mw.jump(IF_ICMPGT, exit);
+    this.mw.load(ILOAD, counter);
+    this.storeSlot(varRef.getSlot(), VariableType.INTEGER);
+    this.compileBlock(forNode.getStatements());
+    this.mw.iinc(counter, 1);
+    this.mw.jump(GOTO, top);
+    this.mw.mark(exit);
+  }
+
+  private void compileWhen(WhenNode whenNode) throws CompileException {
+    var exit = new Label();
+    Optional<WhenNode> possibleNextWhen = Optional.of(whenNode);
+    while (possibleNextWhen.isPresent()) {
+      WhenNode branch = possibleNextWhen.get();
+      if (branch.getWhenOrElifOrElse() == TokenType.ELSE) {
+        this.compileBlock(branch.getStatements());
+        break;
+      }
+      var next = new Label();
+      this.compileConditionJump(branch.getCondition(), false, next);
+      this.compileBlock(branch.getStatements());
+      this.mw.jump(GOTO, exit);
+      this.mw.mark(next);
+      possibleNextWhen = branch.getNextWhen();
+    }
+    this.mw.mark(exit);
+  }
+
+  /**
+   * Emits a jump to the target that is taken when the condition is (jumpIfTrue) or is not
+   * (!jumpIfTrue) met.
+   */
+  private void compileConditionJump(Node condition, boolean jumpIfTrue, Label target)
+      throws CompileException {
+    if (!(condition instanceof BooleanCompareNode)) {
+      throw new CompileException("Condition needs Boolean comparison", condition);
+    }
+    BooleanCompareNode bcn = (BooleanCompareNode) condition;
+    VariableType type = this.types.typeOfComparison(bcn);
+    if (type == null || bcn.getCompareType() == CompareType.NOTEQUAL) {
+      throw new CompileException("Cannot compare " + bcn, bcn);
+    }
+    this.compileExpression(bcn.getLeftSide());
+    this.compileExpression(bcn.getRightSide());
+    // Offset from IFEQ/IF_ICMPEQ; flipping the low bit negates the comparison
+    int cond = switch (bcn.getCompareType()) {
+      case EQUALS -> 0;
+      case LESSTHAN -> 2;
+      case GREATEREQUAL -> 3;
+      case GREATERTHAN -> 4;
+      default -> 5;
+    };
+    if (!jumpIfTrue) {
+      cond ^= 1;
+    }
+    if (type == VariableType.INTEGER) {
+      this.mw.jump(IF_ICMPEQ + cond, target);
+    } else {
+      // Pick the comparison that makes NaN fail < and <= as well as >, >= and =
+      boolean nanIsGreater = bcn.getCompareType() == CompareType.LESSTHAN
+          || bcn.getCompareType() == CompareType.LESSEQUAL;
+      this.mw.insn(nanIsGreater ? FCMPG : FCMPL, -1);
+      this.mw.jump(IFEQ + cond, target);
+    }
+  }
+
+  private void compileCall(FunctionCallNode call) throws CompileException {
+    FunctionNode target = this.getProgram().getFunctions().get(call.getFuncName());
+    if (target == null) {
+      throw new CompileException("Unknown function name " + call.getFuncName(), call);
+    }
+    List<ArgumentNode> args = call.getArgs();
+    if (target.isVariadic()) {
+      for (ArgumentNode arg : args) {
+        if (((BuiltinBase) target).variadicNeedsVar() && !arg.isVar()) {
+          throw new CompileException(target.getName() + " must be called with var arguments",
+              call);
+        }
+      }
+      this.compileBuiltinCall((BuiltinBase) target, args, null);
+      return;
+    }
+    List<VariableNode> params = target.getParams();
+    if (params.size() != args.size()) {
+      throw new CompileException(target.getName() + " needs " + params.size() + " arguments",
+          call);
+    }
+    for (int j = 0; j < args.size(); j++) {
+      if (params.get(j).getIsChangeable() && !args.get(j).isVar()) {
+        throw new CompileException(
+            "Argument " + j + " to function " + target.getName() + " must be var", call);
+      }
+    }
+    if (target instanceof BuiltinBase) {
+      this.compileBuiltinCall((BuiltinBase) target, args, params);
+      return;
+    }
+    for (int j = 0; j < args.size(); j++) {
+      VariableNode param = params.get(j);
+      ArgumentNode arg = args.get(j);
+      if (param.getIsArray() || (arg.isVar() && !param.getIsChangeable())) {
+        throw new CompileException(
+            "Argument " + j + " to function " + target.getName() + " is not supported", call);
+      }
+      if (!param.getIsChangeable()
+          && this.writtenParams.isWrittenThrough(target.getName(), j, arg)) {
+        throw new CompileException("Argument " + j + " to function " + target.getName()
+            + " is written by the function, which compiled code passes by value", call);
+      }
+      if (param.getIsChangeable()) {
+        this.compileArgCell(arg, param.getType());
+      } else {
+        this.compileExpectedType(arg.getArg(), param.getType());
+      }
+    }
+    this.mw.invoke(INVOKESTATIC, PACKAGE + target.getName(), "run", methodDescriptor(target));
+  }
+
+  /**
+   * Calls builtin.execute() with the arguments' cells. Params is null for variadic builtins.
+   */
+  private void compileBuiltinCall(BuiltinBase builtin, List<ArgumentNode> args,
+      List<VariableNode> params) throws CompileException {
+    this.mw.field(GETSTATIC, this.className, BUILTINS_FIELD, BUILTINS_DESCRIPTOR);
+    this.mw.iconst(this.builtinIndices.get(builtin.getName()));
+    this.mw.insn(AALOAD, -1);
+    this.mw.iconst(args.size());
+    this.mw.type(ANEWARRAY, IDT);
+    for (int j = 0; j < args.size(); j++) {
+      this.mw.insn(DUP, 1);
+      this.mw.iconst(j);
+      this.compileArgCell(args.get(j),
+          params == null ? VariableType.ANY : params.get(j).getType());
+      this.mw.insn(AASTORE, -3);
+    }
+    this.mw.invoke(INVOKESTATIC, SUPPORT, "callBuiltin", "(L" + BUILTIN + ";[L" + IDT + ";)V");
+  }
+
+  /**
+   * Pushes an InterpreterDataType for the argument. Variables that already live in cells are
+   * passed as themselves, like the Interpreter passes them.
+   */
+  private void compileArgCell(ArgumentNode arg, VariableType paramType) throws CompileException {
+    Node node = arg.getArg();
+    if (node instanceof VariableReferenceNode) {
+      VariableReferenceNode vrn = (VariableReferenceNode) node;
+      int slot = vrn.getSlot();
+      if (vrn.getArrIdxExp() == null && this.types.isArraySlot(slot)) {
+        if (paramType != VariableType.ANY) {
+          throw new CompileException("Cannot pass array " + vrn.getName() + " as " + paramType,
+              arg);
+        }
+        this.mw.load(ALOAD, slot);
+        return;
+      }
+      VariableType type = this.types.typeOf(vrn);
+      if (type == null || (paramType != VariableType.ANY && paramType != type)) {
+        throw new CompileException("Argument " + vrn + " must be of type " + paramType, arg);
+      }
+      if (vrn.getArrIdxExp() != null) {
+        this.mw.load(ALOAD, slot);
+        this.compileExpectedType(vrn.getArrIdxExp(), VariableType.INTEGER);
+        this.mw.invoke(INVOKEVIRTUAL, ARRAY, "getArrElm", "(I)L" + IDT + ";");
+        if (paramType != VariableType.ANY) {
+          this.mw.type(CHECKCAST, cellClass(paramType));
+        }
+        return;
+      }
+      if (this.cellSlots[slot]) {
+        this.mw.load(ALOAD, slot);
+        return;
+      }
+    }
+    VariableType type = this.compileExpression(node);
+    if (paramType != VariableType.ANY && paramType != type) {
+      throw new CompileException("Argument " + node + " must be of type " + paramType, arg);
+    }
+    this.box(type);
+  }
+
+  // EXPRESSIONS
+
+  private void compileExpectedType(Node node, VariableType expected) throws CompileException {
+    VariableType type = this.compileExpression(node);
+    if (type != expected) {
+      throw fail("Expected " + expected + " but found " + type + " in " + node, node);
+    }
+  }
+
+  /**
+   * Emits code leaving the value of the expression on the operand stack, and returns its type.
+   */
+  private VariableType compileExpression(Node node) throws CompileException {
+    VariableType type = this.types.typeOf(node);
+    if (type == null) {
+      throw fail("Cannot compile expression " + node, node);
+    }
+    if (node instanceof IntegerNode) {
+      this.mw.iconst(((IntegerNode) node).getVal());
+    } else if (node instanceof RealNode) {
+      this.mw.fconst(((RealNode) node).getVal());
+    } else if (node instanceof StringNode) {
+      this.mw.sconst(((StringNode) node).getVal());
+    } else if (node instanceof BooleanNode) {
+      this.mw.iconst(((BooleanNode) node).getVal() ? 1 : 0);
+    } else if (node instanceof CharacterNode) {
+      this.mw.iconst(((CharacterNode) node).getVal());
+    } else if (node instanceof VariableReferenceNode) {
+      VariableReferenceNode vrn = (VariableReferenceNode) node;
+      if (vrn.getArrIdxExp() != null) {
+        this.mw.load(ALOAD, vrn.getSlot());
+        this.compileExpression(vrn.getArrIdxExp());
+        this.mw.invoke(INVOKEVIRTUAL, ARRAY, "getArrElm", "(I)L" + IDT + ";");
+        this.mw.type(CHECKCAST, cellClass(type));
+        this.unbox(type);
+      } else {
+        this.loadSlot(vrn.getSlot(), type);
+      }
+    } else {
+      this.compileMathOp((MathOpNode) node, type);
+    }
+    return type;
+  }
+
+  private void compileMathOp(MathOpNode mon, VariableType type) throws CompileException {
+    MathOpNode[] spine = mon.getLeftSpine(m -> this.types.typeOf(m) == type);
+    if (type == VariableType.STRING) {
+      this.compileStringOperand(spine[spine.length - 1].getLeftSide());
+      for (int i = spine.length - 1; i >= 0; i--) {
+        this.compileStringOperand(spine[i].getRightSide());
+        this.mw.invoke(INVOKEVIRTUAL, STRING, "concat", "(L" + STRING + ";)L" + STRING + ";");
+      }
+      return;
+    }
+    this.compileExpression(spine[spine.length - 1].getLeftSide());
+    boolean isInt = type == VariableType.INTEGER;
+    for (int i = spine.length - 1; i >= 0; i--) {
+      this.compileExpression(spine[i].getRightSide());
+      this.mw.insn(switch (spine[i].getMathOpType()) {
+        case ADD -> isInt ? IADD : FADD;
+        case SUBTRACT -> isInt ? ISUB : FSUB;
+        case MULTIPLY -> isInt ? IMUL : FMUL;
+        case DIVIDE -> isInt ? IDIV : FDIV;
+        case MOD -> isInt ? IREM : FREM;
+      }, -1);
+    }
+  }
+
+  private void compileStringOperand(Node node) throws CompileException {
+    VariableType type = this.compileExpression(node);
+    if (type != VariableType.STRING) {
+      this.mw.invoke(INVOKESTATIC, STRING, "valueOf",
+          "(" + javaDescriptor(type) + ")L" + STRING + ";");
+    }
+  }
+
+  private static CompileException fail(String problem, Node node) {
+    return node == null ? new CompileException(problem) : new CompileException(problem, node);
+  }
+}
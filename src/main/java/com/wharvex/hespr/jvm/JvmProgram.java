@@ -0,0 +1,72 @@
+package com.wharvex.hespr.jvm;
+
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+
+/**
+ * The classes JvmCompiler generated for one program. Each startProgram() defines them in a fresh
+ * class loader.
+ */
+public class JvmProgram {
+
+  private final Map<String, byte[]> classes;
+  private final BuiltinBase[] builtins;
+  private final String entry;
+
+  private static class HesprClassLoader extends ClassLoader {
+
+    private final Map<String, byte[]> classes;
+
+    HesprClassLoader(Map<String, byte[]> classes) {
+      super(JvmProgram.class.getClassLoader());
+      this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      byte[] bytes = this.classes.get(name);
+      if (bytes == null) {
+        throw new ClassNotFoundException(name);
+      }
+      return this.defineClass(name, bytes, 0, bytes.length);
+    }
+  }
+
+  public JvmProgram(Map<String, byte[]> classes, BuiltinBase[] builtins, String entry) {
+    this.classes = classes;
+    this.builtins = builtins;
+    this.entry = entry;
+  }
+
+  /**
+   * Class files by binary class name.
+   */
+  public Map<String, byte[]> getClasses() {
+    return this.classes;
+  }
+
+  public void startProgram() throws Exception {
+    var loader = new HesprClassLoader(this.classes);
+    for (String name : this.classes.keySet()) {
+      loader.loadClass(name).getField(JvmCompiler.BUILTINS_FIELD).set(null, this.builtins);
+    }
+    try {
+      loader.loadClass(this.entry).getMethod("run").invoke(null);
+    } catch (InvocationTargetException e) {
+      // Report the hespr program's own error, not the reflection wrapper
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw (Error) e.getCause();
+    }
+  }
+
+  public String toString() {
+    StringBuilder ret = new StringBuilder();
+    for (Map.Entry<String, byte[]> c : this.classes.entrySet()) {
+      ret.append(c.getKey()).append(" (").append(c.getValue().length).append(" bytes)\n");
+    }
+    return ret.toString();
+  }
+}
@@ -0,0 +1,96 @@
+package com.wharvex.hespr.jvm;
+
+import com.wharvex.hespr.interpreter.ArrayDataType;
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.CharacterDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.semantic.SemanticErrorException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Static helpers the classes JvmCompiler generates call into. They are small enough for HotSpot
+ * to inline.
+ */
+public final class JvmSupport {
+
+  private JvmSupport() {
+  }
+
+  // CELLS
+
+  public static IntegerDataType box(int value) {
+    var ret = new IntegerDataType(value);
+    ret.setInitialized(true);
+    return ret;
+  }
+
+  public static RealDataType box(float value) {
+    var ret = new RealDataType(value);
+    ret.setInitialized(true);
+    return ret;
+  }
+
+  public static CharacterDataType box(char value) {
+    var ret = new CharacterDataType(value);
+    ret.setInitialized(true);
+    return ret;
+  }
+
+  public static BooleanDataType box(boolean value) {
+    var ret = new BooleanDataType(value);
+    ret.setInitialized(true);
+    return ret;
+  }
+
+  public static StringDataType box(String value) {
+    var ret = new StringDataType(value);
+    ret.setInitialized(true);
+    return ret;
+  }
+
+  // The value comes first because generated code computes it before loading the cell
+
+  public static void set(int value, IntegerDataType cell) {
+    cell.setStoredVal(value);
+    cell.setInitialized(true);
+  }
+
+  public static void set(float value, RealDataType cell) {
+    cell.setStoredVal(value);
+    cell.setInitialized(true);
+  }
+
+  public static void set(char value, CharacterDataType cell) {
+    cell.setStoredVal(value);
+    cell.setInitialized(true);
+  }
+
+  public static void set(boolean value, BooleanDataType cell) {
+    cell.setStoredVal(value);
+    cell.setInitialized(true);
+  }
+
+  public static void set(String value, StringDataType cell) {
+    cell.setStoredVal(value);
+    cell.setInitialized(true);
+  }
+
+  public static ArrayDataType newArray(VariableType type, int from, int to) {
+    var ret = new ArrayDataType(type, from, to);
+    ret.setInitialized(true);
+    return ret;
+  }
+
+  // BUILTINS
+
+  public static void callBuiltin(BuiltinBase builtin, InterpreterDataType[] args)
+      throws SemanticErrorException {
+    builtin.execute(new ArrayList<>(Arrays.asList(args)));
+  }
+}
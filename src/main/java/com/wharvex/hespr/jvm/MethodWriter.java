@@ -0,0 +1,330 @@
+package com.wharvex.hespr.jvm;
+
+import com.wharvex.hespr.CompileException;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Assembles the Code attribute of one method, keeping track of the operand stack depth so
+ * max_stack can be filled in. JvmCompiler only branches between statements, where the stack is
+ * empty, so tracking the depth in emission order is exact.
+ */
+class MethodWriter {
+
+  private static final int MAX_CODE_LENGTH = 0xFFFF;
+  private static final int MAX_LINE_NUMBER = 0xFFFF;
+
+  static final int ICONST_0 = 3;
+  static final int FCONST_0 = 11;
+  static final int BIPUSH = 16;
+  static final int SIPUSH = 17;
+  static final int LDC = 18;
+  static final int LDC_W = 19;
+  static final int ILOAD = 21;
+  static final int FLOAD = 23;
+  static final int ALOAD = 25;
+  static final int ISTORE = 54;
+  static final int FSTORE = 56;
+  static final int ASTORE = 58;
+  static final int AASTORE = 83;
+  static final int DUP = 89;
+  static final int IADD = 96;
+  static final int FADD = 98;
+  static final int ISUB = 100;
+  static final int FSUB = 102;
+  static final int IMUL = 104;
+  static final int FMUL = 106;
+  static final int IDIV = 108;
+  static final int FDIV = 110;
+  static final int IREM = 112;
+  static final int FREM = 114;
+  static final int IINC = 132;
+  static final int FCMPL = 149;
+  static final int FCMPG = 150;
+  static final int IFEQ = 153;
+  static final int IFNE = 154;
+  static final int IFLT = 155;
+  static final int IFGE = 156;
+  static final int IFGT = 157;
+  static final int IFLE = 158;
+  static final int IF_ICMPEQ = 159;
+  static final int IF_ICMPNE = 160;
+  static final int IF_ICMPLT = 161;
+  static final int IF_ICMPGE = 162;
+  static final int IF_ICMPGT = 163;
+  static final int IF_ICMPLE = 164;
+  static final int GOTO = 167;
+  static final int RETURN = 177;
+  static final int GETSTATIC = 178;
+  static final int PUTSTATIC = 179;
+  static final int INVOKEVIRTUAL = 182;
+  static final int INVOKESPECIAL = 183;
+  static final int INVOKESTATIC = 184;
+  static final int NEW = 187;
+  static final int ANEWARRAY = 189;
+  static final int CHECKCAST = 192;
+
+  /**
+   * A branch target. Branches to a label may be emitted before it is marked.
+   */
+  static class Label {
+
+    private int pos = -1;
+    // Pairs of (position of the branch instruction, position of its offset)
+    private final List<int[]> refs = new ArrayList<>();
+  }
+
+  private final ClassWriter classWriter;
+  private byte[] code = new byte[256];
+  private int length;
+  private int stack;
+  private int maxStack;
+  private int maxLocals;
+  private final List<int[]> lineNumbers = new ArrayList<>();
+  private final List<Label> labels = new ArrayList<>();
+
+  MethodWriter(ClassWriter classWriter, int paramCount) {
+    this.classWriter = classWriter;
+    this.maxLocals = paramCount;
+  }
+
+  ClassWriter getClassWriter() {
+    return this.classWriter;
+  }
+
+  int getLength() {
+    return this.length;
+  }
+
+  // INSTRUCTIONS
+
+  void insn(int opcode, int stackDelta) {
+    this.put(opcode);
+    this.adjustStack(stackDelta);
+  }
+
+  void iconst(int value) {
+    if (value >= -1 && value <= 5) {
+      this.put(ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      this.put(BIPUSH);
+      this.put(value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      this.put(SIPUSH);
+      this.putShort(value);
+    } else {
+      this.ldc(this.classWriter.integer(value));
+      return;
+    }
+    this.adjustStack(1);
+  }
+
+  void fconst(float value) {
+    if (Float.floatToRawIntBits(value) == 0 || value == 1f || value == 2f) {
+      this.put(FCONST_0 + (int) value);
+      this.adjustStack(1);
+    } else {
+      this.ldc(this.classWriter.floatConst(value));
+    }
+  }
+
+  void sconst(String value) throws CompileException {
+    this.ldc(this.classWriter.string(value));
+  }
+
+  private void ldc(int poolIdx) {
+    if (poolIdx <= 0xFF) {
+      this.put(LDC);
+      this.put(poolIdx);
+    } else {
+      this.put(LDC_W);
+      this.putShort(poolIdx);
+    }
+    this.adjustStack(1);
+  }
+
+  /**
+   * ILOAD, FLOAD or ALOAD.
+   */
+  void load(int opcode, int local) {
+    this.local(opcode, local);
+    this.adjustStack(1);
+  }
+
+  /**
+   * ISTORE, FSTORE or ASTORE.
+   */
+  void store(int opcode, int local) {
+    this.local(opcode, local);
+    this.adjustStack(-1);
+  }
+
+  void iinc(int local, int amount) {
+    this.put(IINC);
+    this.put(local);
+    this.put(amount);
+    this.maxLocals = Math.max(this.maxLocals, local + 1);
+  }
+
+  private void local(int opcode, int local) {
+    this.put(opcode);
+    this.put(local);
+    this.maxLocals = Math.max(this.maxLocals, local + 1);
+  }
+
+  /**
+   * GOTO, IFxx or IF_ICMPxx.
+   */
+  void jump(int opcode, Label target) {
+    target.refs.add(new int[]{this.length, this.length + 1});
+    if (!this.labels.contains(target)) {
+      this.labels.add(target);
+    }
+    this.put(opcode);
+    this.putShort(0);
+    if (opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE) {
+      this.adjustStack(-2);
+    } else if (opcode != GOTO) {
+      this.adjustStack(-1);
+    }
+  }
+
+  void mark(Label label) {
+    label.pos = this.length;
+    if (!this.labels.contains(label)) {
+      this.labels.add(label);
+    }
+  }
+
+  void invoke(int opcode, String owner, String name, String descriptor) {
+    this.put(opcode);
+    this.putShort(this.classWriter.methodRef(owner, name, descriptor));
+    int delta = -argumentSize(descriptor) + returnSize(descriptor);
+    this.adjustStack(opcode == INVOKESTATIC ? delta : delta - 1);
+  }
+
+  /**
+   * GETSTATIC or PUTSTATIC.
+   */
+  void field(int opcode, String owner, String name, String descriptor) {
+    this.put(opcode);
+    this.putShort(this.classWriter.fieldRef(owner, name, descriptor));
+    this.adjustStack(opcode == GETSTATIC ? 1 : -1);
+  }
+
+  /**
+   * NEW, ANEWARRAY or CHECKCAST.
+   */
+  void type(int opcode, String internalName) {
+    this.put(opcode);
+    this.putShort(this.classWriter.classRef(internalName));
+    this.adjustStack(opcode == NEW ? 1 : 0);
+  }
+
+  /**
+   * Attributes the following instructions to the given source line.
+   */
+  void line(int lineNum) {
+    this.lineNumbers.add(new int[]{this.length, lineNum});
+  }
+
+  // DESCRIPTORS
+
+  private static int argumentSize(String descriptor) {
+    int ret = 0;
+    int i = 1;
+    while (descriptor.charAt(i) != ')') {
+      char c = descriptor.charAt(i);
+      while (c == '[') {
+        c = descriptor.charAt(++i);
+      }
+      if (c == 'L') {
+        i = descriptor.indexOf(';', i);
+      }
+      // Array types are one slot wide even if their elements are longs or doubles
+      ret += (c == 'J' || c == 'D') && descriptor.charAt(i - 1) != '[' ? 2 : 1;
+      i++;
+    }
+    return ret;
+  }
+
+  private static int returnSize(String descriptor) {
+    char c = descriptor.charAt(descriptor.indexOf(')') + 1);
+    return c == 'V' ? 0 : c == 'J' || c == 'D' ? 2 : 1;
+  }
+
+  // OUTPUT
+
+  private void adjustStack(int delta) {
+    this.stack += delta;
+    this.maxStack = Math.max(this.maxStack, this.stack);
+  }
+
+  private void put(int b) {
+    if (this.length == this.code.length) {
+      this.code = Arrays.copyOf(this.code, this.length * 2);
+    }
+    this.code[this.length++] = (byte) b;
+  }
+
+  private void putShort(int s) {
+    this.put(s >> 8);
+    this.put(s);
+  }
+
+  /**
+   * Fills in the branch offsets. Throws if a label was never marked, a branch is too far for a
+   * 16-bit offset, or the method breaks a limit of the class file format: at most 65535 bytes of
+   * code and line numbers up to 65535. The JVM would only reject those when loading the class.
+   */
+  void resolveLabels() throws CompileException {
+    if (this.length > MAX_CODE_LENGTH) {
+      throw new CompileException("Function " + this.classWriter.getName() + " is too long ("
+          + this.length + " bytes of JVM code, at most " + MAX_CODE_LENGTH + ")");
+    }
+    for (int[] entry : this.lineNumbers) {
+      if (entry[1] > MAX_LINE_NUMBER) {
+        throw new CompileException("Function " + this.classWriter.getName() + " has code on line "
+            + entry[1] + ", past the last line number a class file can hold (" + MAX_LINE_NUMBER
+            + ")");
+      }
+    }
+    for (Label label : this.labels) {
+      if (label.pos < 0) {
+        throw new CompileException("Branch to unmarked label in " + this.classWriter.getName());
+      }
+      for (int[] ref : label.refs) {
+        int offset = label.pos - ref[0];
+        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+          throw new CompileException("Function " + this.classWriter.getName() + " is too long");
+        }
+        this.code[ref[1]] = (byte) (offset >> 8);
+        this.code[ref[1] + 1] = (byte) offset;
+      }
+    }
+  }
+
+  void writeCodeAttribute(DataOutputStream out) throws IOException {
+    int codeAttrIdx = this.classWriter.utf8("Code");
+    int lineAttrIdx = this.classWriter.utf8("LineNumberTable");
+    int lineAttrLength = 2 + 4 * this.lineNumbers.size();
+    out.writeShort(codeAttrIdx);
+    out.writeInt(2 + 2 + 4 + this.length + 2 + 2 + 6 + lineAttrLength);
+    out.writeShort(this.maxStack);
+    out.writeShort(this.maxLocals);
+    out.writeInt(this.length);
+    out.write(this.code, 0, this.length);
+    out.writeShort(0);
+    out.writeShort(1);
+    out.writeShort(lineAttrIdx);
+    out.writeInt(lineAttrLength);
+    out.writeShort(this.lineNumbers.size());
+    for (int[] entry : this.lineNumbers) {
+      out.writeShort(entry[0]);
+      out.writeShort(entry[1]);
+    }
+  }
+}
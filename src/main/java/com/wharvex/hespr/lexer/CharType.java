@@ -59,7 +59,7 @@ public enum CharType {
    * Use this constructor as a catch-all or for CharacterType vals that signal special cases.
    * Everything in charTypes starts out as whatever CharType uses this constructor, and then all the
    * other CharTypes get added to charTypes in their ascii-code-correspondent index positions in the
-   * StateMachine constructor
+   * TransitionTable
    */
   CharType(boolean catchAll) {
     if (catchAll) {
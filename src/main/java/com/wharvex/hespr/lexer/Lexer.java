@@ -2,6 +2,12 @@ package com.wharvex.hespr.lexer;
 
 import com.wharvex.hespr.ExcType;
 import com.wharvex.hespr.SyntaxErrorException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
 
 public class Lexer {
 
@@ -12,46 +18,76 @@ public class Lexer {
     this.stateMachine = new StateMachine(numLinesInFile);
   }
 
+  /**
+   * Use this constructor with lex(Reader) or lexAll, which find the last line as they read.
+   */
+  public Lexer() {
+    this(-1);
+  }
+
+  /**
+   * Like Lexer(), but puts the tokens in the given list, e.g. a PackedTokens.
+   */
+  public Lexer(List<Token> tokens) {
+    this.stateMachine = new StateMachine(-1, tokens);
+  }
+
   public void printTokens() {
     for (int i = 0; i < this.stateMachine.getTokensLength(); i++) {
       System.out.println(this.stateMachine.getTokenAt(i));
     }
   }
 
-  public void lex(String line) throws Exception {
+  /**
+   * Lexes the lines of the reader one at a time, reading one line ahead to know when it is on the
+   * last line, so the whole file never has to be in memory.
+   */
+  public void lex(Reader reader) throws IOException, SyntaxErrorException {
+    BufferedReader lines = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+    try {
+      this.lexAll(lines.lines().iterator());
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Lexes a whole source, such as a MappedSource, splitting it into lines the way
+   * BufferedReader.readLine does. The lines are views of the source, not copies.
+   */
+  public void lexAll(CharSequence source) throws SyntaxErrorException {
+    this.lexAll(new SourceLines(source));
+  }
+
+  private void lexAll(Iterator<? extends CharSequence> lines) throws SyntaxErrorException {
+    while (lines.hasNext()) {
+      this.lexNext(lines);
+    }
+  }
+
+  /**
+   * Lexes the next line, first checking whether it is the last one so atFileEnd works without
+   * knowing the line count up front.
+   */
+  void lexNext(Iterator<? extends CharSequence> lines) throws SyntaxErrorException {
+    CharSequence line = lines.next();
+    if (!lines.hasNext()) {
+      this.stateMachine.setNumLinesInFile(this.stateMachine.getCurLineNum() + 1);
+    }
+    this.lex(line);
+  }
+
+  public void lex(CharSequence line) throws SyntaxErrorException {
     int i = 0;
     this.stateMachine.setCurColNum(0);
     this.stateMachine.setCurLineLen(line.length());
+    this.stateMachine.setCurLine(line);
     while (i < line.length() && !this.stateMachine.isCurStateError()) {
       this.stateMachine.setCurChar(line.charAt(i++));
 
       // DETERMINE VALUE OF charAction
 
-      if (this.stateMachine.isCurStateOutside()) {
-        if (!this.stateMachine.curCharCanStartState()) {
-          this.charAction = CharAction.ERROR;
-          this.stateMachine.setExceptionDetails(
-              ExcType.INVALID_CHAR, "Invalid character to start a new state.");
-        } else {
-          this.charAction = this.stateMachine.getCharAction(CharAction.START_STATE);
-        }
-      } else if (this.stateMachine.curStateHasStopCharType()) {
-        this.charAction =
-            this.stateMachine.curCharStopsCurState()
-                ? this.stateMachine.getCharAction(CharAction.STOP_STATE_AS_MEMBER)
-                : this.stateMachine.getCharAction(CharAction.CONTINUE_STATE);
-      } else {
-        if (this.stateMachine.curCharContinuesCurState()) {
-          this.charAction = this.stateMachine.getCharAction(CharAction.CONTINUE_STATE);
-        } else if (this.stateMachine.curCharMorphsCurState()) {
-          this.charAction = this.stateMachine.getCharAction(CharAction.MORPH_STATE);
-        } else if (this.stateMachine.curCharErrorsCurState()) {
-          this.charAction = CharAction.ERROR;
-          this.stateMachine.setExceptionDetails(ExcType.INVALID_CHAR, "");
-        } else {
-          this.charAction = this.stateMachine.getCharAction(CharAction.STOP_STATE_AS_NON_MEMBER);
-        }
-      }
+      this.charAction = this.stateMachine.getCharAction();
 
       // FOLLOW THE charAction
 
@@ -182,8 +218,6 @@ public class Lexer {
           this.stateMachine.getCurColNum(),
           this.stateMachine.getExceptionProblem());
     }
-    // Call assessIndent before emitEndLineToken to make the "ignore all-space lines" logic work
-    this.stateMachine.assessIndent();
     this.stateMachine.emitEndLineToken();
     if (this.stateMachine.atFileEnd()) {
       // If indent level remained 0 through the whole file, then this won't emit the dedents
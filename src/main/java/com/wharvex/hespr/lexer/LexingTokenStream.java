@@ -0,0 +1,69 @@
+package com.wharvex.hespr.lexer;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tokens lexed on demand: the Lexer only lexes another line when the Parser peeks past the tokens
+ * it already has. A line's tokens are final once the line is lexed (assessIndent only looks at the
+ * current line), so they are moved out of the StateMachine and the buffer only ever holds the
+ * lines the Parser is looking at.
+ */
+public class LexingTokenStream implements TokenStream {
+
+  private final Lexer lexer = new Lexer();
+  private final Iterator<? extends CharSequence> lines;
+  private final List<Token> buffer = new ArrayList<>();
+  // The index in buffer of the next token to be taken
+  private int head;
+
+  /**
+   * I/O errors while reading come out of peek and next as UncheckedIOExceptions.
+   */
+  public LexingTokenStream(Reader reader) {
+    this.lines = (reader instanceof BufferedReader br ? br : new BufferedReader(reader))
+        .lines().iterator();
+  }
+
+  /**
+   * Lexes the source, such as a MappedSource, a line at a time.
+   */
+  public LexingTokenStream(CharSequence source) {
+    this.lines = new SourceLines(source);
+  }
+
+  @Override
+  public Optional<Token> peek(int idx) throws SyntaxErrorException {
+    while (this.head + idx >= this.buffer.size() && this.lines.hasNext()) {
+      this.lexer.lexNext(this.lines);
+      this.buffer.addAll(this.lexer.stateMachine.tokens);
+      this.lexer.stateMachine.tokens.clear();
+    }
+    return this.head + idx < this.buffer.size() ? Optional.of(this.buffer.get(this.head + idx))
+        : Optional.empty();
+  }
+
+  @Override
+  public Token next() throws SyntaxErrorException {
+    Token ret = this.peek(0).orElseThrow();
+    this.head++;
+    // Drop the taken tokens once they are most of the buffer, so the copying stays linear
+    if (this.head > this.buffer.size() / 2) {
+      this.buffer.subList(0, this.head).clear();
+      this.head = 0;
+    }
+    return ret;
+  }
+
+  /**
+   * How many tokens have been lexed but not taken.
+   */
+  public int getBufferedCount() {
+    return this.buffer.size() - this.head;
+  }
+}
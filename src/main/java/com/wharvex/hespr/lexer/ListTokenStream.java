@@ -0,0 +1,41 @@
+package com.wharvex.hespr.lexer;
+
+import com.wharvex.hespr.ExcType;
+import com.wharvex.hespr.SyntaxErrorException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The tokens of a list a Lexer has already filled. Taking a token moves a cursor along the list
+ * and leaves the list as it is.
+ */
+public class ListTokenStream implements TokenStream {
+
+  private final List<Token> tokens;
+  // The index of the next token to be taken
+  private int cursor;
+
+  public ListTokenStream(List<Token> tokens) {
+    this.tokens = tokens;
+  }
+
+  @Override
+  public Optional<Token> peek(int idx) throws SyntaxErrorException {
+    if (this.cursor + idx >= this.tokens.size()) {
+      return Optional.empty();
+    }
+    Token ret = this.tokens.get(this.cursor + idx);
+    if (ret == null) {
+      throw new SyntaxErrorException(ExcType.INTERNAL_ERROR,
+          "Found a null entry in tokens at index " + (this.cursor + idx));
+    }
+    return Optional.of(ret);
+  }
+
+  @Override
+  public Token next() throws SyntaxErrorException {
+    Token ret = this.peek(0).orElseThrow();
+    this.cursor++;
+    return ret;
+  }
+}
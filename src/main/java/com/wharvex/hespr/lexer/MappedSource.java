@@ -0,0 +1,84 @@
+package com.wharvex.hespr.lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A source file mapped into memory. CharType only covers ASCII, so when every byte of the file is
+ * ASCII the lexer reads the mapped bytes as chars and nothing is copied until a token is emitted.
+ * A file with any other byte is decoded as UTF-8, like Files.readAllLines does.
+ */
+public final class MappedSource implements CharSequence {
+
+  private static final long NON_ASCII_BITS = 0x8080808080808080L;
+
+  private final ByteBuffer bytes;
+  private final int offset, length;
+
+  private MappedSource(ByteBuffer bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * Returns the file as a MappedSource, or as a decoded CharBuffer if it is not all ASCII.
+   */
+  public static CharSequence load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException(path + " is too large to map (" + size + " bytes)");
+      }
+      // The mapping stays valid after the channel is closed
+      MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      if (isAscii(bytes)) {
+        return new MappedSource(bytes, 0, (int) size);
+      }
+      return StandardCharsets.UTF_8.newDecoder().decode(bytes);
+    }
+  }
+
+  private static boolean isAscii(ByteBuffer bytes) {
+    int i = 0;
+    // Check 8 bytes at a time
+    for (; i + Long.BYTES <= bytes.limit(); i += Long.BYTES) {
+      if ((bytes.getLong(i) & NON_ASCII_BITS) != 0) {
+        return false;
+      }
+    }
+    for (; i < bytes.limit(); i++) {
+      if (bytes.get(i) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) this.bytes.get(this.offset + index);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return new MappedSource(this.bytes, this.offset + start, end - start);
+  }
+
+  @Override
+  public String toString() {
+    byte[] ret = new byte[this.length];
+    this.bytes.get(this.offset, ret);
+    return new String(ret, StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,117 @@
+package com.wharvex.hespr.lexer;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * A token list stored as parallel arrays instead of one object per token: a byte per token for
+ * the TokenType ordinal, an int for the line number and an int index into a pool that holds each
+ * distinct value string once. About 9 bytes per token, against a list slot, a Token and usually a
+ * String each in an ArrayList.
+ *
+ * <p>get makes a Token from the arrays each time it is called. The Tokens share the pooled
+ * Strings, so they are cheap, but they are not kept; use the getters that take an index to read
+ * a token without making one.
+ */
+public class PackedTokens extends AbstractList<Token> implements RandomAccess {
+
+  private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+  static {
+    // The ordinals are stored as unsigned bytes
+    if (TOKEN_TYPES.length > 256) {
+      throw new ExceptionInInitializerError("Too many TokenTypes to pack in a byte");
+    }
+  }
+
+  private byte[] types = new byte[16];
+  private int[] lineNums = new int[16];
+  private int[] values = new int[16];
+  private int size;
+  private final List<String> valuePool = new ArrayList<>();
+  private final Map<String, Integer> valueIdxs = new HashMap<>();
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public Token get(int idx) {
+    Objects.checkIndex(idx, this.size);
+    return new Token(this.getValueString(idx), this.getTokenType(idx), this.getTokenLineNum(idx));
+  }
+
+  public TokenType getTokenType(int idx) {
+    return TOKEN_TYPES[this.types[idx] & 0xff];
+  }
+
+  public int getTokenLineNum(int idx) {
+    return this.lineNums[idx];
+  }
+
+  public String getValueString(int idx) {
+    return this.valuePool.get(this.values[idx]);
+  }
+
+  @Override
+  public Token set(int idx, Token token) {
+    Token ret = this.get(idx);
+    this.pack(idx, token);
+    return ret;
+  }
+
+  @Override
+  public void add(int idx, Token token) {
+    Objects.checkIndex(idx, this.size + 1);
+    if (this.size == this.types.length) {
+      int capacity = this.size * 2;
+      this.types = Arrays.copyOf(this.types, capacity);
+      this.lineNums = Arrays.copyOf(this.lineNums, capacity);
+      this.values = Arrays.copyOf(this.values, capacity);
+    }
+    this.shift(idx, idx + 1);
+    this.size++;
+    this.pack(idx, token);
+    this.modCount++;
+  }
+
+  @Override
+  public Token remove(int idx) {
+    Token ret = this.get(idx);
+    this.shift(idx + 1, idx);
+    this.size--;
+    this.modCount++;
+    return ret;
+  }
+
+  /**
+   * Empties the list. The value pool is kept, since the next tokens will likely reuse its strings.
+   */
+  @Override
+  public void clear() {
+    this.size = 0;
+    this.modCount++;
+  }
+
+  private void shift(int from, int to) {
+    System.arraycopy(this.types, from, this.types, to, this.size - from);
+    System.arraycopy(this.lineNums, from, this.lineNums, to, this.size - from);
+    System.arraycopy(this.values, from, this.values, to, this.size - from);
+  }
+
+  private void pack(int idx, Token token) {
+    this.types[idx] = (byte) token.getTokenType().ordinal();
+    this.lineNums[idx] = token.getTokenLineNum();
+    this.values[idx] = this.valueIdxs.computeIfAbsent(token.getValueString(), value -> {
+      this.valuePool.add(value);
+      return this.valuePool.size() - 1;
+    });
+  }
+}
@@ -0,0 +1,175 @@
+package com.wharvex.hespr.lexer;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lexes a source in chunks on a ForkJoinPool. The source is split before lines that start with
+ * blok and are not inside a comment: comments are the only state that spans lines, and a blok at
+ * column 0 always brings the indent level back to 0, so each chunk can be lexed from scratch. The
+ * chunks are then stitched together with the DEDENTs the previous chunk's indent level calls for.
+ *
+ * <p>If any chunk fails to lex, the whole source is lexed again in one piece, so the error is
+ * exactly the one Lexer.lexAll gives.
+ */
+public class ParallelLexer {
+
+  // Chunks smaller than this are not worth a task
+  static final int MIN_CHUNK_LEN = 1 << 16;
+
+  private final ForkJoinPool pool;
+  private final int minChunkLen;
+
+  public ParallelLexer() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public ParallelLexer(ForkJoinPool pool) {
+    this(pool, MIN_CHUNK_LEN);
+  }
+
+  ParallelLexer(ForkJoinPool pool, int minChunkLen) {
+    this.pool = pool;
+    this.minChunkLen = minChunkLen;
+  }
+
+  /**
+   * Lexes the source into tokens, which should be empty.
+   */
+  public void lex(CharSequence source, List<Token> tokens) throws SyntaxErrorException {
+    List<Chunk> chunks = this.pool.getParallelism() > 1 ? this.split(source) : List.of();
+    if (chunks.size() < 2) {
+      new Lexer(tokens).lexAll(source);
+      return;
+    }
+    this.pool.invoke(new LexChunks(chunks, 0, chunks.size()));
+    for (Chunk chunk : chunks) {
+      if (chunk.error != null) {
+        tokens.clear();
+        new Lexer(tokens).lexAll(source);
+        // The error only happens in chunks if the boundary scan was fooled
+        throw chunk.error;
+      }
+    }
+    int indentLevel = 0;
+    for (Chunk chunk : chunks) {
+      for (int i = 0; i < indentLevel; i++) {
+        tokens.add(new Token("", TokenType.DEDENT, chunk.firstLineNum));
+      }
+      tokens.addAll(chunk.tokens);
+      indentLevel = chunk.indentLevel;
+    }
+  }
+
+  /**
+   * Finds the blok lines to split at, in chunks of at least minChunkLen chars or a share of the
+   * source big enough to give each worker a few chunks.
+   */
+  private List<Chunk> split(CharSequence source) {
+    int minChunkLen =
+        Math.max(this.minChunkLen, source.length() / (this.pool.getParallelism() * 4));
+    List<Chunk> ret = new ArrayList<>();
+    int chunkStart = 0;
+    int chunkFirstLineNum = 1;
+    int lineNum = 1;
+    int pos = 0;
+    boolean inComment = false;
+    while (pos < source.length()) {
+      if (!inComment && pos - chunkStart >= minChunkLen && startsWithBlok(source, pos)) {
+        ret.add(new Chunk(source.subSequence(chunkStart, pos), chunkFirstLineNum));
+        chunkStart = pos;
+        chunkFirstLineNum = lineNum;
+      }
+      // Skip the line, noting where comments start and end outside of string and char literals
+      char quote = 0;
+      while (pos < source.length() && source.charAt(pos) != '\n' && source.charAt(pos) != '\r') {
+        char c = source.charAt(pos++);
+        if (inComment) {
+          inComment = c != '}';
+        } else if (quote != 0) {
+          quote = c == quote ? 0 : quote;
+        } else if (c == '"' || c == '\'') {
+          quote = c;
+        } else if (c == '{' && pos < source.length() && source.charAt(pos) == '{') {
+          inComment = true;
+          pos++;
+        }
+      }
+      if (pos + 1 < source.length() && source.charAt(pos) == '\r'
+          && source.charAt(pos + 1) == '\n') {
+        pos++;
+      }
+      pos++;
+      lineNum++;
+    }
+    ret.add(new Chunk(source.subSequence(chunkStart, source.length()), chunkFirstLineNum));
+    // Only the last chunk ends at the end of the file
+    ret.get(ret.size() - 1).numLinesInFile = lineNum - 1;
+    return ret;
+  }
+
+  private static boolean startsWithBlok(CharSequence source, int pos) {
+    if (pos + 4 > source.length() || !"blok".contentEquals(source.subSequence(pos, pos + 4))) {
+      return false;
+    }
+    if (pos + 4 == source.length()) {
+      return true;
+    }
+    char next = source.charAt(pos + 4);
+    return !Character.isLetterOrDigit(next);
+  }
+
+  private static class Chunk {
+
+    final CharSequence source;
+    final int firstLineNum;
+    int numLinesInFile = -1;
+    List<Token> tokens;
+    int indentLevel;
+    SyntaxErrorException error;
+
+    Chunk(CharSequence source, int firstLineNum) {
+      this.source = source;
+      this.firstLineNum = firstLineNum;
+    }
+
+    void lex() {
+      Lexer lexer = new Lexer(this.numLinesInFile);
+      lexer.stateMachine.setCurLineNum(this.firstLineNum - 1);
+      try {
+        for (SourceLines lines = new SourceLines(this.source); lines.hasNext(); ) {
+          lexer.lex(lines.next());
+        }
+      } catch (SyntaxErrorException e) {
+        this.error = e;
+      }
+      this.tokens = lexer.stateMachine.tokens;
+      this.indentLevel = lexer.stateMachine.getIndentLevel();
+    }
+  }
+
+  private static class LexChunks extends RecursiveAction {
+
+    private final List<Chunk> chunks;
+    private final int from, to;
+
+    LexChunks(List<Chunk> chunks, int from, int to) {
+      this.chunks = chunks;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from == 1) {
+        this.chunks.get(this.from).lex();
+        return;
+      }
+      int mid = (this.from + this.to) / 2;
+      invokeAll(new LexChunks(this.chunks, this.from, mid), new LexChunks(this.chunks, mid, this.to));
+    }
+  }
+}
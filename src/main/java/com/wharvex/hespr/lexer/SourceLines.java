@@ -0,0 +1,42 @@
+package com.wharvex.hespr.lexer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The lines of a source, split the way BufferedReader.readLine splits them (on \n, \r or \r\n,
+ * with no empty line after a final line break). The lines are views of the source, not copies.
+ */
+class SourceLines implements Iterator<CharSequence> {
+
+  private final CharSequence source;
+  private int start;
+
+  SourceLines(CharSequence source) {
+    this.source = source;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return this.start < this.source.length();
+  }
+
+  @Override
+  public CharSequence next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+    int end = this.start;
+    while (end < this.source.length() && this.source.charAt(end) != '\n'
+        && this.source.charAt(end) != '\r') {
+      end++;
+    }
+    CharSequence ret = this.source.subSequence(this.start, end);
+    this.start = end + 1;
+    if (end + 1 < this.source.length() && this.source.charAt(end) == '\r'
+        && this.source.charAt(end + 1) == '\n') {
+      this.start++;
+    }
+    return ret;
+  }
+}
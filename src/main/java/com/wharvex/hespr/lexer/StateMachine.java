@@ -1,8 +1,5 @@
 package com.wharvex.hespr.lexer;
 
-import static java.lang.Math.max;
-import static java.lang.Math.min;
-
 import com.wharvex.hespr.ExcType;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -10,9 +7,15 @@ import java.util.List;
 
 public class StateMachine {
 
-  private String exceptionProblem, tokenValueStringTemp;
+  private String exceptionProblem;
+  // The token being accumulated is the slice of curLine starting at tokenStart
+  private CharSequence curLine;
+  private int tokenStart, tokenLen;
+  // The indents from the current line's leading spaces, whether any token (even the curlies that
+  // close a comment) has come after them, and whether the line's INDENTs/DEDENTs are out yet
+  private int lineRawIndents;
+  private boolean lineHasTokens, lineIndentAssessed;
   private ExcType exceptionType;
-  private CharType[] charTypes; // Array of CharType enum vals at indices equal to their ASCII code
   private StateType curState, prevState; // State in current vs. previous position
   private char curChar; // The current character lex is reading
   public int curLineNum, curColNum, curLineLen, numLinesInFile, indentLevel;
@@ -20,19 +23,17 @@ public class StateMachine {
   private HashMap<String, TokenType> knownWords = new HashMap<String, TokenType>();
 
   public StateMachine(int numLinesInFile) {
+    this(numLinesInFile, new ArrayList<Token>());
+  }
+
+  /**
+   * Use this constructor to choose how the tokens are stored, e.g. in PackedTokens.
+   */
+  public StateMachine(int numLinesInFile, List<Token> tokens) {
     this.numLinesInFile = numLinesInFile;
     this.curState = StateType.OUTSIDE;
-    this.tokenValueStringTemp = "";
     this.curColNum = this.curLineNum = 0;
-    this.charTypes = new CharType[128];
-    this.tokens = new ArrayList<Token>();
-    for (CharType ct : CharType.values()) {
-      if (ct.range != null) {
-        for (int i : ct.range) {
-          this.charTypes[i] = ct;
-        }
-      }
-    }
+    this.tokens = tokens;
     // This populates the HashMap with the lookup strings (lowercase) and token types
     for (TokenType tt : TokenType.values()) {
       if (tt.typeType == Token.TokenTypeType.KNOWNWORD) {
@@ -58,6 +59,15 @@ public class StateMachine {
   public void setCurLineLen(int len) {
     this.curLineLen = len;
     this.curLineNum++;
+    this.lineRawIndents = 0;
+    this.lineHasTokens = this.lineIndentAssessed = false;
+  }
+
+  /**
+   * Accumulated tokens are slices of this line, so it must not change until the line is lexed.
+   */
+  public void setCurLine(CharSequence line) {
+    this.curLine = line;
   }
 
   /**
@@ -84,6 +94,13 @@ public class StateMachine {
     this.curColNum = colNum;
   }
 
+  /**
+   * For lexers that start partway through a file: the next line lexed is lineNum + 1.
+   */
+  public void setCurLineNum(int lineNum) {
+    this.curLineNum = lineNum;
+  }
+
   /**
    * @param
    * @return
@@ -110,15 +127,6 @@ public class StateMachine {
     return this.getCurState() == StateType.ERROR;
   }
 
-  /**
-   * @param
-   * @return
-   */
-  public boolean curCharMorphsCurState() {
-    return this.curStateHasMorphCharTypes()
-        && this.charTypeInColl(this.getCurCharType(), this.getCurState().morphToCharTypes);
-  }
-
   /**
    * @param
    * @return
@@ -179,42 +187,6 @@ public class StateMachine {
     return this.exceptionType;
   }
 
-  /**
-   * @param
-   * @return
-   */
-  public void assessIndent() {
-    int rawIndentsQty = this.getTotalTokensOfGivenTypeThisLine(TokenType.RAW_INDENT);
-    int lcurlyRcurlyQty = this.getTotalTokensOfGivenTypeThisLine(TokenType.LCURLY)
-        + this.getTotalTokensOfGivenTypeThisLine(
-        TokenType.RCURLY);
-    int totalTokensThisLine = this.getTotalTokensThisLine();
-    // If there are no non-space/tab characters (i.e. if there are ONLY space/tab characters) on the
-    // line, don’t output an INDENT or DEDENT and don’t change the stored indentation level.
-    // (If you call assessIndent after adding the ENDOFLINE token, this ternary won't work properly)
-    int indentLevel = totalTokensThisLine - lcurlyRcurlyQty == rawIndentsQty ? this.getIndentLevel()
-        : rawIndentsQty;
-    int indentsDiff = indentLevel - this.getIndentLevel();
-    this.setIndentLevel(indentLevel);
-    TokenType IndentOrDedent =
-        indentsDiff < 0 ? TokenType.DEDENT : TokenType.INDENT;
-    indentsDiff = Math.abs(indentsDiff);
-    // Want to inspect Tokens for the current line, which should be the last ones in this.tokens
-    // Find the index position of the last token of the line before curLine, so we can know where
-    // to add indent or dedent tokens
-    int prevLineEndTokenIdx = this.getPrevLineEndIdxAndRemoveRawIndents();
-    for (int i = 0; i < indentsDiff; i++) {
-      this.tokens.add(prevLineEndTokenIdx + 1, new Token("", IndentOrDedent, this.getCurLineNum()));
-    }
-    rawIndentsQty = this.getTotalTokensOfGivenTypeThisLine(TokenType.RAW_INDENT);
-    totalTokensThisLine = this.getTotalTokensThisLine();
-    if (totalTokensThisLine == rawIndentsQty) {
-      for (int i = 0; i < totalTokensThisLine; i++) {
-        this.tokens.remove(this.tokens.size() - 1);
-      }
-    }
-  }
-
   /**
    * @param
    * @return
@@ -259,6 +231,13 @@ public class StateMachine {
     return this.getCurState().stopCharType != CharType.NONE;
   }
 
+  /**
+   * For lexers that do not know how many lines there are until they reach the last one.
+   */
+  public void setNumLinesInFile(int numLinesInFile) {
+    this.numLinesInFile = numLinesInFile;
+  }
+
   /**
    * @param
    * @return
@@ -286,22 +265,24 @@ public class StateMachine {
     if (!this.curStateHasTokenType()) {
       return;
     }
-    this.tokenValueStringTemp += this.getCurChar();
+    if (this.tokenLen++ == 0) {
+      // curColNum is one past the current char
+      this.tokenStart = this.getCurColNum() - 1;
+    }
   }
 
   /**
    * @param
    * @return
    */
-  public CharAction getCharAction(CharAction rawCharAction) {
-    if (this.atLineEnd()) {
-      for (CharAction ca : CharAction.values()) {
-        if (ca.normalForm == rawCharAction) {
-          return ca;
-        }
-      }
+  public CharAction getCharAction() {
+    CharAction charAction = TransitionTable.getAction(this.getCurState(), this.getCurCharType());
+    if (charAction == CharAction.ERROR) {
+      this.setExceptionDetails(ExcType.INVALID_CHAR,
+          this.isCurStateOutside() ? "Invalid character to start a new state." : "");
+      return charAction;
     }
-    return rawCharAction;
+    return this.atLineEnd() ? TransitionTable.getLineEndForm(charAction) : charAction;
   }
 
   /**
@@ -311,14 +292,12 @@ public class StateMachine {
   public void emitTokenIfNeeded() {
     if (!this.curStateHasTokenType()
         || (this.getCurState() == StateType.SPACE
-        && (this.getTVSTLen() < 4 || this.anyNonIndentTokensThisLine()))) {
+        && (this.getTVSTLen() < 4 || this.lineHasTokens))) {
       this.clearTokenValueStringTemp();
       return;
     }
     if (this.getCurState() == StateType.SPACE) {
-      for (int i = 0; i < this.getTVSTLen() / 5; i++) {
-        this.tokens.add(new Token("", TokenType.RAW_INDENT, this.getCurLineNum()));
-      }
+      this.lineRawIndents += this.getTVSTLen() / 5;
       this.clearTokenValueStringTemp();
       return;
     }
@@ -326,17 +305,42 @@ public class StateMachine {
     // Handle known words
     TokenType tokenTypeToUse;
     String tokenValStrToUse;
-    if (this.knownWords.containsKey(this.getTokenValueStringTemp())) {
-      tokenTypeToUse = this.knownWords.get(this.getTokenValueStringTemp());
+    String tokenValueString = this.getTokenValueStringTemp();
+    if (this.knownWords.containsKey(tokenValueString)) {
+      tokenTypeToUse = this.knownWords.get(tokenValueString);
       tokenValStrToUse = "";
     } else {
       tokenTypeToUse = this.getCurState().tokenType;
-      tokenValStrToUse = this.getTokenValueStringTemp();
+      tokenValStrToUse = tokenValueString;
     }
     this.clearTokenValueStringTemp();
+    this.lineHasTokens = true;
+    // The curlies that close comments only stop later spaces from counting as indents
+    if (tokenTypeToUse == TokenType.LCURLY || tokenTypeToUse == TokenType.RCURLY) {
+      return;
+    }
+    this.assessIndent();
     this.tokens.add(new Token(tokenValStrToUse, tokenTypeToUse, this.getCurLineNum()));
   }
 
+  /**
+   * Before the first token of a line goes out, the raw indents counted from its leading spaces
+   * become the indent level, with an INDENT or DEDENT for each level of change. Lines with no
+   * tokens (blank or comment-only) keep the indent level.
+   */
+  private void assessIndent() {
+    if (this.lineIndentAssessed) {
+      return;
+    }
+    this.lineIndentAssessed = true;
+    int indentsDiff = this.lineRawIndents - this.getIndentLevel();
+    this.setIndentLevel(this.lineRawIndents);
+    TokenType indentOrDedent = indentsDiff < 0 ? TokenType.DEDENT : TokenType.INDENT;
+    for (int i = 0; i < Math.abs(indentsDiff); i++) {
+      this.tokens.add(new Token("", indentOrDedent, this.getCurLineNum()));
+    }
+  }
+
   /**
    * @param
    * @return
@@ -369,24 +373,14 @@ public class StateMachine {
     return !this.isCurCharOther();
   }
 
-  /**
-   * @param
-   * @return
-   */
-  public boolean curCharContinuesCurState() {
-    return this.curStateHasContinueCharTypes()
-        && this.charTypeInColl(this.getCurCharType(), this.getCurState().continueCharTypes);
-  }
-
   /**
    * @param
    * @return
    */
   public StateType getStartState() {
-    for (StateType st : StateType.values()) {
-      if (st.startCharType == this.getCurCharType()) {
-        return st;
-      }
+    StateType st = TransitionTable.getStartState(this.getCurCharType());
+    if (st != StateType.ERROR) {
+      return st;
     }
     this.setExceptionDetails(
         ExcType.INTERNAL_ERROR,
@@ -394,35 +388,15 @@ public class StateMachine {
     return StateType.ERROR;
   }
 
-  /**
-   * @param
-   * @return
-   */
-  public boolean curCharStopsCurState() {
-    return this.getCurCharType() == this.getCurState().stopCharType;
-  }
-
-  /**
-   * @param
-   * @return
-   */
-  public boolean curCharErrorsCurState() {
-    return this.charTypeInColl(this.getCurCharType(), this.getCurState().errorCharTypes);
-  }
-
   /**
    * @param
    * @return
    */
   public StateType getMorphState() {
-    for (StateType st : StateType.values()) {
-      if (this.getLastCharTypeFromTVST() == st.morphedFromCharType) {
-        for (CharType ct : this.getCurState().morphToCharTypes) {
-          if (ct == this.getCurCharType() && ct == st.morphIdentifier) {
-            return st;
-          }
-        }
-      }
+    StateType st =
+        TransitionTable.getMorphState(this.getLastCharTypeFromTVST(), this.getCurCharType());
+    if (st != StateType.ERROR) {
+      return st;
     }
     this.setExceptionDetails(
         ExcType.INTERNAL_ERROR,
@@ -464,14 +438,6 @@ public class StateMachine {
     return this.getCurState().tokenType != TokenType.NONE;
   }
 
-  /**
-   * @param
-   * @return
-   */
-  private boolean curStateHasContinueCharTypes() {
-    return this.getCurState().continueCharTypes.length > 0;
-  }
-
   /**
    * @param
    * @return
@@ -480,14 +446,6 @@ public class StateMachine {
     this.prevState = this.curState;
   }
 
-  /**
-   * @param
-   * @return
-   */
-  private boolean curStateHasMorphCharTypes() {
-    return this.getCurState().morphToCharTypes.length > 0;
-  }
-
   /**
    * @param
    * @return
@@ -501,7 +459,7 @@ public class StateMachine {
    * @return
    */
   private String getTokenValueStringTemp() {
-    return this.tokenValueStringTemp;
+    return this.curLine.subSequence(this.tokenStart, this.tokenStart + this.tokenLen).toString();
   }
 
   /**
@@ -525,7 +483,7 @@ public class StateMachine {
    * @return
    */
   private CharType getCurCharType() {
-    return this.charTypes[(int) this.getCurChar()];
+    return TransitionTable.CHAR_TYPE_OF[this.getCurChar()];
   }
 
   /**
@@ -533,7 +491,7 @@ public class StateMachine {
    * @return
    */
   private CharType getGivenCharType(char givenChar) {
-    return this.charTypes[(int) givenChar];
+    return TransitionTable.CHAR_TYPE_OF[givenChar];
   }
 
   /**
@@ -541,11 +499,10 @@ public class StateMachine {
    * @return
    */
   private CharType getLastCharTypeFromTVST() {
-    if (this.getTokenValueStringTemp().length() == 0) {
+    if (this.tokenLen == 0) {
       return CharType.NONE;
     }
-    return this.getGivenCharType(
-        this.getTokenValueStringTemp().charAt(this.getTokenValueStringTemp().length() - 1));
+    return this.getGivenCharType(this.curLine.charAt(this.tokenStart + this.tokenLen - 1));
   }
 
   /**
@@ -569,7 +526,7 @@ public class StateMachine {
    * @return
    */
   private void clearTokenValueStringTemp() {
-    this.tokenValueStringTemp = "";
+    this.tokenLen = 0;
   }
 
   /**
@@ -580,66 +537,6 @@ public class StateMachine {
     this.indentLevel = indentLevel;
   }
 
-  /**
-   * @param
-   * @return
-   */
-  private int getTotalTokensThisLine() {
-    int ret = 0;
-    for (int i = this.tokens.size() - 1; i >= 0; i--) {
-      if (this.tokens.get(i).getTokenLineNum() == this.getCurLineNum()) {
-        ret++;
-      } else {
-        break;
-      }
-    }
-    return ret;
-  }
-
-  /**
-   * @param
-   * @return
-   */
-  private int getTotalTokensOfGivenTypeThisLine(TokenType givenType) {
-    int ret = 0;
-    for (int i = this.tokens.size() - 1; i >= 0; i--) {
-      if (this.tokens.get(i).getTokenLineNum() == this.getCurLineNum()) {
-        if (this.tokens.get(i).getTokenType() == givenType) {
-          ret++;
-        }
-      } else {
-        break;
-      }
-    }
-    return ret;
-  }
-
-  /**
-   * @param
-   * @return
-   */
-  private int getPrevLineEndIdxAndRemoveRawIndents() {
-    int prevLineEndTokenIdx = -1;
-    for (int i = this.tokens.size() - 1; i >= 0; i--) {
-      if (this.tokens.get(i).getTokenType() == TokenType.RAW_INDENT
-          || this.tokens.get(i).getTokenType() == TokenType.LCURLY
-          || this.tokens.get(i).getTokenType() == TokenType.RCURLY) {
-        this.tokens.remove(i);
-      }
-      if (this.getTokensLength() == 0) {
-        return -1;
-      }
-      // Do this to avoid index out of bounds error which happens when the line is all spaces
-      int indexToCheck = min(i, this.tokens.size() - 1);
-      // No need to traverse tokens from earlier lines
-      if (this.tokens.get(indexToCheck).getTokenLineNum() < this.getCurLineNum()) {
-        prevLineEndTokenIdx = indexToCheck;
-        break;
-      }
-    }
-    return prevLineEndTokenIdx;
-  }
-
   /**
    * @param
    * @return
@@ -663,7 +560,7 @@ public class StateMachine {
    * @return
    */
   private int getTVSTLen() {
-    return this.getTokenValueStringTemp().length();
+    return this.tokenLen;
   }
 
   /**
@@ -680,34 +577,4 @@ public class StateMachine {
     }
   }
 
-  /**
-   * @param
-   * @return
-   */
-  private boolean charTypeInColl(CharType charType, CharType[] coll) {
-    for (CharType ct : coll) {
-      if (charType == ct || (ct.except != null
-          && this.getGivenCharType((char) ct.except.intValue()) != charType)) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  /**
-   * @param
-   * @return
-   */
-  private boolean anyNonIndentTokensThisLine() {
-    // todo: find a better way to do this
-    for (int i = this.tokens.size() - 1; i >= 0; i--) {
-      if (this.tokens.get(i).getTokenLineNum() == this.getCurLineNum()
-          && this.tokens.get(i).getTokenType() != TokenType.RAW_INDENT) {
-        return true;
-      } else {
-        break;
-      }
-    }
-    return false;
-  }
 }
@@ -0,0 +1,21 @@
+package com.wharvex.hespr.lexer;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import java.util.Optional;
+
+/**
+ * The tokens the Parser pulls from, in order.
+ */
+public interface TokenStream {
+
+  /**
+   * The token idx tokens after the next one to be taken (so peek(0) is the next one), or empty if
+   * the tokens run out first.
+   */
+  Optional<Token> peek(int idx) throws SyntaxErrorException;
+
+  /**
+   * Takes the next token. Check with peek(0) that there is one first.
+   */
+  Token next() throws SyntaxErrorException;
+}
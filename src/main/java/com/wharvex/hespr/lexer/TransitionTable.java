@@ -0,0 +1,137 @@
+package com.wharvex.hespr.lexer;
+
+/**
+ * The StateType definitions compiled into dense tables, so StateMachine decides what to do with a
+ * character by indexing arrays instead of scanning StateType.values() and the CharType arrays of
+ * the current state.
+ *
+ * <p>The tables are built once, from the same rules Lexer.lex used to apply character by
+ * character, so the tokens and errors do not change.
+ */
+final class TransitionTable {
+
+  private static final StateType[] STATES = StateType.values();
+  private static final CharType[] CHAR_TYPES = CharType.values();
+
+  /**
+   * The CharType of each ASCII char code. Codes with no CharType of their own are OTHER.
+   */
+  static final CharType[] CHAR_TYPE_OF = new CharType[128];
+
+  /**
+   * The CharAction for [curState][curCharType], not counting line ends.
+   */
+  private static final CharAction[][] ACTIONS = new CharAction[STATES.length][CHAR_TYPES.length];
+
+  /**
+   * The state started by [curCharType], or ERROR if there is none.
+   */
+  private static final StateType[] START_STATES = new StateType[CHAR_TYPES.length];
+
+  /**
+   * The state morphed to by [last accumulated CharType][curCharType], or ERROR if there is none.
+   */
+  private static final StateType[][] MORPH_STATES =
+      new StateType[CHAR_TYPES.length][CHAR_TYPES.length];
+
+  /**
+   * The LINE_END form of each CharAction.
+   */
+  private static final CharAction[] LINE_END_FORMS = new CharAction[CharAction.values().length];
+
+  static {
+    for (CharType ct : CHAR_TYPES) {
+      if (ct.range != null) {
+        for (int i : ct.range) {
+          CHAR_TYPE_OF[i] = ct;
+        }
+      }
+    }
+    // The catch-all range stops short of 127
+    for (int i = 0; i < CHAR_TYPE_OF.length; i++) {
+      if (CHAR_TYPE_OF[i] == null) {
+        CHAR_TYPE_OF[i] = CharType.OTHER;
+      }
+    }
+    for (StateType st : STATES) {
+      for (CharType ct : CHAR_TYPES) {
+        ACTIONS[st.ordinal()][ct.ordinal()] = action(st, ct);
+      }
+    }
+    for (CharType ct : CHAR_TYPES) {
+      START_STATES[ct.ordinal()] = StateType.ERROR;
+      for (CharType lastCt : CHAR_TYPES) {
+        MORPH_STATES[lastCt.ordinal()][ct.ordinal()] = StateType.ERROR;
+      }
+    }
+    // Go backwards so the first matching state wins, as in the old scans
+    for (int i = STATES.length - 1; i >= 0; i--) {
+      StateType st = STATES[i];
+      START_STATES[st.startCharType.ordinal()] = st;
+      MORPH_STATES[st.morphedFromCharType.ordinal()][st.morphIdentifier.ordinal()] = st;
+    }
+    START_STATES[CharType.NONE.ordinal()] = StateType.ERROR;
+    for (CharType ct : CHAR_TYPES) {
+      MORPH_STATES[CharType.NONE.ordinal()][ct.ordinal()] = StateType.ERROR;
+      MORPH_STATES[ct.ordinal()][CharType.NONE.ordinal()] = StateType.ERROR;
+    }
+    for (CharAction ca : CharAction.values()) {
+      LINE_END_FORMS[ca.ordinal()] = ca;
+    }
+    for (CharAction ca : CharAction.values()) {
+      if (ca.normalForm != null) {
+        LINE_END_FORMS[ca.normalForm.ordinal()] = ca;
+      }
+    }
+  }
+
+  private TransitionTable() {
+  }
+
+  static CharAction getAction(StateType curState, CharType curCharType) {
+    return ACTIONS[curState.ordinal()][curCharType.ordinal()];
+  }
+
+  static CharAction getLineEndForm(CharAction charAction) {
+    return LINE_END_FORMS[charAction.ordinal()];
+  }
+
+  static StateType getStartState(CharType curCharType) {
+    return START_STATES[curCharType.ordinal()];
+  }
+
+  static StateType getMorphState(CharType lastCharType, CharType curCharType) {
+    return MORPH_STATES[lastCharType.ordinal()][curCharType.ordinal()];
+  }
+
+  /**
+   * What Lexer.lex does when it reads a char of the given type in the given state.
+   */
+  private static CharAction action(StateType st, CharType ct) {
+    if (st == StateType.OUTSIDE) {
+      return ct == CharType.OTHER ? CharAction.ERROR : CharAction.START_STATE;
+    }
+    if (st.stopCharType != CharType.NONE) {
+      return ct == st.stopCharType ? CharAction.STOP_STATE_AS_MEMBER : CharAction.CONTINUE_STATE;
+    }
+    if (charTypeInColl(ct, st.continueCharTypes)) {
+      return CharAction.CONTINUE_STATE;
+    }
+    if (charTypeInColl(ct, st.morphToCharTypes)) {
+      return CharAction.MORPH_STATE;
+    }
+    if (charTypeInColl(ct, st.errorCharTypes)) {
+      return CharAction.ERROR;
+    }
+    return CharAction.STOP_STATE_AS_NON_MEMBER;
+  }
+
+  private static boolean charTypeInColl(CharType charType, CharType[] coll) {
+    for (CharType ct : coll) {
+      if (charType == ct || (ct.except != null && CHAR_TYPE_OF[ct.except] != charType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
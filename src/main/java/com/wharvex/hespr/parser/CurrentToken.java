@@ -3,8 +3,14 @@ package com.wharvex.hespr.parser;
 import com.wharvex.hespr.lexer.Token;
 import com.wharvex.hespr.lexer.TokenType;
 
+/**
+ * The parser's window on the tokens. Tokens never change, so the window holds the same Token
+ * objects the TokenStream gives out rather than copies.
+ */
 public class CurrentToken {
 
+  private static final Token NO_TOKEN = new Token("", TokenType.NONE, 0);
+
   private Token prevToken;
   private Token curToken;
   private Token nxtToken;
@@ -14,13 +20,13 @@ public class CurrentToken {
     this.curToken = curToken;
     this.nxtToken = nxtToken;
     this.nxtNxtToken = nxtNxtToken;
-    this.prevToken = new Token("", TokenType.NONE, 0);
+    this.prevToken = NO_TOKEN;
   }
 
   public void setNxtNxtToken(Token nxtNxtToken) {
-    this.prevToken = new Token(this.curToken);
-    this.curToken = new Token(this.nxtToken);
-    this.nxtToken = new Token(this.nxtNxtToken);
+    this.prevToken = this.curToken;
+    this.curToken = this.nxtToken;
+    this.nxtToken = this.nxtNxtToken;
     this.nxtNxtToken = nxtNxtToken;
   }
 
@@ -41,7 +47,7 @@ public class CurrentToken {
   }
 
   public Token getPrevToken() {
-    return new Token(this.prevToken);
+    return this.prevToken;
   }
 
   public TokenType getPrevTokenType() {
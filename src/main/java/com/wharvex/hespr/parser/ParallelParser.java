@@ -0,0 +1,202 @@
+package com.wharvex.hespr.parser;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import com.wharvex.hespr.lexer.PackedTokens;
+import com.wharvex.hespr.lexer.Token;
+import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses the functions of a token list independently, on a ForkJoinPool. A BLOK token only ever
+ * starts a function, and a function's tokens end with the DEDENT that brings the indent level back
+ * to 0 right before the next BLOK, so one scan over the token types is enough to cut the list into
+ * functions. Each function gets its own Parser over a view of the list.
+ *
+ * <p>Since no function depends on another one parsing, the syntax errors of every function are
+ * reported together instead of only the first. Any other failure is reported as Parser would: on
+ * its own if it comes first in the source, and otherwise suppressed on the syntax errors before
+ * it.
+ */
+public class ParallelParser {
+
+  // Batches of functions smaller than this many tokens are not worth a task
+  static final int MIN_BATCH_LEN = 1 << 12;
+
+  private final ForkJoinPool pool;
+  private final int minBatchLen;
+
+  public ParallelParser() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public ParallelParser(ForkJoinPool pool) {
+    this(pool, MIN_BATCH_LEN);
+  }
+
+  ParallelParser(ForkJoinPool pool, int minBatchLen) {
+    this.pool = pool;
+    this.minBatchLen = minBatchLen;
+  }
+
+  /**
+   * Parses the tokens into a program and prints it, like Parser.parse.
+   */
+  public ProgramNode parse(List<Token> tokens) throws Exception {
+    ProgramNode program = this.parseQuietly(tokens);
+    System.out.println(program);
+    return program;
+  }
+
+  /**
+   * Like parse(tokens), but does not print the program.
+   */
+  public ProgramNode parseQuietly(List<Token> tokens) throws Exception {
+    List<Func> funcs = split(tokens);
+    if (funcs == null) {
+      // Leave the error to Parser, which finds it before the first function
+      return new Parser(tokens).parseQuietly();
+    }
+    List<Batch> batches = this.batch(funcs, tokens.size());
+    if (this.pool.getParallelism() > 1 && batches.size() > 1) {
+      this.pool.invoke(new ParseBatches(batches, 0, batches.size()));
+    } else {
+      batches.forEach(Batch::parse);
+    }
+    ProgramNode program = new ProgramNode();
+    List<SyntaxErrorException> errors = new ArrayList<>();
+    List<Exception> failures = new ArrayList<>();
+    for (Func func : funcs) {
+      if (func.error instanceof SyntaxErrorException e) {
+        errors.add(e);
+      } else if (func.error != null && errors.isEmpty()) {
+        throw func.error;
+      } else if (func.error != null) {
+        failures.add(func.error);
+      } else {
+        program.addFunction(func.node);
+      }
+    }
+    if (!errors.isEmpty()) {
+      SyntaxErrorException e = errors.size() == 1 ? errors.get(0) : new SyntaxErrorException(errors);
+      failures.forEach(e::addSuppressed);
+      throw e;
+    }
+    BuiltinBase.addAll(program);
+    return program;
+  }
+
+  /**
+   * Cuts the tokens at each BLOK. Returns null if anything but ENDOFLINEs comes before the first
+   * BLOK, or there is no BLOK at all.
+   */
+  private static List<Func> split(List<Token> tokens) {
+    PackedTokens packed = tokens instanceof PackedTokens p ? p : null;
+    List<Func> ret = new ArrayList<>();
+    int funcStart = -1;
+    for (int i = 0; i < tokens.size(); i++) {
+      TokenType tokenType = packed != null ? packed.getTokenType(i) : tokens.get(i).getTokenType();
+      if (tokenType == TokenType.BLOK) {
+        if (funcStart >= 0) {
+          ret.add(new Func(tokens.subList(funcStart, i), lineNum(tokens, packed, i)));
+        }
+        funcStart = i;
+      } else if (funcStart < 0 && tokenType != TokenType.ENDOFLINE) {
+        return null;
+      }
+    }
+    if (funcStart < 0) {
+      return null;
+    }
+    ret.add(new Func(tokens.subList(funcStart, tokens.size()),
+        lineNum(tokens, packed, tokens.size() - 1)));
+    return ret;
+  }
+
+  private static int lineNum(List<Token> tokens, PackedTokens packed, int idx) {
+    return packed != null ? packed.getTokenLineNum(idx) : tokens.get(idx).getTokenLineNum();
+  }
+
+  /**
+   * Groups neighbouring functions into batches of at least minBatchLen tokens or a share of the
+   * tokens big enough to give each worker a few batches.
+   */
+  private List<Batch> batch(List<Func> funcs, int numTokens) {
+    int minBatchLen = Math.max(this.minBatchLen, numTokens / (this.pool.getParallelism() * 4));
+    List<Batch> ret = new ArrayList<>();
+    int batchStart = 0;
+    int batchLen = 0;
+    for (int i = 0; i < funcs.size(); i++) {
+      batchLen += funcs.get(i).tokens.size();
+      if (batchLen >= minBatchLen || i == funcs.size() - 1) {
+        ret.add(new Batch(funcs.subList(batchStart, i + 1)));
+        batchStart = i + 1;
+        batchLen = 0;
+      }
+    }
+    return ret;
+  }
+
+  private static class Func {
+
+    final List<Token> tokens;
+    // The line of the next BLOK, or of the last token if there is none
+    final int endLineNum;
+    FunctionNode node;
+    Exception error;
+
+    Func(List<Token> tokens, int endLineNum) {
+      this.tokens = tokens;
+      this.endLineNum = endLineNum;
+    }
+
+    void parse() {
+      try {
+        this.node = new Parser(this.tokens, this.endLineNum).parseOnlyFunc();
+      } catch (Exception e) {
+        this.error = e;
+      }
+    }
+  }
+
+  private static class Batch {
+
+    final List<Func> funcs;
+
+    Batch(List<Func> funcs) {
+      this.funcs = funcs;
+    }
+
+    void parse() {
+      this.funcs.forEach(Func::parse);
+    }
+  }
+
+  private static class ParseBatches extends RecursiveAction {
+
+    private final List<Batch> batches;
+    private final int from, to;
+
+    ParseBatches(List<Batch> batches, int from, int to) {
+      this.batches = batches;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from == 1) {
+        this.batches.get(this.from).parse();
+        return;
+      }
+      int mid = (this.from + this.to) / 2;
+      invokeAll(new ParseBatches(this.batches, this.from, mid),
+          new ParseBatches(this.batches, mid, this.to));
+    }
+  }
+}
@@ -2,24 +2,48 @@ package com.wharvex.hespr.parser;
 
 import com.wharvex.hespr.ExcType;
 import com.wharvex.hespr.SyntaxErrorException;
+import com.wharvex.hespr.lexer.ListTokenStream;
 import com.wharvex.hespr.lexer.Token;
+import com.wharvex.hespr.lexer.TokenStream;
 import com.wharvex.hespr.lexer.TokenType;
 import com.wharvex.hespr.parser.builtins.*;
 import com.wharvex.hespr.parser.nodes.*;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Set;
 
 public class Parser {
 
-  private final List<Token> tokens;
+  private static final Token END_OF_FILE = new Token("", TokenType.ENDOFFILE, -1);
+  private static final Token NO_FACTOR = new Token("", TokenType.NONE, -1);
+
+  private final TokenStream tokens;
+  private final Token endOfFile;
   private final CurrentToken curToken;
 
+  /**
+   * Parses the tokens of a list. The list is not changed.
+   */
   public Parser(List<Token> tokens) throws SyntaxErrorException {
+    this(new ListTokenStream(tokens));
+  }
+
+  public Parser(TokenStream tokens) throws SyntaxErrorException {
+    this(tokens, END_OF_FILE);
+  }
+
+  /**
+   * Parses the tokens of a list that is cut out of a longer one, as ParallelParser does, so errors
+   * about running out of tokens point at the line the list ends on instead of no line.
+   */
+  Parser(List<Token> tokens, int endLineNum) throws SyntaxErrorException {
+    this(new ListTokenStream(tokens), new Token("", TokenType.ENDOFFILE, endLineNum));
+  }
+
+  private Parser(TokenStream tokens, Token endOfFile) throws SyntaxErrorException {
     this.tokens = tokens;
+    this.endOfFile = endOfFile;
     this.curToken = new CurrentToken(
         this.optionalPeekToken(0).orElseThrow(() -> new SyntaxErrorException(
             ExcType.EOF_ERROR, 1, "")),
@@ -32,18 +56,11 @@ public class Parser {
   // TOKENS METHODS NOT USED IN PARSERS
 
   private Optional<Token> optionalPeekToken(int idx) throws SyntaxErrorException {
-    if (idx >= this.tokens.size()) {
-      return Optional.empty();
-    }
-    if (this.tokens.get(idx) == null) {
-      throw new SyntaxErrorException(ExcType.INTERNAL_ERROR,
-          "Found a null entry in tokens at index " + idx);
-    }
-    return Optional.of(this.tokens.get(idx));
+    return this.tokens.peek(idx);
   }
 
-  public boolean tokensNotEmpty() {
-    return this.tokens.size() > 0;
+  public boolean tokensNotEmpty() throws SyntaxErrorException {
+    return this.optionalPeekToken(0).isPresent();
   }
 
   private void setCurToken(Token token) {
@@ -51,16 +68,12 @@ public class Parser {
   }
 
   private void updateCurToken() throws SyntaxErrorException {
-    this.setCurToken(this.optionalPeekToken(2).orElse(new Token("", TokenType.ENDOFFILE, -1)));
+    this.setCurToken(this.optionalPeekToken(2).orElse(this.endOfFile));
   }
 
   private Token removeToken() throws SyntaxErrorException {
     if (this.tokensNotEmpty()) {
-      Token ret = this.tokens.remove(0);
-      if (ret == null) {
-        throw new SyntaxErrorException(ExcType.INTERNAL_ERROR,
-            "Found a null entry in tokens at index 0");
-      }
+      Token ret = this.tokens.next();
       this.updateCurToken();
       return ret;
     } else {
@@ -102,24 +115,12 @@ public class Parser {
     return -1;
   }
 
-  private Optional<TokenType> findBeforeNextEOL(List<TokenType> findMe, int startAt)
-      throws SyntaxErrorException {
-    Optional<Token> nextToken = this.optionalPeekToken(startAt);
-    while (nextToken.isPresent() && nextToken.get().getTokenType() != TokenType.ENDOFLINE) {
-      if (findMe.contains(nextToken.get().getTokenType())) {
-        return Optional.of(nextToken.get().getTokenType());
-      }
-      nextToken = this.optionalPeekToken(++startAt);
-    }
-    return Optional.empty();
-  }
-
   private Optional<Token> optionalMatchAndRemoveTokenSafe(TokenType tokenType)
       throws SyntaxErrorException {
     return this.curTokenTypeIs(tokenType) ? Optional.of(this.removeToken()) : Optional.empty();
   }
 
-  private Optional<Token> optionalMatchAndRemoveTokenSafe(List<TokenType> tokenTypes)
+  private Optional<Token> optionalMatchAndRemoveTokenSafe(Set<TokenType> tokenTypes)
       throws SyntaxErrorException {
     return tokenTypes.contains(this.getCurTokenType()) ? Optional.of(this.removeToken())
         : Optional.empty();
@@ -141,7 +142,7 @@ public class Parser {
     return this.getCurTokenType() == tokenType;
   }
 
-  private boolean curTokenTypeIs(List<TokenType> tokenTypes) {
+  private boolean curTokenTypeIs(Set<TokenType> tokenTypes) {
     return tokenTypes.contains(this.getCurTokenType());
   }
 
@@ -152,6 +153,15 @@ public class Parser {
   // PARSERS
 
   public ProgramNode parse() throws Exception {
+    ProgramNode program = this.parseQuietly();
+    System.out.println(program);
+    return program;
+  }
+
+  /**
+   * Like parse(), but does not print the program.
+   */
+  ProgramNode parseQuietly() throws Exception {
     ProgramNode program = new ProgramNode();
     if (this.curTokenTypeIs(TokenType.ENDOFLINE)) {
       this.expectsEndOfLine();
@@ -159,76 +169,64 @@ public class Parser {
     while (!this.curTokenTypeIs(TokenType.ENDOFFILE)) {
       program.addFunction(this.parseFunc());
     }
-    program.addFunction(new BuiltinEnd());
-    program.addFunction(new BuiltinGetRandom());
-    program.addFunction(new BuiltinIntegerToReal());
-    program.addFunction(new BuiltinLeft());
-    program.addFunction(new BuiltinRead());
-    program.addFunction(new BuiltinRealToInteger());
-    program.addFunction(new BuiltinRight());
-    program.addFunction(new BuiltinSquareRoot());
-    program.addFunction(new BuiltinStart());
-    program.addFunction(new BuiltinSubstring());
-    program.addFunction(new BuiltinWrite());
-    System.out.println(program);
+    BuiltinBase.addAll(program);
     return program;
   }
 
-  private Node parseExpression() throws SyntaxErrorException {
-    Node term1 = this.parseTerm();
-    Optional<Token> optionalExpOp = this.optionalMatchAndRemoveTokenSafe(List.of(TokenType.PLUS,
-        TokenType.MINUS));
-    if (optionalExpOp.isEmpty() && this.curTokenTypeIs(
-        Stream.concat(ParserHelper.compareTypes.stream(), ParserHelper.expOrTermEndTypes.stream())
-            .toList())) {
-      return term1;
+  /**
+   * Parses tokens that hold exactly one function, as cut out by ParallelParser. Anything left
+   * after the function is an error, as it is in parse() when the next function does not start.
+   */
+  FunctionNode parseOnlyFunc() throws Exception {
+    FunctionNode ret = this.parseFunc();
+    if (!this.curTokenTypeIs(TokenType.ENDOFFILE)) {
+      throw new SyntaxErrorException(TokenType.BLOK, this.getCurToken());
     }
-    // todo: pass new SyntaxErrorException to orElseThrow
-    TokenType expOpType = optionalExpOp.map(Token::getTokenType).orElseThrow();
-    MathOpNode.MathOpType mathOpType = switch (expOpType) {
-      case PLUS -> MathOpNode.MathOpType.ADD;
-      case MINUS -> MathOpNode.MathOpType.SUBTRACT;
-      default -> throw new SyntaxErrorException(ExcType.INTERNAL_ERROR, "");
-    };
-    return new MathOpNode(mathOpType, term1, this.parseExpression(), this.getCurTokenLineNum());
-  }
-
-  private Node parseTerm() throws SyntaxErrorException {
-    Node factor1 = this.parseFactor();
-    Optional<Token> optionalTermOp = this.optionalMatchAndRemoveTokenSafe(ParserHelper.termOpTypes);
-    if (optionalTermOp.isEmpty() && this.curTokenTypeIs(
-        Stream.of(ParserHelper.expOpTypes, ParserHelper.compareTypes,
-                ParserHelper.expOrTermEndTypes).flatMap(Collection::stream)
-            .collect(Collectors.toList()))) {
-      return factor1;
+    return ret;
+  }
+
+  private Node parseExpression() throws SyntaxErrorException {
+    return this.parseMathOps(ParserHelper.ADD_PRECEDENCE);
+  }
+
+  /**
+   * Parses factors joined by operators that bind at least as tightly as minPrecedence, by
+   * precedence climbing. Operators of the same precedence are folded into the left operand in a
+   * loop, so each token is read once, the tree is left-associative, and recursion only goes as
+   * deep as the number of precedence levels (per pair of parentheses).
+   */
+  private Node parseMathOps(int minPrecedence) throws SyntaxErrorException {
+    Node left = this.parseOperand();
+    int precedence;
+    while ((precedence = ParserHelper.getPrecedenceFromTokenType(this.getCurTokenType()))
+        >= minPrecedence) {
+      MathOpNode.MathOpType mathOpType =
+          ParserHelper.getMathOpTypeFromTokenType(this.removeToken().getTokenType());
+      Node right = this.parseMathOps(precedence + 1);
+      left = new MathOpNode(mathOpType, left, right, this.getCurTokenLineNum());
     }
-    // todo: pass new SyntaxErrorException to orElseThrow
-    TokenType termOpType = optionalTermOp.map(Token::getTokenType)
-        .orElseThrow(() -> new SyntaxErrorException(this.getCurToken()));
-    MathOpNode.MathOpType mathOpType = switch (termOpType) {
-      case TIMES -> MathOpNode.MathOpType.MULTIPLY;
-      case MOD -> MathOpNode.MathOpType.MOD;
-      case DIVIDE -> MathOpNode.MathOpType.DIVIDE;
-      default -> throw new SyntaxErrorException(ExcType.INTERNAL_ERROR, "");
-    };
+    return left;
+  }
 
-    return new MathOpNode(mathOpType, factor1,
-        this.findBeforeNextEOL(List.of(TokenType.PLUS, TokenType.MINUS), 1).isPresent()
-            ? this.parseFactor() : this.parseExpression(), this.getCurTokenLineNum());
+  private Node parseOperand() throws SyntaxErrorException {
+    Node ret = this.parseFactor();
+    if (!this.curTokenTypeIs(ParserHelper.operandEndTypes)) {
+      throw new SyntaxErrorException(this.getCurToken());
+    }
+    return ret;
   }
 
   private Node parseFactor() throws SyntaxErrorException {
     Token factorToken = this.optionalMatchAndRemoveTokenSafe(ParserHelper.factorTypes)
-        .orElse(new Token("", TokenType.NONE, -1));
+        .orElse(NO_FACTOR);
     switch (factorToken.getTokenType()) {
       case MINUS -> {
-        return this.optionalMatchAndRemoveTokenSafe(List.of(TokenType.NUMBER,
-                TokenType.NUMBER_DECIMAL))
+        return this.optionalMatchAndRemoveTokenSafe(ParserHelper.numberTypes)
             .map(ft -> ft.getTokenType() == TokenType.NUMBER ? new IntegerNode(
                 Integer.parseInt("-" + ft.getValueString()), ft.getTokenLineNum())
                 : new RealNode(Float.parseFloat("-" + ft.getValueString()), ft.getTokenLineNum()))
-            .orElseThrow(() -> new SyntaxErrorException(List.of(
-                TokenType.NUMBER, TokenType.NUMBER_DECIMAL), this.getCurToken()));
+            .orElseThrow(() -> new SyntaxErrorException(
+                ParserHelper.numberTypes, this.getCurToken()));
       }
       case NUMBER -> {
         return new IntegerNode(Integer.parseInt(factorToken.getValueString()),
@@ -289,7 +287,7 @@ public class Parser {
     List<VariableNode> variableVars = new ArrayList<>();
     List<VariableNode> constVars = new ArrayList<>();
     Optional<Token> optionalVariablesOrConstantsToken = this.optionalMatchAndRemoveTokenSafe(
-        List.of(TokenType.FLUX, TokenType.PERM));
+        ParserHelper.varConstTypes);
     if (optionalVariablesOrConstantsToken.isEmpty() && !this.curTokenTypeIs(TokenType.INDENT)) {
       throw new SyntaxErrorException(ParserHelper.varConstIndent, this.getCurToken());
     }
@@ -301,7 +299,7 @@ public class Parser {
         constVars = this.parseConstants();
       }
       optionalVariablesOrConstantsToken = this.optionalMatchAndRemoveTokenSafe(
-          List.of(TokenType.FLUX, TokenType.PERM));
+        ParserHelper.varConstTypes);
       if (optionalVariablesOrConstantsToken.isEmpty() && !this.curTokenTypeIs(TokenType.INDENT)) {
         throw new SyntaxErrorException(ParserHelper.varConstIndent, this.getCurToken());
       }
@@ -343,10 +341,9 @@ public class Parser {
     do {
       constDecs.add(this.parseConstant());
       // todo: this could be an endless loop if the file ends with the current line
-      this.optionalMatchAndRemoveTokenSafe(
-              List.of(TokenType.SEMICOLON, TokenType.ENDOFLINE))
-          .orElseThrow(() -> new SyntaxErrorException(List.of(
-              TokenType.SEMICOLON, TokenType.ENDOFLINE), this.getCurToken()));
+      this.optionalMatchAndRemoveTokenSafe(ParserHelper.constEndTypes)
+          .orElseThrow(() -> new SyntaxErrorException(
+              ParserHelper.constEndTypes, this.getCurToken()));
     } while (this.prevTokenTypeIs(TokenType.SEMICOLON));
     this.eatEOLs();
 
@@ -435,11 +432,12 @@ public class Parser {
   }
 
   private AssignmentNode parseAssignment() throws Exception {
+    int lineNum = this.getPrevToken().getTokenLineNum();
     VariableReferenceNode leftSide = this.parseVariableRef();
     this.optionalMatchAndRemoveTokenSafe(TokenType.ASSIGN);
     Node rightSide = this.parseBoolCompare();
     this.expectsEndOfLine();
-    return new AssignmentNode(leftSide, rightSide, this.getCurTokenLineNum());
+    return new AssignmentNode(leftSide, rightSide, lineNum);
   }
 
   private Optional<StatementNode> parseStatement() throws Exception {
@@ -484,7 +482,7 @@ public class Parser {
   }
 
   private ForNode parseWith() throws Exception {
-    Token withToken = new Token(this.getPrevToken());
+    Token withToken = this.getPrevToken();
     this.optionalMatchAndRemoveTokenSafe(TokenType.IDENTIFIER)
         .orElseThrow(() -> new SyntaxErrorException(
             TokenType.IDENTIFIER, this.getCurToken()));
@@ -497,7 +495,7 @@ public class Parser {
     this.expectsEndOfLine();
     return new ForNode(varRef, withRange.getFrom(), withRange.getTo(),
         this.parseStatements().orElseThrow(() -> new SyntaxErrorException(withToken)),
-        this.getCurTokenLineNum());
+        withToken.getTokenLineNum());
   }
 
   private WhenNode parseIf() throws Exception {
@@ -508,7 +506,7 @@ public class Parser {
       this.expectsEndOfLine();
       statements = this.parseStatements()
           .orElseThrow(() -> new SyntaxErrorException(ifOrElsifOrElse));
-      if (optionalMatchAndRemoveTokenSafe(List.of(TokenType.ELIF, TokenType.ELSE)).isPresent()) {
+      if (optionalMatchAndRemoveTokenSafe(ParserHelper.elifElseTypes).isPresent()) {
         return new WhenNode(condition, statements, this.parseIf(), ifOrElsifOrElse.getTokenType(),
             ifOrElsifOrElse.getTokenLineNum());
       } else {
@@ -569,6 +567,6 @@ public class Parser {
     }
     while (!this.curTokenTypeIs(TokenType.ENDOFLINE));
     this.expectsEndOfLine();
-    return new FunctionCallNode(funcName.getValueString(), args, this.getCurTokenLineNum());
+    return new FunctionCallNode(funcName.getValueString(), args, funcName.getTokenLineNum());
   }
 }
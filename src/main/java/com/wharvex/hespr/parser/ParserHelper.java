@@ -3,29 +3,35 @@ package com.wharvex.hespr.parser;
 import com.wharvex.hespr.ExcType;
 import com.wharvex.hespr.SyntaxErrorException;
 import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class ParserHelper {
 
-  static final List<TokenType> dataTypes = List.of(
+  // The token type sets are EnumSets, so checking a token against one is a bit test. Unions are
+  // built here once rather than by the Parser on every call.
+
+  static final Set<TokenType> dataTypes = EnumSet.of(
       TokenType.REAL,
       TokenType.INT,
       TokenType.BOOL,
       TokenType.STR,
       TokenType.CHAR);
-  static final List<TokenType> dataTypesIncArr = List.of(
+  static final Set<TokenType> dataTypesIncArr = EnumSet.of(
       TokenType.ARR,
       TokenType.REAL,
       TokenType.INT,
       TokenType.BOOL,
       TokenType.STR,
       TokenType.CHAR);
-  static final List<TokenType> varConstIndent = List.of(
+  static final Set<TokenType> varConstIndent = EnumSet.of(
       TokenType.FLUX,
       TokenType.PERM,
       TokenType.INDENT);
-  static final List<TokenType> literalTypesIncMinus = List.of(
+  static final Set<TokenType> literalTypesIncMinus = EnumSet.of(
       TokenType.NUMBER_DECIMAL,
       TokenType.NUMBER,
       TokenType.STRINGLITERAL,
@@ -33,14 +39,14 @@ public class ParserHelper {
       TokenType.TRUE,
       TokenType.FALS,
       TokenType.MINUS);
-  static final List<TokenType> statementInitTypes = List.of(
+  static final Set<TokenType> statementInitTypes = EnumSet.of(
       TokenType.WITH,
       TokenType.WHIL,
       TokenType.TILL,
       TokenType.WHEN,
       TokenType.IDENTIFIER,
       TokenType.DEDENT);
-  static final List<TokenType> factorTypes = List.of(
+  static final Set<TokenType> factorTypes = EnumSet.of(
       TokenType.MINUS,
       TokenType.NUMBER,
       TokenType.NUMBER_DECIMAL,
@@ -50,17 +56,35 @@ public class ParserHelper {
       TokenType.FALS,
       TokenType.STRINGLITERAL,
       TokenType.CHARACTERLITERAL);
-  static final List<TokenType> termOpTypes = List.of(
+  static final Set<TokenType> termOpTypes = EnumSet.of(
       TokenType.TIMES,
       TokenType.MOD,
       TokenType.DIVIDE);
-  static final List<TokenType> compareTypes = List.of(
+  static final Set<TokenType> compareTypes = EnumSet.of(
       TokenType.LESSEQUAL, TokenType.LESSTHAN, TokenType.GREATEREQUAL, TokenType.GREATERTHAN,
       TokenType.NOTEQUAL, TokenType.EQUALS);
-  static final List<TokenType> expOpTypes = List.of(TokenType.MINUS, TokenType.PLUS);
-  static final List<TokenType> expOrTermEndTypes = List.of(TokenType.RPAREN,
+  static final Set<TokenType> expOpTypes = EnumSet.of(TokenType.MINUS, TokenType.PLUS);
+  static final Set<TokenType> expOrTermEndTypes = EnumSet.of(TokenType.RPAREN,
       TokenType.ENDOFLINE, TokenType.THEN, TokenType.COMMA, TokenType.RSQUARE);
-  static final List<TokenType> numberTypes = List.of(TokenType.NUMBER, TokenType.NUMBER_DECIMAL);
+  static final Set<TokenType> numberTypes = EnumSet.of(TokenType.NUMBER, TokenType.NUMBER_DECIMAL);
+  static final Set<TokenType> varConstTypes = EnumSet.of(TokenType.FLUX, TokenType.PERM);
+  static final Set<TokenType> constEndTypes = EnumSet.of(TokenType.SEMICOLON, TokenType.ENDOFLINE);
+  static final Set<TokenType> elifElseTypes = EnumSet.of(TokenType.ELIF, TokenType.ELSE);
+  static final Set<TokenType> operandEndTypes =
+      union(termOpTypes, expOpTypes, compareTypes, expOrTermEndTypes);
+
+  // How tightly each math operator binds; 0 means the token is not one
+  static final int ADD_PRECEDENCE = 1;
+  static final int MULTIPLY_PRECEDENCE = 2;
+
+  @SafeVarargs
+  private static Set<TokenType> union(Set<TokenType>... sets) {
+    EnumSet<TokenType> ret = EnumSet.noneOf(TokenType.class);
+    for (Set<TokenType> set : sets) {
+      ret.addAll(set);
+    }
+    return ret;
+  }
 
   public static String listToString(List<?> l) {
     return l == null ? "" : l.stream().map(Object::toString).collect(Collectors.joining("\n    "));
@@ -81,6 +105,26 @@ public class ParserHelper {
     };
   }
 
+  static int getPrecedenceFromTokenType(TokenType tt) {
+    return switch (tt) {
+      case PLUS, MINUS -> ADD_PRECEDENCE;
+      case TIMES, DIVIDE, MOD -> MULTIPLY_PRECEDENCE;
+      default -> 0;
+    };
+  }
+
+  static MathOpNode.MathOpType getMathOpTypeFromTokenType(TokenType tt)
+      throws SyntaxErrorException {
+    return switch (tt) {
+      case PLUS -> MathOpNode.MathOpType.ADD;
+      case MINUS -> MathOpNode.MathOpType.SUBTRACT;
+      case TIMES -> MathOpNode.MathOpType.MULTIPLY;
+      case DIVIDE -> MathOpNode.MathOpType.DIVIDE;
+      case MOD -> MathOpNode.MathOpType.MOD;
+      default -> throw new SyntaxErrorException(ExcType.INTERNAL_ERROR, "");
+    };
+  }
+
   static CompareType getCompTypeFromTokenType(TokenType tt) throws SyntaxErrorException {
     return switch (tt) {
       case EQUALS -> CompareType.EQUALS;
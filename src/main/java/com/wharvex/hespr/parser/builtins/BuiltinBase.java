@@ -2,6 +2,7 @@ package com.wharvex.hespr.parser.builtins;
 
 import com.wharvex.hespr.interpreter.InterpreterDataType;
 import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
 import com.wharvex.hespr.parser.nodes.VariableNode;
 import com.wharvex.hespr.semantic.SemanticErrorException;
 import java.util.List;
@@ -13,6 +14,23 @@ public abstract class BuiltinBase extends FunctionNode {
     super(name, params);
   }
 
+  /**
+   * Adds one of each builtin to the program.
+   */
+  public static void addAll(ProgramNode program) {
+    program.addFunction(new BuiltinEnd());
+    program.addFunction(new BuiltinGetRandom());
+    program.addFunction(new BuiltinIntegerToReal());
+    program.addFunction(new BuiltinLeft());
+    program.addFunction(new BuiltinRead());
+    program.addFunction(new BuiltinRealToInteger());
+    program.addFunction(new BuiltinRight());
+    program.addFunction(new BuiltinSquareRoot());
+    program.addFunction(new BuiltinStart());
+    program.addFunction(new BuiltinSubstring());
+    program.addFunction(new BuiltinWrite());
+  }
+
   public abstract void execute(List<InterpreterDataType> args) throws SemanticErrorException;
 
   public boolean variadicNeedsVar() {
@@ -12,12 +12,13 @@ public class BuiltinRead extends BuiltinBase {
 
   @Override
   public void execute(List<InterpreterDataType> args) {
-    Scanner s = new Scanner(System.in);
-    System.out.println();
+    ProgramIO io = ProgramIO.current();
+    // Not closed, which would close the input under any later Read
+    Scanner s = io.getScanner();
+    io.getOut().println();
     for (InterpreterDataType arg : args) {
       arg.fromString(s.next());
     }
-    s.close();
   }
 
   @Override
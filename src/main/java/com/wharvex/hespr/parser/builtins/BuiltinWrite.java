@@ -1,6 +1,7 @@
 package com.wharvex.hespr.parser.builtins;
 
 import com.wharvex.hespr.interpreter.InterpreterDataType;
+import java.io.PrintStream;
 import java.util.List;
 
 public class BuiltinWrite extends BuiltinBase {
@@ -10,9 +11,10 @@ public class BuiltinWrite extends BuiltinBase {
   }
 
   public void execute(List<InterpreterDataType> args) {
-    System.out.println();
+    PrintStream out = ProgramIO.current().getOut();
+    out.println();
     for (InterpreterDataType arg : args) {
-      System.out.print(arg + " ");
+      out.print(arg + " ");
     }
   }
 
@@ -0,0 +1,60 @@
+package com.wharvex.hespr.parser.builtins;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Scanner;
+
+/**
+ * Where Read and Write read and write for the program running on the current thread. Without one
+ * set, they use System.in and System.out as they always have. HesprServer sets one per request so
+ * programs running side by side each get their own input and output.
+ */
+public final class ProgramIO {
+
+  private static final ThreadLocal<ProgramIO> CURRENT = new ThreadLocal<>();
+
+  // Only created once something reads or writes without a ProgramIO set
+  private static final class Default {
+
+    static final ProgramIO IO = new ProgramIO(null, null);
+  }
+
+  // Null for System.in and System.out, looked up when used so a System.setOut still applies
+  private final InputStream in;
+  private final PrintStream out;
+  // Kept across Reads, since a Scanner reads ahead of the token it returns
+  private Scanner scanner;
+
+  public ProgramIO(InputStream in, PrintStream out) {
+    this.in = in;
+    this.out = out;
+  }
+
+  /**
+   * The ProgramIO set on this thread, or the one over System.in and System.out. There is only one
+   * of those, so every Read shares its Scanner.
+   */
+  public static ProgramIO current() {
+    ProgramIO ret = CURRENT.get();
+    return ret != null ? ret : Default.IO;
+  }
+
+  public static void set(ProgramIO io) {
+    CURRENT.set(io);
+  }
+
+  public static void clear() {
+    CURRENT.remove();
+  }
+
+  public PrintStream getOut() {
+    return this.out != null ? this.out : System.out;
+  }
+
+  public synchronized Scanner getScanner() {
+    if (this.scanner == null) {
+      this.scanner = new Scanner(this.in != null ? this.in : System.in);
+    }
+    return this.scanner;
+  }
+}
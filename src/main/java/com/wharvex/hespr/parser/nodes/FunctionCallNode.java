@@ -7,6 +7,9 @@ import java.util.List;
 public class FunctionCallNode extends StatementNode {
   private List<ArgumentNode> args;
   private final String funcName;
+  private FunctionNode target;
+  private boolean[] typeCheckedArgs;
+  private boolean selfTailCall;
 
   public FunctionCallNode(String funcName, List<ArgumentNode> args, int lineNum) {
     this.funcName = funcName;
@@ -28,6 +31,40 @@ public class FunctionCallNode extends StatementNode {
     return this.args;
   }
 
+  /**
+   * The function CallLinking resolved this call to, or null if it has not run or found something
+   * wrong with the call (the Interpreter then looks the function up and reports the error when
+   * the call is executed).
+   */
+  public FunctionNode getTarget() {
+    return this.target;
+  }
+
+  /**
+   * Which arguments CallLinking proved to have the type of their parameter, so the Interpreter does
+   * not have to check them. Set together with the target.
+   */
+  public boolean[] getTypeCheckedArgs() {
+    return this.typeCheckedArgs;
+  }
+
+  public void link(FunctionNode target, boolean[] typeCheckedArgs) {
+    this.target = target;
+    this.typeCheckedArgs = typeCheckedArgs;
+  }
+
+  /**
+   * Whether TailCallMarking found this to be a call of the enclosing function that nothing in
+   * that function runs after.
+   */
+  public boolean isSelfTailCall() {
+    return this.selfTailCall;
+  }
+
+  public void setSelfTailCall(boolean selfTailCall) {
+    this.selfTailCall = selfTailCall;
+  }
+
   public String toString() {
     return this.getFuncName()
         + "(args: "
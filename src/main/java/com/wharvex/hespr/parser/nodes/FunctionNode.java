@@ -10,6 +10,7 @@ public class FunctionNode extends Node {
   private List<VariableNode> constants;
   private List<VariableNode> variables;
   private List<StatementNode> statements;
+  private int frameSize;
 
   public FunctionNode(
       String name,
@@ -53,6 +54,17 @@ public class FunctionNode extends Node {
     return this.statements;
   }
 
+  /**
+   * The number of slots (params, then variables, then constants) a call to this function needs.
+   */
+  public int getFrameSize() {
+    return this.frameSize;
+  }
+
+  public void setFrameSize(int frameSize) {
+    this.frameSize = frameSize;
+  }
+
   @Override
   public String toString() {
     return this.getName()
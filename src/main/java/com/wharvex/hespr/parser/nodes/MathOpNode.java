@@ -1,5 +1,9 @@
 package com.wharvex.hespr.parser.nodes;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
 public class MathOpNode extends Node {
 
   private class LeftSide {
@@ -41,6 +45,13 @@ public class MathOpNode extends Node {
 
   private MathOpType mathOpType;
 
+  // A final field, so threads that race to build it each see a complete array
+  private record LeftSpine(MathOpNode[] nodes) {
+
+  }
+
+  private LeftSpine leftSpine;
+
   public MathOpNode(MathOpType mathOpType, Node leftNode, Node rightNode, int lineNum) {
     this.mathOpType = mathOpType;
     this.leftSide = new LeftSide(leftNode);
@@ -60,16 +71,46 @@ public class MathOpNode extends Node {
     return this.mathOpType;
   }
 
+  /**
+   * This node and the MathOpNodes below it down the left sides, this one first, for as long as
+   * they match. A long run of operators of the same precedence parses into a tree that leans left
+   * (see Parser.parseMathOps), so code that walks expressions goes down the spine in a loop and
+   * only recurses into the right sides, which keeps the Java stack flat however long the run is.
+   */
+  public MathOpNode[] getLeftSpine(Predicate<MathOpNode> follow) {
+    List<MathOpNode> ret = new ArrayList<>();
+    ret.add(this);
+    Node left = this.getLeftSide();
+    while (left instanceof MathOpNode mon && follow.test(mon)) {
+      ret.add(mon);
+      left = mon.getLeftSide();
+    }
+    return ret.toArray(new MathOpNode[0]);
+  }
+
+  /**
+   * The whole left spine. The Interpreter walks it on every evaluation, so it is only built once;
+   * do not change the array.
+   */
+  public MathOpNode[] getLeftSpine() {
+    LeftSpine ret = this.leftSpine;
+    if (ret == null) {
+      ret = new LeftSpine(this.getLeftSpine(mon -> true));
+      this.leftSpine = ret;
+    }
+    return ret.nodes();
+  }
+
   public String toString() {
-    // If MathOpNodes are nested, you need to recursively go through them to print them, but how do
-    // you know when to stop?
-    // System.out.println("hi");
-    return "("
-        + this.mathOpType.toString()
-        + " "
-        + this.leftSide.toString()
-        + " "
-        + this.rightSide.toString()
-        + ")";
+    MathOpNode[] spine = this.getLeftSpine();
+    var sb = new StringBuilder();
+    for (MathOpNode mon : spine) {
+      sb.append("(").append(mon.mathOpType).append(" ");
+    }
+    sb.append(spine[spine.length - 1].leftSide);
+    for (int i = spine.length - 1; i >= 0; i--) {
+      sb.append(" ").append(spine[i].rightSide).append(")");
+    }
+    return sb.toString();
   }
 }
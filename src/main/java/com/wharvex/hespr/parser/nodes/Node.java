@@ -1,5 +1,7 @@
 package com.wharvex.hespr.parser.nodes;
 
+import com.wharvex.hespr.parser.VariableType;
+
 public abstract class Node {
 
   public int getLineNum() {
@@ -10,7 +12,21 @@ public abstract class Node {
     this.lineNum = lineNum;
   }
 
+  /**
+   * The type TypeAnnotation proved this expression always evaluates to, or null if it has not run
+   * or could not prove one. For a BooleanCompareNode it is the type both sides share.
+   */
+  public VariableType getStaticType() {
+    return this.staticType;
+  }
+
+  public void setStaticType(VariableType staticType) {
+    this.staticType = staticType;
+  }
+
   protected int lineNum;
 
+  private VariableType staticType;
+
   public abstract String toString();
 }
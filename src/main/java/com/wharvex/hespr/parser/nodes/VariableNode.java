@@ -21,6 +21,7 @@ public class VariableNode extends Node {
   private boolean isArray;
   private VariableType type;
   private VariableRange range;
+  private int slot = -1;
 
   public VariableNode(
       String name,
@@ -71,6 +72,7 @@ public class VariableNode extends Node {
     this.lineNum = v.getLineNum();
     this.range = v.getRange();
     this.val = v.getVal();
+    this.slot = v.getSlot();
   }
 
   public VariableType getType() {
@@ -105,6 +107,14 @@ public class VariableNode extends Node {
     this.range = range;
   }
 
+  public int getSlot() {
+    return this.slot;
+  }
+
+  public void setSlot(int slot) {
+    this.slot = slot;
+  }
+
   public String toString() {
     return this.getName()
         + " ("
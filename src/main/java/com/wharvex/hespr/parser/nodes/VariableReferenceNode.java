@@ -4,6 +4,7 @@ public class VariableReferenceNode extends Node {
 
   private final String name;
   private Node arrIdxExp;
+  private int slot = -1;
 
   public VariableReferenceNode(String name, Node arrIdxExp, int lineNum) {
     this.name = name;
@@ -24,6 +25,18 @@ public class VariableReferenceNode extends Node {
     return this.arrIdxExp;
   }
 
+  /**
+   * The index of the referenced variable in its function's frame, or -1 if SlotResolution has not
+   * run or the name is not declared in the enclosing function.
+   */
+  public int getSlot() {
+    return this.slot;
+  }
+
+  public void setSlot(int slot) {
+    this.slot = slot;
+  }
+
   public String toString() {
     return this.getName() + (this.getArrIdxExp() != null ? "[" + this.getArrIdxExp() + "]" : "");
   }
@@ -0,0 +1,112 @@
+package com.wharvex.hespr.semantic;
+
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Links every call site to the function it calls, once, so the Interpreter does not look the name
+ * up in ProgramNode.functions and redo the arity and var checks on every call. Arguments whose
+ * static type matches their parameter's are marked so their runtime type check is skipped too.
+ * Run TypeAnnotation first.
+ *
+ * <p>A call with an unknown name or the wrong arguments is left unlinked rather than reported,
+ * because the Interpreter only reports it if the call is executed.
+ */
+public class CallLinking {
+
+  private ProgramNode program;
+  private int linkedCount;
+
+  public CallLinking(ProgramNode program) {
+    this.program = program;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  /**
+   * The number of call sites linked by the last linkCalls().
+   */
+  public int getLinkedCount() {
+    return this.linkedCount;
+  }
+
+  public void linkCalls() {
+    this.linkedCount = 0;
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (functionNode instanceof BuiltinBase) {
+        continue;
+      }
+      this.linkBlock(functionNode.getStatements());
+    }
+  }
+
+  private void linkBlock(List<StatementNode> statements) {
+    if (statements == null) {
+      return;
+    }
+    for (StatementNode statement : statements) {
+      if (statement instanceof ForNode) {
+        this.linkBlock(((ForNode) statement).getStatements());
+      } else if (statement instanceof WhileNode) {
+        this.linkBlock(((WhileNode) statement).getStatements());
+      } else if (statement instanceof RepeatNode) {
+        this.linkBlock(((RepeatNode) statement).getStatements());
+      } else if (statement instanceof WhenNode) {
+        Optional<WhenNode> possibleNextWhen = Optional.of((WhenNode) statement);
+        while (possibleNextWhen.isPresent()) {
+          this.linkBlock(possibleNextWhen.get().getStatements());
+          possibleNextWhen = possibleNextWhen.get().getNextWhen();
+        }
+      } else if (statement instanceof FunctionCallNode) {
+        this.linkCall((FunctionCallNode) statement);
+      }
+    }
+  }
+
+  private void linkCall(FunctionCallNode call) {
+    FunctionNode target = this.getProgram().getFunctions().get(call.getFuncName());
+    List<ArgumentNode> args = call.getArgs();
+    if (target == null || (target instanceof BuiltinBase && args == null)) {
+      return;
+    }
+    var typeChecked = new boolean[args.size()];
+    if (target.isVariadic()) {
+      // Builtins take any type
+      for (int j = 0; j < args.size(); j++) {
+        if (((BuiltinBase) target).variadicNeedsVar() && !args.get(j).isVar()) {
+          return;
+        }
+        typeChecked[j] = true;
+      }
+    } else {
+      List<VariableNode> params = target.getParams();
+      if (params.size() != args.size()) {
+        return;
+      }
+      for (int j = 0; j < args.size(); j++) {
+        VariableNode param = params.get(j);
+        if (param.getIsChangeable() && !args.get(j).isVar()) {
+          return;
+        }
+        typeChecked[j] = param.getType() == VariableType.ANY
+            || param.getType() == args.get(j).getArg().getStaticType();
+      }
+    }
+    call.link(target, typeChecked);
+    this.linkedCount++;
+  }
+}
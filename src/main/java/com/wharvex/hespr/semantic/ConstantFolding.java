@@ -0,0 +1,522 @@
+package com.wharvex.hespr.semantic;
+
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.CharacterDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.CompareType;
+import com.wharvex.hespr.parser.VariableRange;
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.BooleanNode;
+import com.wharvex.hespr.parser.nodes.CharacterNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode.MathOpType;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RealNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Builds a copy of the program with its constant expressions evaluated ahead of time. Run
+ * SlotResolution first (and TypeAnnotation on the result, not the input). It:
+ *
+ * <ul>
+ *   <li>folds math on literals, including string concatenation, into a literal;</li>
+ *   <li>replaces references to perm constants that have a literal value with that literal;</li>
+ *   <li>simplifies integer x + 0, x - 0, x * 1 and x / 1 (and real x - 0.0, x * 1.0, x / 1.0) to
+ *   x, and regroups concatenations so adjacent string literals meet;</li>
+ *   <li>drops when branches and loops whose condition compares two literals and is false, and
+ *   turns a when branch whose condition is always true into the else.</li>
+ * </ul>
+ *
+ * <p>Only folds that give exactly what the Interpreter would are done: anything the Interpreter
+ * would reject at runtime (integer division by zero, math on booleans, mixed types...) is left
+ * for it to report. Since the Interpreter hands out a variable's own IDT when a bare reference is
+ * evaluated, x + 0 is not simplified to x where that matters (the bounds of a for loop and
+ * arguments to a call).
+ */
+public class ConstantFolding {
+
+  private ProgramNode program;
+  private WrittenParams writtenParams;
+  private int foldedCount;
+
+  public ConstantFolding(ProgramNode program) {
+    this.program = program;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  /**
+   * The number of nodes folded away by the last foldConstants().
+   */
+  public int getFoldedCount() {
+    return this.foldedCount;
+  }
+
+  public ProgramNode foldConstants() {
+    this.foldedCount = 0;
+    this.writtenParams = new WrittenParams(this.getProgram());
+    var ret = new ProgramNode();
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (functionNode instanceof BuiltinBase) {
+        ret.addFunction(functionNode);
+      } else {
+        ret.addFunction(new FunctionFolder(functionNode).fold());
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * The state of folding one function.
+   */
+  private class FunctionFolder {
+
+    private final FunctionNode functionNode;
+    private final FunctionTypes types;
+    // The literal values of the constants that can be propagated, by slot
+    private final HashMap<Integer, Node> constantValues = new HashMap<>();
+
+    FunctionFolder(FunctionNode functionNode) {
+      this.functionNode = functionNode;
+      this.types = new FunctionTypes(functionNode);
+    }
+
+    FunctionNode fold() {
+      List<VariableNode> params = null;
+      if (this.functionNode.getParams() != null) {
+        params = new ArrayList<>();
+        for (VariableNode v : this.functionNode.getParams()) {
+          params.add(new VariableNode(v));
+        }
+      }
+      // Variables are declared before any constant exists, so nothing is propagated into them
+      List<VariableNode> variables = null;
+      if (this.functionNode.getVariables() != null) {
+        variables = new ArrayList<>();
+        for (VariableNode v : this.functionNode.getVariables()) {
+          variables.add(this.foldDeclaration(v));
+        }
+      }
+      Set<Integer> writtenSlots =
+          ConstantFolding.this.writtenParams.findWrittenSlots(this.functionNode);
+      List<VariableNode> constants = null;
+      if (this.functionNode.getConstants() != null) {
+        constants = new ArrayList<>();
+        for (VariableNode v : this.functionNode.getConstants()) {
+          VariableNode folded = this.foldDeclaration(v);
+          constants.add(folded);
+          // A constant can still change if it is passed as a var argument, or passed bare to a
+          // param the function writes to, which the Interpreter aliases to the constant
+          if (isLiteral(folded.getVal()) && folded.getSlot() >= 0
+              && !writtenSlots.contains(folded.getSlot())) {
+            this.constantValues.put(folded.getSlot(), folded.getVal());
+          }
+        }
+      }
+      var ret = new FunctionNode(this.functionNode.getName(), params, variables, constants,
+          this.foldBlock(this.functionNode.getStatements()), this.functionNode.getLineNum());
+      ret.setLineNum(this.functionNode.getLineNum());
+      ret.setFrameSize(this.functionNode.getFrameSize());
+      return ret;
+    }
+
+    private VariableNode foldDeclaration(VariableNode v) {
+      var ret = new VariableNode(v);
+      if (v.getRange() != null) {
+        ret.setRange(new VariableRange(this.foldExpression(v.getRange().getFrom(), false),
+            this.foldExpression(v.getRange().getTo(), false)));
+      }
+      ret.setVal(this.foldExpression(v.getVal(), false));
+      return ret;
+    }
+
+    private List<StatementNode> foldBlock(List<StatementNode> statements) {
+      if (statements == null) {
+        return null;
+      }
+      var ret = new ArrayList<StatementNode>();
+      for (StatementNode statement : statements) {
+        if (statement instanceof AssignmentNode) {
+          AssignmentNode an = (AssignmentNode) statement;
+          ret.add(new AssignmentNode(
+              (VariableReferenceNode) this.foldReference(an.getLeftSide(), false),
+              this.foldExpression(an.getRightSide(), false), an.getLineNum()));
+        } else if (statement instanceof ForNode) {
+          ForNode fn = (ForNode) statement;
+          ret.add(new ForNode((VariableReferenceNode) this.foldReference(fn.getVarRef(), false),
+              this.foldExpression(fn.getFrom(), true), this.foldExpression(fn.getTo(), true),
+              this.foldBlock(fn.getStatements()), fn.getLineNum()));
+        } else if (statement instanceof WhileNode) {
+          WhileNode wn = (WhileNode) statement;
+          Node condition = this.foldExpression(wn.getCondition(), false);
+          if (constantCondition(condition) == Boolean.FALSE) {
+            ConstantFolding.this.foldedCount++;
+          } else {
+            ret.add(new WhileNode(condition, this.foldBlock(wn.getStatements()),
+                wn.getLineNum()));
+          }
+        } else if (statement instanceof RepeatNode) {
+          RepeatNode rn = (RepeatNode) statement;
+          // Like the Interpreter, this checks the condition before the first pass
+          Node condition = this.foldExpression(rn.getCondition(), false);
+          if (constantCondition(condition) == Boolean.TRUE) {
+            ConstantFolding.this.foldedCount++;
+          } else {
+            ret.add(new RepeatNode(condition, this.foldBlock(rn.getStatements()),
+                rn.getLineNum()));
+          }
+        } else if (statement instanceof WhenNode) {
+          this.foldWhen((WhenNode) statement, ret);
+        } else if (statement instanceof FunctionCallNode) {
+          FunctionCallNode fcn = (FunctionCallNode) statement;
+          List<ArgumentNode> args = null;
+          if (fcn.getArgs() != null) {
+            args = new ArrayList<>();
+            for (ArgumentNode arg : fcn.getArgs()) {
+              Node folded = arg.isVar() ? this.foldReference((VariableReferenceNode) arg.getArg(),
+                  false) : this.foldExpression(arg.getArg(), true);
+              args.add(new ArgumentNode(folded, arg.isVar(), arg.getLineNum()));
+            }
+          }
+          ret.add(new FunctionCallNode(fcn.getFuncName(), args, fcn.getLineNum()));
+        } else {
+          ret.add(statement);
+        }
+      }
+      return ret;
+    }
+
+    /**
+     * Adds the folded when chain to the block. If its first remaining branch always runs, its
+     * statements are added instead.
+     */
+    private void foldWhen(WhenNode whenNode, List<StatementNode> block) {
+      var branches = new ArrayList<WhenNode>();
+      Optional<WhenNode> possibleNextWhen = Optional.of(whenNode);
+      while (possibleNextWhen.isPresent()) {
+        WhenNode branch = possibleNextWhen.get();
+        List<StatementNode> statements = this.foldBlock(branch.getStatements());
+        if (branch.getWhenOrElifOrElse() == TokenType.ELSE) {
+          branches.add(new WhenNode(null, statements, TokenType.ELSE, branch.getLineNum()));
+          break;
+        }
+        Node condition = this.foldExpression(branch.getCondition(), false);
+        Boolean met = constantCondition(condition);
+        if (met == Boolean.FALSE) {
+          ConstantFolding.this.foldedCount++;
+        } else if (met == Boolean.TRUE) {
+          ConstantFolding.this.foldedCount++;
+          branches.add(new WhenNode(null, statements, TokenType.ELSE, branch.getLineNum()));
+          break;
+        } else {
+          branches.add(new WhenNode(condition, statements,
+              branches.isEmpty() ? TokenType.WHEN : branch.getWhenOrElifOrElse(),
+              branch.getLineNum()));
+        }
+        possibleNextWhen = branch.getNextWhen();
+      }
+      if (branches.isEmpty()) {
+        return;
+      }
+      if (branches.get(0).getWhenOrElifOrElse() == TokenType.ELSE) {
+        block.addAll(branches.get(0).getStatements());
+        return;
+      }
+      // Link the chain back up from the end
+      WhenNode next = null;
+      for (int i = branches.size() - 1; i >= 0; i--) {
+        WhenNode b = branches.get(i);
+        next = new WhenNode(b.getCondition(), b.getStatements(), next, b.getWhenOrElifOrElse(),
+            b.getLineNum());
+      }
+      block.add(next);
+    }
+
+    /**
+     * @param aliased whether the caller could hold on to the IDT the Interpreter evaluates this
+     *                to, in which case it must not be simplified to a bare variable reference
+     */
+    private Node foldExpression(Node node, boolean aliased) {
+      if (node instanceof VariableReferenceNode) {
+        return this.foldReference((VariableReferenceNode) node, true);
+      } else if (node instanceof MathOpNode) {
+        return this.foldMathOp((MathOpNode) node, aliased);
+      } else if (node instanceof BooleanCompareNode) {
+        BooleanCompareNode bcn = (BooleanCompareNode) node;
+        return new BooleanCompareNode(bcn.getCompareType(),
+            this.foldExpression(bcn.getLeftSide(), false),
+            this.foldExpression(bcn.getRightSide(), false), bcn.getLineNum());
+      }
+      return copyLiteral(node, node == null ? 0 : node.getLineNum());
+    }
+
+    private Node foldReference(VariableReferenceNode vrn, boolean propagate) {
+      if (vrn.getArrIdxExp() == null && propagate
+          && this.constantValues.containsKey(vrn.getSlot())) {
+        ConstantFolding.this.foldedCount++;
+        return copyLiteral(this.constantValues.get(vrn.getSlot()), vrn.getLineNum());
+      }
+      var ret = new VariableReferenceNode(vrn.getName(),
+          vrn.getArrIdxExp() == null ? null : this.foldExpression(vrn.getArrIdxExp(), false),
+          vrn.getLineNum());
+      ret.setSlot(vrn.getSlot());
+      return ret;
+    }
+
+    private Node foldMathOp(MathOpNode mon, boolean aliased) {
+      MathOpNode[] spine = mon.getLeftSpine();
+      Node left = this.foldExpression(spine[spine.length - 1].getLeftSide(), false);
+      for (int i = spine.length - 1; i >= 0; i--) {
+        left = this.foldMathOp(spine[i], left, i == 0 && aliased);
+      }
+      return left;
+    }
+
+    /**
+     * Folds mon with its left side already folded.
+     */
+    private Node foldMathOp(MathOpNode mon, Node left, boolean aliased) {
+      Node right = this.foldExpression(mon.getRightSide(), false);
+      MathOpType op = mon.getMathOpType();
+      int lineNum = mon.getLineNum();
+      if (isLiteral(left) && isLiteral(right)) {
+        InterpreterDataType result = evaluate(op, toIdt(left), toIdt(right));
+        if (result != null) {
+          ConstantFolding.this.foldedCount++;
+          return toLiteral(result, lineNum);
+        }
+      }
+      // "a" + ("b" + x) is ("a" + "b") + x, and (x + "a") + "b" is x + ("a" + "b"), whatever x is
+      if (op == MathOpType.ADD && isLiteral(left) && !(left instanceof BooleanNode)
+          && right instanceof MathOpNode && isConcatWithString((MathOpNode) right, true)) {
+        MathOpNode inner = (MathOpNode) right;
+        ConstantFolding.this.foldedCount++;
+        return new MathOpNode(MathOpType.ADD,
+            toLiteral(evaluate(op, toIdt(left), toIdt(inner.getLeftSide())), lineNum),
+            inner.getRightSide(), lineNum);
+      }
+      if (op == MathOpType.ADD && isLiteral(right) && !(right instanceof BooleanNode)
+          && left instanceof MathOpNode && isConcatWithString((MathOpNode) left, false)) {
+        MathOpNode inner = (MathOpNode) left;
+        ConstantFolding.this.foldedCount++;
+        return new MathOpNode(MathOpType.ADD, inner.getLeftSide(),
+            toLiteral(evaluate(op, toIdt(inner.getRightSide()), toIdt(right)), lineNum), lineNum);
+      }
+      var ret = new MathOpNode(op, left, right, lineNum);
+      Node simplified = this.simplifyIdentity(ret);
+      if (simplified != ret && !(aliased && simplified instanceof VariableReferenceNode)) {
+        ConstantFolding.this.foldedCount++;
+        return simplified;
+      }
+      return ret;
+    }
+
+    /**
+     * Returns the operand mon can be replaced by, or mon itself.
+     */
+    private Node simplifyIdentity(MathOpNode mon) {
+      VariableType type = this.types.typeOf(mon);
+      if (type != VariableType.INTEGER && type != VariableType.REAL) {
+        return mon;
+      }
+      Node left = mon.getLeftSide();
+      Node right = mon.getRightSide();
+      switch (mon.getMathOpType()) {
+        case ADD -> {
+          // For reals -0.0 + 0.0 is 0.0, so only integers
+          if (type == VariableType.INTEGER && isNumber(left, 0)) {
+            return right;
+          } else if (type == VariableType.INTEGER && isNumber(right, 0)) {
+            return left;
+          }
+        }
+        case SUBTRACT -> {
+          if (isNumber(right, 0)) {
+            return left;
+          }
+        }
+        case MULTIPLY -> {
+          if (isNumber(left, 1)) {
+            return right;
+          } else if (isNumber(right, 1)) {
+            return left;
+          }
+        }
+        case DIVIDE -> {
+          if (isNumber(right, 1)) {
+            return left;
+          }
+        }
+        default -> {
+        }
+      }
+      return mon;
+    }
+  }
+
+  /**
+   * Whether mon is an addition whose left (or right) side is a string literal, so that it
+   * evaluates to a string no matter what the other side is.
+   */
+  private static boolean isConcatWithString(MathOpNode mon, boolean stringOnLeft) {
+    return mon.getMathOpType() == MathOpType.ADD
+        && (stringOnLeft ? mon.getLeftSide() : mon.getRightSide()) instanceof StringNode;
+  }
+
+  /**
+   * What the Interpreter's booleanCompare() would return, or null if the condition is not a
+   * comparison of two literals it accepts.
+   */
+  private static Boolean constantCondition(Node condition) {
+    if (!(condition instanceof BooleanCompareNode)) {
+      return null;
+    }
+    BooleanCompareNode bcn = (BooleanCompareNode) condition;
+    CompareType compareType = bcn.getCompareType();
+    Node left = bcn.getLeftSide();
+    Node right = bcn.getRightSide();
+    if (left instanceof IntegerNode && right instanceof IntegerNode) {
+      int l = ((IntegerNode) left).getVal();
+      int r = ((IntegerNode) right).getVal();
+      return switch (compareType) {
+        case LESSTHAN -> l < r;
+        case GREATERTHAN -> l > r;
+        case GREATEREQUAL -> l >= r;
+        case LESSEQUAL -> l <= r;
+        case EQUALS -> l == r;
+        default -> false;
+      };
+    } else if (left instanceof RealNode && right instanceof RealNode) {
+      float l = ((RealNode) left).getVal();
+      float r = ((RealNode) right).getVal();
+      return switch (compareType) {
+        case LESSTHAN -> l < r;
+        case GREATERTHAN -> l > r;
+        case GREATEREQUAL -> l >= r;
+        case LESSEQUAL -> l <= r;
+        case EQUALS -> l == r;
+        default -> false;
+      };
+    }
+    return null;
+  }
+
+  /**
+   * What the Interpreter's expression() gives for the math, or null if it would throw.
+   */
+  private static InterpreterDataType evaluate(MathOpType op, InterpreterDataType left,
+      InterpreterDataType right) {
+    if (left instanceof BooleanDataType || right instanceof BooleanDataType) {
+      return null;
+    }
+    boolean isConcat = left instanceof StringDataType || right instanceof StringDataType;
+    if (isConcat) {
+      return op == MathOpType.ADD ? new StringDataType(left.toString() + right.toString()) : null;
+    }
+    if (left instanceof IntegerDataType && right instanceof IntegerDataType) {
+      int l = ((IntegerDataType) left).getStoredVal();
+      int r = ((IntegerDataType) right).getStoredVal();
+      if (r == 0 && (op == MathOpType.DIVIDE || op == MathOpType.MOD)) {
+        return null;
+      }
+      return new IntegerDataType(switch (op) {
+        case ADD -> l + r;
+        case SUBTRACT -> l - r;
+        case MULTIPLY -> l * r;
+        case DIVIDE -> l / r;
+        case MOD -> l % r;
+      });
+    }
+    if (left instanceof RealDataType && right instanceof RealDataType) {
+      float l = ((RealDataType) left).getStoredVal();
+      float r = ((RealDataType) right).getStoredVal();
+      return new RealDataType(switch (op) {
+        case ADD -> l + r;
+        case SUBTRACT -> l - r;
+        case MULTIPLY -> l * r;
+        case DIVIDE -> l / r;
+        case MOD -> l % r;
+      });
+    }
+    // Mixed types, or characters (which the Interpreter cannot do math on)
+    return null;
+  }
+
+  private static boolean isLiteral(Node node) {
+    return node instanceof IntegerNode || node instanceof RealNode || node instanceof StringNode
+        || node instanceof CharacterNode || node instanceof BooleanNode;
+  }
+
+  private static boolean isNumber(Node node, int value) {
+    return (node instanceof IntegerNode && ((IntegerNode) node).getVal() == value)
+        || (node instanceof RealNode && ((RealNode) node).getVal() == value);
+  }
+
+  private static InterpreterDataType toIdt(Node literal) {
+    if (literal instanceof IntegerNode) {
+      return new IntegerDataType(((IntegerNode) literal).getVal());
+    } else if (literal instanceof RealNode) {
+      return new RealDataType(((RealNode) literal).getVal());
+    } else if (literal instanceof StringNode) {
+      return new StringDataType(((StringNode) literal).getVal());
+    } else if (literal instanceof CharacterNode) {
+      return new CharacterDataType(((CharacterNode) literal).getVal());
+    }
+    return new BooleanDataType(((BooleanNode) literal).getVal());
+  }
+
+  private static Node toLiteral(InterpreterDataType idt, int lineNum) {
+    if (idt instanceof IntegerDataType) {
+      return new IntegerNode(((IntegerDataType) idt).getStoredVal(), lineNum);
+    } else if (idt instanceof RealDataType) {
+      return new RealNode(((RealDataType) idt).getStoredVal(), lineNum);
+    }
+    // StringNode takes the token, quotes and all
+    return new StringNode("\"" + idt + "\"", lineNum);
+  }
+
+  /**
+   * Literals are copied too, so TypeAnnotation can stamp the new program without touching the old
+   * one.
+   */
+  private static Node copyLiteral(Node node, int lineNum) {
+    if (node instanceof IntegerNode) {
+      return new IntegerNode(((IntegerNode) node).getVal(), lineNum);
+    } else if (node instanceof RealNode) {
+      return new RealNode(((RealNode) node).getVal(), lineNum);
+    } else if (node instanceof StringNode) {
+      return new StringNode("\"" + ((StringNode) node).getVal() + "\"", lineNum);
+    } else if (node instanceof CharacterNode) {
+      return new CharacterNode(((CharacterNode) node).getVal(), lineNum);
+    } else if (node instanceof BooleanNode) {
+      return new BooleanNode(((BooleanNode) node).getVal(), lineNum);
+    }
+    return node;
+  }
+}
@@ -0,0 +1,147 @@
+package com.wharvex.hespr.semantic;
+
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.BooleanNode;
+import com.wharvex.hespr.parser.nodes.CharacterNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.RealNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The static types of one function's slots and expressions. Run SlotResolution first.
+ *
+ * <p>typeOf() is strict: it returns null for every expression the Interpreter would reject (or
+ * crash on) at runtime, so anything with a non-null type is safe to evaluate without the
+ * Interpreter's dynamic checks.
+ */
+public class FunctionTypes {
+
+  private final FunctionNode functionNode;
+  private final VariableType[] slotTypes;
+  private final boolean[] arraySlots;
+  // The passes and backends ask for the type of every node of a chain, so remember them
+  private final IdentityHashMap<MathOpNode, VariableType> mathOpTypes = new IdentityHashMap<>();
+
+  public FunctionTypes(FunctionNode functionNode) {
+    this.functionNode = functionNode;
+    this.slotTypes = new VariableType[functionNode.getFrameSize()];
+    this.arraySlots = new boolean[functionNode.getFrameSize()];
+    if (functionNode.getParams() != null) {
+      for (VariableNode v : functionNode.getParams()) {
+        this.declare(v, v.getType());
+      }
+    }
+    if (functionNode.getVariables() != null) {
+      for (VariableNode v : functionNode.getVariables()) {
+        this.declare(v, v.getType());
+      }
+    }
+    // Constants are declared as ANY; their type is the type of their value
+    if (functionNode.getConstants() != null) {
+      for (VariableNode v : functionNode.getConstants()) {
+        this.declare(v, this.typeOf(v.getVal()));
+      }
+    }
+  }
+
+  private void declare(VariableNode v, VariableType type) {
+    if (v.getSlot() < 0) {
+      return;
+    }
+    this.slotTypes[v.getSlot()] = type == VariableType.ANY ? null : type;
+    this.arraySlots[v.getSlot()] = v.getIsArray();
+  }
+
+  public FunctionNode getFunctionNode() {
+    return this.functionNode;
+  }
+
+  /**
+   * For array slots this is the element type.
+   */
+  public VariableType getSlotType(int slot) {
+    return slot < 0 ? null : this.slotTypes[slot];
+  }
+
+  public boolean isArraySlot(int slot) {
+    return slot >= 0 && this.arraySlots[slot];
+  }
+
+  public VariableType typeOf(Node node) {
+    if (node instanceof IntegerNode) {
+      return VariableType.INTEGER;
+    } else if (node instanceof RealNode) {
+      return VariableType.REAL;
+    } else if (node instanceof StringNode) {
+      return VariableType.STRING;
+    } else if (node instanceof BooleanNode) {
+      return VariableType.BOOLEAN;
+    } else if (node instanceof CharacterNode) {
+      return VariableType.CHARACTER;
+    } else if (node instanceof VariableReferenceNode) {
+      VariableReferenceNode vrn = (VariableReferenceNode) node;
+      if (vrn.getArrIdxExp() == null) {
+        // A whole array is not a value
+        return this.isArraySlot(vrn.getSlot()) ? null : this.getSlotType(vrn.getSlot());
+      }
+      if (!this.isArraySlot(vrn.getSlot())
+          || this.typeOf(vrn.getArrIdxExp()) != VariableType.INTEGER) {
+        return null;
+      }
+      return this.getSlotType(vrn.getSlot());
+    } else if (node instanceof MathOpNode) {
+      return this.typeOfMathOp((MathOpNode) node);
+    }
+    // BooleanCompareNode is only meaningful as a condition, see typeOfComparison
+    return null;
+  }
+
+  private VariableType typeOfMathOp(MathOpNode mon) {
+    if (this.mathOpTypes.containsKey(mon)) {
+      return this.mathOpTypes.get(mon);
+    }
+    MathOpNode[] spine = mon.getLeftSpine(m -> !this.mathOpTypes.containsKey(m));
+    VariableType type = this.typeOf(spine[spine.length - 1].getLeftSide());
+    for (int i = spine.length - 1; i >= 0; i--) {
+      MathOpNode m = spine[i];
+      type = typeOfMathOp(m.getMathOpType(), type, this.typeOf(m.getRightSide()));
+      this.mathOpTypes.put(m, type);
+    }
+    return type;
+  }
+
+  private static VariableType typeOfMathOp(MathOpNode.MathOpType op, VariableType left,
+      VariableType right) {
+    if (left == null || right == null || left == VariableType.BOOLEAN
+        || right == VariableType.BOOLEAN) {
+      return null;
+    }
+    if (left == VariableType.STRING || right == VariableType.STRING) {
+      return op == MathOpNode.MathOpType.ADD ? VariableType.STRING : null;
+    }
+    if (left != right || left == VariableType.CHARACTER) {
+      return null;
+    }
+    return left;
+  }
+
+  /**
+   * Returns the type both sides of the comparison share (INTEGER or REAL), or null if the
+   * Interpreter would reject the comparison.
+   */
+  public VariableType typeOfComparison(BooleanCompareNode bcn) {
+    VariableType left = this.typeOf(bcn.getLeftSide());
+    if (left != this.typeOf(bcn.getRightSide())) {
+      return null;
+    }
+    return left == VariableType.INTEGER || left == VariableType.REAL ? left : null;
+  }
+}
@@ -109,16 +109,16 @@ public class SemanticAnalysis {
         return VariableType.BOOLEAN;
       }
     } else {
-      VariableType mathOpLeftSideType = this.expression(
-          ((MathOpNode) node).getLeftSide(), varTypes);
-      VariableType mathOpRightSideType = this.expression(
-          ((MathOpNode) node).getRightSide(), varTypes);
-      if (mathOpLeftSideType == VariableType.STRING
-          || mathOpRightSideType == VariableType.STRING) {
-        return VariableType.STRING;
-      } else {
-        return mathOpRightSideType;
+      MathOpNode[] spine = ((MathOpNode) node).getLeftSpine();
+      VariableType mathOpType = this.expression(
+          spine[spine.length - 1].getLeftSide(), varTypes);
+      for (int i = spine.length - 1; i >= 0; i--) {
+        VariableType mathOpRightSideType = this.expression(spine[i].getRightSide(), varTypes);
+        if (mathOpType != VariableType.STRING) {
+          mathOpType = mathOpRightSideType;
+        }
       }
+      return mathOpType;
     }
     return VariableType.ANY;
   }
@@ -0,0 +1,158 @@
+package com.wharvex.hespr.semantic;
+
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Gives every param, variable and constant of a function a fixed index into that function's frame
+ * (params first, then variables, then constants) and stamps that index onto every
+ * VariableReferenceNode in the function, so the Interpreter can use plain arrays as frames instead
+ * of looking variables up by name.
+ *
+ * <p>References to names that are not declared in the enclosing function keep slot -1; the
+ * Interpreter reports those when (and only if) they are executed, like it always has.
+ */
+public class SlotResolution {
+
+  private ProgramNode program;
+
+  public SlotResolution(ProgramNode program) {
+    this.program = program;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  public void resolveSlots() throws Exception {
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (functionNode instanceof BuiltinBase) {
+        continue;
+      }
+      this.resolveFunction(functionNode);
+    }
+  }
+
+  private void resolveFunction(FunctionNode functionNode) throws Exception {
+    var slots = new HashMap<String, Integer>();
+    int nextSlot = 0;
+    if (functionNode.getParams() != null) {
+      for (VariableNode variableNode : functionNode.getParams()) {
+        variableNode.setSlot(nextSlot++);
+        slots.put(variableNode.getName(), variableNode.getSlot());
+      }
+    }
+    if (functionNode.getVariables() != null) {
+      for (VariableNode variableNode : functionNode.getVariables()) {
+        if (slots.containsKey(variableNode.getName())) {
+          throw new Exception("Cannot redeclare parameter " + variableNode.getName());
+        }
+        variableNode.setSlot(nextSlot++);
+        slots.put(variableNode.getName(), variableNode.getSlot());
+      }
+    }
+    if (functionNode.getConstants() != null) {
+      for (VariableNode variableNode : functionNode.getConstants()) {
+        if (slots.containsKey(variableNode.getName())) {
+          throw new Exception("Cannot redeclare parameter/variable " + variableNode.getName());
+        }
+        variableNode.setSlot(nextSlot++);
+        slots.put(variableNode.getName(), variableNode.getSlot());
+      }
+    }
+    functionNode.setFrameSize(nextSlot);
+
+    // Declarations can refer to other names too (ranges and constant values)
+    if (functionNode.getVariables() != null) {
+      for (VariableNode variableNode : functionNode.getVariables()) {
+        this.resolveDeclaration(variableNode, slots);
+      }
+    }
+    if (functionNode.getConstants() != null) {
+      for (VariableNode variableNode : functionNode.getConstants()) {
+        this.resolveDeclaration(variableNode, slots);
+      }
+    }
+    this.resolveBlock(functionNode.getStatements(), slots);
+  }
+
+  private void resolveDeclaration(VariableNode variableNode, HashMap<String, Integer> slots) {
+    if (variableNode.getRange() != null) {
+      this.resolveExpression(variableNode.getRange().getFrom(), slots);
+      this.resolveExpression(variableNode.getRange().getTo(), slots);
+    }
+    this.resolveExpression(variableNode.getVal(), slots);
+  }
+
+  private void resolveBlock(List<StatementNode> statements, HashMap<String, Integer> slots) {
+    if (statements == null) {
+      return;
+    }
+    for (StatementNode statement : statements) {
+      if (statement instanceof AssignmentNode) {
+        this.resolveExpression(((AssignmentNode) statement).getLeftSide(), slots);
+        this.resolveExpression(((AssignmentNode) statement).getRightSide(), slots);
+      } else if (statement instanceof ForNode) {
+        this.resolveExpression(((ForNode) statement).getVarRef(), slots);
+        this.resolveExpression(((ForNode) statement).getFrom(), slots);
+        this.resolveExpression(((ForNode) statement).getTo(), slots);
+        this.resolveBlock(((ForNode) statement).getStatements(), slots);
+      } else if (statement instanceof WhileNode) {
+        this.resolveExpression(((WhileNode) statement).getCondition(), slots);
+        this.resolveBlock(((WhileNode) statement).getStatements(), slots);
+      } else if (statement instanceof RepeatNode) {
+        this.resolveExpression(((RepeatNode) statement).getCondition(), slots);
+        this.resolveBlock(((RepeatNode) statement).getStatements(), slots);
+      } else if (statement instanceof WhenNode) {
+        Optional<WhenNode> possibleNextWhen = Optional.of((WhenNode) statement);
+        while (possibleNextWhen.isPresent()) {
+          this.resolveExpression(possibleNextWhen.get().getCondition(), slots);
+          this.resolveBlock(possibleNextWhen.get().getStatements(), slots);
+          possibleNextWhen = possibleNextWhen.get().getNextWhen();
+        }
+      } else if (statement instanceof FunctionCallNode) {
+        List<ArgumentNode> args = ((FunctionCallNode) statement).getArgs();
+        if (args != null) {
+          for (ArgumentNode arg : args) {
+            this.resolveExpression(arg.getArg(), slots);
+          }
+        }
+      }
+    }
+  }
+
+  private void resolveExpression(Node node, HashMap<String, Integer> slots) {
+    if (node instanceof VariableReferenceNode) {
+      VariableReferenceNode vrn = (VariableReferenceNode) node;
+      vrn.setSlot(slots.getOrDefault(vrn.getName(), -1));
+      this.resolveExpression(vrn.getArrIdxExp(), slots);
+    } else if (node instanceof MathOpNode) {
+      for (MathOpNode mon : ((MathOpNode) node).getLeftSpine()) {
+        this.resolveExpression(mon.getRightSide(), slots);
+        if (!(mon.getLeftSide() instanceof MathOpNode)) {
+          this.resolveExpression(mon.getLeftSide(), slots);
+        }
+      }
+    } else if (node instanceof BooleanCompareNode) {
+      this.resolveExpression(((BooleanCompareNode) node).getLeftSide(), slots);
+      this.resolveExpression(((BooleanCompareNode) node).getRightSide(), slots);
+    }
+  }
+}
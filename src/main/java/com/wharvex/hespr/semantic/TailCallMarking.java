@@ -0,0 +1,66 @@
+package com.wharvex.hespr.semantic;
+
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Marks the calls a function makes to itself as its last statement, or as the last statement of a
+ * when/elif/else branch that is itself in that position. The Interpreter runs those as a loop in
+ * the same frame, so recursion like gcdRec's does not grow the Java stack.
+ *
+ * <p>Calls that are the last statement of a loop body are not tail calls: the loop may go on.
+ */
+public class TailCallMarking {
+
+  private ProgramNode program;
+  private int markedCount;
+
+  public TailCallMarking(ProgramNode program) {
+    this.program = program;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  /**
+   * The number of calls marked by the last markTailCalls().
+   */
+  public int getMarkedCount() {
+    return this.markedCount;
+  }
+
+  public void markTailCalls() {
+    this.markedCount = 0;
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (functionNode instanceof BuiltinBase) {
+        continue;
+      }
+      this.markTail(functionNode.getStatements(), functionNode.getName());
+    }
+  }
+
+  private void markTail(List<StatementNode> statements, String funcName) {
+    if (statements == null || statements.isEmpty()) {
+      return;
+    }
+    StatementNode last = statements.get(statements.size() - 1);
+    if (last instanceof FunctionCallNode
+        && ((FunctionCallNode) last).getFuncName().equals(funcName)) {
+      ((FunctionCallNode) last).setSelfTailCall(true);
+      this.markedCount++;
+    } else if (last instanceof WhenNode) {
+      Optional<WhenNode> possibleNextWhen = Optional.of((WhenNode) last);
+      while (possibleNextWhen.isPresent()) {
+        this.markTail(possibleNextWhen.get().getStatements(), funcName);
+        possibleNextWhen = possibleNextWhen.get().getNextWhen();
+      }
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.wharvex.hespr.semantic;
+
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stamps the static type (see FunctionTypes) onto every expression node, so the Interpreter can
+ * evaluate typed expressions on raw ints and floats instead of allocating an InterpreterDataType
+ * per operation. Run SlotResolution first.
+ */
+public class TypeAnnotation {
+
+  private ProgramNode program;
+
+  public TypeAnnotation(ProgramNode program) {
+    this.program = program;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  public void annotateTypes() {
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (functionNode instanceof BuiltinBase) {
+        continue;
+      }
+      var types = new FunctionTypes(functionNode);
+      for (VariableNode variableNode : functionNode.getVariables()) {
+        if (variableNode.getRange() != null) {
+          this.annotateExpression(variableNode.getRange().getFrom(), types);
+          this.annotateExpression(variableNode.getRange().getTo(), types);
+        }
+      }
+      for (VariableNode variableNode : functionNode.getConstants()) {
+        this.annotateExpression(variableNode.getVal(), types);
+      }
+      this.annotateBlock(functionNode.getStatements(), types);
+    }
+  }
+
+  private void annotateBlock(List<StatementNode> statements, FunctionTypes types) {
+    if (statements == null) {
+      return;
+    }
+    for (StatementNode statement : statements) {
+      if (statement instanceof AssignmentNode) {
+        this.annotateExpression(((AssignmentNode) statement).getLeftSide(), types);
+        this.annotateExpression(((AssignmentNode) statement).getRightSide(), types);
+      } else if (statement instanceof ForNode) {
+        this.annotateExpression(((ForNode) statement).getVarRef(), types);
+        this.annotateExpression(((ForNode) statement).getFrom(), types);
+        this.annotateExpression(((ForNode) statement).getTo(), types);
+        this.annotateBlock(((ForNode) statement).getStatements(), types);
+      } else if (statement instanceof WhileNode) {
+        this.annotateExpression(((WhileNode) statement).getCondition(), types);
+        this.annotateBlock(((WhileNode) statement).getStatements(), types);
+      } else if (statement instanceof RepeatNode) {
+        this.annotateExpression(((RepeatNode) statement).getCondition(), types);
+        this.annotateBlock(((RepeatNode) statement).getStatements(), types);
+      } else if (statement instanceof WhenNode) {
+        Optional<WhenNode> possibleNextWhen = Optional.of((WhenNode) statement);
+        while (possibleNextWhen.isPresent()) {
+          this.annotateExpression(possibleNextWhen.get().getCondition(), types);
+          this.annotateBlock(possibleNextWhen.get().getStatements(), types);
+          possibleNextWhen = possibleNextWhen.get().getNextWhen();
+        }
+      } else if (statement instanceof FunctionCallNode) {
+        List<ArgumentNode> args = ((FunctionCallNode) statement).getArgs();
+        if (args != null) {
+          for (ArgumentNode arg : args) {
+            this.annotateExpression(arg.getArg(), types);
+          }
+        }
+      }
+    }
+  }
+
+  private void annotateExpression(Node node, FunctionTypes types) {
+    if (node == null) {
+      return;
+    }
+    if (node instanceof VariableReferenceNode) {
+      this.annotateExpression(((VariableReferenceNode) node).getArrIdxExp(), types);
+    } else if (node instanceof MathOpNode) {
+      MathOpNode[] spine = ((MathOpNode) node).getLeftSpine();
+      this.annotateExpression(spine[spine.length - 1].getLeftSide(), types);
+      for (int i = spine.length - 1; i > 0; i--) {
+        this.annotateExpression(spine[i].getRightSide(), types);
+        spine[i].setStaticType(types.typeOf(spine[i]));
+      }
+      this.annotateExpression(((MathOpNode) node).getRightSide(), types);
+    } else if (node instanceof BooleanCompareNode) {
+      this.annotateExpression(((BooleanCompareNode) node).getLeftSide(), types);
+      this.annotateExpression(((BooleanCompareNode) node).getRightSide(), types);
+      node.setStaticType(types.typeOfComparison((BooleanCompareNode) node));
+      return;
+    }
+    node.setStaticType(types.typeOf(node));
+  }
+}
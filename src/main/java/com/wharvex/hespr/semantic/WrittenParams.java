@@ -0,0 +1,125 @@
+package com.wharvex.hespr.semantic;
+
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Finds the params each function of a program can write to. The Interpreter hands a function the
+ * caller's own IDT for any argument that is a bare variable reference, $ or not, so writing to a
+ * param also writes to the caller's variable. Run SlotResolution first.
+ *
+ * <p>A slot counts as written if it is assigned to, is a for loop variable, is passed as a $
+ * argument, or is passed bare to a param that is written. Builtins only write to $ arguments.
+ */
+public class WrittenParams {
+
+  private final ProgramNode program;
+  // Whether each param is written, by function name
+  private final HashMap<String, boolean[]> written = new HashMap<>();
+
+  public WrittenParams(ProgramNode program) {
+    this.program = program;
+    for (FunctionNode fn : program.getFunctions().values()) {
+      if (!(fn instanceof BuiltinBase) && fn.getParams() != null) {
+        this.written.put(fn.getName(), new boolean[fn.getParams().size()]);
+      }
+    }
+    // A param passed bare to a written param is written too, so go until nothing changes
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (FunctionNode fn : program.getFunctions().values()) {
+        boolean[] params = this.written.get(fn.getName());
+        if (params == null || fn instanceof BuiltinBase) {
+          continue;
+        }
+        Set<Integer> slots = this.findWrittenSlots(fn);
+        for (int i = 0; i < params.length; i++) {
+          if (!params[i] && slots.contains(fn.getParams().get(i).getSlot())) {
+            params[i] = true;
+            changed = true;
+          }
+        }
+      }
+    }
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  /**
+   * Whether the function can write to its param at the index. False for builtins and unknown
+   * functions.
+   */
+  public boolean isWritten(String funcName, int param) {
+    boolean[] params = this.written.get(funcName);
+    return params != null && param < params.length && params[param];
+  }
+
+  /**
+   * Whether passing the argument to the param at the index of the function lets the function
+   * write to a variable of the caller.
+   */
+  public boolean isWrittenThrough(String funcName, int param, ArgumentNode arg) {
+    return arg.isVar()
+        || (arg.getArg() instanceof VariableReferenceNode && this.isWritten(funcName, param));
+  }
+
+  /**
+   * The slots of the function its statements can write to.
+   */
+  public Set<Integer> findWrittenSlots(FunctionNode fn) {
+    var ret = new HashSet<Integer>();
+    this.findWrittenSlots(fn.getStatements(), ret);
+    return ret;
+  }
+
+  private void findWrittenSlots(List<StatementNode> statements, Set<Integer> slots) {
+    if (statements == null) {
+      return;
+    }
+    for (StatementNode statement : statements) {
+      if (statement instanceof AssignmentNode) {
+        slots.add(((AssignmentNode) statement).getLeftSide().getSlot());
+      } else if (statement instanceof ForNode) {
+        slots.add(((ForNode) statement).getVarRef().getSlot());
+        this.findWrittenSlots(((ForNode) statement).getStatements(), slots);
+      } else if (statement instanceof WhileNode) {
+        this.findWrittenSlots(((WhileNode) statement).getStatements(), slots);
+      } else if (statement instanceof RepeatNode) {
+        this.findWrittenSlots(((RepeatNode) statement).getStatements(), slots);
+      } else if (statement instanceof WhenNode) {
+        Optional<WhenNode> possibleNextWhen = Optional.of((WhenNode) statement);
+        while (possibleNextWhen.isPresent()) {
+          this.findWrittenSlots(possibleNextWhen.get().getStatements(), slots);
+          possibleNextWhen = possibleNextWhen.get().getNextWhen();
+        }
+      } else if (statement instanceof FunctionCallNode
+          && ((FunctionCallNode) statement).getArgs() != null) {
+        FunctionCallNode call = (FunctionCallNode) statement;
+        List<ArgumentNode> args = call.getArgs();
+        for (int j = 0; j < args.size(); j++) {
+          if (this.isWrittenThrough(call.getFuncName(), j, args.get(j))) {
+            slots.add(((VariableReferenceNode) args.get(j).getArg()).getSlot());
+          }
+        }
+      }
+    }
+  }
+}
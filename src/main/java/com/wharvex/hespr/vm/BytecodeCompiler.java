@@ -0,0 +1,565 @@
+package com.wharvex.hespr.vm;
+
+import com.wharvex.hespr.CompileException;
+import com.wharvex.hespr.lexer.TokenType;
+import com.wharvex.hespr.parser.CompareType;
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+import com.wharvex.hespr.parser.nodes.ArgumentNode;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.BooleanCompareNode;
+import com.wharvex.hespr.parser.nodes.BooleanNode;
+import com.wharvex.hespr.parser.nodes.CharacterNode;
+import com.wharvex.hespr.parser.nodes.ForNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.RealNode;
+import com.wharvex.hespr.parser.nodes.RepeatNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import com.wharvex.hespr.semantic.FunctionTypes;
+import com.wharvex.hespr.semantic.WrittenParams;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Compiles a ProgramNode (after SemanticAnalysis and SlotResolution) into a CompiledProgram for
+ * the VirtualMachine.
+ *
+ * <p>Every expression must have a static type (see FunctionTypes); anything the Interpreter would
+ * only reject at runtime is a CompileException here, so callers can fall back to the Interpreter
+ * and get the same error at the same point of execution.
+ *
+ * <p>Slots live in int/ref registers, except slots that something else must be able to write to:
+ * var params, slots passed as $ arguments, and arrays. Those hold InterpreterDataType cells, like
+ * the Interpreter's frames do. Non-var arguments are passed by value, which only matches the
+ * Interpreter (it hands the callee the caller's own IDT for a bare variable) if the callee never
+ * writes to the param, so passing a bare variable to a param that is written (see WrittenParams)
+ * is a CompileException.
+ */
+public class BytecodeCompiler {
+
+  private final ProgramNode program;
+  private final List<FunctionNode> functions = new ArrayList<>();
+  private final HashMap<String, Integer> functionIndices = new HashMap<>();
+  private final List<BuiltinBase> builtins = new ArrayList<>();
+  private final HashMap<String, Integer> builtinIndices = new HashMap<>();
+  private final List<String> strings = new ArrayList<>();
+  private final HashMap<String, Integer> stringIndices = new HashMap<>();
+  private WrittenParams writtenParams;
+
+  // State for the function being compiled
+  private FunctionTypes types;
+  private boolean[] cellSlots;
+  private int[] code;
+  private int codeLen;
+  private int nextRegister;
+
+  public BytecodeCompiler(ProgramNode program) {
+    this.program = program;
+  }
+
+  public ProgramNode getProgram() {
+    return program;
+  }
+
+  public CompiledProgram compile() throws CompileException {
+    this.writtenParams = new WrittenParams(this.getProgram());
+    for (FunctionNode functionNode : this.getProgram().getFunctions().values()) {
+      if (functionNode instanceof BuiltinBase) {
+        this.builtinIndices.put(functionNode.getName(), this.builtins.size());
+        this.builtins.add((BuiltinBase) functionNode);
+      } else {
+        this.functionIndices.put(functionNode.getName(), this.functions.size());
+        this.functions.add(functionNode);
+      }
+    }
+    if (!this.functionIndices.containsKey("load")) {
+      throw new CompileException("Unknown function name load");
+    }
+    if (!this.functions.get(this.functionIndices.get("load")).getParams().isEmpty()) {
+      throw new CompileException("load cannot have parameters");
+    }
+    var compiled = new CompiledFunction[this.functions.size()];
+    for (int i = 0; i < compiled.length; i++) {
+      compiled[i] = this.compileFunction(this.functions.get(i));
+    }
+    return new CompiledProgram(compiled, this.builtins.toArray(new BuiltinBase[0]),
+        this.strings.toArray(new String[0]), this.functionIndices.get("load"));
+  }
+
+  // SLOTS
+
+  public static boolean isVarParam(VariableNode param) {
+    return param.getIsChangeable() || param.getIsArray();
+  }
+
+  /**
+   * Returns which slots of the function must hold InterpreterDataType cells rather than plain
+   * values: var params, arrays, and slots passed as $ arguments.
+   */
+  public static boolean[] findCellSlots(FunctionNode functionNode) {
+    boolean[] ret = new boolean[functionNode.getFrameSize()];
+    for (VariableNode v : functionNode.getParams()) {
+      ret[v.getSlot()] = isVarParam(v);
+    }
+    for (VariableNode v : functionNode.getVariables()) {
+      ret[v.getSlot()] = v.getIsArray();
+    }
+    for (VariableNode v : functionNode.getConstants()) {
+      ret[v.getSlot()] = v.getIsArray();
+    }
+    markVarArgs(functionNode.getStatements(), ret);
+    return ret;
+  }
+
+  private static void markVarArgs(List<StatementNode> statements, boolean[] cellSlots) {
+    for (StatementNode statement : statements) {
+      if (statement instanceof FunctionCallNode) {
+        for (ArgumentNode arg : ((FunctionCallNode) statement).getArgs()) {
+          if (arg.isVar() && ((VariableReferenceNode) arg.getArg()).getSlot() >= 0) {
+            cellSlots[((VariableReferenceNode) arg.getArg()).getSlot()] = true;
+          }
+        }
+      } else if (statement instanceof ForNode) {
+        markVarArgs(((ForNode) statement).getStatements(), cellSlots);
+      } else if (statement instanceof WhileNode) {
+        markVarArgs(((WhileNode) statement).getStatements(), cellSlots);
+      } else if (statement instanceof RepeatNode) {
+        markVarArgs(((RepeatNode) statement).getStatements(), cellSlots);
+      } else if (statement instanceof WhenNode) {
+        Optional<WhenNode> possibleNextWhen = Optional.of((WhenNode) statement);
+        while (possibleNextWhen.isPresent()) {
+          markVarArgs(possibleNextWhen.get().getStatements(), cellSlots);
+          possibleNextWhen = possibleNextWhen.get().getNextWhen();
+        }
+      }
+    }
+  }
+
+  // FUNCTIONS
+
+  private CompiledFunction compileFunction(FunctionNode functionNode) throws CompileException {
+    this.types = new FunctionTypes(functionNode);
+    this.cellSlots = findCellSlots(functionNode);
+    this.code = new int[64];
+    this.codeLen = 0;
+    this.nextRegister = functionNode.getFrameSize();
+
+    List<VariableNode> params = functionNode.getParams();
+    var paramSlots = new int[params.size()];
+    var paramTypes = new VariableType[params.size()];
+    var paramByRef = new boolean[params.size()];
+    var paramBoxed = new boolean[params.size()];
+    for (int i = 0; i < params.size(); i++) {
+      VariableNode param = params.get(i);
+      paramSlots[i] = param.getSlot();
+      paramTypes[i] = param.getType();
+      paramByRef[i] = isVarParam(param);
+      paramBoxed[i] = !paramByRef[i] && this.cellSlots[param.getSlot()];
+    }
+
+    for (VariableNode v : functionNode.getVariables()) {
+      VariableType type = this.types.getSlotType(v.getSlot());
+      if (v.getIsArray()) {
+        this.compileExpectedType(v.getRange().getFrom(), VariableType.INTEGER);
+        this.compileExpectedType(v.getRange().getTo(), VariableType.INTEGER);
+        this.emit(Opcode.NEW_ARRAY, v.getSlot(), type.ordinal());
+        continue;
+      }
+      switch (type) {
+        case STRING -> this.emit(Opcode.SCONST, this.stringIndex(""));
+        case CHARACTER -> this.emit(Opcode.ICONST, '0');
+        default -> this.emit(Opcode.ICONST, 0);
+      }
+      this.initSlot(v.getSlot(), type);
+    }
+    for (VariableNode v : functionNode.getConstants()) {
+      VariableType type = this.types.getSlotType(v.getSlot());
+      if (type == null) {
+        throw new CompileException("Cannot determine type of constant " + v.getName(), v);
+      }
+      this.compileExpression(v.getVal());
+      this.initSlot(v.getSlot(), type);
+    }
+    this.compileBlock(functionNode.getStatements());
+    this.emit(Opcode.RET);
+    return new CompiledFunction(functionNode.getName(), Arrays.copyOf(this.code, this.codeLen),
+        this.nextRegister, paramSlots, paramTypes, paramByRef, paramBoxed);
+  }
+
+  private void initSlot(int slot, VariableType type) {
+    if (this.cellSlots[slot]) {
+      this.emit(Opcode.BOX, type.ordinal());
+      this.emit(Opcode.REF_STORE, slot);
+    } else {
+      this.storeSlot(slot, type);
+    }
+  }
+
+  private void storeSlot(int slot, VariableType type) {
+    if (this.cellSlots[slot]) {
+      this.emit(Opcode.CELL_STORE, slot, type.ordinal());
+    } else if (type == VariableType.STRING) {
+      this.emit(Opcode.SSTORE, slot);
+    } else {
+      this.emit(Opcode.ISTORE, slot);
+    }
+  }
+
+  private void loadSlot(int slot, VariableType type) {
+    if (this.cellSlots[slot]) {
+      this.emit(Opcode.CELL_LOAD, slot, type.ordinal());
+    } else if (type == VariableType.STRING) {
+      this.emit(Opcode.SLOAD, slot);
+    } else {
+      this.emit(Opcode.ILOAD, slot);
+    }
+  }
+
+  // STATEMENTS
+
+  private void compileBlock(List<StatementNode> statements) throws CompileException {
+    for (StatementNode statement : statements) {
+      if (statement instanceof AssignmentNode) {
+        this.compileAssignment((AssignmentNode) statement);
+      } else if (statement instanceof ForNode) {
+        this.compileFor((ForNode) statement);
+      } else if (statement instanceof WhileNode) {
+        int top = this.codeLen;
+        int exit = this.compileConditionJump(((WhileNode) statement).getCondition(), false);
+        this.compileBlock(((WhileNode) statement).getStatements());
+        this.emit(Opcode.JMP, top);
+        this.patch(exit, this.codeLen);
+      } else if (statement instanceof RepeatNode) {
+        int top = this.codeLen;
+        int exit = this.compileConditionJump(((RepeatNode) statement).getCondition(), true);
+        this.compileBlock(((RepeatNode) statement).getStatements());
+        this.emit(Opcode.JMP, top);
+        this.patch(exit, this.codeLen);
+      } else if (statement instanceof WhenNode) {
+        this.compileWhen((WhenNode) statement);
+      } else if (statement instanceof FunctionCallNode) {
+        this.compileCall((FunctionCallNode) statement);
+      } else {
+        throw new CompileException("Unknown statement " + statement, statement);
+      }
+    }
+  }
+
+  private void compileAssignment(AssignmentNode assignment) throws CompileException {
+    VariableReferenceNode left = assignment.getLeftSide();
+    VariableType leftType = this.types.getSlotType(left.getSlot());
+    if (leftType == null) {
+      throw new CompileException("Cannot assign to " + left, assignment);
+    }
+    if (left.getArrIdxExp() != null) {
+      if (!this.types.isArraySlot(left.getSlot())) {
+        throw new CompileException("Cannot index variable " + left.getName(), assignment);
+      }
+      this.compileExpectedType(left.getArrIdxExp(), VariableType.INTEGER);
+      this.compileExpectedType(assignment.getRightSide(), leftType);
+      this.emit(Opcode.BOX, leftType.ordinal());
+      this.emit(Opcode.ELEM_STORE, left.getSlot());
+      return;
+    }
+    if (this.types.isArraySlot(left.getSlot())) {
+      throw new CompileException("Cannot assign to whole array " + left.getName(), assignment);
+    }
+    this.compileExpectedType(assignment.getRightSide(), leftType);
+    this.storeSlot(left.getSlot(), leftType);
+  }
+
+  private void compileFor(ForNode forNode) throws CompileException {
+    VariableReferenceNode varRef = forNode.getVarRef();
+    if (varRef.getArrIdxExp() != null || this.types.isArraySlot(varRef.getSlot())
+        || this.types.getSlotType(varRef.getSlot()) != VariableType.INTEGER) {
+      throw new CompileException("For loop variable must be an integer", forNode);
+    }
+    // The Interpreter reads a variable upper bound on every iteration, so it can move
+    int counter = this.nextRegister++;
+    int bound = -1;
+    this.compileExpectedType(forNode.getFrom(), VariableType.INTEGER);
+    this.emit(Opcode.ISTORE, counter);
+    boolean boundIsVariable = forNode.getTo() instanceof VariableReferenceNode
+        && ((VariableReferenceNode) forNode.getTo()).getArrIdxExp() == null;
+    if (!boundIsVariable) {
+      bound = this.nextRegister++;
+      this.compileExpectedType(forNode.getTo(), VariableType.INTEGER);
+      this.emit(Opcode.ISTORE, bound);
+    }
+    int top = this.codeLen;
+    this.emit(Opcode.ILOAD, counter);
+    if (boundIsVariable) {
+      this.compileExpectedType(forNode.getTo(), VariableType.INTEGER);
+    } else {
+      this.emit(Opcode.ILOAD, bound);
+    }
+    this.emit(Opcode.IJMP_UNLESS, CompareType.LESSEQUAL.ordinal(), -1);
+    int exit = this.codeLen - 1;
+    this.emit(Opcode.ILOAD, counter);
+    this.storeSlot(varRef.getSlot(), VariableType.INTEGER);
+    this.compileBlock(forNode.getStatements());
+    this.emit(Opcode.ILOAD, counter);
+    this.emit(Opcode.ICONST, 1);
+    this.emit(Opcode.IADD);
+    this.emit(Opcode.ISTORE, counter);
+    this.emit(Opcode.JMP, top);
+    this.patch(exit, this.codeLen);
+  }
+
+  private void compileWhen(WhenNode whenNode) throws CompileException {
+    var exits = new ArrayList<Integer>();
+    Optional<WhenNode> possibleNextWhen = Optional.of(whenNode);
+    while (possibleNextWhen.isPresent()) {
+      WhenNode branch = possibleNextWhen.get();
+      if (branch.getWhenOrElifOrElse() == TokenType.ELSE) {
+        this.compileBlock(branch.getStatements());
+        break;
+      }
+      int next = this.compileConditionJump(branch.getCondition(), false);
+      this.compileBlock(branch.getStatements());
+      this.emit(Opcode.JMP, -1);
+      exits.add(this.codeLen - 1);
+      this.patch(next, this.codeLen);
+      possibleNextWhen = branch.getNextWhen();
+    }
+    for (int exit : exits) {
+      this.patch(exit, this.codeLen);
+    }
+  }
+
+  /**
+   * Emits a jump that is taken when the condition is (jumpIfTrue) or is not (!jumpIfTrue) met,
+   * and returns the position of its target operand for patching.
+   */
+  private int compileConditionJump(Node condition, boolean jumpIfTrue) throws CompileException {
+    if (!(condition instanceof BooleanCompareNode)) {
+      throw new CompileException("Condition needs Boolean comparison", condition);
+    }
+    BooleanCompareNode bcn = (BooleanCompareNode) condition;
+    VariableType type = this.types.typeOfComparison(bcn);
+    if (type == null || bcn.getCompareType() == CompareType.NOTEQUAL) {
+      throw new CompileException("Cannot compare " + bcn, bcn);
+    }
+    this.compileExpression(bcn.getLeftSide());
+    this.compileExpression(bcn.getRightSide());
+    Opcode op;
+    if (type == VariableType.INTEGER) {
+      op = jumpIfTrue ? Opcode.IJMP_IF : Opcode.IJMP_UNLESS;
+    } else {
+      op = jumpIfTrue ? Opcode.FJMP_IF : Opcode.FJMP_UNLESS;
+    }
+    this.emit(op, bcn.getCompareType().ordinal(), -1);
+    return this.codeLen - 1;
+  }
+
+  private void compileCall(FunctionCallNode call) throws CompileException {
+    FunctionNode target = this.getProgram().getFunctions().get(call.getFuncName());
+    if (target == null) {
+      throw new CompileException("Unknown function name " + call.getFuncName(), call);
+    }
+    List<ArgumentNode> args = call.getArgs();
+    if (target.isVariadic()) {
+      for (ArgumentNode arg : args) {
+        if (((BuiltinBase) target).variadicNeedsVar() && !arg.isVar()) {
+          throw new CompileException(target.getName() + " must be called with var arguments",
+              call);
+        }
+        this.compileArgCell(arg, VariableType.ANY);
+      }
+      this.emit(Opcode.CALL_BUILTIN, this.builtinIndices.get(target.getName()), args.size());
+      return;
+    }
+    List<VariableNode> params = target.getParams();
+    if (params.size() != args.size()) {
+      throw new CompileException(target.getName() + " needs " + params.size() + " arguments",
+          call);
+    }
+    for (int j = 0; j < args.size(); j++) {
+      if (params.get(j).getIsChangeable() && !args.get(j).isVar()) {
+        throw new CompileException(
+            "Argument " + j + " to function " + target.getName() + " must be var", call);
+      }
+    }
+    if (target instanceof BuiltinBase) {
+      for (int j = 0; j < args.size(); j++) {
+        this.compileArgCell(args.get(j), params.get(j).getType());
+      }
+      this.emit(Opcode.CALL_BUILTIN, this.builtinIndices.get(target.getName()), args.size());
+      return;
+    }
+    for (int j = 0; j < args.size(); j++) {
+      VariableNode param = params.get(j);
+      ArgumentNode arg = args.get(j);
+      if (param.getIsArray() || (arg.isVar() && !param.getIsChangeable())) {
+        throw new CompileException(
+            "Argument " + j + " to function " + target.getName() + " is not supported", call);
+      }
+      if (!param.getIsChangeable()
+          && this.writtenParams.isWrittenThrough(target.getName(), j, arg)) {
+        throw new CompileException("Argument " + j + " to function " + target.getName()
+            + " is written by the function, which the VM passes by value", call);
+      }
+      if (param.getIsChangeable()) {
+        this.compileArgCell(arg, param.getType());
+      } else {
+        this.compileExpectedType(arg.getArg(), param.getType());
+      }
+    }
+    this.emit(Opcode.CALL, this.functionIndices.get(target.getName()));
+  }
+
+  /**
+   * Pushes an InterpreterDataType for the argument onto the ref stack. Variables that already live
+   * in cells are passed as themselves, like the Interpreter passes them.
+   */
+  private void compileArgCell(ArgumentNode arg, VariableType paramType) throws CompileException {
+    Node node = arg.getArg();
+    if (node instanceof VariableReferenceNode) {
+      VariableReferenceNode vrn = (VariableReferenceNode) node;
+      int slot = vrn.getSlot();
+      if (vrn.getArrIdxExp() == null && this.types.isArraySlot(slot)) {
+        if (paramType != VariableType.ANY) {
+          throw new CompileException("Cannot pass array " + vrn.getName() + " as " + paramType,
+              arg);
+        }
+        this.emit(Opcode.REF_LOAD, slot);
+        return;
+      }
+      VariableType type = this.types.typeOf(vrn);
+      if (type == null || (paramType != VariableType.ANY && paramType != type)) {
+        throw new CompileException("Argument " + vrn + " must be of type " + paramType, arg);
+      }
+      if (vrn.getArrIdxExp() != null) {
+        this.compileExpectedType(vrn.getArrIdxExp(), VariableType.INTEGER);
+        this.emit(Opcode.ELEM_LOAD, slot);
+        return;
+      }
+      if (this.cellSlots[slot]) {
+        this.emit(Opcode.REF_LOAD, slot);
+        return;
+      }
+    }
+    VariableType type = this.compileExpression(node);
+    if (paramType != VariableType.ANY && paramType != type) {
+      throw new CompileException("Argument " + node + " must be of type " + paramType, arg);
+    }
+    this.emit(Opcode.BOX, type.ordinal());
+  }
+
+  // EXPRESSIONS
+
+  private void compileExpectedType(Node node, VariableType expected) throws CompileException {
+    VariableType type = this.compileExpression(node);
+    if (type != expected) {
+      throw fail("Expected " + expected + " but found " + type + " in " + node, node);
+    }
+  }
+
+  /**
+   * Emits code leaving the value of the expression on the int stack or (for strings) the ref
+   * stack, and returns its type.
+   */
+  private VariableType compileExpression(Node node) throws CompileException {
+    VariableType type = this.types.typeOf(node);
+    if (type == null) {
+      throw fail("Cannot compile expression " + node, node);
+    }
+    if (node instanceof IntegerNode) {
+      this.emit(Opcode.ICONST, ((IntegerNode) node).getVal());
+    } else if (node instanceof RealNode) {
+      this.emit(Opcode.FCONST, Float.floatToRawIntBits(((RealNode) node).getVal()));
+    } else if (node instanceof StringNode) {
+      this.emit(Opcode.SCONST, this.stringIndex(((StringNode) node).getVal()));
+    } else if (node instanceof BooleanNode) {
+      this.emit(Opcode.ICONST, ((BooleanNode) node).getVal() ? 1 : 0);
+    } else if (node instanceof CharacterNode) {
+      this.emit(Opcode.ICONST, ((CharacterNode) node).getVal());
+    } else if (node instanceof VariableReferenceNode) {
+      VariableReferenceNode vrn = (VariableReferenceNode) node;
+      if (vrn.getArrIdxExp() != null) {
+        this.compileExpression(vrn.getArrIdxExp());
+        this.emit(Opcode.ELEM_LOAD, vrn.getSlot());
+        this.emit(Opcode.UNBOX, type.ordinal());
+      } else {
+        this.loadSlot(vrn.getSlot(), type);
+      }
+    } else {
+      this.compileMathOp((MathOpNode) node, type);
+    }
+    return type;
+  }
+
+  private void compileMathOp(MathOpNode mon, VariableType type) throws CompileException {
+    MathOpNode[] spine = mon.getLeftSpine(m -> this.types.typeOf(m) == type);
+    if (type == VariableType.STRING) {
+      this.compileStringOperand(spine[spine.length - 1].getLeftSide());
+      for (int i = spine.length - 1; i >= 0; i--) {
+        this.compileStringOperand(spine[i].getRightSide());
+        this.emit(Opcode.SCONCAT);
+      }
+      return;
+    }
+    this.compileExpression(spine[spine.length - 1].getLeftSide());
+    boolean isInt = type == VariableType.INTEGER;
+    for (int i = spine.length - 1; i >= 0; i--) {
+      this.compileExpression(spine[i].getRightSide());
+      this.emit(switch (spine[i].getMathOpType()) {
+        case ADD -> isInt ? Opcode.IADD : Opcode.FADD;
+        case SUBTRACT -> isInt ? Opcode.ISUB : Opcode.FSUB;
+        case MULTIPLY -> isInt ? Opcode.IMUL : Opcode.FMUL;
+        case DIVIDE -> isInt ? Opcode.IDIV : Opcode.FDIV;
+        case MOD -> isInt ? Opcode.IMOD : Opcode.FMOD;
+      });
+    }
+  }
+
+  private void compileStringOperand(Node node) throws CompileException {
+    VariableType type = this.compileExpression(node);
+    if (type != VariableType.STRING) {
+      this.emit(Opcode.TOSTR, type.ordinal());
+    }
+  }
+
+  private static CompileException fail(String problem, Node node) {
+    return node == null ? new CompileException(problem) : new CompileException(problem, node);
+  }
+
+  // CODE BUFFER
+
+  private int stringIndex(String s) {
+    Integer ret = this.stringIndices.get(s);
+    if (ret == null) {
+      ret = this.strings.size();
+      this.strings.add(s);
+      this.stringIndices.put(s, ret);
+    }
+    return ret;
+  }
+
+  private void emit(Opcode op, int... operands) {
+    if (this.codeLen + 1 + operands.length > this.code.length) {
+      this.code = Arrays.copyOf(this.code, this.code.length * 2);
+    }
+    this.code[this.codeLen++] = op.ordinal();
+    for (int operand : operands) {
+      this.code[this.codeLen++] = operand;
+    }
+  }
+
+  private void patch(int operandPos, int target) {
+    this.code[operandPos] = target;
+  }
+}
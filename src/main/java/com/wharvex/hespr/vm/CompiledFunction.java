@@ -0,0 +1,79 @@
+package com.wharvex.hespr.vm;
+
+import com.wharvex.hespr.parser.VariableType;
+
+public class CompiledFunction {
+
+  private final String name;
+  private final int[] code;
+  private final int registerCount;
+  private final int[] paramSlots;
+  private final VariableType[] paramTypes;
+  private final boolean[] paramByRef;
+  private final boolean[] paramBoxed;
+
+  /**
+   * @param paramByRef true where the caller passes a cell (var params and arrays)
+   * @param paramBoxed true where the caller passes a value but the callee keeps it in a cell
+   */
+  public CompiledFunction(String name, int[] code, int registerCount, int[] paramSlots,
+      VariableType[] paramTypes, boolean[] paramByRef, boolean[] paramBoxed) {
+    this.name = name;
+    this.code = code;
+    this.registerCount = registerCount;
+    this.paramSlots = paramSlots;
+    this.paramTypes = paramTypes;
+    this.paramByRef = paramByRef;
+    this.paramBoxed = paramBoxed;
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public int[] getCode() {
+    return this.code;
+  }
+
+  public int getRegisterCount() {
+    return this.registerCount;
+  }
+
+  public int getParamCount() {
+    return this.paramSlots.length;
+  }
+
+  public int[] getParamSlots() {
+    return this.paramSlots;
+  }
+
+  public VariableType[] getParamTypes() {
+    return this.paramTypes;
+  }
+
+  public boolean[] getParamByRef() {
+    return this.paramByRef;
+  }
+
+  public boolean[] getParamBoxed() {
+    return this.paramBoxed;
+  }
+
+  public String disassemble(String[] strings) {
+    StringBuilder ret = new StringBuilder(this.getName() + " (registers: " + this.registerCount
+        + ")");
+    int pc = 0;
+    while (pc < this.code.length) {
+      Opcode op = Opcode.VALUES[this.code[pc]];
+      ret.append("\n  ").append(pc).append(": ").append(op);
+      for (int i = 1; i <= op.operands; i++) {
+        ret.append(" ").append(this.code[pc + i]);
+      }
+      if (op == Opcode.SCONST) {
+        ret.append(" \"").append(strings[this.code[pc + 1]]).append("\"");
+      }
+      pc += 1 + op.operands;
+    }
+    return ret.toString();
+  }
+}
@@ -0,0 +1,46 @@
+package com.wharvex.hespr.vm;
+
+import com.wharvex.hespr.parser.builtins.BuiltinBase;
+
+public class CompiledProgram {
+
+  private final CompiledFunction[] functions;
+  private final BuiltinBase[] builtins;
+  private final String[] strings;
+  private final int entry;
+
+  public CompiledProgram(CompiledFunction[] functions, BuiltinBase[] builtins, String[] strings,
+      int entry) {
+    this.functions = functions;
+    this.builtins = builtins;
+    this.strings = strings;
+    this.entry = entry;
+  }
+
+  public CompiledFunction[] getFunctions() {
+    return this.functions;
+  }
+
+  public BuiltinBase[] getBuiltins() {
+    return this.builtins;
+  }
+
+  public String[] getStrings() {
+    return this.strings;
+  }
+
+  /**
+   * The index of load() in getFunctions().
+   */
+  public int getEntry() {
+    return this.entry;
+  }
+
+  public String toString() {
+    StringBuilder ret = new StringBuilder();
+    for (CompiledFunction function : this.functions) {
+      ret.append(function.disassemble(this.strings)).append("\n\n");
+    }
+    return ret.toString();
+  }
+}
@@ -0,0 +1,65 @@
+package com.wharvex.hespr.vm;
+
+/**
+ * The instructions of the hespr VM. Code is a flat int[] of opcode ordinals, each followed by its
+ * operands.
+ *
+ * <p>The VM has two operand stacks: the int stack holds integers, characters, booleans (0 or 1)
+ * and reals (as raw float bits); the ref stack holds strings and InterpreterDataType cells. A
+ * frame likewise has int registers and ref registers, one of each per slot.
+ */
+public enum Opcode {
+  // Constants
+  ICONST(1), // value
+  FCONST(1), // raw float bits
+  SCONST(1), // index into the string pool
+
+  // Registers
+  ILOAD(1), // slot
+  ISTORE(1), // slot
+  SLOAD(1), // slot
+  SSTORE(1), // slot
+  REF_LOAD(1), // slot; pushes the cell or array itself
+  REF_STORE(1), // slot
+  CELL_LOAD(2), // slot, VariableType ordinal
+  CELL_STORE(2), // slot, VariableType ordinal
+  ELEM_LOAD(1), // slot; pops index, pushes the element cell
+  ELEM_STORE(1), // slot; pops cell and index, calls ArrayDataType.setArrElm
+  NEW_ARRAY(2), // slot, VariableType ordinal; pops to and from
+
+  // Conversions between the stacks
+  BOX(1), // VariableType ordinal
+  UNBOX(1), // VariableType ordinal
+  TOSTR(1), // VariableType ordinal
+
+  // Math
+  IADD(0),
+  ISUB(0),
+  IMUL(0),
+  IDIV(0),
+  IMOD(0),
+  FADD(0),
+  FSUB(0),
+  FMUL(0),
+  FDIV(0),
+  FMOD(0),
+  SCONCAT(0),
+
+  // Control flow
+  JMP(1), // target
+  IJMP_UNLESS(2), // CompareType ordinal, target; pops two ints
+  FJMP_UNLESS(2), // CompareType ordinal, target; pops two reals
+  IJMP_IF(2), // CompareType ordinal, target; pops two ints
+  FJMP_IF(2), // CompareType ordinal, target; pops two reals
+  CALL(1), // index into CompiledProgram.functions
+  CALL_BUILTIN(2), // index into CompiledProgram.builtins, argument count
+  RET(0);
+
+  final int operands;
+
+  Opcode(int operands) {
+    this.operands = operands;
+  }
+
+  static final Opcode[] VALUES = values();
+}
@@ -0,0 +1,315 @@
+package com.wharvex.hespr.vm;
+
+import com.wharvex.hespr.interpreter.ArrayDataType;
+import com.wharvex.hespr.interpreter.BooleanDataType;
+import com.wharvex.hespr.interpreter.CharacterDataType;
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import com.wharvex.hespr.interpreter.StringDataType;
+import com.wharvex.hespr.parser.CompareType;
+import com.wharvex.hespr.parser.VariableType;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Executes a CompiledProgram. hespr calls do not recurse on the Java stack: each call pushes a
+ * Frame onto a linked list of frames and the dispatch loop switches to the callee's code.
+ */
+public class VirtualMachine {
+
+  private static final VariableType[] TYPES = VariableType.values();
+  private static final CompareType[] COMPARE_TYPES = CompareType.values();
+
+  private final CompiledProgram program;
+  private int[] istack = new int[64];
+  private int isp;
+  private Object[] ostack = new Object[64];
+  private int osp;
+
+  private static final class Frame {
+
+    final CompiledFunction function;
+    final int[] iregs;
+    final Object[] oregs;
+    final Frame caller;
+    int returnPc;
+
+    Frame(CompiledFunction function, Frame caller) {
+      this.function = function;
+      this.iregs = new int[function.getRegisterCount()];
+      this.oregs = new Object[function.getRegisterCount()];
+      this.caller = caller;
+    }
+  }
+
+  public VirtualMachine(CompiledProgram program) {
+    this.program = program;
+  }
+
+  public CompiledProgram getProgram() {
+    return program;
+  }
+
+  public void startProgram() throws Exception {
+    CompiledFunction[] functions = this.program.getFunctions();
+    String[] strings = this.program.getStrings();
+    Frame frame = new Frame(functions[this.program.getEntry()], null);
+    int[] code = frame.function.getCode();
+    int[] iregs = frame.iregs;
+    Object[] oregs = frame.oregs;
+    int pc = 0;
+    while (true) {
+      Opcode op = Opcode.VALUES[code[pc]];
+      switch (op) {
+        case ICONST, FCONST -> this.ipush(code[pc + 1]);
+        case SCONST -> this.opush(strings[code[pc + 1]]);
+        case ILOAD -> this.ipush(iregs[code[pc + 1]]);
+        case ISTORE -> iregs[code[pc + 1]] = this.ipop();
+        case SLOAD, REF_LOAD -> this.opush(oregs[code[pc + 1]]);
+        case SSTORE, REF_STORE -> oregs[code[pc + 1]] = this.opop();
+        case CELL_LOAD -> this.pushValue((InterpreterDataType) oregs[code[pc + 1]],
+            TYPES[code[pc + 2]]);
+        case CELL_STORE -> this.popValueInto((InterpreterDataType) oregs[code[pc + 1]],
+            TYPES[code[pc + 2]]);
+        case ELEM_LOAD -> this.opush(((ArrayDataType) oregs[code[pc + 1]]).getArrElm(this.ipop()));
+        case ELEM_STORE -> {
+          InterpreterDataType elm = (InterpreterDataType) this.opop();
+          ((ArrayDataType) oregs[code[pc + 1]]).setArrElm(this.ipop(), elm);
+        }
+        case NEW_ARRAY -> {
+          int to = this.ipop();
+          int from = this.ipop();
+          ArrayDataType arr = new ArrayDataType(TYPES[code[pc + 2]], from, to);
+          arr.setInitialized(true);
+          oregs[code[pc + 1]] = arr;
+        }
+        case BOX -> this.opush(this.box(TYPES[code[pc + 1]]));
+        case UNBOX -> this.pushValue((InterpreterDataType) this.opop(), TYPES[code[pc + 1]]);
+        case TOSTR -> this.opush(this.intToString(this.ipop(), TYPES[code[pc + 1]]));
+        case IADD -> {
+          int right = this.ipop();
+          this.ipush(this.ipop() + right);
+        }
+        case ISUB -> {
+          int right = this.ipop();
+          this.ipush(this.ipop() - right);
+        }
+        case IMUL -> {
+          int right = this.ipop();
+          this.ipush(this.ipop() * right);
+        }
+        case IDIV -> {
+          int right = this.ipop();
+          this.ipush(this.ipop() / right);
+        }
+        case IMOD -> {
+          int right = this.ipop();
+          this.ipush(this.ipop() % right);
+        }
+        case FADD -> {
+          float right = this.fpop();
+          this.fpush(this.fpop() + right);
+        }
+        case FSUB -> {
+          float right = this.fpop();
+          this.fpush(this.fpop() - right);
+        }
+        case FMUL -> {
+          float right = this.fpop();
+          this.fpush(this.fpop() * right);
+        }
+        case FDIV -> {
+          float right = this.fpop();
+          this.fpush(this.fpop() / right);
+        }
+        case FMOD -> {
+          float right = this.fpop();
+          this.fpush(this.fpop() % right);
+        }
+        case SCONCAT -> {
+          String right = (String) this.opop();
+          this.opush(this.opop() + right);
+        }
+        case JMP -> {
+          pc = code[pc + 1];
+          continue;
+        }
+        case IJMP_UNLESS, IJMP_IF -> {
+          int right = this.ipop();
+          boolean met = intCompare(COMPARE_TYPES[code[pc + 1]], this.ipop(), right);
+          if (met == (op == Opcode.IJMP_IF)) {
+            pc = code[pc + 2];
+            continue;
+          }
+        }
+        case FJMP_UNLESS, FJMP_IF -> {
+          float right = this.fpop();
+          boolean met = realCompare(COMPARE_TYPES[code[pc + 1]], this.fpop(), right);
+          if (met == (op == Opcode.FJMP_IF)) {
+            pc = code[pc + 2];
+            continue;
+          }
+        }
+        case CALL -> {
+          frame.returnPc = pc + 2;
+          frame = this.enter(functions[code[pc + 1]], frame);
+          code = frame.function.getCode();
+          iregs = frame.iregs;
+          oregs = frame.oregs;
+          pc = 0;
+          continue;
+        }
+        case CALL_BUILTIN -> {
+          int argc = code[pc + 2];
+          var args = new ArrayList<InterpreterDataType>(argc);
+          for (int i = this.osp - argc; i < this.osp; i++) {
+            args.add((InterpreterDataType) this.ostack[i]);
+          }
+          Arrays.fill(this.ostack, this.osp - argc, this.osp, null);
+          this.osp -= argc;
+          this.program.getBuiltins()[code[pc + 1]].execute(args);
+        }
+        case RET -> {
+          frame = frame.caller;
+          if (frame == null) {
+            return;
+          }
+          code = frame.function.getCode();
+          iregs = frame.iregs;
+          oregs = frame.oregs;
+          pc = frame.returnPc;
+          continue;
+        }
+      }
+      pc += 1 + op.operands;
+    }
+  }
+
+  /**
+   * Pops the arguments the caller pushed (in reverse, since the last one is on top) into a new
+   * frame for the callee.
+   */
+  private Frame enter(CompiledFunction callee, Frame caller) {
+    Frame ret = new Frame(callee, caller);
+    int[] slots = callee.getParamSlots();
+    VariableType[] types = callee.getParamTypes();
+    boolean[] byRef = callee.getParamByRef();
+    boolean[] boxed = callee.getParamBoxed();
+    for (int i = slots.length - 1; i >= 0; i--) {
+      if (byRef[i]) {
+        ret.oregs[slots[i]] = this.opop();
+      } else if (boxed[i]) {
+        ret.oregs[slots[i]] = this.box(types[i]);
+      } else if (types[i] == VariableType.STRING) {
+        ret.oregs[slots[i]] = this.opop();
+      } else {
+        ret.iregs[slots[i]] = this.ipop();
+      }
+    }
+    return ret;
+  }
+
+  private static boolean intCompare(CompareType compareType, int left, int right) {
+    return switch (compareType) {
+      case LESSTHAN -> left < right;
+      case GREATERTHAN -> left > right;
+      case GREATEREQUAL -> left >= right;
+      case LESSEQUAL -> left <= right;
+      case EQUALS -> left == right;
+      default -> false;
+    };
+  }
+
+  private static boolean realCompare(CompareType compareType, float left, float right) {
+    return switch (compareType) {
+      case LESSTHAN -> left < right;
+      case GREATERTHAN -> left > right;
+      case GREATEREQUAL -> left >= right;
+      case LESSEQUAL -> left <= right;
+      case EQUALS -> left == right;
+      default -> false;
+    };
+  }
+
+  // CELLS
+
+  private InterpreterDataType box(VariableType type) {
+    InterpreterDataType ret = switch (type) {
+      case INTEGER -> new IntegerDataType(this.ipop());
+      case REAL -> new RealDataType(this.fpop());
+      case CHARACTER -> new CharacterDataType((char) this.ipop());
+      case BOOLEAN -> new BooleanDataType(this.ipop() != 0);
+      default -> new StringDataType((String) this.opop());
+    };
+    ret.setInitialized(true);
+    return ret;
+  }
+
+  private void pushValue(InterpreterDataType cell, VariableType type) {
+    switch (type) {
+      case INTEGER -> this.ipush(((IntegerDataType) cell).getStoredVal());
+      case REAL -> this.fpush(((RealDataType) cell).getStoredVal());
+      case CHARACTER -> this.ipush(((CharacterDataType) cell).getStoredVal());
+      case BOOLEAN -> this.ipush(((BooleanDataType) cell).getStoredVal() ? 1 : 0);
+      default -> this.opush(((StringDataType) cell).getStoredVal());
+    }
+  }
+
+  private void popValueInto(InterpreterDataType cell, VariableType type) {
+    switch (type) {
+      case INTEGER -> ((IntegerDataType) cell).setStoredVal(this.ipop());
+      case REAL -> ((RealDataType) cell).setStoredVal(this.fpop());
+      case CHARACTER -> ((CharacterDataType) cell).setStoredVal((char) this.ipop());
+      case BOOLEAN -> ((BooleanDataType) cell).setStoredVal(this.ipop() != 0);
+      default -> ((StringDataType) cell).setStoredVal((String) this.opop());
+    }
+    cell.setInitialized(true);
+  }
+
+  /**
+   * Same text as the matching InterpreterDataType's toString().
+   */
+  private String intToString(int value, VariableType type) {
+    return switch (type) {
+      case REAL -> Float.intBitsToFloat(value) + "";
+      case CHARACTER -> (char) value + "";
+      case BOOLEAN -> (value != 0) + "";
+      default -> String.valueOf(value);
+    };
+  }
+
+  // STACKS
+
+  private void ipush(int value) {
+    if (this.isp == this.istack.length) {
+      this.istack = Arrays.copyOf(this.istack, this.isp * 2);
+    }
+    this.istack[this.isp++] = value;
+  }
+
+  private int ipop() {
+    return this.istack[--this.isp];
+  }
+
+  private void fpush(float value) {
+    this.ipush(Float.floatToRawIntBits(value));
+  }
+
+  private float fpop() {
+    return Float.intBitsToFloat(this.ipop());
+  }
+
+  private void opush(Object value) {
+    if (this.osp == this.ostack.length) {
+      this.ostack = Arrays.copyOf(this.ostack, this.osp * 2);
+    }
+    this.ostack[this.osp++] = value;
+  }
+
+  private Object opop() {
+    Object ret = this.ostack[--this.osp];
+    this.ostack[this.osp] = null;
+    return ret;
+  }
+}
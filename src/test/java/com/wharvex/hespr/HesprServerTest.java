@@ -0,0 +1,151 @@
+package com.wharvex.hespr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HesprServerTest {
+
+  private static final String READ_AND_ADD = String.join("\n",
+      "blok load||",
+      "flux a b, int",
+      "     Read! $a $b",
+      "     Write! (a + b)",
+      "");
+
+  @TempDir
+  Path dir;
+
+  private Path socket;
+  private HesprServer server;
+  private Thread serving;
+  private PrintStream out;
+  private ByteArrayOutputStream serverOut;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    this.out = System.out;
+    this.serverOut = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(this.serverOut, true, StandardCharsets.UTF_8));
+    this.socket = this.dir.resolve("hespr.sock");
+    this.server = new HesprServer(this.socket, 4, true);
+    this.server.bind();
+    this.serving = new Thread(() -> {
+      try {
+        this.server.serve();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    this.serving.start();
+  }
+
+  @AfterEach
+  void stopServer() throws InterruptedException {
+    this.server.close();
+    this.serving.join();
+    System.setOut(this.out);
+    // Programs write to their clients, and the server has nothing to say about requests it served
+    assertEquals("", this.serverOut.toString(StandardCharsets.UTF_8));
+  }
+
+  private record Result(int status, String out, String err) {
+
+  }
+
+  private Result run(Path source, String input) throws IOException {
+    var out = new ByteArrayOutputStream();
+    var err = new ByteArrayOutputStream();
+    int status = HesprClient.run(this.socket, source,
+        input.getBytes(StandardCharsets.UTF_8), out,
+        new PrintStream(err, true, StandardCharsets.UTF_8));
+    return new Result(status, out.toString(StandardCharsets.UTF_8),
+        err.toString(StandardCharsets.UTF_8));
+  }
+
+  private Path write(String name, String source) throws IOException {
+    return Files.writeString(this.dir.resolve(name), source);
+  }
+
+  @Test
+  void requestsRunSideBySideWithTheirOwnInput() throws Exception {
+    Path source = this.write("add.hespr", READ_AND_ADD);
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Result>> results = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        String input = i + " 1000";
+        results.add(clients.submit(() -> this.run(source, input)));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(new Result(0, "\n\n" + (i + 1000) + " ", ""), results.get(i).get());
+      }
+    } finally {
+      clients.shutdown();
+    }
+  }
+
+  @Test
+  void changedSourcesAreParsedAgain() throws Exception {
+    Path source = this.write("add.hespr", READ_AND_ADD);
+    assertEquals("\n\n7 ", this.run(source, "3 4").out());
+    assertEquals("\n\n7 ", this.run(source, "3 4").out());
+    // A longer source, so the change shows even if the modification time does not
+    this.write("add.hespr", READ_AND_ADD.replace("a + b", "a * b * 1"));
+    assertEquals("\n\n12 ", this.run(source, "3 4").out());
+  }
+
+  @Test
+  void errorsGoToTheClient() throws Exception {
+    Result syntaxError = this.run(this.write("bad.hespr", "blok load||\n  Write! (\n"), "");
+    assertEquals(ServerProtocol.EXIT_PROGRAM_ERROR, syntaxError.status());
+    assertTrue(syntaxError.err().contains("Line 2"), syntaxError.err());
+
+    Result runtimeError = this.run(this.write("div.hespr", String.join("\n",
+        "blok load||",
+        "flux a, int",
+        "     Write! 1",
+        "     a =_ 0",
+        "     Write! (1 / a)",
+        "")), "");
+    assertEquals(ServerProtocol.EXIT_PROGRAM_ERROR, runtimeError.status());
+    // The output from before the error still comes through
+    assertEquals("\n1 ", runtimeError.out());
+    assertFalse(runtimeError.err().isEmpty());
+
+    Result missing = this.run(this.dir.resolve("missing.hespr"), "");
+    assertEquals(ServerProtocol.EXIT_SERVER_ERROR, missing.status());
+    assertTrue(missing.err().startsWith("No such file"), missing.err());
+  }
+
+  @Test
+  void onlyOneServerListensOnASocket() throws Exception {
+    assertThrows(IOException.class, () -> new HesprServer(this.socket, 1, true).bind());
+    // A socket file nothing listens on is replaced
+    Path stale = Files.createFile(this.dir.resolve("stale.sock"));
+    HesprServer other = new HesprServer(stale, 1, true);
+    try {
+      other.bind();
+    } finally {
+      other.close();
+    }
+    assertFalse(Files.exists(stale));
+  }
+}
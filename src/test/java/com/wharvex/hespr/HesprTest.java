@@ -0,0 +1,131 @@
+package com.wharvex.hespr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HesprTest {
+
+  private static final String[] BACKENDS = {"--no-fold", "--stack", "--specialize", "--vm",
+      "--jvm"};
+
+  @TempDir
+  Path dir;
+
+  private String run(String... args) throws Exception {
+    return TestPrograms.captureOutput(() -> Hespr.main(args));
+  }
+
+  /**
+   * What the program wrote when run with the options: everything after the last INTERPRETER
+   * OUTPUT header, which comes after any compiler output and fallback message.
+   */
+  private String runProgram(Path source, String... options) throws Exception {
+    String[] args = Arrays.copyOf(options, options.length + 1);
+    args[options.length] = source.toString();
+    String output = this.run(args);
+    String header = "INTERPRETER OUTPUT\n\n";
+    return output.substring(output.lastIndexOf(header) + header.length());
+  }
+
+  @Test
+  void longExpressionsRunOnEveryBackend() throws Exception {
+    // Operators of the same precedence lean left, so the tree is 50000 nodes deep. Folding cannot
+    // shorten it since every operand is a variable
+    String sum = String.join(" + ", Collections.nCopies(50000, "x"));
+    Path source = Files.writeString(this.dir.resolve("long.hespr"), String.join("\n",
+        "blok load||",
+        "flux t x, int",
+        "flux s, str",
+        "     x =_ 1",
+        "     t =_ " + sum,
+        "     s =_ \"n\" + " + sum,
+        "     Write! t (s + \"\")",
+        ""));
+    String expected = "\n50000 n" + "1".repeat(50000) + " ";
+    String cache = "--cache=" + this.dir.resolve("cache");
+    for (String[] options : new String[][]{{}, {"--no-fold"}, {"--vm"}, {"--jvm"}, {"--stack"},
+        {cache}, {cache}}) {
+      assertEquals(expected, this.runProgram(source, options), String.join(" ", options));
+    }
+  }
+
+  @Test
+  void argumentsAliasTheSameOnEveryBackend() throws Exception {
+    // The Interpreter hands a function the caller's own IDT for a bare variable argument, $ or
+    // not, so bump changes x, and through relay too. The VM and compiled code pass non-$
+    // arguments by value, so they have to fall back for this program
+    Path aliasing = Files.writeString(this.dir.resolve("aliasing.hespr"), String.join("\n",
+        "blok bump|n, int|",
+        "     n =_ n + 1",
+        "",
+        "blok relay|m, int|",
+        "     bump! m",
+        "",
+        "blok load||",
+        "flux x y, int",
+        "perm c 5",
+        "     x =_ 1",
+        "     bump! x",
+        "     relay! x",
+        "     bump! (x + 10)",
+        "     y =_ x",
+        "     bump! $y",
+        "     relay! c",
+        "     Write! x y c (c + 1)",
+        ""));
+    String expected = this.runProgram(aliasing);
+    assertEquals("\n3 4 6 7 ", expected);
+    for (String backend : BACKENDS) {
+      assertEquals(expected, this.runProgram(aliasing, backend), backend);
+    }
+    assertTrue(this.run("--vm", aliasing.toString()).contains("Falling back"));
+    assertTrue(this.run("--jvm", aliasing.toString()).contains("Falling back"));
+
+    // Params that are only read and $ params need no copies, so this one compiles
+    Path byValue = Files.writeString(this.dir.resolve("byvalue.hespr"), String.join("\n",
+        "blok add|a b, int; $sum, int|",
+        "     sum =_ a + b",
+        "",
+        "blok load||",
+        "flux x s, int",
+        "     x =_ 4",
+        "     add! x x $s",
+        "     add! s (x * 2) $s",
+        "     Write! x s",
+        ""));
+    expected = this.runProgram(byValue);
+    assertEquals("\n4 16 ", expected);
+    for (String backend : BACKENDS) {
+      assertEquals(expected, this.runProgram(byValue, backend), backend);
+    }
+    assertFalse(this.run("--vm", byValue.toString()).contains("Falling back"));
+    assertFalse(this.run("--jvm", byValue.toString()).contains("Falling back"));
+  }
+
+  @Test
+  void indexingANonArrayIsReportedOnEveryBackend() throws Exception {
+    // Reading and writing an element each check that the variable is an array before casting it
+    for (String statement : new String[]{"y =_ x[1] + 1", "x[1] =_ 2"}) {
+      Path source = Files.writeString(this.dir.resolve("index.hespr"), String.join("\n",
+          "blok load||",
+          "flux x y, int",
+          "     x =_ 3",
+          "     " + statement,
+          ""));
+      String output = this.run(source.toString());
+      assertTrue(output.contains("Cannot index variable x"), output);
+      for (String backend : BACKENDS) {
+        output = this.run(backend, source.toString());
+        assertTrue(output.contains("Cannot index variable x"), backend + " printed " + output);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.wharvex.hespr;
+
+import com.wharvex.hespr.lexer.Lexer;
+import com.wharvex.hespr.parser.Parser;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.semantic.CallLinking;
+import com.wharvex.hespr.semantic.ConstantFolding;
+import com.wharvex.hespr.semantic.SemanticAnalysis;
+import com.wharvex.hespr.semantic.SlotResolution;
+import com.wharvex.hespr.semantic.TailCallMarking;
+import com.wharvex.hespr.semantic.TypeAnnotation;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Builds programs for tests the way Hespr does, and captures what they write.
+ */
+public final class TestPrograms {
+
+  private TestPrograms() {
+  }
+
+  public interface Run {
+
+    void run() throws Exception;
+  }
+
+  /**
+   * The passes of Hespr.analyze, in the order it runs them.
+   */
+  public enum Pass {
+    SEMANTIC_ANALYSIS,
+    SLOT_RESOLUTION,
+    CONSTANT_FOLDING,
+    TYPE_ANNOTATION,
+    CALL_LINKING,
+    TAIL_CALL_MARKING
+  }
+
+  /**
+   * Lexes and parses the lines and runs the passes every backend expects (see Hespr.analyze),
+   * with constant folding.
+   */
+  public static ProgramNode compile(List<String> lines) throws Exception {
+    return Hespr.analyze(parse(lines), true, true);
+  }
+
+  /**
+   * Like compile(), but stops after the last pass, so a test can look at the program a pass gets
+   * or run that pass itself.
+   */
+  public static ProgramNode compileThrough(List<String> lines, Pass last) throws Exception {
+    ProgramNode program = parse(lines);
+    for (Pass pass : Pass.values()) {
+      if (pass.compareTo(last) > 0) {
+        break;
+      }
+      switch (pass) {
+        case SEMANTIC_ANALYSIS -> new SemanticAnalysis(program).checkAssignments();
+        case SLOT_RESOLUTION -> new SlotResolution(program).resolveSlots();
+        case CONSTANT_FOLDING -> program = new ConstantFolding(program).foldConstants();
+        case TYPE_ANNOTATION -> new TypeAnnotation(program).annotateTypes();
+        case CALL_LINKING -> new CallLinking(program).linkCalls();
+        case TAIL_CALL_MARKING -> new TailCallMarking(program).markTailCalls();
+      }
+    }
+    return program;
+  }
+
+  /**
+   * Lexes and parses the lines, without running any passes.
+   */
+  public static ProgramNode parse(List<String> lines) throws Exception {
+    Lexer lexer = new Lexer(lines.size());
+    for (String line : lines) {
+      lexer.lex(line);
+    }
+    PrintStream out = System.out;
+    // parse() prints the program
+    System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+    try {
+      return new Parser(lexer.stateMachine.tokens).parse();
+    } finally {
+      System.setOut(out);
+    }
+  }
+
+  /**
+   * What the run writes to System.out.
+   */
+  public static String captureOutput(Run run) throws Exception {
+    PrintStream out = System.out;
+    var buffer = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+    try {
+      run.run();
+    } finally {
+      System.setOut(out);
+    }
+    return buffer.toString(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,139 @@
+package com.wharvex.hespr.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.lexer.Lexer;
+import com.wharvex.hespr.parser.Parser;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.semantic.CallLinking;
+import com.wharvex.hespr.semantic.SemanticAnalysis;
+import com.wharvex.hespr.semantic.SlotResolution;
+import com.wharvex.hespr.semantic.TypeAnnotation;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AstCacheTest {
+
+  private static final String PROGRAM = String.join("\n",
+      "blok count|n $c, int|",
+      "     when n = 0",
+      "          c =_ c",
+      "     elif n < 0",
+      "          c =_ 0 - 1",
+      "     else",
+      "          c =_ c + 1",
+      "          count! (n - 1) $c",
+      "",
+      "blok load||",
+      "flux t c k, int",
+      "flux r, real",
+      "flux s, str 1 -> 20",
+      "flux nums, int arr 0 -> 3",
+      "flux ch, char",
+      "flux ok, bool",
+      "perm two 2; greet \"hi\"; letter 'x'",
+      "     count! 5 $c",
+      "     r =_ 1.5 * 2.0",
+      "     s =_ greet + \" there \" + two",
+      "     ok =_ true",
+      "     ch =_ letter",
+      "     with k: 1 -> 3",
+      "          nums[k] =_ k * two",
+      "     t =_ 0",
+      "     whil t < 10",
+      "          t =_ t + nums[2]",
+      "     till until k > 10",
+      "          k =_ k + 4",
+      "     Write! c r s ok ch t k (10 - 4 - 3) \"\"",
+      "");
+
+  @TempDir
+  Path dir;
+
+  private static ProgramNode parse(String source) throws Exception {
+    Lexer lexer = new Lexer();
+    lexer.lexAll(source);
+    PrintStream out = System.out;
+    // parse() prints the program
+    System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+    try {
+      return new Parser(lexer.stateMachine.tokens).parse();
+    } finally {
+      System.setOut(out);
+    }
+  }
+
+  private static String run(ProgramNode program) throws Exception {
+    new SemanticAnalysis(program).checkAssignments();
+    new SlotResolution(program).resolveSlots();
+    new TypeAnnotation(program).annotateTypes();
+    new CallLinking(program).linkCalls();
+    PrintStream out = System.out;
+    var buffer = new ByteArrayOutputStream();
+    System.setOut(new PrintStream(buffer, true));
+    try {
+      new Interpreter(program).startProgram();
+    } finally {
+      System.setOut(out);
+    }
+    return buffer.toString();
+  }
+
+  @Test
+  public void roundTrip() throws Exception {
+    Path source = Files.writeString(this.dir.resolve("prog.hespr"), PROGRAM);
+    AstCache cache = new AstCache(this.dir.resolve("cache"));
+    String key = cache.getKey(source);
+    assertTrue(cache.load(key).isEmpty());
+    ProgramNode parsed = parse(PROGRAM);
+    cache.store(key, parsed);
+    ProgramNode loaded = cache.load(key).orElseThrow();
+    assertEquals(parsed.toString(), loaded.toString());
+    assertEquals(run(parse(PROGRAM)), run(loaded));
+  }
+
+  @Test
+  public void keyFollowsTheSource() throws Exception {
+    AstCache cache = new AstCache(this.dir);
+    Path a = Files.writeString(this.dir.resolve("a.hespr"), PROGRAM);
+    Path b = Files.writeString(this.dir.resolve("b.hespr"), PROGRAM);
+    Path c = Files.writeString(this.dir.resolve("c.hespr"), PROGRAM + "\n");
+    assertEquals(cache.getKey(a), cache.getKey(b));
+    assertNotEquals(cache.getKey(a), cache.getKey(c));
+  }
+
+  @Test
+  public void unreadableEntriesAreMisses() throws Exception {
+    AstCache cache = new AstCache(this.dir);
+    Path source = Files.writeString(this.dir.resolve("prog.hespr"), PROGRAM);
+    String key = cache.getKey(source);
+    Path entry = cache.store(key, parse(PROGRAM));
+    byte[] bytes = Files.readAllBytes(entry);
+    // An entry from another format version
+    bytes[7]++;
+    Files.write(entry, bytes);
+    assertTrue(cache.load(key).isEmpty());
+    // A truncated entry
+    Files.write(entry, new byte[] {bytes[0], bytes[1]});
+    assertTrue(cache.load(key).isEmpty());
+    bytes[7]--;
+    // Damaged counts, far bigger than the entry: the first function's name and its parameters
+    ByteBuffer damaged = ByteBuffer.wrap(bytes.clone());
+    int nameLength = damaged.getInt(12);
+    Files.write(entry, damaged.putInt(12, Integer.MAX_VALUE).array());
+    assertTrue(cache.load(key).isEmpty());
+    damaged = ByteBuffer.wrap(bytes.clone());
+    Files.write(entry, damaged.putInt(16 + nameLength + 8, Integer.MAX_VALUE - 8).array());
+    assertTrue(cache.load(key).isEmpty());
+    Files.write(entry, bytes);
+    assertTrue(cache.load(key).isPresent());
+  }
+}
@@ -0,0 +1,72 @@
+package com.wharvex.hespr.exec;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.interpreter.IntegerDataType;
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.interpreter.InterpreterDataType;
+import com.wharvex.hespr.interpreter.RealDataType;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ExecInterpreterTest {
+
+  private static final List<String> PROGRAM = List.of(
+      "blok gcdRec|a b $divisor, int|",
+      "     when b = 0",
+      "          divisor =_ a",
+      "     else",
+      "          gcdRec! b (a mod b) $divisor",
+      "blok load||",
+      "flux d i sum, int",
+      "flux r, real",
+      "flux s, str",
+      "     gcdRec! 57 26 $d",
+      "     Write! \"gcd\" d",
+      "     with i: 1 -> 100",
+      "          sum =_ sum + i",
+      "     r =_ 1.5 * 2.0",
+      "     s =_ \"r is \" + r",
+      "     Write! sum r s");
+
+  @Test
+  void matchesInterpreter() throws Exception {
+    Interpreter interpreter = new Interpreter(compile(PROGRAM));
+    String expected = captureOutput(interpreter::startProgram);
+    ExecInterpreter execInterpreter = new ExecInterpreter(compile(PROGRAM));
+    String actual = captureOutput(execInterpreter::startProgram);
+    assertEquals(expected, actual);
+  }
+
+  /**
+   * Stands in for a parent so the test can see what a child replaced itself with.
+   */
+  private static class Holder extends ExecNode {
+
+    ExprNode child;
+
+    Holder(ExprNode child) {
+      this.child = this.adopt(child);
+    }
+
+    @Override
+    protected void replaceChild(ExecNode oldChild, ExecNode newChild) {
+      this.child = (ExprNode) newChild;
+    }
+  }
+
+  @Test
+  void readSpecializesThenGeneralizes() throws Exception {
+    var holder = new Holder(new ReadSlotNode("x", 0));
+    var frame = new InterpreterDataType[]{new IntegerDataType(3)};
+    assertEquals(3, ((IntegerDataType) holder.child.execute(frame)).getStoredVal());
+    assertInstanceOf(IntReadSlotNode.class, holder.child);
+    frame[0] = new RealDataType(2.5f);
+    ExprNode intRead = holder.child;
+    var e = assertThrows(UnexpectedResultException.class, () -> intRead.executeInt(frame));
+    assertEquals(2.5f, ((RealDataType) e.getResult()).getStoredVal());
+    assertEquals(GenericReadSlotNode.class, holder.child.getClass());
+  }
+}
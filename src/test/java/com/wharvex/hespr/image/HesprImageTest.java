@@ -0,0 +1,76 @@
+package com.wharvex.hespr.image;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compile;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.vm.BytecodeCompiler;
+import com.wharvex.hespr.vm.VirtualMachine;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HesprImageTest {
+
+  private static final List<String> PROGRAM = List.of(
+      "blok gcd|a b $divisor, int|",
+      "     when b = 0",
+      "          divisor =_ a",
+      "     else",
+      "          gcd! b (a mod b) $divisor",
+      "",
+      "blok load||",
+      "flux d k, int",
+      "flux s, str",
+      "perm two 2; greet \"hi\"",
+      "     gcd! 460 64 $d",
+      "     s =_ greet + \" \" + two",
+      "     with k: 1 -> 3",
+      "          d =_ d + k * two",
+      "     Write! d s (10 - 4 - 3)");
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void interpreterImage() throws Exception {
+    ProgramNode program = compile(PROGRAM);
+    Path path = this.dir.resolve("prog.hspi");
+    new HesprImage(program, null).write(path);
+    HesprImage image = HesprImage.read(path);
+    assertNull(image.getCompiled());
+    String expected = captureOutput(() -> new Interpreter(compile(PROGRAM)).startProgram());
+    assertEquals("\n16 hi 2 3 ", expected);
+    // No passes run on the loaded program
+    assertEquals(expected, captureOutput(() -> new Interpreter(image.getProgram()).startProgram()));
+  }
+
+  @Test
+  public void bytecodeImage() throws Exception {
+    ProgramNode program = compile(PROGRAM);
+    Path path = this.dir.resolve("prog.hspi");
+    new HesprImage(program, new BytecodeCompiler(program).compile()).write(path);
+    HesprImage image = HesprImage.read(path);
+    assertNotNull(image.getCompiled());
+    assertEquals(new BytecodeCompiler(compile(PROGRAM)).compile().toString(),
+        image.getCompiled().toString());
+    assertEquals(
+        captureOutput(() -> new VirtualMachine(new BytecodeCompiler(compile(PROGRAM)).compile())
+            .startProgram()),
+        captureOutput(() -> new VirtualMachine(image.getCompiled()).startProgram()));
+  }
+
+  @Test
+  public void rejectsOtherFiles() throws Exception {
+    Path path = Files.writeString(this.dir.resolve("prog.hspi"), String.join("\n", PROGRAM));
+    assertThrows(IOException.class, () -> HesprImage.read(path));
+  }
+}
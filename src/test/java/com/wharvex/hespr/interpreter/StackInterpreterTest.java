@@ -0,0 +1,64 @@
+package com.wharvex.hespr.interpreter;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class StackInterpreterTest {
+
+  private static final List<String> PROGRAM = List.of(
+      "blok gcdRec|a b $divisor, int|",
+      "     when b = 0",
+      "          divisor =_ a",
+      "     else",
+      "          gcdRec! b (a mod b) $divisor",
+      "blok load||",
+      "flux d i j sum, int",
+      "     gcdRec! 1035 747 $d",
+      "     Write! \"gcd\" d",
+      "     with i: 1 -> 10",
+      "          with j: 1 -> i",
+      "               sum =_ sum + j",
+      "     whil sum > 100",
+      "          sum =_ sum - 7",
+      "     till until sum < 50",
+      "          sum =_ sum - 11",
+      "     Write! sum");
+
+  private static final List<String> DEEP = List.of(
+      "blok count|n, int; $total, int|",
+      "     when n > 0",
+      "          count! (n - 1) $total",
+      "          total =_ total + 1",
+      "blok load||",
+      "flux t, int",
+      "     t =_ 0",
+      "     count! 100000 $t",
+      "     Write! t");
+
+  @Test
+  void matchesInterpreter() throws Exception {
+    Interpreter interpreter = new Interpreter(compile(PROGRAM));
+    String expected = captureOutput(interpreter::startProgram);
+    StackInterpreter stackInterpreter = new StackInterpreter(compile(PROGRAM));
+    assertEquals(expected, captureOutput(stackInterpreter::startProgram));
+  }
+
+  @Test
+  void deepRecursion() throws Exception {
+    StackInterpreter stackInterpreter = new StackInterpreter(compile(DEEP));
+    assertEquals("100000", captureOutput(stackInterpreter::startProgram).trim());
+  }
+
+  @Test
+  void depthLimit() throws Exception {
+    StackInterpreter stackInterpreter = new StackInterpreter(compile(DEEP), 3);
+    var e = assertThrows(HesprRuntimeException.class, stackInterpreter::startProgram);
+    assertEquals("Call depth limit of 3 exceeded", e.getCause().getMessage());
+    assertEquals(List.of("    at count (line 3)", "    at count (line 3)", "    at load (line 8)"),
+        e.getHesprStackTrace());
+  }
+}
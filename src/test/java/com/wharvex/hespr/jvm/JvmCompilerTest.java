@@ -0,0 +1,77 @@
+package com.wharvex.hespr.jvm;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.CompileException;
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class JvmCompilerTest {
+
+  private static final List<String> GCD = List.of(
+      "blok gcdRec|a b $divisor, int|",
+      "     when b = 0",
+      "          divisor =_ a",
+      "     else",
+      "          gcdRec! b (a mod b) $divisor",
+      "blok load||",
+      "flux d i sum, int",
+      "flux r, real",
+      "     gcdRec! 57 26 $d",
+      "     Write! \"gcd\" d",
+      "     with i: 1 -> 100",
+      "          sum =_ sum + i",
+      "     r =_ 1.5 * 2.0",
+      "     when r > 2.0",
+      "          r =_ r / 2.0",
+      "     Write! sum r");
+
+  @Test
+  void matchesInterpreter() throws Exception {
+    Interpreter interpreter = new Interpreter(compile(GCD));
+    String expected = captureOutput(interpreter::startProgram);
+    JvmProgram compiled = new JvmCompiler(compile(GCD), "test.hespr").compile();
+    assertEquals(2, compiled.getClasses().size());
+    String actual = captureOutput(compiled::startProgram);
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void untypedExpressionIsCompileError() throws Exception {
+    ProgramNode program = compile(List.of(
+        "blok load||",
+        "flux a, int",
+        "     when a = 1.5",
+        "          a =_ 1"));
+    assertThrows(CompileException.class, () -> new JvmCompiler(program, "test.hespr").compile());
+  }
+
+  @Test
+  void bareArgumentToWrittenParamIsCompileError() throws Exception {
+    ProgramNode program = compile(List.of(
+        "blok bump|n, int|",
+        "     n =_ n + 1",
+        "blok load||",
+        "flux x, int",
+        "     bump! x"));
+    assertThrows(CompileException.class, () -> new JvmCompiler(program, "test.hespr").compile());
+  }
+
+  @Test
+  void methodTooLongForClassFileIsCompileError() throws Exception {
+    var lines = new ArrayList<>(List.of("blok load||", "flux i, int"));
+    for (int j = 0; j < 15000; j++) {
+      lines.add("     i =_ i + 1");
+    }
+    ProgramNode program = compile(lines);
+    // The JVM would only reject it with a ClassFormatError when loading the class
+    CompileException e = assertThrows(CompileException.class,
+        () -> new JvmCompiler(program, "test.hespr").compile());
+    assertTrue(e.getMessage().contains("too long"), e.getMessage());
+  }
+}
@@ -0,0 +1,133 @@
+package com.wharvex.hespr.lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.StringJoiner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LexerTest {
+
+  private static String lex(List<String> lines) throws Exception {
+    Lexer lexer = new Lexer(lines.size());
+    for (String line : lines) {
+      lexer.lex(line);
+    }
+    return tokens(lexer);
+  }
+
+  private static String tokens(Lexer lexer) {
+    StringJoiner ret = new StringJoiner(" ");
+    for (int i = 0; i < lexer.stateMachine.getTokensLength(); i++) {
+      Token token = lexer.stateMachine.getTokenAt(i);
+      ret.add(token.toString().replaceAll(" -- Line \\d+", ""));
+    }
+    return ret.toString();
+  }
+
+  @Test
+  public void lexesEveryKindOfState() throws Exception {
+    String tokens = lex(List.of(
+        "{{ a comment",
+        "spanning lines }}",
+        "blok main|$v, int|",
+        "     v =_ 1.5 + .5 - 2 * x1 / 3 mod 4",
+        "     when v <= 3",
+        "          Write! \"hi\", 'c', ~v, !",
+        "     with v: 1 -> 10 {{ inline }}",
+        "          v =_ v >= 1 <> 2 < 3 > 4"));
+    assertEquals("ENDOFLINE ENDOFLINE BLOK IDENTIFIER(main) PIPE(|) VAR($) IDENTIFIER(v) COMMA(,) "
+        + "INT PIPE(|) ENDOFLINE INDENT IDENTIFIER(v) ASSIGN(=_) NUMBER_DECIMAL(1.5) PLUS(+) "
+        + "NUMBER_DECIMAL(.5) MINUS(-) NUMBER(2) TIMES(*) IDENTIFIER(x1) DIVIDE(/) NUMBER(3) MOD "
+        + "NUMBER(4) ENDOFLINE WHEN IDENTIFIER(v) LESSEQUAL(<=) NUMBER(3) ENDOFLINE INDENT "
+        + "IDENTIFIER(Write) BANG(!) STRINGLITERAL(\"hi\") COMMA(,) CHARACTERLITERAL('c') COMMA(,) "
+        + "TILDE(~) IDENTIFIER(v) COMMA(,) BANG(!) ENDOFLINE DEDENT WITH IDENTIFIER(v) COLON(:) "
+        + "NUMBER(1) ARROW(->) NUMBER(10) ENDOFLINE INDENT IDENTIFIER(v) ASSIGN(=_) IDENTIFIER(v) "
+        + "GREATEREQUAL(>=) NUMBER(1) NOTEQUAL(<>) NUMBER(2) LESSTHAN(<) NUMBER(3) "
+        + "GREATERTHAN(>) NUMBER(4) ENDOFLINE DEDENT DEDENT", tokens);
+  }
+
+  @Test
+  public void lexesReader() throws Exception {
+    // The unclosed comment only ends because the lexer knows which line is the last one
+    List<String> lines = List.of(
+        "blok main||",
+        "     Write! \"hi\"",
+        "",
+        "          {{ not indented",
+        "     Write! 1 {{ unclosed");
+    Lexer lexer = new Lexer();
+    lexer.lex(new StringReader(String.join("\n", lines) + "\n"));
+    assertEquals(lex(lines), tokens(lexer));
+    assertEquals("BLOK IDENTIFIER(main) PIPE(|) PIPE(|) ENDOFLINE INDENT IDENTIFIER(Write) BANG(!) "
+        + "STRINGLITERAL(\"hi\") ENDOFLINE ENDOFLINE ENDOFLINE ENDOFLINE DEDENT", tokens(lexer));
+  }
+
+  @Test
+  public void lexesMappedSource(@TempDir Path dir) throws Exception {
+    List<String> lines = List.of("blok main||", "     Write! \"hi\" {{ x", "", "     y }}");
+    Path file = dir.resolve("main.hespr");
+    Files.writeString(file, String.join("\r\n", lines));
+    CharSequence source = MappedSource.load(file);
+    assertTrue(source instanceof MappedSource);
+    Lexer lexer = new Lexer();
+    lexer.lexAll(source);
+    assertEquals(lex(lines), tokens(lexer));
+
+    // Anything that is not ASCII is decoded
+    Files.writeString(file, "{{ caf\u00e9 }}\n", StandardCharsets.UTF_8);
+    source = MappedSource.load(file);
+    assertFalse(source instanceof MappedSource);
+    assertEquals("{{ caf\u00e9 }}\n", source.toString());
+  }
+
+  @Test
+  public void longTokens() throws Exception {
+    String literal = "\"" + "ab ".repeat(100000) + "\"";
+    String comment = "{{" + " x".repeat(100000) + " }}";
+    String tokens = lex(List.of("blok main||", "     Write! " + literal + " " + comment));
+    assertEquals("BLOK IDENTIFIER(main) PIPE(|) PIPE(|) ENDOFLINE INDENT IDENTIFIER(Write) "
+        + "BANG(!) STRINGLITERAL(" + literal + ") ENDOFLINE DEDENT", tokens);
+  }
+
+  @Test
+  public void indentation() throws Exception {
+    String tokens = lex(List.of(
+        "blok main||",
+        "     when a",
+        "          b",
+        "            ",
+        "     {{ comment-only lines keep the level }}",
+        "     {{ and so does this one",
+        "}}",
+        "c",
+        "{{ spaces after a comment are not indents }}          d",
+        "     e"));
+    assertEquals("BLOK IDENTIFIER(main) PIPE(|) PIPE(|) ENDOFLINE INDENT WHEN IDENTIFIER(a) ENDOFLINE "
+        + "INDENT IDENTIFIER(b) ENDOFLINE ENDOFLINE ENDOFLINE ENDOFLINE ENDOFLINE DEDENT DEDENT "
+        + "IDENTIFIER(c) ENDOFLINE IDENTIFIER(d) ENDOFLINE INDENT IDENTIFIER(e) ENDOFLINE DEDENT",
+        tokens);
+  }
+
+  @Test
+  public void invalidCharacters() {
+    SyntaxErrorException e = assertThrows(SyntaxErrorException.class,
+        () -> lex(List.of("blok main||", "     v =_ 3 # 4")));
+    assertTrue(e.getMessage().contains("for StateType SPACE\non line 2 col 13"), e.getMessage());
+    e = assertThrows(SyntaxErrorException.class,
+        () -> lex(List.of("blok main||", "     v =_ 12ab")));
+    assertTrue(e.getMessage().contains("for StateType NUMBER\non line 2 col 13"), e.getMessage());
+    e = assertThrows(SyntaxErrorException.class,
+        () -> lex(List.of("blok main||", "     v =_ \"abc")));
+    assertTrue(e.getMessage().contains("Closure needed"), e.getMessage());
+  }
+}
@@ -0,0 +1,46 @@
+package com.wharvex.hespr.lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class PackedTokensTest {
+
+  @Test
+  public void lexesTheSameTokens() throws Exception {
+    String source = "blok main|$v, int|\n"
+        + "     v =_ 1.5 + .5 - 2 * x1\n"
+        + "     when v <= 3\n"
+        + "          Write! \"hi\", 'c', v\n";
+    Lexer listLexer = new Lexer();
+    listLexer.lexAll(source);
+    PackedTokens packed = new PackedTokens();
+    new Lexer(packed).lexAll(source);
+    assertEquals(listLexer.stateMachine.tokens.toString(), packed.toString());
+    // Each distinct value is stored once
+    assertSame(packed.get(4).getValueString(), packed.get(10).getValueString());
+    assertEquals(TokenType.IDENTIFIER, packed.getTokenType(10));
+    assertEquals(2, packed.getTokenLineNum(10));
+  }
+
+  @Test
+  public void insertsAndRemoves() {
+    List<Token> expected = new ArrayList<>();
+    PackedTokens packed = new PackedTokens();
+    for (int i = 0; i < 40; i++) {
+      Token token = new Token("t" + (i % 7), TokenType.values()[i % TokenType.values().length], i);
+      expected.add(i / 2, token);
+      packed.add(i / 2, token);
+    }
+    for (int i = 0; i < 10; i++) {
+      expected.remove(i * 2);
+      packed.remove(i * 2);
+    }
+    assertEquals(expected.toString(), packed.toString());
+    packed.clear();
+    assertEquals(0, packed.size());
+  }
+}
@@ -0,0 +1,76 @@
+package com.wharvex.hespr.lexer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ParallelLexerTest {
+
+  private static ForkJoinPool pool;
+
+  @BeforeAll
+  public static void startPool() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  public static void stopPool() {
+    pool.shutdown();
+  }
+
+  private static List<Token> lex(String source) throws Exception {
+    Lexer lexer = new Lexer();
+    lexer.lexAll(source);
+    return lexer.stateMachine.tokens;
+  }
+
+  private static List<Token> lexParallel(String source) throws Exception {
+    List<Token> ret = new ArrayList<>();
+    // Split at every blok
+    new ParallelLexer(pool, 1).lex(source, ret);
+    return ret;
+  }
+
+  private static String withLineNums(List<Token> tokens) {
+    StringBuilder ret = new StringBuilder();
+    tokens.forEach(token -> ret.append(token).append('\n'));
+    return ret.toString();
+  }
+
+  @Test
+  public void matchesLexer() throws Exception {
+    StringBuilder source = new StringBuilder();
+    for (int n = 0; n < 50; n++) {
+      source.append("{{ a comment that mentions\n")
+          .append("blok fake").append(n).append("||\n")
+          .append("}}\n")
+          .append("blok f").append(n).append("|a, str|\n")
+          .append("     when a = \"{{\"\n")
+          .append("          a =_ '{'\n")
+          .append("          whil a <> \"x\"\n")
+          .append("               a =_ \"x\"\r\n")
+          .append("\n")
+          .append("     \n")
+          .append("blokky! 1\n");
+    }
+    // A comment still open at the end of the file ends there
+    source.append("blok last||\n     Write! 1 {{ unclosed\n\n");
+    assertEquals(withLineNums(lex(source.toString())),
+        withLineNums(lexParallel(source.toString())));
+  }
+
+  @Test
+  public void reportsTheSameError() throws Exception {
+    String source = "blok a||\n     x =_ 1\n\nblok b||\n     x =_ 1 # 2\n\nblok c||\n     y\n";
+    Exception expected = assertThrows(SyntaxErrorException.class, () -> lex(source));
+    Exception actual = assertThrows(SyntaxErrorException.class, () -> lexParallel(source));
+    assertEquals(expected.getMessage(), actual.getMessage());
+  }
+}
@@ -0,0 +1,112 @@
+package com.wharvex.hespr.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import com.wharvex.hespr.lexer.Lexer;
+import com.wharvex.hespr.lexer.Token;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ParallelParserTest {
+
+  private static ForkJoinPool pool;
+
+  private final PrintStream out = System.out;
+
+  @BeforeAll
+  public static void startPool() {
+    pool = new ForkJoinPool(4);
+  }
+
+  @AfterAll
+  public static void stopPool() {
+    pool.shutdown();
+  }
+
+  @BeforeEach
+  public void muteParser() {
+    // parse() prints the program
+    System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+  }
+
+  @AfterEach
+  public void restoreOut() {
+    System.setOut(this.out);
+  }
+
+  private static List<Token> lex(String source) throws Exception {
+    Lexer lexer = new Lexer();
+    lexer.lexAll(source);
+    return lexer.stateMachine.tokens;
+  }
+
+  private static String function(int n, String cond) {
+    return "blok gcd" + n + "|a b $divisor, int|\n"
+        + "     when " + cond + "\n"
+        + "          divisor =_ a\n"
+        + "     else\n"
+        + "          gcd" + n + "! b (a mod b) $divisor\n\n";
+  }
+
+  @Test
+  public void matchesParser() throws Exception {
+    StringBuilder source = new StringBuilder("{{ leading comment }}\n\n");
+    for (int n = 0; n < 50; n++) {
+      source.append(function(n, "b = 0"));
+    }
+    source.append("blok load||\n")
+        .append("flux d, int\n")
+        .append("     gcd0! 460 64 $d\n")
+        .append("     Write! d\n");
+    List<Token> tokens = lex(source.toString());
+    String expected = new Parser(tokens).parse().toString();
+    // Parse every function in its own task
+    assertEquals(expected, new ParallelParser(pool, 1).parse(tokens).toString());
+    assertEquals(expected, new ParallelParser(pool).parse(tokens).toString());
+  }
+
+  @Test
+  public void reportsTheErrorsOfEveryFunction() throws Exception {
+    List<Token> tokens = lex(function(0, "b =") + function(1, "b = 0") + function(2, "= 0"));
+    SyntaxErrorException e = assertThrows(SyntaxErrorException.class,
+        () -> new ParallelParser(pool, 1).parse(tokens));
+    assertEquals(2, e.getSuppressed().length);
+    assertEquals(e.getSuppressed()[0].getMessage() + e.getSuppressed()[1].getMessage(),
+        e.getMessage());
+    // The first error is the one Parser stops at
+    SyntaxErrorException first = assertThrows(SyntaxErrorException.class,
+        () -> new Parser(tokens).parse());
+    assertTrue(e.getMessage().startsWith(first.getMessage()), e.getMessage());
+  }
+
+  @Test
+  public void reportsTokensBetweenFunctions() throws Exception {
+    List<Token> tokens = lex("x\n" + function(0, "b = 0"));
+    SyntaxErrorException e = assertThrows(SyntaxErrorException.class,
+        () -> new ParallelParser(pool, 1).parse(tokens));
+    assertEquals(assertThrows(SyntaxErrorException.class, () -> new Parser(tokens).parse())
+        .getMessage(), e.getMessage());
+  }
+
+  @Test
+  public void endOfFunctionHasALine() throws Exception {
+    List<Token> tokens = lex("blok f||\n\n" + function(0, "b = 0") + "blok g||\n");
+    SyntaxErrorException e = assertThrows(SyntaxErrorException.class,
+        () -> new ParallelParser(pool, 1).parse(tokens));
+    assertEquals(2, e.getSuppressed().length);
+    // The end of a function is on the line of the next blok, or of its own last token
+    assertTrue(e.getSuppressed()[0].getMessage().endsWith("found ENDOFFILE() -- Line 3"),
+        e.getMessage());
+    assertTrue(e.getSuppressed()[1].getMessage().endsWith("found ENDOFFILE() -- Line 9"),
+        e.getMessage());
+  }
+}
@@ -0,0 +1,120 @@
+package com.wharvex.hespr.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.wharvex.hespr.SyntaxErrorException;
+import com.wharvex.hespr.lexer.Lexer;
+import com.wharvex.hespr.lexer.LexingTokenStream;
+import com.wharvex.hespr.lexer.Token;
+import com.wharvex.hespr.lexer.TokenStream;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.Node;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ParserTest {
+
+  private final PrintStream out = System.out;
+
+  private static String source(int functions) {
+    StringBuilder ret = new StringBuilder();
+    for (int n = 0; n < functions; n++) {
+      ret.append("{{ function ").append(n).append(" }}\n")
+          .append("blok gcd").append(n).append("|a b $divisor, int|\n")
+          .append("     when b = 0\n")
+          .append("          divisor =_ a\n")
+          .append("     else\n")
+          .append("          gcd").append(n).append("! b (a mod b) $divisor\n\n");
+    }
+    return ret.append("blok load||\n")
+        .append("flux d, int\n")
+        .append("     gcd0! 460 64 $d\n")
+        .append("     Write! d\n").toString();
+  }
+
+  @BeforeEach
+  public void muteParser() {
+    // parse() prints the program
+    System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+  }
+
+  @AfterEach
+  public void restoreOut() {
+    System.setOut(this.out);
+  }
+
+  @Test
+  public void streamingMatchesList() throws Exception {
+    String source = source(3);
+    Lexer lexer = new Lexer();
+    lexer.lexAll(source);
+    String expected = new Parser(lexer.stateMachine.tokens).parse().toString();
+    assertEquals(expected, new Parser(new LexingTokenStream(source)).parse().toString());
+    assertEquals(expected,
+        new Parser(new LexingTokenStream(new StringReader(source))).parse().toString());
+  }
+
+  @Test
+  public void streamingBuffersOnlyTheLookahead() throws Exception {
+    LexingTokenStream lexing = new LexingTokenStream(source(2000));
+    int[] maxBuffered = {0};
+    TokenStream tokens = new TokenStream() {
+      @Override
+      public Optional<Token> peek(int idx) throws SyntaxErrorException {
+        Optional<Token> ret = lexing.peek(idx);
+        maxBuffered[0] = Math.max(maxBuffered[0], lexing.getBufferedCount());
+        return ret;
+      }
+
+      @Override
+      public Token next() throws SyntaxErrorException {
+        return lexing.next();
+      }
+    };
+    assertEquals(2000 + 12, new Parser(tokens).parse().getFunctions().size());
+    // About 50000 tokens in all, but never more than the line being parsed and the one after
+    assertTrue(maxBuffered[0] < 30, "buffered " + maxBuffered[0]);
+  }
+
+  private static String parseAssignment(String expression) throws Exception {
+    Lexer lexer = new Lexer();
+    lexer.lexAll("blok load||\nflux t, int\n     t =_ " + expression + "\n");
+    String program = new Parser(lexer.stateMachine.tokens).parse().toString();
+    return program.substring(program.indexOf("t := ") + 5, program.indexOf('\n',
+        program.indexOf("t := ")));
+  }
+
+  @Test
+  public void mathOpsAreLeftAssociative() throws Exception {
+    assertEquals("(SUBTRACT (SUBTRACT 10 4) 3)", parseAssignment("10 - 4 - 3"));
+    assertEquals("(ADD (SUBTRACT 10 (MULTIPLY (MULTIPLY 3 2) 1)) (MOD 5 3))",
+        parseAssignment("10 - 3 * 2 * 1 + 5 mod 3"));
+    assertEquals("(MULTIPLY 2 (ADD 3 4))", parseAssignment("2 * (3 + 4)"));
+  }
+
+  @Test
+  public void longExpressionsDoNotRecurse() throws Exception {
+    StringBuilder expression = new StringBuilder("1");
+    for (int i = 0; i < 100000; i++) {
+      expression.append(i % 2 == 0 ? " + 2" : " * 3");
+    }
+    Lexer lexer = new Lexer();
+    lexer.lexAll("blok load||\nflux t, int\n     t =_ " + expression + "\n");
+    FunctionNode load = new Parser(lexer.stateMachine.tokens).parseOnlyFunc();
+    Node node = ((AssignmentNode) load.getStatements().get(0)).getRightSide();
+    int depth = 0;
+    while (node instanceof MathOpNode mathOp) {
+      node = mathOp.getLeftSide();
+      depth++;
+    }
+    // 1 + 2 * 3 + 2 * 3 ... adds every other operator to the left spine
+    assertEquals(50000, depth);
+  }
+}
@@ -0,0 +1,65 @@
+package com.wharvex.hespr.semantic;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compileThrough;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.TestPrograms.Pass;
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CallLinkingTest {
+
+  @Test
+  void linkCalls() throws Exception {
+    ProgramNode program = compileThrough(List.of(
+        "blok add|a b, int; $sum, int|",
+        "     sum =_ a + b",
+        "blok load||",
+        "flux x, int",
+        "flux r, real",
+        "     add! 1 x $x",
+        "     add! 1 2 x",
+        "     add! 1 $x",
+        "     nope! 1",
+        "     when x = 0",
+        "          Write! x r"), Pass.TYPE_ANNOTATION);
+    var linking = new CallLinking(program);
+    linking.linkCalls();
+    assertEquals(2, linking.getLinkedCount());
+    List<StatementNode> statements = program.getFunctions().get("load").getStatements();
+    FunctionCallNode good = (FunctionCallNode) statements.get(0);
+    assertSame(program.getFunctions().get("add"), good.getTarget());
+    assertArrayEquals(new boolean[]{true, true, true}, good.getTypeCheckedArgs());
+    // Not var, wrong arity, unknown name
+    for (int i = 1; i <= 3; i++) {
+      assertNull(((FunctionCallNode) statements.get(i)).getTarget());
+    }
+    FunctionCallNode write = (FunctionCallNode) ((WhenNode) statements.get(4)).getStatements()
+        .get(0);
+    assertSame(program.getFunctions().get("Write"), write.getTarget());
+  }
+
+  @Test
+  void badCallStillFailsWhenExecuted() throws Exception {
+    ProgramNode program = compileThrough(List.of(
+        "blok add|a b, int; $sum, int|",
+        "     sum =_ a + b",
+        "blok load||",
+        "flux x, int",
+        "     add! 1 2 $x",
+        "     Write! x",
+        "     add! 1 2 x"), Pass.TYPE_ANNOTATION);
+    new CallLinking(program).linkCalls();
+    String output = captureOutput(() -> {
+      Exception e = assertThrows(Exception.class, () -> new Interpreter(program).startProgram());
+      assertEquals("Argument 2 to function add must be var", e.getMessage());
+    });
+    assertEquals("3", output.trim());
+  }
+}
@@ -0,0 +1,105 @@
+package com.wharvex.hespr.semantic;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compileThrough;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.TestPrograms.Pass;
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.IntegerNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.StringNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ConstantFoldingTest {
+
+  private static final List<String> PROGRAM = List.of(
+      "blok load||",
+      "flux i j, int",
+      "flux s, str",
+      "perm two 2; greeting \"hi\"",
+      "     i =_ (3 * two) + 1",
+      "     j =_ i * 1",
+      "     s =_ greeting + \" \" + two",
+      "     when two > 5",
+      "          Write! \"never\"",
+      "     elif two = 2",
+      "          Write! \"always\"",
+      "     else",
+      "          Write! \"never\"",
+      "     i =_ i / 0",
+      "     Write! i j s");
+
+  @Test
+  void foldConstants() throws Exception {
+    ProgramNode program = compileThrough(PROGRAM, Pass.SLOT_RESOLUTION);
+    var folding = new ConstantFolding(program);
+    ProgramNode folded = folding.foldConstants();
+    List<StatementNode> statements = folded.getFunctions().get("load").getStatements();
+    assertEquals(7, ((IntegerNode) ((AssignmentNode) statements.get(0)).getRightSide()).getVal());
+    assertInstanceOf(VariableReferenceNode.class,
+        ((AssignmentNode) statements.get(1)).getRightSide());
+    assertEquals("hi 2", ((StringNode) ((AssignmentNode) statements.get(2)).getRightSide())
+        .getVal());
+    // The when chain is gone, its one reachable branch inlined
+    assertEquals("Write", statements.get(3).toString().split("\\(")[0]);
+    assertEquals(6, statements.size());
+    // 5 constant references, 2 math ops, 2 concatenations, the i * 1 and 2 when branches
+    assertEquals(12, folding.getFoldedCount());
+    // The original program is untouched
+    assertInstanceOf(AssignmentNode.class,
+        program.getFunctions().get("load").getStatements().get(0));
+  }
+
+  @Test
+  void matchesInterpreter() throws Exception {
+    ProgramNode program = compileThrough(PROGRAM, Pass.SLOT_RESOLUTION);
+    ProgramNode folded = compileThrough(PROGRAM, Pass.TYPE_ANNOTATION);
+    // PROGRAM ends by dividing by zero, which folding leaves for the Interpreter to fail on
+    var outputs = new ArrayList<String>();
+    var errors = new ArrayList<String>();
+    for (ProgramNode p : List.of(program, folded)) {
+      outputs.add(captureOutput(() -> errors.add(assertThrows(Exception.class,
+          () -> new Interpreter(p).startProgram()).toString())));
+    }
+    assertEquals(outputs.get(0), outputs.get(1));
+    assertEquals(errors.get(0), errors.get(1));
+  }
+
+  @Test
+  void constantsPassedToWrittenParamsAreNotPropagated() throws Exception {
+    // The Interpreter hands bump c's own IDT, so bump changes c, even through relay
+    List<String> aliasing = List.of(
+        "blok bump|n, int|",
+        "     n =_ n + 1",
+        "",
+        "blok relay|m, int|",
+        "     bump! m",
+        "",
+        "blok show|k, int|",
+        "     Write! k",
+        "",
+        "blok load||",
+        "perm c 5; d 7",
+        "     relay! c",
+        "     show! d",
+        "     Write! \"c\" c d");
+    ProgramNode program = compileThrough(aliasing, Pass.SLOT_RESOLUTION);
+    String expected = captureOutput(() -> new Interpreter(program).startProgram());
+    assertEquals("\n7 \nc 6 7 ", expected);
+    ProgramNode folded = compileThrough(aliasing, Pass.TYPE_ANNOTATION);
+    assertEquals(expected, captureOutput(() -> new Interpreter(folded).startProgram()));
+    // d is only passed to a param that is never written, so it is still propagated
+    List<StatementNode> statements = folded.getFunctions().get("load").getStatements();
+    assertInstanceOf(VariableReferenceNode.class,
+        ((FunctionCallNode) statements.get(0)).getArgs().get(0).getArg());
+    assertInstanceOf(IntegerNode.class,
+        ((FunctionCallNode) statements.get(1)).getArgs().get(0).getArg());
+  }
+}
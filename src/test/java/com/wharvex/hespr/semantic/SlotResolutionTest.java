@@ -0,0 +1,56 @@
+package com.wharvex.hespr.semantic;
+
+import static com.wharvex.hespr.TestPrograms.parse;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.FunctionNode;
+import com.wharvex.hespr.parser.nodes.MathOpNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.VariableReferenceNode;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SlotResolutionTest {
+
+  @Test
+  void resolveSlots() throws Exception {
+    ProgramNode program = parse(List.of(
+        "blok add|a b $c, int|",
+        "flux tmp, int",
+        "perm one 1",
+        "     tmp =_ a + one",
+        "     c =_ tmp + b"));
+    new SlotResolution(program).resolveSlots();
+    FunctionNode add = program.getFunctions().get("add");
+    assertEquals(5, add.getFrameSize());
+    assertEquals(3, add.getVariables().get(0).getSlot());
+    assertEquals(4, add.getConstants().get(0).getSlot());
+    AssignmentNode first = (AssignmentNode) add.getStatements().get(0);
+    MathOpNode rightSide = (MathOpNode) first.getRightSide();
+    assertEquals(3, first.getLeftSide().getSlot());
+    assertEquals(0, ((VariableReferenceNode) rightSide.getLeftSide()).getSlot());
+    assertEquals(4, ((VariableReferenceNode) rightSide.getRightSide()).getSlot());
+  }
+
+  @Test
+  void undeclaredNameKeepsNoSlot() throws Exception {
+    ProgramNode program = parse(List.of(
+        "blok load||",
+        "flux a, int",
+        "     a =_ missing"));
+    new SlotResolution(program).resolveSlots();
+    AssignmentNode assignment =
+        (AssignmentNode) program.getFunctions().get("load").getStatements().get(0);
+    assertEquals(-1, ((VariableReferenceNode) assignment.getRightSide()).getSlot());
+  }
+
+  @Test
+  void redeclaredParameter() throws Exception {
+    ProgramNode program = parse(List.of(
+        "blok f|a, int|",
+        "flux a, int",
+        "     a =_ 1"));
+    assertThrows(Exception.class, () -> new SlotResolution(program).resolveSlots());
+  }
+}
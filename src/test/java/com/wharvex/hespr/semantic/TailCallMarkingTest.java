@@ -0,0 +1,55 @@
+package com.wharvex.hespr.semantic;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.nodes.FunctionCallNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.WhenNode;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TailCallMarkingTest {
+
+  @Test
+  void markTailCalls() throws Exception {
+    ProgramNode program = compile(List.of(
+        "blok gcdRec|a b $divisor, int|",
+        "     when b = 0",
+        "          divisor =_ a",
+        "     else",
+        "          gcdRec! b (a mod b) $divisor",
+        "blok twice|n, int|",
+        "flux i, int",
+        "     with i: 1 -> 2",
+        "          twice! n",
+        "     twice! n",
+        "     Write! n",
+        "blok load||",
+        "     twice! 1"));
+    List<StatementNode> gcd = program.getFunctions().get("gcdRec").getStatements();
+    WhenNode elseBranch = ((WhenNode) gcd.get(0)).getNextWhen().get();
+    assertTrue(((FunctionCallNode) elseBranch.getStatements().get(0)).isSelfTailCall());
+    // Neither the call in the loop nor the one followed by Write is last
+    List<StatementNode> twice = program.getFunctions().get("twice").getStatements();
+    assertFalse(((FunctionCallNode) twice.get(1)).isSelfTailCall());
+  }
+
+  @Test
+  void deepRecursion() throws Exception {
+    ProgramNode program = compile(List.of(
+        "blok countDown|n, int; $total, int|",
+        "     when n > 0",
+        "          total =_ total + 1",
+        "          countDown! (n - 1) $total",
+        "blok load||",
+        "flux t, int",
+        "     t =_ 0",
+        "     countDown! 200000 $t",
+        "     Write! t"));
+    assertEquals("200000", captureOutput(() -> new Interpreter(program).startProgram()).trim());
+  }
+}
@@ -0,0 +1,41 @@
+package com.wharvex.hespr.semantic;
+
+import static com.wharvex.hespr.TestPrograms.compileThrough;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.TestPrograms.Pass;
+import com.wharvex.hespr.parser.VariableType;
+import com.wharvex.hespr.parser.nodes.AssignmentNode;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import com.wharvex.hespr.parser.nodes.StatementNode;
+import com.wharvex.hespr.parser.nodes.WhileNode;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TypeAnnotationTest {
+
+  @Test
+  void annotateTypes() throws Exception {
+    ProgramNode program = compileThrough(List.of(
+        "blok load||",
+        "flux i, int",
+        "flux r, real",
+        "flux s, str",
+        "     whil i < 10",
+        "          i =_ i + 1",
+        "     r =_ r * 2.0",
+        "     s =_ \"i is \" + i",
+        "     i =_ missing + 1"), Pass.TYPE_ANNOTATION);
+    List<StatementNode> statements = program.getFunctions().get("load").getStatements();
+    WhileNode whil = (WhileNode) statements.get(0);
+    assertEquals(VariableType.INTEGER, whil.getCondition().getStaticType());
+    assertEquals(VariableType.INTEGER,
+        ((AssignmentNode) whil.getStatements().get(0)).getRightSide().getStaticType());
+    assertEquals(VariableType.REAL,
+        ((AssignmentNode) statements.get(1)).getRightSide().getStaticType());
+    assertEquals(VariableType.STRING,
+        ((AssignmentNode) statements.get(2)).getRightSide().getStaticType());
+    // Undeclared names have no type, so neither does anything built from them
+    assertNull(((AssignmentNode) statements.get(3)).getRightSide().getStaticType());
+  }
+}
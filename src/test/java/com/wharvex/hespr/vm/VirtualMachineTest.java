@@ -0,0 +1,63 @@
+package com.wharvex.hespr.vm;
+
+import static com.wharvex.hespr.TestPrograms.captureOutput;
+import static com.wharvex.hespr.TestPrograms.compile;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.wharvex.hespr.CompileException;
+import com.wharvex.hespr.interpreter.Interpreter;
+import com.wharvex.hespr.parser.nodes.ProgramNode;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class VirtualMachineTest {
+
+  private static final List<String> GCD = List.of(
+      "blok gcdRec|a b $divisor, int|",
+      "     when b = 0",
+      "          divisor =_ a",
+      "     else",
+      "          gcdRec! b (a mod b) $divisor",
+      "blok load||",
+      "flux d i sum, int",
+      "flux r, real",
+      "     gcdRec! 57 26 $d",
+      "     Write! \"gcd\" d",
+      "     with i: 1 -> 100",
+      "          sum =_ sum + i",
+      "     r =_ 1.5 * 2.0",
+      "     Write! sum r");
+
+  @Test
+  void matchesInterpreter() throws Exception {
+    Interpreter interpreter = new Interpreter(compile(GCD));
+    String expected = captureOutput(interpreter::startProgram);
+    CompiledProgram compiled = new BytecodeCompiler(compile(GCD)).compile();
+    String actual = captureOutput(() -> new VirtualMachine(compiled).startProgram());
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void untypedExpressionIsCompileError() throws Exception {
+    ProgramNode program = compile(List.of(
+        "blok load||",
+        "flux a, int",
+        "     when a = 1.5",
+        "          a =_ 1"));
+    assertThrows(CompileException.class, () -> new BytecodeCompiler(program).compile());
+  }
+
+  @Test
+  void bareArgumentToWrittenParamIsCompileError() throws Exception {
+    // The Interpreter aliases x to n, but the VM would pass a copy
+    ProgramNode program = compile(List.of(
+        "blok bump|n, int|",
+        "     n =_ n + 1",
+        "blok load||",
+        "flux x, int",
+        "     x =_ 5",
+        "     bump! x",
+        "     bump! (x + 0)"));
+    assertThrows(CompileException.class, () -> new BytecodeCompiler(program).compile());
+  }
+}